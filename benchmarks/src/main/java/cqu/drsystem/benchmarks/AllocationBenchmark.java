@@ -0,0 +1,79 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.AllocationResult;
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single-threaded allocation through {@link ResourceManagement}: one resource at a time
+ * and an all-or-nothing batch of three line items. Every allocation is released again, so the
+ * inventory stays at a steady state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int resources;
+
+    private ResourceManagement resourceManagement;
+    private Disaster disaster;
+    private Resource[] targets;
+    private List<AllocationRequest> batch;
+
+    @Setup
+    public void setUp() {
+        Fixtures.silenceConsole();
+        resourceManagement = Fixtures.inventory(resources);
+        disaster = Fixtures.disasters(1, 42)[0];
+        targets = new Resource[1024];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = resourceManagement.getResourceByName(Fixtures.resourceName(ThreadLocalRandom.current().nextInt(resources)));
+        }
+        batch = Arrays.asList(
+                new AllocationRequest(Fixtures.resourceName(0), 2),
+                new AllocationRequest(Fixtures.resourceName(resources / 2), 1),
+                new AllocationRequest(Fixtures.resourceName(resources - 1), 3));
+    }
+
+    @Benchmark
+    public boolean allocateResource() {
+        Resource resource = targets[ThreadLocalRandom.current().nextInt(targets.length)];
+        boolean allocated = resourceManagement.allocateResource(disaster, resource, 1);
+        if (allocated) {
+            resource.release(1);
+        }
+        return allocated;
+    }
+
+    @Benchmark
+    public AllocationResult allocateBatch() {
+        AllocationResult result = resourceManagement.allocateBatch(disaster, batch);
+        List<Resource> allocated = result.getAllocatedResources();
+        for (int i = 0; i < allocated.size(); i++) {
+            allocated.get(i).release(batch.get(i).getQuantity());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.Resource;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the lock-free {@link Resource#tryReserve}/{@link Resource#release} pair against a
+ * synchronized baseline, with many threads hammering a single scarce resource. Each iteration
+ * checks that the pool was never oversubscribed. Use {@code -t} to change the thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class AllocationContentionBenchmark {
+
+    private static final int UNITS = 10;
+
+    private Resource resource;
+    private SynchronizedPool synchronizedPool;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        resource = new Resource("1", "Fire Truck", "Vehicle", "available", UNITS);
+        synchronizedPool = new SynchronizedPool(UNITS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkNoOversubscription() {
+        if (resource.getAvailableQuantity() != UNITS || resource.getAllocatedQuantity() != 0) {
+            throw new IllegalStateException("Resource oversubscribed: " + resource);
+        }
+        if (synchronizedPool.available != UNITS) {
+            throw new IllegalStateException("Synchronized pool oversubscribed: " + synchronizedPool.available);
+        }
+    }
+
+    @Benchmark
+    public boolean casReserveRelease() {
+        if (resource.tryReserve(1)) {
+            int available = resource.getAvailableQuantity();
+            if (available < 0) {
+                throw new IllegalStateException("Negative availability: " + available);
+            }
+            resource.release(1);
+            return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean synchronizedReserveRelease() {
+        if (synchronizedPool.tryReserve(1)) {
+            synchronizedPool.release(1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The locking baseline: the read-check-write the controller used to do, under one monitor.
+     */
+    static final class SynchronizedPool {
+        private int available;
+
+        SynchronizedPool(int available) {
+            this.available = available;
+        }
+
+        synchronized boolean tryReserve(int quantity) {
+            if (available < quantity) {
+                return false;
+            }
+            available -= quantity;
+            return true;
+        }
+
+        synchronized void release(int quantity) {
+            available += quantity;
+        }
+    }
+}
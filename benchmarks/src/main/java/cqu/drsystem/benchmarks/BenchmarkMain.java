@@ -0,0 +1,36 @@
+package cqu.drsystem.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmark jar. Runs JMH with the given command line and, unless told
+ * otherwise, writes the results as JSON to {@code jmh-result.json} so runs can be compared
+ * between builds.
+ *
+ * Examples:
+ * <pre>
+ *   java -jar benchmarks/target/benchmarks.jar                         (everything)
+ *   java -jar benchmarks/target/benchmarks.jar ResourceLookup -p resources=1000000
+ *   java -jar benchmarks/target/benchmarks.jar AllocationContention -t 16 -rff contention.json
+ * </pre>
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!arguments.contains("-rff")) {
+            arguments.add("-rff");
+            arguments.add("jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
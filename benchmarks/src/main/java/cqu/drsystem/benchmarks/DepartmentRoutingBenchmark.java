@@ -0,0 +1,50 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.DepartmentRoute;
+import cqu.drsystem.core.DepartmentRouter;
+import cqu.drsystem.core.Disaster;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the department routing that used to live in {@code PrimaryController.notifyDepartments},
+ * now resolved through the compiled routing table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DepartmentRoutingBenchmark {
+
+    private DepartmentRouter router;
+    private Disaster[] disasters;
+
+    @Setup
+    public void setUp() {
+        router = new DepartmentRouter();
+        disasters = Fixtures.disasters(1024, 7);
+    }
+
+    @Benchmark
+    public List<String> route() {
+        return router.route(disasters[ThreadLocalRandom.current().nextInt(disasters.length)]);
+    }
+
+    @Benchmark
+    public DepartmentRoute resolve() {
+        return router.resolve(disasters[ThreadLocalRandom.current().nextInt(disasters.length)]);
+    }
+}
@@ -0,0 +1,66 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DispatchService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Disaster#toString} and disaster log rendering at log sizes from 1k to 1M:
+ * the old full-text rebuild done by {@code updateDisasterLog} against rendering only the rows
+ * a virtualized list view shows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DisasterLogBenchmark {
+
+    private static final int VISIBLE_ROWS = 25;
+
+    @Param({"1000", "100000", "1000000"})
+    public int logSize;
+
+    private Disaster[] log;
+
+    @Setup
+    public void setUp() {
+        log = Fixtures.disasters(logSize, 11);
+    }
+
+    @Benchmark
+    public String disasterToString() {
+        return log[ThreadLocalRandom.current().nextInt(log.length)].toString();
+    }
+
+    @Benchmark
+    public String fullLogRebuild() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < log.length; i++) {
+            text.append(i + 1).append(". ").append(log[i]).append("\n");
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public void visibleRowsRender(Blackhole blackhole) {
+        int first = ThreadLocalRandom.current().nextInt(Math.max(1, log.length - VISIBLE_ROWS));
+        for (int i = first; i < Math.min(log.length, first + VISIBLE_ROWS); i++) {
+            blackhole.consume(DispatchService.formatLogEntry(i + 1, log[i]));
+        }
+    }
+}
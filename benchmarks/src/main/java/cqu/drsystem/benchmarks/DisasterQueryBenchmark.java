@@ -0,0 +1,92 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DisasterQuery;
+import cqu.drsystem.core.DisasterReport;
+import cqu.drsystem.core.DispatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures filtered queries over the disaster log at 1M and 4M entries: a linear scan of the log
+ * against the bitmap indexes behind {@link DispatchService#countDisasters}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DisasterQueryBenchmark {
+
+    private static final int BATCH = 10_000;
+
+    // Reports need a line item; allocation fails fast once the default units run out
+    private static final List<AllocationRequest> REQUESTS = Collections.singletonList(new AllocationRequest("Rescue Team", 1));
+
+    @Param({"1000000", "4000000"})
+    public int logSize;
+
+    private DispatchService dispatchService;
+    private List<Disaster> log;
+    private DisasterQuery highFloodsInRockhampton;
+
+    @Setup
+    public void setUp() {
+        dispatchService = new DispatchService(null);
+        Disaster[] disasters = Fixtures.disasters(logSize, 17);
+        for (int start = 0; start < disasters.length; start += BATCH) {
+            List<DisasterReport> reports = new ArrayList<>(BATCH);
+            for (int i = start; i < Math.min(disasters.length, start + BATCH); i++) {
+                Disaster disaster = disasters[i];
+                reports.add(new DisasterReport(disaster.getType(), disaster.getLocation(), disaster.getSeverity(),
+                        disaster.getDescription(), REQUESTS));
+            }
+            dispatchService.reportBatch(reports);
+        }
+        log = dispatchService.getDisasters();
+        highFloodsInRockhampton = DisasterQuery.all().type("Flood").severity("High").locationPrefix("Rock");
+    }
+
+    @Benchmark
+    public long linearScanCount() {
+        long count = 0;
+        for (Disaster disaster : log) {
+            if (disaster.getType().equalsIgnoreCase("Flood") && disaster.getSeverity().equalsIgnoreCase("High")
+                    && disaster.getLocation().regionMatches(true, 0, "Rock", 0, 4)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long indexedCount() {
+        return dispatchService.countDisasters(highFloodsInRockhampton);
+    }
+
+    @Benchmark
+    public Map<String, Long> indexedCountByType() {
+        return dispatchService.countDisastersBy(DisasterQuery.all().severity("High"), DisasterQuery.Field.TYPE);
+    }
+
+    @Benchmark
+    public List<Disaster> indexedFindFirstHundred() {
+        return dispatchService.findDisasters(highFloodsInRockhampton, 100);
+    }
+}
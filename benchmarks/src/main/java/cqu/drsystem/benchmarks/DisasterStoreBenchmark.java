@@ -0,0 +1,60 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DisasterStore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full scan of the disaster log at 1M and 4M entries: comparing the strings of one
+ * object per disaster against comparing the byte codes of a {@link DisasterStore}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DisasterStoreBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int logSize;
+
+    private Disaster[] objects;
+    private DisasterStore store;
+
+    @Setup
+    public void setUp() {
+        objects = Fixtures.disasters(logSize, 17);
+        store = new DisasterStore();
+        for (Disaster disaster : objects) {
+            store.append(disaster.getType(), disaster.getLocation(), disaster.getSeverity(), disaster.getDescription(), null);
+        }
+    }
+
+    @Benchmark
+    public long objectScan() {
+        long count = 0;
+        for (Disaster disaster : objects) {
+            if ("Flood".equals(disaster.getType()) && "High".equals(disaster.getSeverity())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long columnarScan() {
+        return store.count("Flood", "High", null);
+    }
+}
@@ -0,0 +1,91 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DispatchOptimizer;
+import cqu.drsystem.core.DispatchPlan;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DispatchOptimizer} assigning 10k positioned units to 1k incidents, both as one
+ * batch and one incident at a time as they would arrive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchOptimizerBenchmark {
+
+    private static final String[] NAMES = {"Fire Truck", "Ambulance", "Rescue Team", "Water Pump"};
+
+    @Param({"1000"})
+    public int incidents;
+
+    @Param({"10000"})
+    public int units;
+
+    @Param({"8", "16"})
+    public int candidates;
+
+    private ResourceManagement resourceManagement;
+    private Map<Disaster, List<AllocationRequest>> batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        resourceManagement = new ResourceManagement();
+        for (int i = 0; i < units; i++) {
+            Resource resource = new Resource(Integer.toString(i), NAMES[i % NAMES.length], "Vehicle", "available", 1 + random.nextInt(3));
+            resourceManagement.addResource(resource);
+            resourceManagement.moveResource(resource, Fixtures.position(random));
+        }
+
+        Disaster[] disasters = Fixtures.disasters(incidents, 43);
+        batch = new LinkedHashMap<>();
+        for (Disaster disaster : disasters) {
+            disaster.setPosition(Fixtures.position(random));
+            List<AllocationRequest> requests = new ArrayList<>();
+            int items = 1 + random.nextInt(3);
+            for (int j = 0; j < items; j++) {
+                requests.add(new AllocationRequest(NAMES[(j + random.nextInt(NAMES.length)) % NAMES.length], 1 + random.nextInt(4)));
+            }
+            batch.put(disaster, requests);
+        }
+    }
+
+    @Benchmark
+    public DispatchPlan planBatch() {
+        DispatchOptimizer optimizer = new DispatchOptimizer(resourceManagement, candidates);
+        optimizer.addAll(batch);
+        return optimizer.getPlan();
+    }
+
+    @Benchmark
+    public DispatchPlan planIncrementally() {
+        DispatchOptimizer optimizer = new DispatchOptimizer(resourceManagement, candidates);
+        for (Map.Entry<Disaster, List<AllocationRequest>> incident : batch.entrySet()) {
+            optimizer.add(incident.getKey(), incident.getValue());
+        }
+        return optimizer.getPlan();
+    }
+}
@@ -0,0 +1,97 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.GeoPoint;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Builds deterministic inventories and disaster streams for the benchmarks.
+ */
+final class Fixtures {
+
+    static final String[] DISASTER_TYPES = {"Earthquake", "Flood", "Hurricane", "Fire", "Tornado", "Landslide"};
+    static final String[] SEVERITIES = {"Low", "Medium", "High"};
+    static final String[] LOCATIONS = {"Rockhampton", "Brisbane", "Cairns", "Townsville", "Mackay", "Gladstone"};
+    static final String[] RESOURCE_TYPES = {"Vehicle", "Personnel", "Equipment"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Picks a position uniformly inside Queensland's bounding box.
+     */
+    static GeoPoint position(Random random) {
+        return new GeoPoint(-29 + random.nextDouble() * 19, 138 + random.nextDouble() * 16);
+    }
+
+    /**
+     * Builds an inventory of the given size like {@link #inventory}, with every resource at a
+     * random position.
+     */
+    static ResourceManagement positionedInventory(int size, long seed) {
+        Random random = new Random(seed);
+        ResourceManagement resourceManagement = inventory(size);
+        for (Resource resource : resourceManagement.getResources()) {
+            resourceManagement.moveResource(resource, position(random));
+        }
+        return resourceManagement;
+    }
+
+    /**
+     * Builds an inventory of the given size. Resource i is named "Unit-i" and has plenty of units,
+     * so allocation benchmarks never run dry.
+     */
+    static ResourceManagement inventory(int size) {
+        ResourceManagement resourceManagement = new ResourceManagement();
+        for (int i = 0; i < size; i++) {
+            resourceManagement.addResource(new Resource(Integer.toString(i), resourceName(i),
+                    RESOURCE_TYPES[i % RESOURCE_TYPES.length], "available", Integer.MAX_VALUE / 2));
+        }
+        return resourceManagement;
+    }
+
+    static String resourceName(int index) {
+        return "Unit-" + index;
+    }
+
+    static Disaster[] disasters(int count, long seed) {
+        Random random = new Random(seed);
+        Disaster[] disasters = new Disaster[count];
+        for (int i = 0; i < count; i++) {
+            disasters[i] = new Disaster(DISASTER_TYPES[random.nextInt(DISASTER_TYPES.length)],
+                    LOCATIONS[random.nextInt(LOCATIONS.length)],
+                    SEVERITIES[random.nextInt(SEVERITIES.length)],
+                    "Reported incident number " + i + " needs assistance");
+        }
+        return disasters;
+    }
+
+    /**
+     * Sends the console output of the code under test nowhere, so benchmarks measure the
+     * dispatch logic rather than the terminal.
+     */
+    static void silenceConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    static void deleteRecursively(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DisasterJournal;
+import cqu.drsystem.core.JournalListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DisasterJournal} append latency (as a sampled distribution) and the time to
+ * replay a journal of one million events.
+ */
+@Fork(1)
+public class JournalBenchmark {
+
+    private static final int REPLAY_EVENTS = 1_000_000;
+
+    @State(Scope.Benchmark)
+    public static class AppendState {
+        Path directory;
+        DisasterJournal journal;
+        Disaster disaster;
+        long disasterId;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("journal-append");
+            journal = DisasterJournal.open(directory);
+            disaster = Fixtures.disasters(1, 3)[0];
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            journal.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReplayState {
+        Path directory;
+        DisasterJournal journal;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("journal-replay");
+            journal = DisasterJournal.open(directory);
+            Disaster[] disasters = Fixtures.disasters(1024, 5);
+            for (int i = 0; i < REPLAY_EVENTS; i++) {
+                journal.appendDisasterReported(i, disasters[i % disasters.length]);
+            }
+            journal.commit();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 2, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public long append(AppendState state) {
+        return state.journal.appendDisasterReported(state.disasterId++, state.disaster);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int replayMillionEvents(ReplayState state) throws IOException {
+        int[] count = new int[1];
+        state.journal.replay(0, new JournalListener() {
+            @Override
+            public void onDisasterReported(long disasterId, Disaster disaster) {
+                count[0]++;
+            }
+
+            @Override
+            public void onResourcesAllocated(long disasterId, List<AllocationRequest> allocations) {
+            }
+
+            @Override
+            public void onDepartmentsNotified(long disasterId, List<String> departments) {
+            }
+
+            @Override
+            public void onLogCleared() {
+            }
+        });
+        if (count[0] != REPLAY_EVENTS) {
+            throw new IllegalStateException("Replayed " + count[0] + " of " + REPLAY_EVENTS + " events");
+        }
+        return count[0];
+    }
+}
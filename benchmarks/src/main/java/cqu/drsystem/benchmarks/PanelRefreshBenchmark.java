@@ -0,0 +1,175 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.CoalescingListModel;
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DisasterReport;
+import cqu.drsystem.core.DispatchOutcome;
+import cqu.drsystem.core.DispatchService;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the frame time of the department and resource panels while a background feed reports
+ * disasters at a fixed rate. Each invocation is one 60 Hz pulse: it waits for the pulse outside
+ * the measurement and then runs everything the feed posted to the FX thread since the last one.
+ * The "rebuild" panels post a full clear-and-refill per report, as the controller used to; the
+ * "coalesced" panels go through {@link CoalescingListModel}, which should keep the frame time flat
+ * as the rate grows.
+ * <p>
+ * The pulse runs on the benchmark thread instead of the JavaFX toolkit, which needs a display.
+ * Cell layout and painting are therefore not included; a change listener stands in for the cells
+ * by formatting every row that is added or replaced, which is what drives that cost.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PanelRefreshBenchmark {
+
+    private static final long PULSE_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private static final int RESOURCES = 50;
+
+    @Param({"coalesced", "rebuild"})
+    public String panels;
+
+    @Param({"100", "1000"})
+    public int reportsPerSecond;
+
+    private final Queue<Runnable> fxQueue = new ConcurrentLinkedQueue<>();
+    private final ObservableList<String> departmentRows = FXCollections.observableArrayList();
+    private final ObservableList<String> resourceRows = FXCollections.observableArrayList();
+    private CoalescingListModel<String, String> departmentModel;
+    private CoalescingListModel<String, String> resourceModel;
+    private DispatchService dispatchService;
+    private Disaster[] disasters;
+    private ScheduledExecutorService feed;
+    private int reported;
+    private long nextPulse;
+    private long rendered;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.silenceConsole();
+        dispatchService = new DispatchService(null);
+        ResourceManagement resourceManagement = dispatchService.getResourceManagement();
+        for (int i = 0; i < RESOURCES; i++) {
+            resourceManagement.addResource(new Resource("unit-" + i, Fixtures.resourceName(i),
+                    Fixtures.RESOURCE_TYPES[i % Fixtures.RESOURCE_TYPES.length], "available", 1000));
+        }
+        disasters = Fixtures.disasters(10_000, 22);
+
+        ListChangeListener<String> cells = change -> {
+            while (change.next()) {
+                for (String row : change.getAddedSubList()) {
+                    rendered += row.toUpperCase().length();
+                }
+            }
+        };
+        if (panels.equals("coalesced")) {
+            departmentModel = new CoalescingListModel<>(fxQueue::add);
+            resourceModel = new CoalescingListModel<>(fxQueue::add);
+            departmentModel.getRows().addListener(cells);
+            resourceModel.getRows().addListener(cells);
+        } else {
+            departmentRows.addListener(cells);
+            resourceRows.addListener(cells);
+        }
+
+        feed = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "report-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        feed.scheduleAtFixedRate(this::reportOne, 0, TimeUnit.SECONDS.toNanos(1) / reportsPerSecond, TimeUnit.NANOSECONDS);
+        nextPulse = System.nanoTime() + PULSE_NANOS;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        feed.shutdownNow();
+        feed.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits for the next pulse, outside the measured time.
+     */
+    @Setup(Level.Invocation)
+    public void awaitPulse() {
+        long now = System.nanoTime();
+        if (now < nextPulse) {
+            LockSupport.parkNanos(nextPulse - now);
+            nextPulse += PULSE_NANOS;
+        } else {
+            nextPulse = now + PULSE_NANOS;  // A long frame: skip the missed pulses, as the toolkit does
+        }
+    }
+
+    @Benchmark
+    public long pulse() {
+        Runnable task;
+        while ((task = fxQueue.poll()) != null) {
+            task.run();
+        }
+        return rendered;
+    }
+
+    /**
+     * Reports one disaster and releases its unit again, so every report changes a department
+     * count and a resource's quantities.
+     */
+    private void reportOne() {
+        Disaster disaster = disasters[reported % disasters.length];
+        Resource resource = dispatchService.getResourceManagement().getResourceByName(Fixtures.resourceName(reported % RESOURCES));
+        reported++;
+        DispatchOutcome outcome = dispatchService.report(new DisasterReport(disaster.getType(), disaster.getLocation(),
+                disaster.getSeverity(), disaster.getDescription(),
+                Collections.singletonList(new AllocationRequest(resource.getName(), 1))));
+        dispatchService.releaseAll(outcome.getDisasterId());
+
+        if (departmentModel != null) {
+            for (String department : outcome.getNotifiedDepartments()) {
+                departmentModel.put(department, department + ": " + dispatchService.getDepartmentCount(department) + " disasters");
+            }
+            resourceModel.put(resource.getId(), resource.toString());
+        } else {
+            Map<String, Integer> counts = dispatchService.getDepartmentCounts();
+            fxQueue.add(() -> {
+                departmentRows.clear();
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    departmentRows.add(entry.getKey() + ": " + entry.getValue() + " disasters");
+                }
+                resourceRows.clear();
+                for (Resource shown : dispatchService.getResources()) {
+                    resourceRows.add(shown.toString());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ResourceManagement#getResourceByName} and the indexed type query
+ * on inventories from 1k to 1M resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceLookupBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int resources;
+
+    private ResourceManagement resourceManagement;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        resourceManagement = Fixtures.inventory(resources);
+        names = new String[1024];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = Fixtures.resourceName(ThreadLocalRandom.current().nextInt(resources));
+        }
+    }
+
+    @Benchmark
+    public Resource getResourceByName() {
+        return resourceManagement.getResourceByName(names[ThreadLocalRandom.current().nextInt(names.length)]);
+    }
+
+    @Benchmark
+    public Set<Resource> getAvailableResourcesByType() {
+        return resourceManagement.getAvailableResourcesByType("Vehicle");
+    }
+}
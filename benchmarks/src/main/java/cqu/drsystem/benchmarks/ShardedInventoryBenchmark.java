@@ -0,0 +1,81 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.InventoryShard;
+import cqu.drsystem.core.LoopbackTransport;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import cqu.drsystem.core.ShardAllocation;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures an allocate-and-release round trip on a three-region cluster over the loopback
+ * transport: served from the region's own shard, and borrowed from a peer with the two-phase
+ * protocol because the region has none of the resource.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShardedInventoryBenchmark {
+
+    private static final List<AllocationRequest> REQUESTS = Collections.singletonList(new AllocationRequest("Ambulance", 2));
+    private static final List<String> REGIONS = Arrays.asList("north", "central", "south");
+
+    private LoopbackTransport transport;
+    private InventoryShard north;
+    private InventoryShard central;
+    private InventoryShard south;
+
+    @Setup
+    public void setUp() {
+        transport = new LoopbackTransport();
+        north = new InventoryShard("north", inventory(Integer.MAX_VALUE / 2), transport, REGIONS);
+        central = new InventoryShard("central", inventory(Integer.MAX_VALUE / 2), transport, REGIONS);
+        south = new InventoryShard("south", inventory(0), transport, REGIONS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        north.close();
+        central.close();
+        south.close();
+        transport.close();
+    }
+
+    @Benchmark
+    public boolean local() {
+        ShardAllocation allocation = north.allocate(REQUESTS);
+        north.release(allocation);
+        return allocation.isLocal();
+    }
+
+    @Benchmark
+    public boolean borrowed() {
+        ShardAllocation allocation = south.allocate(REQUESTS);
+        south.release(allocation);
+        return allocation.isLocal();
+    }
+
+    private static ResourceManagement inventory(int ambulances) {
+        ResourceManagement resourceManagement = new ResourceManagement();
+        resourceManagement.addResource(new Resource("1", "Ambulance", "Vehicle", "available", ambulances));
+        return resourceManagement;
+    }
+}
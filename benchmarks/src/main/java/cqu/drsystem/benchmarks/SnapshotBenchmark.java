@@ -0,0 +1,69 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.StateSnapshot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing and loading a {@link StateSnapshot}, i.e. the cold start cost for a
+ * given history size.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int disasters;
+
+    private Path directory;
+    private Path file;
+    private StateSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+        file = directory.resolve("snapshot.bin");
+        List<Disaster> log = Arrays.asList(Fixtures.disasters(disasters, 13));
+        snapshot = StateSnapshot.capture(0, Fixtures.inventory(100), log,
+                Collections.singletonMap("Emergency Response", log));
+        snapshot.writeTo(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Fixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        snapshot.writeTo(file);
+    }
+
+    @Benchmark
+    public StateSnapshot load() throws IOException {
+        return StateSnapshot.readFrom(file);
+    }
+}
@@ -0,0 +1,66 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.GeoPoint;
+import cqu.drsystem.core.Neighbor;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.ResourceManagement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures nearest-unit and radius queries, and moves, on inventories of positioned resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SpatialIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    public int resources;
+
+    private ResourceManagement resourceManagement;
+    private GeoPoint[] points;
+
+    @Setup
+    public void setUp() {
+        resourceManagement = Fixtures.positionedInventory(resources, 11);
+        Random random = new Random(13);
+        points = new GeoPoint[1024];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = Fixtures.position(random);
+        }
+    }
+
+    @Benchmark
+    public List<Neighbor<Resource>> nearestTen() {
+        return resourceManagement.getNearestAvailableResources(points[ThreadLocalRandom.current().nextInt(points.length)], 10);
+    }
+
+    @Benchmark
+    public List<Neighbor<Resource>> withinTwentyKm() {
+        return resourceManagement.getResourcesWithinRadius(points[ThreadLocalRandom.current().nextInt(points.length)], 20);
+    }
+
+    @Benchmark
+    public void move() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Resource resource = resourceManagement.getResources().get(random.nextInt(resources));
+        resourceManagement.moveResource(resource, points[random.nextInt(points.length)]);
+    }
+}
@@ -0,0 +1,57 @@
+package cqu.drsystem.benchmarks;
+
+import cqu.drsystem.core.TimerWheel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link TimerWheel} behind expected-duration allocations with 10k and 100k
+ * outstanding timeouts: scheduling and cancelling one more, and advancing the wheel, which should
+ * cost the same whatever the number pending.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimerWheelBenchmark {
+
+    private static final Runnable NOTHING = () -> { };
+
+    @Param({"10000", "100000"})
+    public int outstanding;
+
+    private TimerWheel wheel;
+
+    @Setup
+    public void setUp() {
+        wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+        Random random = new Random(21);
+        for (int i = 0; i < outstanding; i++) {
+            // Expected durations between one and twelve hours, so none fires during the run
+            wheel.schedule(NOTHING, TimeUnit.HOURS.toMillis(1) + random.nextInt((int) TimeUnit.HOURS.toMillis(11)), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        return wheel.schedule(NOTHING, 2, TimeUnit.HOURS).cancel();
+    }
+
+    @Benchmark
+    public int advance() {
+        return wheel.advance();
+    }
+}
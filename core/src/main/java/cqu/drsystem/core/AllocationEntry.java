@@ -0,0 +1,62 @@
+package cqu.drsystem.core;
+
+/**
+ * What one resource has committed to one disaster, as recorded in an {@link AllocationLedger}.
+ * Entries are immutable copies; the ledger hands out a new one after every change.
+ */
+public final class AllocationEntry {
+
+    private final long disasterId;
+    private final Resource resource;
+    private final int quantity;
+    private final long allocatedAtMillis;
+    private final long updatedAtMillis;
+
+    AllocationEntry(long disasterId, Resource resource, int quantity, long allocatedAtMillis, long updatedAtMillis) {
+        this.disasterId = disasterId;
+        this.resource = resource;
+        this.quantity = quantity;
+        this.allocatedAtMillis = allocatedAtMillis;
+        this.updatedAtMillis = updatedAtMillis;
+    }
+
+    public long getDisasterId() {
+        return disasterId;
+    }
+
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Gets the number of units committed.
+     *
+     * @return the units of the resource the disaster currently holds
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Gets when the disaster first received units of the resource.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getAllocatedAtMillis() {
+        return allocatedAtMillis;
+    }
+
+    /**
+     * Gets when the committed quantity last changed.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return quantity + " x " + resource.getName() + " to disaster " + disasterId;
+    }
+}
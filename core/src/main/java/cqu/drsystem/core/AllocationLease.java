@@ -0,0 +1,125 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The units one timed allocation gave a disaster, and when they are due back. A lease only
+ * counts what is still out: releases of those resources by the disaster are taken from its
+ * leases first, oldest first, and a lease with nothing left is done. When it expires, only what
+ * it still counts is returned, so it never takes units the disaster holds for other reasons.
+ * <p>
+ * Not thread-safe; the {@link DispatchService} guards its leases with one lock.
+ */
+final class AllocationLease {
+
+    private final long leaseId;
+    private final long disasterId;
+    private final long expiresAtMillis;
+    private final List<Resource> resources;  // One entry per resource
+    private final int[] remaining;
+    private TimerWheel.Timeout timeout;
+
+    AllocationLease(long leaseId, long disasterId, long expiresAtMillis, List<Resource> resources, int[] quantities) {
+        this.leaseId = leaseId;
+        this.disasterId = disasterId;
+        this.expiresAtMillis = expiresAtMillis;
+        this.resources = new ArrayList<>(resources.size());
+        this.remaining = new int[resources.size()];
+        for (int i = 0; i < resources.size(); i++) {
+            add(resources.get(i), quantities[i]);
+        }
+    }
+
+    long getLeaseId() {
+        return leaseId;
+    }
+
+    long getDisasterId() {
+        return disasterId;
+    }
+
+    /**
+     * Gets when the units are due back.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    List<Resource> getResources() {
+        return resources;
+    }
+
+    int getRemaining(int index) {
+        return remaining[index];
+    }
+
+    /**
+     * Takes released units off the lease.
+     *
+     * @param resource the resource the units went back to
+     * @param quantity the number of units released
+     * @return the number of units the lease still counted and no longer does
+     */
+    int take(Resource resource, int quantity) {
+        int index = resources.indexOf(resource);
+        if (index < 0) {
+            return 0;
+        }
+        int taken = Math.min(quantity, remaining[index]);
+        remaining[index] -= taken;
+        return taken;
+    }
+
+    boolean isEmpty() {
+        for (int quantity : remaining) {
+            if (quantity > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the timeout that expires the lease, cancelling the one set before.
+     */
+    void setTimeout(TimerWheel.Timeout timeout) {
+        if (this.timeout != null) {
+            this.timeout.cancel();
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Cancels the timeout, if any, so the lease does not expire.
+     */
+    void cancel() {
+        setTimeout(null);
+    }
+
+    /**
+     * Copies the lease with what it still counts, for a snapshot.
+     *
+     * @param copies the resource each live resource is replaced with
+     * @return the copy, without a timeout
+     */
+    AllocationLease copy(Map<Resource, Resource> copies) {
+        List<Resource> copied = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            copied.add(copies.get(resource));
+        }
+        return new AllocationLease(leaseId, disasterId, expiresAtMillis, copied, remaining);
+    }
+
+    private void add(Resource resource, int quantity) {
+        int index = resources.indexOf(resource);
+        if (index < 0) {
+            index = resources.size();
+            resources.add(resource);
+        }
+        remaining[index] += quantity;
+    }
+}
@@ -0,0 +1,254 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Records which units of which resource are committed to which disaster. There is one entry per
+ * (disaster, resource) pair, and allocating more of the same resource to the same disaster adds
+ * to it rather than replacing it. Running totals are kept per disaster and per resource, so
+ * "what is committed to disaster X" and "how much of this resource is out" are constant-time.
+ * <p>
+ * The ledger only records; reserving and returning the units themselves is still done on the
+ * {@link Resource}. It is safe to use from many threads: changes to one disaster are serialized,
+ * and changes to different disasters run concurrently.
+ */
+public class AllocationLedger {
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<Resource, AtomicInteger> resourceTotals = new ConcurrentHashMap<>();  // Resources compare by identity
+    private final LongSupplier clock;
+
+    /**
+     * Constructs an empty ledger.
+     */
+    public AllocationLedger() {
+        this(System::currentTimeMillis);
+    }
+
+    AllocationLedger(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Records units of a resource as committed to a disaster.
+     *
+     * @param disasterId the id of the disaster
+     * @param resource the resource the units were reserved from
+     * @param quantity the number of units (must be positive)
+     * @return the entry after the change
+     */
+    public AllocationEntry record(long disasterId, Resource resource, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        return change(disasterId, resource, quantity, clock.getAsLong());
+    }
+
+    /**
+     * Records units of a resource as returned by a disaster. No more than the disaster holds is
+     * released.
+     *
+     * @param disasterId the id of the disaster
+     * @param resource the resource the units go back to
+     * @param quantity the number of units (must be positive)
+     * @return the number of units actually released from the ledger
+     */
+    public int release(long disasterId, Resource resource, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        int[] released = new int[1];
+        accounts.computeIfPresent(disasterId, (id, account) -> {
+            released[0] = account.take(resource, quantity, clock.getAsLong());
+            return account.isEmpty() ? null : account;
+        });
+        if (released[0] > 0) {
+            resourceTotal(resource).addAndGet(-released[0]);
+        }
+        return released[0];
+    }
+
+    /**
+     * Releases everything committed to a disaster from the ledger.
+     *
+     * @param disasterId the id of the disaster
+     * @return the entries the disaster held, which the caller returns to their resources
+     */
+    public List<AllocationEntry> releaseAll(long disasterId) {
+        Account account = accounts.remove(disasterId);
+        if (account == null) {
+            return new ArrayList<>();
+        }
+        List<AllocationEntry> entries = account.entries(disasterId);
+        for (AllocationEntry entry : entries) {
+            resourceTotal(entry.getResource()).addAndGet(-entry.getQuantity());
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the number of units committed to a disaster, of all resources together.
+     *
+     * @param disasterId the id of the disaster
+     * @return the committed units
+     */
+    public int getCommittedQuantity(long disasterId) {
+        Account account = accounts.get(disasterId);
+        return account == null ? 0 : account.total();
+    }
+
+    /**
+     * Gets the number of units of a resource committed to disasters, all together.
+     *
+     * @param resource the resource
+     * @return the committed units
+     */
+    public int getCommittedQuantity(Resource resource) {
+        AtomicInteger total = resourceTotals.get(resource);
+        return total == null ? 0 : total.get();
+    }
+
+    /**
+     * Gets what a disaster holds of one resource.
+     *
+     * @param disasterId the id of the disaster
+     * @param resource the resource
+     * @return the entry, or null if the disaster holds no units of the resource
+     */
+    public AllocationEntry getEntry(long disasterId, Resource resource) {
+        Account account = accounts.get(disasterId);
+        return account == null ? null : account.entry(disasterId, resource);
+    }
+
+    /**
+     * Gets what a disaster holds.
+     *
+     * @param disasterId the id of the disaster
+     * @return one entry per resource, in the order the resources were first allocated
+     */
+    public List<AllocationEntry> getEntries(long disasterId) {
+        Account account = accounts.get(disasterId);
+        return account == null ? new ArrayList<>() : account.entries(disasterId);
+    }
+
+    /**
+     * Gets every entry of the ledger.
+     *
+     * @return the entries of every disaster that holds units
+     */
+    public List<AllocationEntry> getEntries() {
+        List<AllocationEntry> entries = new ArrayList<>();
+        for (Map.Entry<Long, Account> account : accounts.entrySet()) {
+            entries.addAll(account.getValue().entries(account.getKey()));
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the number of disasters that hold units.
+     *
+     * @return the number of disasters in the ledger
+     */
+    public int getDisasterCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Forgets every entry.
+     */
+    public void clear() {
+        accounts.clear();
+        resourceTotals.clear();
+    }
+
+    /**
+     * Puts back an entry with its original timestamps, such as one read from a snapshot.
+     */
+    void restore(AllocationEntry entry) {
+        accounts.compute(entry.getDisasterId(), (id, account) -> {
+            Account target = account == null ? new Account() : account;
+            target.add(entry.getResource(), entry.getQuantity(), entry.getAllocatedAtMillis(), entry.getUpdatedAtMillis());
+            return target;
+        });
+        resourceTotal(entry.getResource()).addAndGet(entry.getQuantity());
+    }
+
+    private AllocationEntry change(long disasterId, Resource resource, int quantity, long now) {
+        AllocationEntry[] changed = new AllocationEntry[1];
+        accounts.compute(disasterId, (id, account) -> {
+            Account target = account == null ? new Account() : account;
+            target.add(resource, quantity, now, now);
+            changed[0] = target.entry(id, resource);
+            return target;
+        });
+        resourceTotal(resource).addAndGet(quantity);
+        return changed[0];
+    }
+
+    private AtomicInteger resourceTotal(Resource resource) {
+        return resourceTotals.computeIfAbsent(resource, r -> new AtomicInteger());
+    }
+
+    /**
+     * The entries of one disaster. Changed inside the map's compute functions, which serialize
+     * writers; the monitor lets readers see a consistent account.
+     */
+    private static final class Account {
+        private final Map<Resource, long[]> lines = new LinkedHashMap<>();  // quantity, allocated at, updated at
+        private int total;
+
+        synchronized void add(Resource resource, int quantity, long allocatedAt, long updatedAt) {
+            long[] line = lines.get(resource);
+            if (line == null) {
+                lines.put(resource, new long[] {quantity, allocatedAt, updatedAt});
+            } else {
+                line[0] += quantity;
+                line[2] = updatedAt;
+            }
+            total += quantity;
+        }
+
+        synchronized int take(Resource resource, int quantity, long now) {
+            long[] line = lines.get(resource);
+            if (line == null) {
+                return 0;
+            }
+            int taken = (int) Math.min(quantity, line[0]);
+            line[0] -= taken;
+            line[2] = now;
+            if (line[0] == 0) {
+                lines.remove(resource);
+            }
+            total -= taken;
+            return taken;
+        }
+
+        synchronized int total() {
+            return total;
+        }
+
+        synchronized boolean isEmpty() {
+            return lines.isEmpty();
+        }
+
+        synchronized AllocationEntry entry(long disasterId, Resource resource) {
+            long[] line = lines.get(resource);
+            return line == null ? null : new AllocationEntry(disasterId, resource, (int) line[0], line[1], line[2]);
+        }
+
+        synchronized List<AllocationEntry> entries(long disasterId) {
+            List<AllocationEntry> entries = new ArrayList<>(lines.size());
+            for (Map.Entry<Resource, long[]> line : lines.entrySet()) {
+                long[] values = line.getValue();
+                entries.add(new AllocationEntry(disasterId, line.getKey(), (int) values[0], values[1], values[2]));
+            }
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package cqu.drsystem.core;
+
+/**
+ * A single line item of a disaster report: a quantity of a named resource.
+ */
+public class AllocationRequest {
+    private final String resourceName;
+    private final int quantity;
+
+    /**
+     * Constructs a new allocation request.
+     *
+     * @param resourceName the name of the resource (e.g., "Fire Truck")
+     * @param quantity the number of units requested (must be positive)
+     */
+    public AllocationRequest(String resourceName, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        this.resourceName = resourceName;
+        this.quantity = quantity;
+    }
+
+    /**
+     * Gets the name of the requested resource.
+     *
+     * @return the resource name
+     */
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    /**
+     * Gets the number of units requested.
+     *
+     * @return the requested quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public String toString() {
+        return quantity + " x " + resourceName;
+    }
+}
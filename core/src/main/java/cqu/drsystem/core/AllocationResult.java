@@ -0,0 +1,57 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of an all-or-nothing allocation for one disaster report.
+ * Either every requested line item was reserved, or none of them were.
+ */
+public class AllocationResult {
+    private final Disaster disaster;
+    private final List<Resource> allocatedResources;
+    private final AllocationRequest failedRequest;
+
+    AllocationResult(Disaster disaster, List<Resource> allocatedResources, AllocationRequest failedRequest) {
+        this.disaster = disaster;
+        this.allocatedResources = Collections.unmodifiableList(allocatedResources);
+        this.failedRequest = failedRequest;
+    }
+
+    /**
+     * Gets the disaster the allocation was made for.
+     *
+     * @return the disaster
+     */
+    public Disaster getDisaster() {
+        return disaster;
+    }
+
+    /**
+     * Checks whether every line item of the report was reserved.
+     *
+     * @return true if the allocation succeeded
+     */
+    public boolean isSuccessful() {
+        return failedRequest == null;
+    }
+
+    /**
+     * Gets the resources reserved for the report, in request order.
+     * Empty when the allocation failed.
+     *
+     * @return the allocated resources
+     */
+    public List<Resource> getAllocatedResources() {
+        return allocatedResources;
+    }
+
+    /**
+     * Gets the first line item that could not be satisfied.
+     *
+     * @return the failed request, or null if the allocation succeeded
+     */
+    public AllocationRequest getFailedRequest() {
+        return failedRequest;
+    }
+}
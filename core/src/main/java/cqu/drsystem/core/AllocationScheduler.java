@@ -0,0 +1,599 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds line items that could not be allocated and grants them units as units become free,
+ * most urgent first.
+ * <p>
+ * Waiting line items are kept in one priority queue per resource name. The priority key is
+ * {@code enqueue time - severity weight * aging quantum}, so a high severity request jumps ahead
+ * of lower severity requests that arrived up to a few quanta earlier, while a low severity
+ * request that has waited long enough is not starved. Within a queue the head is served
+ * strictly first: a later request never takes units the head is waiting for. Enqueue, dequeue
+ * and cancellation are O(log n) in the number of waiting requests.
+ * <p>
+ * The line items of one report can be submitted as a unit with {@link #submitAll}. They wait in
+ * their queues like single line items and are granted together, once each of them is at the head
+ * of its queue and all of them fit; until then none of them holds any units. The items of a unit
+ * share a priority key and take consecutive sequence numbers, so two units waiting for the same
+ * resources are ordered the same way in every queue and never wait for each other.
+ * <p>
+ * With preemption enabled, a request that cannot be served at once may take units granted to
+ * less severe disasters. The preempted line items go back into their queue with their original
+ * enqueue time and are granted again as units free up. A unit of line items is never granted by
+ * preemption, and its granted items are never preempted, so a unit holds all of its units or none.
+ * <p>
+ * The scheduler is safe to use from many threads.
+ */
+public class AllocationScheduler {
+
+    /**
+     * The default aging quantum: five minutes of waiting counts as much as one severity level.
+     */
+    public static final long DEFAULT_AGING_QUANTUM_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private static final Comparator<PendingAllocation> BY_PRIORITY = Comparator
+            .comparingLong(PendingAllocation::getPriorityKey)
+            .thenComparingLong(PendingAllocation::getSequence);
+
+    // Preemption victims: least severe first, then the most recently granted
+    private static final Comparator<PendingAllocation> BY_VICTIM = Comparator
+            .comparingLong(PendingAllocation::getWeight)
+            .thenComparing(Comparator.comparingLong(PendingAllocation::getGrantedNanos).reversed())
+            .thenComparing(Comparator.comparingLong(PendingAllocation::getSequence).reversed());
+
+    private final ResourceManagement resourceManagement;
+    private final long agingQuantumNanos;
+    private final LongSupplier clock;
+    private final List<SchedulerListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile SchedulerListener recorder;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean preemptive;
+
+    // Guarded by lock, keyed by normalized resource name
+    private final Map<String, NavigableSet<PendingAllocation>> waiting = new HashMap<>();
+    private final Map<String, NavigableSet<PendingAllocation>> granted = new HashMap<>();
+    private final Map<Long, List<PendingAllocation>> grantedByDisaster = new HashMap<>();
+    private long nextSequence;
+    private int waitingCount;
+
+    /**
+     * Creates a scheduler with the default aging quantum and preemption disabled.
+     *
+     * @param resourceManagement The inventory to grant units from
+     */
+    public AllocationScheduler(ResourceManagement resourceManagement) {
+        this(resourceManagement, DEFAULT_AGING_QUANTUM_NANOS, TimeUnit.NANOSECONDS, false);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param resourceManagement The inventory to grant units from
+     * @param agingQuantum How long a request has to wait to rank as one severity level higher
+     * @param unit The unit of the aging quantum
+     * @param preemptive Whether requests may take units granted to less severe disasters
+     */
+    public AllocationScheduler(ResourceManagement resourceManagement, long agingQuantum, TimeUnit unit, boolean preemptive) {
+        this(resourceManagement, unit.toNanos(agingQuantum), preemptive, System::nanoTime);
+    }
+
+    AllocationScheduler(ResourceManagement resourceManagement, long agingQuantumNanos, boolean preemptive, LongSupplier clock) {
+        if (agingQuantumNanos < 0) {
+            throw new IllegalArgumentException("Aging quantum must not be negative: " + agingQuantumNanos);
+        }
+        this.resourceManagement = resourceManagement;
+        this.agingQuantumNanos = agingQuantumNanos;
+        this.preemptive = preemptive;
+        this.clock = clock;
+    }
+
+    /**
+     * Registers a listener for grants and preemptions.
+     *
+     * @param listener The listener
+     */
+    public void addListener(SchedulerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Sets the listener that records grants and preemptions, such as in a journal. Unlike other
+     * listeners it is called under the scheduler's lock, as each decision is made, so decisions
+     * are recorded in the order they were made and before any release of the same units; the
+     * {@code onReleased} callback of {@link #release(PendingAllocation, Consumer)} runs under
+     * the same lock. It must be quick and must not call back into the scheduler.
+     *
+     * @param recorder the recorder, or null for none
+     */
+    public void setRecorder(SchedulerListener recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener The listener
+     */
+    public void removeListener(SchedulerListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Enables or disables preemption of less severe disasters for requests submitted from now on.
+     *
+     * @param preemptive Whether requests may take units granted to less severe disasters
+     */
+    public void setPreemptive(boolean preemptive) {
+        this.preemptive = preemptive;
+    }
+
+    public boolean isPreemptive() {
+        return preemptive;
+    }
+
+    /**
+     * Submits a line item. It is granted at once if units are free and nobody with a higher
+     * priority is waiting for them, otherwise it waits.
+     *
+     * @param disasterId The id of the disaster, passed back in the pending allocation
+     * @param disaster The disaster
+     * @param request The line item
+     * @return The pending allocation, already granted if units were free
+     */
+    public PendingAllocation submit(long disasterId, Disaster disaster, AllocationRequest request) {
+        if (request.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + request.getQuantity());
+        }
+        List<Runnable> events = new ArrayList<>();
+        PendingAllocation allocation;
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            allocation = new PendingAllocation(nextSequence++, disasterId, disaster, request,
+                    DispatchOptimizer.severityWeight(disaster.getSeverity()), now, agingQuantumNanos);
+            String name = normalize(request.getResourceName());
+            NavigableSet<PendingAllocation> queue = waiting.get(name);
+            boolean first = queue == null || queue.isEmpty() || BY_PRIORITY.compare(allocation, queue.first()) < 0;
+            if (!(first && tryGrant(allocation, now, events)) && !(preemptive && tryPreempt(allocation, now, events))) {
+                enqueue(allocation);
+            }
+        } finally {
+            lock.unlock();
+        }
+        events.forEach(Runnable::run);
+        return allocation;
+    }
+
+    /**
+     * Submits the line items of one report as a unit. They are granted together at once if
+     * every one of them fits and nobody with a higher priority waits for the same resources;
+     * otherwise they all wait, holding nothing, until they can be granted together.
+     *
+     * @param disasterId The id of the disaster, passed back in the pending allocations
+     * @param disaster The disaster
+     * @param requests The line items
+     * @return One pending allocation per line item, in the same order, all granted or all waiting
+     */
+    public List<PendingAllocation> submitAll(long disasterId, Disaster disaster, List<AllocationRequest> requests) {
+        for (AllocationRequest request : requests) {
+            if (request.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than 0: " + request.getQuantity());
+            }
+        }
+        List<Runnable> events = new ArrayList<>();
+        List<PendingAllocation> group = new ArrayList<>(requests.size());
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            long weight = DispatchOptimizer.severityWeight(disaster.getSeverity());
+            boolean first = true;
+            for (AllocationRequest request : requests) {
+                PendingAllocation allocation = new PendingAllocation(nextSequence++, disasterId, disaster, request,
+                        weight, now, agingQuantumNanos);
+                allocation.setGroup(group);
+                group.add(allocation);
+                NavigableSet<PendingAllocation> queue = waiting.get(normalize(request.getResourceName()));
+                first &= queue == null || queue.isEmpty() || BY_PRIORITY.compare(allocation, queue.first()) < 0;
+            }
+            if (!group.isEmpty() && !(first && tryGrantGroup(group, now, events))) {
+                for (PendingAllocation allocation : group) {
+                    enqueue(allocation);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        events.forEach(Runnable::run);
+        return group;
+    }
+
+    /**
+     * Withdraws a waiting line item. Withdrawing one item of a unit submitted with
+     * {@link #submitAll} withdraws the whole unit.
+     *
+     * @param allocation The allocation to withdraw
+     * @return true if it was waiting and has been withdrawn
+     */
+    public boolean cancel(PendingAllocation allocation) {
+        List<Runnable> events = new ArrayList<>();
+        lock.lock();
+        try {
+            if (allocation.getState() != PendingAllocation.State.WAITING) {
+                return false;
+            }
+            List<PendingAllocation> members = allocation.getGroup() == null
+                    ? Collections.singletonList(allocation) : allocation.getGroup();
+            Deque<String> heads = new ArrayDeque<>();
+            for (PendingAllocation member : members) {
+                String name = normalize(member.getRequest().getResourceName());
+                NavigableSet<PendingAllocation> queue = waiting.get(name);
+                if (queue.first() == member && !heads.contains(name)) {
+                    heads.add(name);
+                }
+                queue.remove(member);
+                waitingCount--;
+                member.finish(PendingAllocation.State.CANCELLED);
+            }
+            drain(heads, events);  // The next request may fit where the old head did not
+        } finally {
+            lock.unlock();
+        }
+        events.forEach(Runnable::run);
+        return true;
+    }
+
+    /**
+     * Returns the units of a granted line item and grants them to whoever waits next.
+     *
+     * @param allocation The granted allocation
+     * @return true if the allocation was granted and has been released
+     */
+    public boolean release(PendingAllocation allocation) {
+        return release(allocation, null);
+    }
+
+    /**
+     * Returns the units of a granted line item and grants them to whoever waits next. Of
+     * several concurrent releases of one allocation, exactly one succeeds.
+     *
+     * @param allocation The granted allocation
+     * @param onReleased Called with the scheduler's lock held once this call has taken the
+     *                   allocation back, and before its units go to anyone else, such as to
+     *                   record the release ahead of the grants it leads to; may be null
+     * @return true if the allocation was granted and has been released by this call
+     */
+    public boolean release(PendingAllocation allocation, Consumer<PendingAllocation> onReleased) {
+        List<Runnable> events = new ArrayList<>();
+        lock.lock();
+        try {
+            if (allocation.getState() != PendingAllocation.State.GRANTED) {
+                return false;
+            }
+            String name = normalize(allocation.getRequest().getResourceName());
+            granted.get(name).remove(allocation);
+            forget(allocation);
+            if (onReleased != null) {
+                onReleased.accept(allocation);
+            }
+            allocation.getResource().release(allocation.getRequest().getQuantity());
+            allocation.finish(PendingAllocation.State.RELEASED);
+            drain(name, events);
+        } finally {
+            lock.unlock();
+        }
+        events.forEach(Runnable::run);
+        return true;
+    }
+
+    /**
+     * Returns units that were reserved outside the scheduler, such as by a dispatched report,
+     * and grants them to whoever waits next.
+     *
+     * @param resource The resource
+     * @param quantity The number of units to return
+     */
+    public void release(Resource resource, int quantity) {
+        List<Runnable> events = new ArrayList<>();
+        lock.lock();
+        try {
+            resource.release(quantity);
+            drain(normalize(resource.getName()), events);
+        } finally {
+            lock.unlock();
+        }
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Grants waiting line items whose units have become free some other way, such as a
+     * resource being added or becoming available again.
+     *
+     * @param resourceName The name of the resource
+     */
+    public void unitsFreed(String resourceName) {
+        List<Runnable> events = new ArrayList<>();
+        lock.lock();
+        try {
+            drain(normalize(resourceName), events);
+        } finally {
+            lock.unlock();
+        }
+        events.forEach(Runnable::run);
+    }
+
+    /**
+     * Gets the number of waiting line items.
+     *
+     * @return the number of waiting line items for all resources
+     */
+    public int getWaitingCount() {
+        lock.lock();
+        try {
+            return waitingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lists the line items granted to a disaster and not yet released or preempted.
+     *
+     * @param disasterId The id of the disaster
+     * @return A copy of the granted line items, in the order they were granted
+     */
+    public List<PendingAllocation> getGranted(long disasterId) {
+        lock.lock();
+        try {
+            List<PendingAllocation> allocations = grantedByDisaster.get(disasterId);
+            return allocations == null ? new ArrayList<>() : new ArrayList<>(allocations);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lists the line items waiting for a resource.
+     *
+     * @param resourceName The name of the resource
+     * @return A copy of the waiting line items, in the order they will be served
+     */
+    public List<PendingAllocation> getWaiting(String resourceName) {
+        lock.lock();
+        try {
+            NavigableSet<PendingAllocation> queue = waiting.get(normalize(resourceName));
+            return queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets every waiting and granted line item without touching any resource, such as after
+     * the inventory has been reset.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (NavigableSet<PendingAllocation> queue : waiting.values()) {
+                queue.forEach(allocation -> allocation.finish(PendingAllocation.State.CANCELLED));
+            }
+            waiting.clear();
+            granted.clear();
+            grantedByDisaster.clear();
+            waitingCount = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(PendingAllocation allocation) {
+        String name = normalize(allocation.getRequest().getResourceName());
+        waiting.computeIfAbsent(name, key -> new TreeSet<>(BY_PRIORITY)).add(allocation);
+        waitingCount++;
+    }
+
+    /**
+     * Grants waiting line items in priority order until the head no longer fits.
+     */
+    private void drain(String name, List<Runnable> events) {
+        Deque<String> names = new ArrayDeque<>(1);
+        names.add(name);
+        drain(names, events);
+    }
+
+    /**
+     * Drains each queue in turn. Granting a unit of line items takes its items out of other
+     * queues too, whose new heads may then fit, so those queues are drained as well.
+     */
+    private void drain(Deque<String> names, List<Runnable> events) {
+        long now = clock.getAsLong();
+        while (!names.isEmpty()) {
+            String name = names.poll();
+            NavigableSet<PendingAllocation> queue = waiting.get(name);
+            while (queue != null && !queue.isEmpty()) {
+                PendingAllocation head = queue.first();
+                List<PendingAllocation> group = head.getGroup();
+                if (group == null) {
+                    if (!tryGrant(head, now, events)) {
+                        break;
+                    }
+                    queue.pollFirst();
+                    waitingCount--;
+                    continue;
+                }
+                if (!isAtHead(group) || !tryGrantGroup(group, now, events)) {
+                    break;
+                }
+                for (PendingAllocation member : group) {
+                    String memberName = normalize(member.getRequest().getResourceName());
+                    waiting.get(memberName).remove(member);
+                    waitingCount--;
+                    if (!memberName.equals(name) && !names.contains(memberName)) {
+                        names.add(memberName);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that every waiting line item of a unit is at the head of its queue, or behind
+     * nothing but other items of the unit.
+     */
+    private boolean isAtHead(List<PendingAllocation> group) {
+        for (PendingAllocation member : group) {
+            NavigableSet<PendingAllocation> queue = waiting.get(normalize(member.getRequest().getResourceName()));
+            PendingAllocation ahead = queue.lower(member);
+            while (ahead != null && ahead.getGroup() == group) {
+                ahead = queue.lower(ahead);
+            }
+            if (ahead != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tryGrant(PendingAllocation allocation, long now, List<Runnable> events) {
+        Resource resource = reserve(allocation);
+        if (resource == null) {
+            return false;
+        }
+        grant(allocation, resource, now, events);
+        return true;
+    }
+
+    /**
+     * Grants every line item of a unit, or none of them.
+     */
+    private boolean tryGrantGroup(List<PendingAllocation> group, long now, List<Runnable> events) {
+        List<Resource> reserved = new ArrayList<>(group.size());
+        for (PendingAllocation member : group) {
+            Resource resource = reserve(member);
+            if (resource == null) {
+                for (int i = 0; i < reserved.size(); i++) {
+                    reserved.get(i).release(group.get(i).getRequest().getQuantity());
+                }
+                return false;
+            }
+            reserved.add(resource);
+        }
+        for (int i = 0; i < group.size(); i++) {
+            grant(group.get(i), reserved.get(i), now, events);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves the units of a line item from the first resource with that name that has them.
+     *
+     * @return the resource, or null if none has the units free
+     */
+    private Resource reserve(PendingAllocation allocation) {
+        int quantity = allocation.getRequest().getQuantity();
+        for (Resource resource : resourceManagement.getResourcesByName(allocation.getRequest().getResourceName())) {
+            if (ResourceManagement.isAvailable(resource.getStatus()) && resource.tryReserve(quantity)) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private void grant(PendingAllocation allocation, Resource resource, long now, List<Runnable> events) {
+        allocation.grant(resource, now);
+        granted.computeIfAbsent(normalize(resource.getName()), key -> new TreeSet<>(BY_VICTIM)).add(allocation);
+        grantedByDisaster.computeIfAbsent(allocation.getDisasterId(), key -> new ArrayList<>(2)).add(allocation);
+        SchedulerListener recorder = this.recorder;
+        if (recorder != null) {
+            recorder.onGranted(allocation);
+        }
+        for (SchedulerListener listener : listeners) {
+            events.add(() -> listener.onGranted(allocation));
+        }
+    }
+
+    /**
+     * Takes units from less severe disasters, least severe and most recently granted first,
+     * as long as the victims all hold units of one resource that then covers the request. Items
+     * granted as part of a unit are passed over.
+     */
+    private boolean tryPreempt(PendingAllocation allocation, long now, List<Runnable> events) {
+        NavigableSet<PendingAllocation> holders = granted.get(normalize(allocation.getRequest().getResourceName()));
+        if (holders == null) {
+            return false;
+        }
+        int quantity = allocation.getRequest().getQuantity();
+        Map<Resource, List<PendingAllocation>> victimsByResource = new IdentityHashMap<>();
+        Map<Resource, Integer> freeable = new IdentityHashMap<>();
+        for (PendingAllocation holder : holders) {
+            if (holder.getWeight() >= allocation.getWeight()) {
+                break;
+            }
+            Resource resource = holder.getResource();
+            if (holder.getGroup() != null || !ResourceManagement.isAvailable(resource.getStatus())) {
+                continue;  // Taking one item of a unit would leave the rest holding units on their own
+            }
+            victimsByResource.computeIfAbsent(resource, key -> new ArrayList<>()).add(holder);
+            int free = freeable.merge(resource, holder.getRequest().getQuantity(), Integer::sum);
+            if (resource.getAvailableQuantity() + free < quantity) {
+                continue;
+            }
+
+            for (PendingAllocation victim : victimsByResource.get(resource)) {
+                holders.remove(victim);
+                forget(victim);
+                resource.release(victim.getRequest().getQuantity());
+                victim.requeue();
+                enqueue(victim);
+                SchedulerListener recorder = this.recorder;
+                if (recorder != null) {
+                    recorder.onPreempted(victim, resource);
+                }
+                for (SchedulerListener listener : listeners) {
+                    events.add(() -> listener.onPreempted(victim, resource));
+                }
+            }
+            if (resource.tryReserve(quantity)) {
+                grant(allocation, resource, now, events);
+                drain(normalize(resource.getName()), events);  // Victims may have freed more than was needed
+                return true;
+            }
+            // Someone reserved the freed units outside the scheduler; the victims wait like everyone else
+            drain(normalize(resource.getName()), events);
+            return false;
+        }
+        return false;
+    }
+
+    private void forget(PendingAllocation allocation) {
+        List<PendingAllocation> allocations = grantedByDisaster.get(allocation.getDisasterId());
+        if (allocations != null) {
+            allocations.remove(allocation);  // A disaster holds few grants, so the scan is short
+            if (allocations.isEmpty()) {
+                grantedByDisaster.remove(allocation.getDisasterId());
+            }
+        }
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,67 @@
+package cqu.drsystem.core;
+
+/**
+ * Units of one resource assigned to a disaster by the {@link DispatchOptimizer}, or units a
+ * disaster asked for that could not be assigned.
+ */
+public final class Assignment {
+    private final Disaster disaster;
+    private final String resourceName;
+    private final Resource resource;
+    private final int quantity;
+    private final double distanceKm;
+
+    Assignment(Disaster disaster, String resourceName, Resource resource, int quantity, double distanceKm) {
+        this.disaster = disaster;
+        this.resourceName = resourceName;
+        this.resource = resource;
+        this.quantity = quantity;
+        this.distanceKm = distanceKm;
+    }
+
+    public Disaster getDisaster() {
+        return disaster;
+    }
+
+    /**
+     * Gets the name of the requested resource, such as "Ambulance".
+     *
+     * @return the requested resource name
+     */
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    /**
+     * Gets the assigned resource.
+     *
+     * @return the resource, or null if the units could not be assigned
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Gets the distance from the resource to the disaster.
+     *
+     * @return the distance in kilometres, 0 if the units could not be assigned
+     */
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public boolean isAssigned() {
+        return resource != null;
+    }
+
+    @Override
+    public String toString() {
+        return isAssigned()
+                ? quantity + " x " + resourceName + " [" + resource.getId() + "] " + String.format("%.1f km", distanceKm)
+                : quantity + " x " + resourceName + " unassigned";
+    }
+}
@@ -0,0 +1,281 @@
+package cqu.drsystem.core;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Registers operators and verifies their logins against a credential file that survives restarts.
+ *
+ * Passwords are never stored: each user has a random salt and a PBKDF2 hash of the password.
+ * Hashing is deliberately slow, so it runs on a bounded pool of worker threads and every call
+ * returns a {@link CompletableFuture}; callers on the JavaFX thread must not wait on it. When
+ * many operators log in at once the surplus waits in a bounded queue, and if that is full the
+ * future fails with a {@link java.util.concurrent.RejectedExecutionException} rather than
+ * piling up work.
+ *
+ * A successful login opens a {@link Session}. Checking a session token is a map lookup, so
+ * repeat operations do not hash the password again.
+ *
+ * The credential file holds one {@code username:iterations:salt:hash} line per registration,
+ * with salt and hash in Base64. Lines are only ever appended.
+ */
+public class AuthenticationService implements Closeable {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int ITERATIONS = 65536;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int TOKEN_BYTES = 32;
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long SESSION_TTL_MILLIS = TimeUnit.HOURS.toMillis(12);  // Longer than a shift
+
+    private final Path credentialFile;
+    private final Map<String, Credential> credentials = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor workers;
+    private final SecureRandom random = new SecureRandom();
+    private final Credential dummy;  // Hashed for unknown users so they take as long as known ones
+    private BufferedWriter writer;  // Guarded by this
+
+    /**
+     * Constructs the service and loads the credential file, if it exists.
+     *
+     * @param credentialFile the credential file
+     * @param workerThreads the number of threads that hash passwords
+     * @throws IOException if the credential file cannot be read
+     */
+    public AuthenticationService(Path credentialFile, int workerThreads) throws IOException {
+        this.credentialFile = credentialFile;
+        if (Files.exists(credentialFile)) {
+            List<String> lines = Files.readAllLines(credentialFile, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                Credential credential = Credential.parse(line);
+                if (credential != null) {
+                    credentials.put(credential.username, credential);  // Later lines win
+                }
+            }
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "auth-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dummy = new Credential("", ITERATIONS, newSalt(), new byte[HASH_BITS / 8]);
+    }
+
+    /**
+     * Registers a new user and writes the credential through to the credential file.
+     *
+     * @param username the username
+     * @param password the password; the array is cleared once it has been hashed
+     * @return a future that completes with true, or false if the username is already taken
+     */
+    public CompletableFuture<Boolean> register(String username, char[] password) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (credentials.containsKey(username)) {
+                    return false;
+                }
+                byte[] salt = newSalt();
+                Credential credential = new Credential(username, ITERATIONS, salt, hash(password, salt, ITERATIONS));
+                if (credentials.putIfAbsent(username, credential) != null) {
+                    return false;  // Registered concurrently
+                }
+                append(credential);
+                return true;
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        }, workers);
+    }
+
+    /**
+     * Verifies a login and opens a session.
+     *
+     * @param username the username
+     * @param password the password; the array is cleared once it has been hashed
+     * @return a future that completes with the new session, or null if the credentials are wrong
+     */
+    public CompletableFuture<Session> login(String username, char[] password) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Credential credential = credentials.get(username);
+                Credential checked = credential != null ? credential : dummy;
+                byte[] actual = hash(password, checked.salt, checked.iterations);
+                if (credential == null || !MessageDigest.isEqual(actual, credential.hash)) {
+                    return null;
+                }
+                Session session = new Session(newToken(), username, System.currentTimeMillis() + SESSION_TTL_MILLIS);
+                sessions.put(session.getToken(), session);
+                return session;
+            } finally {
+                Arrays.fill(password, '\0');
+            }
+        }, workers);
+    }
+
+    /**
+     * Looks up an open session and extends its lifetime. Does not hash anything.
+     *
+     * @param token the session token
+     * @return the session, or null if the token is unknown or the session has expired
+     */
+    public Session validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (session.getExpiresAtMillis() < now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.extendTo(now + SESSION_TTL_MILLIS);
+        return session;
+    }
+
+    /**
+     * Closes a session.
+     *
+     * @param token the session token
+     */
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Checks whether a username is registered.
+     *
+     * @param username the username
+     * @return true if the user exists
+     */
+    public boolean isRegistered(String username) {
+        return credentials.containsKey(username);
+    }
+
+    private static byte[] hash(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private byte[] newSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return salt;
+    }
+
+    private String newToken() {
+        byte[] token = new byte[TOKEN_BYTES];
+        random.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    private synchronized void append(Credential credential) {
+        try {
+            if (writer == null) {
+                Path parent = credentialFile.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                writer = Files.newBufferedWriter(credentialFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(credential.format());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            credentials.remove(credential.username, credential);
+            throw new UncheckedIOException("Could not save the credentials of " + credential.username, e);
+        }
+    }
+
+    /**
+     * Stops the workers and closes the credential file.
+     *
+     * @throws IOException if the credential file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        workers.shutdown();
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * One line of the credential file.
+     */
+    private static final class Credential {
+        final String username;
+        final int iterations;
+        final byte[] salt;
+        final byte[] hash;
+
+        Credential(String username, int iterations, byte[] salt, byte[] hash) {
+            this.username = username;
+            this.iterations = iterations;
+            this.salt = salt;
+            this.hash = hash;
+        }
+
+        static Credential parse(String line) {
+            // The username may contain ':', so split from the right
+            int hashStart = line.lastIndexOf(':');
+            int saltStart = hashStart > 0 ? line.lastIndexOf(':', hashStart - 1) : -1;
+            int iterationsStart = saltStart > 0 ? line.lastIndexOf(':', saltStart - 1) : -1;
+            if (iterationsStart <= 0) {
+                return null;
+            }
+            try {
+                Base64.Decoder decoder = Base64.getDecoder();
+                return new Credential(line.substring(0, iterationsStart),
+                        Integer.parseInt(line.substring(iterationsStart + 1, saltStart)),
+                        decoder.decode(line.substring(saltStart + 1, hashStart)),
+                        decoder.decode(line.substring(hashStart + 1)));
+            } catch (IllegalArgumentException e) {
+                return null;  // Skip a damaged line rather than refusing every login
+            }
+        }
+
+        String format() {
+            Base64.Encoder encoder = Base64.getEncoder();
+            return username + ":" + iterations + ":" + encoder.encodeToString(salt) + ":" + encoder.encodeToString(hash);
+        }
+    }
+}
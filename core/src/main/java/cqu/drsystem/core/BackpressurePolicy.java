@@ -0,0 +1,13 @@
+package cqu.drsystem.core;
+
+/**
+ * What the {@link NotificationDispatcher} does when a department's queue is full. Reporting
+ * never waits for a slow department, so both policies lose a notification; they differ in
+ * which one.
+ */
+public enum BackpressurePolicy {
+    /** Reject the new notification and keep the queued ones. */
+    REJECT,
+    /** Drop the oldest queued notification to make room for the new one. */
+    DROP_OLDEST
+}
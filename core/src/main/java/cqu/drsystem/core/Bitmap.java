@@ -0,0 +1,54 @@
+package cqu.drsystem.core;
+
+import java.util.Arrays;
+
+/**
+ * A bitmap over dense ids, split into blocks of 65536 bits. Blocks without any set bit are never
+ * allocated, so sparse bitmaps stay small and conjunctions skip the empty parts wholesale.
+ * Not thread-safe; {@link DisasterIndex} guards its bitmaps.
+ */
+final class Bitmap {
+
+    static final int BLOCK_SHIFT = 16;
+    static final int BLOCK_WORDS = 1 << (BLOCK_SHIFT - 6);
+
+    private long[][] blocks = new long[4][];
+    private long cardinality;
+
+    /**
+     * Sets a bit.
+     *
+     * @param id the bit to set
+     */
+    void set(int id) {
+        int block = id >>> BLOCK_SHIFT;
+        if (block >= blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(block + 1, blocks.length * 2));
+        }
+        long[] words = blocks[block];
+        if (words == null) {
+            words = new long[BLOCK_WORDS];
+            blocks[block] = words;
+        }
+        int word = (id >>> 6) & (BLOCK_WORDS - 1);
+        long mask = 1L << id;
+        if ((words[word] & mask) == 0) {
+            words[word] |= mask;
+            cardinality++;
+        }
+    }
+
+    /**
+     * Gets a block of the bitmap.
+     *
+     * @param block the block number
+     * @return the words of the block, or null if no bit in it is set
+     */
+    long[] block(int block) {
+        return block < blocks.length ? blocks[block] : null;
+    }
+
+    long cardinality() {
+        return cardinality;
+    }
+}
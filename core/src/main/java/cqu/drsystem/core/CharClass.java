@@ -0,0 +1,92 @@
+package cqu.drsystem.core;
+
+/**
+ * An immutable set of ASCII characters, stored as a 128-bit table so that membership is a
+ * shift and a mask. Characters outside ASCII are never members, matching the ASCII-only
+ * character classes the validation rules were first written with ({@code [a-zA-Z\s]}).
+ */
+public final class CharClass {
+
+    /** The characters {@code A-Z}. */
+    public static final CharClass UPPERCASE = range('A', 'Z');
+    /** The characters {@code a-z}. */
+    public static final CharClass LOWERCASE = range('a', 'z');
+    /** The characters {@code A-Z} and {@code a-z}. */
+    public static final CharClass LETTERS = UPPERCASE.or(LOWERCASE);
+    /** The characters {@code 0-9}. */
+    public static final CharClass DIGITS = range('0', '9');
+    /** Space, tab, line feed, vertical tab, form feed and carriage return, as in regex {@code \s}. */
+    public static final CharClass WHITESPACE = of(" \t\n\u000B\f\r");
+
+    private final long low;   // Characters 0-63
+    private final long high;  // Characters 64-127
+
+    private CharClass(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Creates a class of the given characters.
+     *
+     * @param chars the characters, all ASCII
+     * @return the character class
+     */
+    public static CharClass of(String chars) {
+        long low = 0;
+        long high = 0;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c >= 128) {
+                throw new IllegalArgumentException("Not an ASCII character: " + c);
+            }
+            if (c < 64) {
+                low |= 1L << c;
+            } else {
+                high |= 1L << (c - 64);
+            }
+        }
+        return new CharClass(low, high);
+    }
+
+    /**
+     * Creates a class of a range of characters.
+     *
+     * @param first the first character, inclusive
+     * @param last the last character, inclusive
+     * @return the character class
+     */
+    public static CharClass range(char first, char last) {
+        if (first > last || last >= 128) {
+            throw new IllegalArgumentException("Invalid ASCII range: " + first + "-" + last);
+        }
+        StringBuilder chars = new StringBuilder();
+        for (char c = first; c <= last; c++) {
+            chars.append(c);
+        }
+        return of(chars.toString());
+    }
+
+    /**
+     * Creates the union of this class and another.
+     *
+     * @param other the other class
+     * @return the combined class
+     */
+    public CharClass or(CharClass other) {
+        return new CharClass(low | other.low, high | other.high);
+    }
+
+    /**
+     * Checks whether a character is in the class.
+     *
+     * @param c the character
+     * @return true if the character is a member
+     */
+    public boolean contains(char c) {
+        if (c < 64) {
+            return (low & (1L << c)) != 0;
+        }
+        return c < 128 && (high & (1L << (c - 64))) != 0;
+    }
+}
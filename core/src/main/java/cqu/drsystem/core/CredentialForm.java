@@ -0,0 +1,45 @@
+package cqu.drsystem.core;
+
+/**
+ * The fields of the login and registration forms, as typed by the operator.
+ */
+public final class CredentialForm {
+    private final String username;
+    private final String password;
+    private final String confirmation;
+
+    /**
+     * Constructs the fields of a login form.
+     *
+     * @param username the username
+     * @param password the password
+     */
+    public CredentialForm(String username, String password) {
+        this(username, password, null);
+    }
+
+    /**
+     * Constructs the fields of a registration form.
+     *
+     * @param username the username
+     * @param password the password
+     * @param confirmation the password typed a second time
+     */
+    public CredentialForm(String username, String password, String confirmation) {
+        this.username = username;
+        this.password = password;
+        this.confirmation = confirmation;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getConfirmation() {
+        return confirmation;
+    }
+}
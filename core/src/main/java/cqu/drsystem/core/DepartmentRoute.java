@@ -0,0 +1,62 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The departments to notify for one (disaster type, region) combination of a routing table.
+ * Routes are built once when the table is compiled and shared afterwards, so resolving a
+ * disaster to its route does not allocate.
+ */
+public final class DepartmentRoute {
+    private final int[] departmentIds;
+    private final long[] departmentBits;
+    private final List<String> departmentNames;
+
+    DepartmentRoute(int[] departmentIds, long[] departmentBits, List<String> departmentNames) {
+        this.departmentIds = departmentIds;
+        this.departmentBits = departmentBits;
+        this.departmentNames = Collections.unmodifiableList(departmentNames);
+    }
+
+    /**
+     * Gets the names of the departments to notify, in notification order.
+     *
+     * @return the department names
+     */
+    public List<String> getDepartmentNames() {
+        return departmentNames;
+    }
+
+    /**
+     * Checks whether a department is part of this route.
+     *
+     * @param departmentId the dense id of the department in the routing table
+     * @return true if the department is notified
+     */
+    public boolean contains(int departmentId) {
+        int word = departmentId >>> 6;
+        return word < departmentBits.length && (departmentBits[word] & (1L << departmentId)) != 0;
+    }
+
+    /**
+     * Calls the consumer with the dense id of every department, in notification order.
+     *
+     * @param consumer the consumer to call
+     */
+    public void forEachDepartment(IntConsumer consumer) {
+        for (int id : departmentIds) {
+            consumer.accept(id);
+        }
+    }
+
+    /**
+     * Gets the number of departments in the route.
+     *
+     * @return the number of departments
+     */
+    public int size() {
+        return departmentIds.length;
+    }
+}
@@ -0,0 +1,181 @@
+package cqu.drsystem.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+
+/**
+ * Decides which departments are notified about a disaster, based on its type and region.
+ *
+ * The rules come from a routing file (see the default {@code routing.conf}) and are compiled
+ * into a {@link RoutingTable}, so routing a report is allocation-free and constant-time. When
+ * the router reads an external file it can watch it and swap in the recompiled table whenever
+ * the file changes, without restarting the application; a file with errors is ignored and the
+ * previous rules stay in place.
+ */
+public class DepartmentRouter implements Closeable {
+
+    private static final System.Logger LOGGER = System.getLogger(DepartmentRouter.class.getName());
+    private static final String DEFAULT_RULES = "routing.conf";
+
+    private final Path rulesFile;
+    private volatile RoutingTable table;
+    private WatchService watchService;
+
+    /**
+     * Constructs a router with the default rules bundled with the system.
+     */
+    public DepartmentRouter() {
+        this.rulesFile = null;
+        try (InputStream in = DepartmentRouter.class.getResourceAsStream(DEFAULT_RULES)) {
+            if (in == null) {
+                throw new IllegalStateException("Default routing rules not found: " + DEFAULT_RULES);
+            }
+            table = RoutingTable.parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load the default routing rules", e);
+        }
+    }
+
+    /**
+     * Constructs a router with the rules in the given file.
+     *
+     * @param rulesFile the routing file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public DepartmentRouter(Path rulesFile) throws IOException {
+        this.rulesFile = rulesFile;
+        reload();
+    }
+
+    /**
+     * Creates the router configured for this system: the rules file named by the
+     * {@code drsystem.routing.file} system property, watched for changes, or the default
+     * rules if the property is not set.
+     *
+     * @return the router
+     * @throws IOException if the configured file cannot be read or watched
+     */
+    public static DepartmentRouter createConfigured() throws IOException {
+        String configured = System.getProperty("drsystem.routing.file");
+        if (configured == null) {
+            return new DepartmentRouter();
+        }
+        DepartmentRouter router = new DepartmentRouter(Paths.get(configured));
+        router.watch();
+        return router;
+    }
+
+    /**
+     * Gets the names of every department in the current rules.
+     *
+     * @return the department names, by dense id
+     */
+    public List<String> getDepartments() {
+        return table.getDepartments();
+    }
+
+    /**
+     * Resolves the route of a disaster in the current rules.
+     *
+     * @param disaster the reported disaster
+     * @return the shared route for the disaster's type and region
+     */
+    public DepartmentRoute resolve(Disaster disaster) {
+        return table.resolve(disaster.getType(), disaster.getLocation());
+    }
+
+    /**
+     * Gets the departments to notify about a disaster.
+     *
+     * @param disaster the reported disaster
+     * @return the names of the departments to notify, in notification order
+     */
+    public List<String> route(Disaster disaster) {
+        return resolve(disaster).getDepartmentNames();
+    }
+
+    /**
+     * Re-reads and recompiles the rules file. The new rules replace the old ones atomically.
+     *
+     * @throws IOException if the file cannot be read or is malformed; the old rules stay in place
+     */
+    public final void reload() throws IOException {
+        if (rulesFile == null) {
+            return;  // The bundled rules never change
+        }
+        try (Reader reader = Files.newBufferedReader(rulesFile, StandardCharsets.UTF_8)) {
+            table = RoutingTable.parse(reader);
+        }
+    }
+
+    /**
+     * Starts a daemon thread that reloads the rules whenever the rules file changes.
+     *
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public synchronized void watch() throws IOException {
+        if (rulesFile == null || watchService != null) {
+            return;
+        }
+        Path directory = rulesFile.toAbsolutePath().getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> watchLoop(service), "routing-rules-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop(WatchService service) {
+        Path fileName = rulesFile.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    try {
+                        reload();
+                        LOGGER.log(System.Logger.Level.INFO, "Routing rules reloaded from " + rulesFile);
+                    } catch (IOException e) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Ignoring invalid routing rules in " + rulesFile + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Router closed
+        }
+    }
+
+    /**
+     * Stops watching the rules file.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+}
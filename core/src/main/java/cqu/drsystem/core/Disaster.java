@@ -0,0 +1,201 @@
+package cqu.drsystem.core;
+
+/**
+ * Represents a disaster event in the Disaster Response System, test for pushing.
+ * This class encapsulates the key information about a disaster.
+ * <p>
+ * Once a disaster is appended to a {@link DisasterStore} it becomes a view of its row there:
+ * its own fields are dropped and every getter and setter goes to the store.
+ * <p>
+ * Disasters are compared by identity, stored or not, so a disaster keeps its hash code when it
+ * is stored. Two views of the same row are different objects; compare rows by disaster id.
+ */
+public class Disaster {
+    private String type;
+    private String location;
+    private String severity;
+    private String description;
+    private GeoPoint position;  // Where the disaster is, if known
+    private DisasterStore store;  // The store holding the values, or null while they are held here
+    private int row;
+
+      /**
+     * Constructs a new Disaster object with the specified details.
+     *
+     * @param type The type of the disaster (e.g., "Earthquake", "Flood")
+     * @param location The location where the disaster occurred
+     * @param severity The severity level of the disaster
+     * @param description A brief description of the disaster
+     */
+    public Disaster(String type, String location, String severity, String description) {
+        this.type = type;
+        this.location = location;
+        this.severity = severity;
+        this.description = description;
+    }
+
+       /**
+     * Constructs a new Disaster object at a known position.
+     *
+     * @param type The type of the disaster (e.g., "Earthquake", "Flood")
+     * @param location The location where the disaster occurred
+     * @param severity The severity level of the disaster
+     * @param description A brief description of the disaster
+     * @param position The coordinates of the disaster, or null if unknown
+     */
+    public Disaster(String type, String location, String severity, String description, GeoPoint position) {
+        this(type, location, severity, description);
+        this.position = position;
+    }
+
+    /**
+     * Constructs a view of a stored disaster.
+     */
+    Disaster(DisasterStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Tells whether the disaster is a view of a {@link DisasterStore} row.
+     *
+     * @return true if the values are held by a store
+     */
+    public boolean isStored() {
+        return store != null;
+    }
+
+    /**
+     * Turns the disaster into a view of a row that already holds its values.
+     */
+    void attach(DisasterStore store, int row) {
+        this.store = store;
+        this.row = row;
+        type = null;
+        location = null;
+        severity = null;
+        description = null;
+        position = null;
+    }
+
+       /**
+     * Retrieves the type of the disaster.
+     *
+     * @return The type of the disaster
+     */
+    public String getType() {
+        return store == null ? type : store.getType(row);
+    }
+
+     /**
+     * Sets the type of the disaster.
+     *
+     * @param type The new type of the disaster
+     */
+    public void setType(String type) {
+        if (store == null) {
+            this.type = type;
+        } else {
+            store.setType(row, type);
+        }
+    }
+
+     /**
+     * Retrieves the location of the disaster.
+     *
+     * @return The location where the disaster occurred
+     */
+    public String getLocation() {
+        return store == null ? location : store.getLocation(row);
+    }
+
+    /**
+     * Sets the location of the disaster.
+     *
+     * @param location The new location of the disaster
+     */
+    public void setLocation(String location) {
+        if (store == null) {
+            this.location = location;
+        } else {
+            store.setLocation(row, location);
+        }
+    }
+
+    /**
+     * Retrieves the severity of the disaster.
+     *
+     * @return The severity level of the disaster
+     */
+    public String getSeverity() {
+        return store == null ? severity : store.getSeverity(row);
+    }
+
+     /**
+     * Sets the severity of the disaster.
+     *
+     * @param severity The new severity level of the disaster
+     */
+    public void setSeverity(String severity) {
+        if (store == null) {
+            this.severity = severity;
+        } else {
+            store.setSeverity(row, severity);
+        }
+    }
+
+      /**
+     * Retrieves the description of the disaster.
+     *
+     * @return A brief description of the disaster
+     */
+    public String getDescription() {
+        return store == null ? description : store.getDescription(row);
+    }
+
+    /**
+     * Sets the description of the disaster.
+     *
+     * @param description The new description of the disaster
+     */
+    public void setDescription(String description) {
+        if (store == null) {
+            this.description = description;
+        } else {
+            store.setDescription(row, description);
+        }
+    }
+
+    /**
+     * Retrieves the coordinates of the disaster.
+     *
+     * @return The position of the disaster, or null if unknown
+     */
+    public GeoPoint getPosition() {
+        return store == null ? position : store.getPosition(row);
+    }
+
+    /**
+     * Sets the coordinates of the disaster. A disaster that has already been reported keeps
+     * its place in the dispatch service's spatial index.
+     *
+     * @param position The new position of the disaster, or null if unknown
+     */
+    public void setPosition(GeoPoint position) {
+        if (store == null) {
+            this.position = position;
+        } else {
+            store.setPosition(row, position);
+        }
+    }
+
+     /**
+     * Returns a string representation of the Disaster object.
+     *
+     * @return A string containing all the details of the disaster
+     */
+    @Override
+    public String toString() {
+        return "Disaster [Type=" + getType() + ", Location=" + getLocation() + ", Severity=" + getSeverity() + ", Description=" + getDescription() + "]";
+    }
+}
@@ -0,0 +1,730 @@
+package cqu.drsystem.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Imports disaster reports in bulk from CSV or JSON Lines files.
+ *
+ * The file is streamed in three stages. A reader thread decodes it in fixed-size chunks
+ * through a {@link FileChannel} and cuts it into batches of records; a pool of workers parses
+ * and validates the batches in parallel; and the calling thread dispatches the valid reports
+ * of each batch in file order through the service, in one pass per batch as
+ * {@link DispatchService#reportBatch} does but without validating them again. Only a bounded
+ * number of batches is in flight at once, and a record may be at most
+ * {@value #MAX_RECORD_CHARS} characters long, so memory use does not depend on the file size.
+ * A longer record, such as one opened by a quote that is never closed, is rejected and reading
+ * picks up again at the next line break.
+ *
+ * CSV files need a header row naming the columns {@code type}, {@code location},
+ * {@code severity}, {@code description} and {@code resources}, and optionally
+ * {@code latitude} and {@code longitude}, in any order. JSON Lines files hold one object
+ * per line with the same keys. Resources are written as
+ * {@code Fire Truck:2;Ambulance:1}, or in JSON also as an object such as
+ * {@code {"Fire Truck": 2, "Ambulance": 1}}.
+ */
+public class DisasterImporter {
+
+    /**
+     * The supported file formats.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        /**
+         * Guesses the format of a file from its extension: {@code .jsonl}, {@code .ndjson} and
+         * {@code .json} are JSON Lines, anything else is CSV.
+         *
+         * @param file the file
+         * @return the format
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSON_LINES : CSV;
+        }
+    }
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int BATCH_ROWS = 4096;
+    static final int MAX_RECORD_CHARS = 64 * 1024;
+    private static final int MAX_ERRORS = 100;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final String[] COLUMNS = {"type", "location", "severity", "description", "resources", "latitude", "longitude"};
+    private static final ParsedBatch END = new ParsedBatch();
+
+    private final DispatchService service;
+    private final int parallelism;
+
+    /**
+     * Constructs an importer.
+     *
+     * @param service the service the reports are dispatched through
+     * @param parallelism the number of threads that parse and validate records
+     */
+    public DisasterImporter(DispatchService service, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.service = service;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imports a file, dispatching every valid report in it. Blocks until the whole file has
+     * been dispatched; call it from a background thread.
+     *
+     * @param file the file to import
+     * @param format the format of the file
+     * @param listener called on the importing thread with the progress, a few times a second
+     *                 and once more when the import has finished; may be null
+     * @return the final progress
+     * @throws IOException if the file cannot be read, or a CSV file has no header row
+     * @throws InterruptedException if the importing thread is interrupted
+     */
+    public ImportProgress importFile(Path file, Format format, Consumer<ImportProgress> listener)
+            throws IOException, InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "import-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Future<ParsedBatch>> pending = new ArrayBlockingQueue<>(parallelism * 2);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             RecordReader reader = new RecordReader(channel, format == Format.CSV)) {
+            Run run = new Run(channel.size(), listener);
+            int[] columns = format == Format.CSV ? readHeader(reader) : null;
+
+            Thread readerThread = new Thread(() -> readLoop(reader, format, columns, workers, pending, run), "import-reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
+            try {
+                while (true) {
+                    ParsedBatch batch = pending.take().get();
+                    if (batch == END) {
+                        break;
+                    }
+                    run.dispatch(batch);
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Import worker failed", e.getCause());
+            } finally {
+                readerThread.interrupt();
+                readerThread.join();
+            }
+            if (run.readFailure != null) {
+                throw run.readFailure;
+            }
+            ImportProgress progress = run.progress(true);
+            if (listener != null) {
+                listener.accept(progress);
+            }
+            return progress;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads batches of records and hands them to the workers. Runs on the reader thread.
+     */
+    private void readLoop(RecordReader reader, Format format, int[] columns, ExecutorService workers,
+                          BlockingQueue<Future<ParsedBatch>> pending, Run run) {
+        try {
+            try {
+                while (true) {
+                    List<String> records = new ArrayList<>(BATCH_ROWS);
+                    long[] lines = new long[BATCH_ROWS];
+                    long start = System.nanoTime();
+                    int count = reader.read(records, lines, BATCH_ROWS);
+                    run.readNanos += System.nanoTime() - start;
+                    run.rowsRead += count;
+                    run.bytesRead = reader.bytesRead;
+                    if (count == 0) {
+                        break;
+                    }
+                    // Blocks while enough batches are in flight, which bounds memory use
+                    pending.put(workers.submit(() -> parse(records, lines, format, columns)));
+                }
+            } catch (IOException e) {
+                run.readFailure = e;
+            }
+            pending.put(CompletableFuture.completedFuture(END));
+        } catch (InterruptedException e) {
+            // The import was abandoned
+        }
+    }
+
+    private static int[] readHeader(RecordReader reader) throws IOException {
+        List<String> header = new ArrayList<>(1);
+        if (reader.read(header, new long[1], 1) == 0) {
+            throw new IOException("The CSV file is empty");
+        }
+        if (header.get(0) == null) {
+            throw new IOException("The CSV header row is longer than " + MAX_RECORD_CHARS + " characters");
+        }
+        List<String> names = splitCsv(header.get(0));
+        int[] columns = new int[COLUMNS.length];
+        boolean found = false;
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(COLUMNS[c])) {
+                    columns[c] = i;
+                    found = true;
+                }
+            }
+        }
+        if (!found) {
+            throw new IOException("The CSV file needs a header row with the columns " + String.join(", ", COLUMNS));
+        }
+        return columns;
+    }
+
+    /**
+     * Parses and validates one batch. Runs on a worker thread.
+     */
+    private static ParsedBatch parse(List<String> records, long[] lines, Format format, int[] columns) {
+        long start = System.nanoTime();
+        ParsedBatch batch = new ParsedBatch();
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i) == null) {
+                batch.reject(lines[i], Collections.singletonList(new ValidationError("record",
+                        "Record is longer than " + MAX_RECORD_CHARS + " characters; is a quote left open?")));
+                continue;
+            }
+            DisasterReport report;
+            try {
+                report = format == Format.CSV ? parseCsv(records.get(i), columns) : parseJson(records.get(i));
+            } catch (IllegalArgumentException e) {
+                batch.reject(lines[i], Collections.singletonList(new ValidationError("record", e.getMessage())));
+                continue;
+            }
+            List<ValidationError> errors = Validators.DISASTER_REPORT.validate(report);
+            if (errors.isEmpty()) {
+                batch.reports.add(report);
+            } else {
+                batch.reject(lines[i], errors);
+            }
+        }
+        batch.rows = records.size();
+        batch.nanos = System.nanoTime() - start;
+        return batch;
+    }
+
+    private static DisasterReport parseCsv(String record, int[] columns) {
+        List<String> fields = splitCsv(record);
+        String[] values = new String[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            values[c] = columns[c] >= 0 && columns[c] < fields.size() ? fields.get(columns[c]) : null;
+        }
+        return new DisasterReport(values[0], values[1], values[2], values[3], parseResources(values[4]),
+                parsePosition(values[5], values[6]));
+    }
+
+    /**
+     * Splits a CSV record into fields. Fields may be quoted, with {@code ""} for a quote.
+     */
+    private static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>(COLUMNS.length);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static DisasterReport parseJson(String record) {
+        Map<String, Object> object = new JsonParser(record).parseObject();
+        Object resources = object.get("resources");
+        List<AllocationRequest> requests;
+        if (resources instanceof Map) {
+            requests = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) resources).entrySet()) {
+                requests.add(newRequest(entry.getKey().toString(), entry.getValue()));
+            }
+        } else {
+            requests = parseResources(resources == null ? null : resources.toString());
+        }
+        return new DisasterReport(text(object.get("type")), text(object.get("location")), text(object.get("severity")),
+                text(object.get("description")), requests, parsePosition(text(object.get("latitude")), text(object.get("longitude"))));
+    }
+
+    private static GeoPoint parsePosition(String latitude, String longitude) {
+        boolean hasLatitude = latitude != null && !latitude.trim().isEmpty();
+        boolean hasLongitude = longitude != null && !longitude.trim().isEmpty();
+        if (!hasLatitude && !hasLongitude) {
+            return null;
+        }
+        if (!hasLatitude || !hasLongitude) {
+            throw new IllegalArgumentException("Latitude and longitude must be given together.");
+        }
+        try {
+            return new GeoPoint(Double.parseDouble(latitude.trim()), Double.parseDouble(longitude.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Parses resources written as {@code Fire Truck:2;Ambulance:1}.
+     */
+    private static List<AllocationRequest> parseResources(String text) {
+        List<AllocationRequest> requests = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return requests;
+        }
+        for (String item : text.split(";")) {
+            int colon = item.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Resource '" + item.trim() + "' needs a quantity, as in 'Ambulance:2'.");
+            }
+            requests.add(newRequest(item.substring(0, colon).trim(), item.substring(colon + 1).trim()));
+        }
+        return requests;
+    }
+
+    private static AllocationRequest newRequest(String name, Object quantity) {
+        int parsed;
+        try {
+            parsed = quantity instanceof Number ? ((Number) quantity).intValue() : Integer.parseInt(String.valueOf(quantity));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quantity for " + name + ": " + quantity);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Invalid quantity for " + name + ": " + quantity);
+        }
+        return new AllocationRequest(name, parsed);
+    }
+
+    /**
+     * The state of one import. The reader thread alone writes the read counters; the importing
+     * thread alone writes the rest.
+     */
+    private final class Run {
+        final long totalBytes;
+        final Consumer<ImportProgress> listener;
+        final long startNanos = System.nanoTime();
+        final List<ImportError> errors = new ArrayList<>();
+        volatile long bytesRead;
+        volatile long rowsRead;
+        volatile long readNanos;
+        volatile IOException readFailure;
+        long rowsValidated;
+        long rowsInvalid;
+        long rowsDispatched;
+        long allocationsFailed;
+        long validateNanos;
+        long dispatchNanos;
+        long lastProgressNanos = startNanos;
+
+        Run(long totalBytes, Consumer<ImportProgress> listener) {
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        void dispatch(ParsedBatch batch) {
+            rowsValidated += batch.rows;
+            rowsInvalid += batch.invalid;
+            validateNanos += batch.nanos;
+            for (ImportError error : batch.errors) {
+                if (errors.size() == MAX_ERRORS) {
+                    break;
+                }
+                errors.add(error);
+            }
+
+            if (!batch.reports.isEmpty()) {
+                long start = System.nanoTime();
+                for (DispatchOutcome outcome : service.dispatchValidated(batch.reports)) {
+                    if (!outcome.getAllocation().isSuccessful()) {
+                        allocationsFailed++;
+                    }
+                }
+                dispatchNanos += System.nanoTime() - start;
+                rowsDispatched += batch.reports.size();
+            }
+
+            long now = System.nanoTime();
+            if (listener != null && now - lastProgressNanos >= PROGRESS_INTERVAL_NANOS) {
+                lastProgressNanos = now;
+                listener.accept(progress(false));
+            }
+        }
+
+        ImportProgress progress(boolean finished) {
+            return new ImportProgress(totalBytes, bytesRead, rowsRead, rowsValidated, rowsInvalid, rowsDispatched,
+                    allocationsFailed, readNanos, validateNanos, dispatchNanos, System.nanoTime() - startNanos,
+                    finished, new ArrayList<>(errors));
+        }
+    }
+
+    /**
+     * The outcome of parsing and validating one batch of records.
+     */
+    private static final class ParsedBatch {
+        final List<DisasterReport> reports = new ArrayList<>();
+        final List<ImportError> errors = new ArrayList<>();
+        int rows;
+        int invalid;
+        long nanos;
+
+        void reject(long line, List<ValidationError> reasons) {
+            invalid++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new ImportError(line, reasons));
+            }
+        }
+    }
+
+    /**
+     * Cuts a file into records, one chunk at a time. A record ends at a line break, except
+     * inside a quoted CSV field. Blank lines are skipped, and a record longer than
+     * {@link #MAX_RECORD_CHARS} is handed on as null and ends at the next line break.
+     */
+    private static final class RecordReader implements Closeable {
+        private final FileChannel channel;
+        private final boolean csv;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        private final CharBuffer chars = CharBuffer.allocate(CHUNK_BYTES);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final StringBuilder record = new StringBuilder();
+        private long lineNumber = 1;  // Line of the next character
+        private long recordLine = 1;  // Line the current record started on
+        private boolean inQuotes;
+        private boolean oversized;  // The current record is being skipped
+        private boolean endOfInput;
+        private boolean firstRecord = true;
+        long bytesRead;
+
+        RecordReader(FileChannel channel, boolean csv) {
+            this.channel = channel;
+            this.csv = csv;
+            chars.flip();  // Start out empty, in read mode
+        }
+
+        int read(List<String> records, long[] lines, int max) throws IOException {
+            while (records.size() < max) {
+                if (!chars.hasRemaining()) {
+                    if (endOfInput) {
+                        emit(records, lines);
+                        break;
+                    }
+                    fill();
+                    continue;
+                }
+                char c = chars.get();
+                if (c == '\n') {
+                    lineNumber++;
+                    if (!inQuotes || oversized) {
+                        emit(records, lines);
+                        recordLine = lineNumber;
+                        continue;
+                    }
+                } else if (c == '"' && csv) {
+                    inQuotes = !inQuotes;
+                }
+                if (oversized) {
+                    continue;
+                }
+                if (record.length() == MAX_RECORD_CHARS) {
+                    // Drop what was gathered and skip to the next line break, quoted or not
+                    oversized = true;
+                    record.setLength(0);
+                    continue;
+                }
+                record.append(c);
+            }
+            return records.size();
+        }
+
+        private void emit(List<String> records, long[] lines) {
+            if (oversized) {
+                oversized = false;
+                inQuotes = false;
+                lines[records.size()] = recordLine;
+                records.add(null);
+                return;
+            }
+            int length = record.length();
+            if (length > 0 && record.charAt(length - 1) == '\r') {
+                length--;
+            }
+            int start = firstRecord && length > 0 && record.charAt(0) == '\uFEFF' ? 1 : 0;  // Byte order mark
+            String text = record.substring(start, length);
+            record.setLength(0);
+            if (!text.trim().isEmpty()) {
+                firstRecord = false;
+                lines[records.size()] = recordLine;
+                records.add(text);
+            }
+        }
+
+        private void fill() throws IOException {
+            chars.clear();
+            int read = channel.read(bytes);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            endOfInput = read < 0;
+            bytes.flip();
+            decoder.decode(bytes, chars, endOfInput);
+            if (endOfInput) {
+                decoder.flush(chars);
+            }
+            bytes.compact();  // Keeps a multi-byte character split across chunks
+            chars.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Parses the single JSON object on a JSON Lines record.
+     */
+    private static final class JsonParser {
+        private final String text;
+        private int pos;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> parseObject() {
+            skipWhitespace();
+            Object value = parseValue();
+            skipWhitespace();
+            if (!(value instanceof Map) || pos != text.length()) {
+                throw error("Expected a single JSON object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> object = (Map<String, Object>) value;
+            return object;
+        }
+
+        private Object parseValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of record");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    return parseMembers();
+                case '[':
+                    return parseElements();
+                case '"':
+                    return parseString();
+                case 't':
+                    return literal("true", Boolean.TRUE);
+                case 'f':
+                    return literal("false", Boolean.FALSE);
+                case 'n':
+                    return literal("null", null);
+                default:
+                    return parseNumber();
+            }
+        }
+
+        private Map<String, Object> parseMembers() {
+            Map<String, Object> members = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return members;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected a key");
+                }
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                members.put(key, parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return members;
+                }
+            }
+        }
+
+        private List<Object> parseElements() {
+            List<Object> elements = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return elements;
+            }
+            while (true) {
+                elements.add(parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return elements;
+                }
+            }
+        }
+
+        private String parseString() {
+            pos++;
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Invalid unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        value.append(escaped);  // \" \\ and \/
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Number parseNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String number = text.substring(start, pos);
+            try {
+                if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+                    return Double.parseDouble(number);
+                }
+                return Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error("Unexpected character");
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!text.startsWith(word, pos)) {
+                throw error("Unexpected character");
+            }
+            pos += word.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1) + ".");
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap indexes over the disaster log, keyed by disaster id (the position in the log). There is
+ * one bitmap per distinct type, severity and location; a location prefix selects the range of
+ * locations that start with it. Queries AND the bitmaps block by block and count set bits, so
+ * they never visit a log entry that cannot match, and blocks missing from any condition are
+ * skipped without being read.
+ * <p>
+ * Disasters are indexed when they are appended to the log. Editing a disaster afterwards does not
+ * move it in the index. Appends take a write lock and queries a read lock, so the index is safe to
+ * use from many threads.
+ */
+public class DisasterIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock, keyed by normalized value
+    private final Map<String, Bitmap> types = new HashMap<>();
+    private final Map<String, Bitmap> severities = new HashMap<>();
+    private final NavigableMap<String, Bitmap> locations = new TreeMap<>();
+    private final Map<String, String> displayNames = new HashMap<>();  // The first spelling seen of each key
+    private int size;
+
+    /**
+     * Indexes the next disaster of the log.
+     *
+     * @param disasterId the id of the disaster, which must be the number of disasters indexed so far
+     * @param disaster the disaster
+     */
+    void add(long disasterId, Disaster disaster) {
+        lock.writeLock().lock();
+        try {
+            if (disasterId != size) {
+                throw new IllegalStateException("Disasters must be indexed in log order: expected " + size + ", got " + disasterId);
+            }
+            int id = size++;
+            index(types, DisasterQuery.Field.TYPE, disaster.getType(), id);
+            index(severities, DisasterQuery.Field.SEVERITY, disaster.getSeverity(), id);
+            index(locations, DisasterQuery.Field.LOCATION, disaster.getLocation(), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets every indexed disaster.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            types.clear();
+            severities.clear();
+            locations.clear();
+            displayNames.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed disasters.
+     *
+     * @return the number of disasters in the log
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the disasters matching a query.
+     *
+     * @param query the query
+     * @return the number of matching disasters
+     */
+    public long count(DisasterQuery query) {
+        lock.readLock().lock();
+        try {
+            List<List<Bitmap>> conditions = conditions(query);
+            if (conditions == null) {
+                return 0;
+            }
+            if (conditions.isEmpty()) {
+                return size;
+            }
+            if (conditions.size() == 1 && conditions.get(0).size() == 1) {
+                return conditions.get(0).get(0).cardinality();
+            }
+            long count = 0;
+            Scratch scratch = new Scratch();
+            for (int block = 0; block < blockCount(); block++) {
+                long[] words = evaluate(conditions, block, scratch);
+                if (words != null) {
+                    for (long word : words) {
+                        count += Long.bitCount(word);
+                    }
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the disasters matching a query.
+     *
+     * @param query the query
+     * @param limit the maximum number of ids to return
+     * @return the ids of up to {@code limit} matching disasters, in log order
+     */
+    public long[] find(DisasterQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            List<List<Bitmap>> conditions = conditions(query);
+            if (conditions == null || limit <= 0) {
+                return new long[0];
+            }
+            long[] ids = new long[Math.min(limit, 1024)];
+            int found = 0;
+            Scratch scratch = new Scratch();
+            for (int block = 0; block < blockCount() && found < limit; block++) {
+                long[] words = conditions.isEmpty() ? scratch.allOnes(block, size) : evaluate(conditions, block, scratch);
+                if (words == null) {
+                    continue;
+                }
+                long base = (long) block << Bitmap.BLOCK_SHIFT;
+                for (int w = 0; w < words.length && found < limit; w++) {
+                    long word = words[w];
+                    while (word != 0 && found < limit) {
+                        if (found == ids.length) {
+                            ids = Arrays.copyOf(ids, Math.min(limit, ids.length * 2));
+                        }
+                        ids[found++] = base + ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+            return Arrays.copyOf(ids, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the disasters matching a query, grouped by one field.
+     *
+     * @param query the query
+     * @param field the field to group by
+     * @return the number of matching disasters per value of the field, omitting zero counts,
+     *         keyed by the first spelling of each value that was seen
+     */
+    public Map<String, Long> countBy(DisasterQuery query, DisasterQuery.Field field) {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            List<List<Bitmap>> conditions = conditions(query);
+            if (conditions == null) {
+                return counts;
+            }
+            Map<String, Bitmap> groups = field == DisasterQuery.Field.TYPE ? types
+                    : field == DisasterQuery.Field.SEVERITY ? severities : locations;
+            List<String> keys = new ArrayList<>(groups.keySet());
+            keys.sort(null);
+            long[] groupCounts = new long[keys.size()];
+
+            if (conditions.isEmpty()) {
+                for (int g = 0; g < keys.size(); g++) {
+                    groupCounts[g] = groups.get(keys.get(g)).cardinality();
+                }
+            } else {
+                Bitmap[] groupBitmaps = new Bitmap[keys.size()];
+                for (int g = 0; g < keys.size(); g++) {
+                    groupBitmaps[g] = groups.get(keys.get(g));
+                }
+                Scratch scratch = new Scratch();
+                for (int block = 0; block < blockCount(); block++) {
+                    // The filter is evaluated once per block and shared by every group
+                    long[] words = evaluate(conditions, block, scratch);
+                    if (words == null) {
+                        continue;
+                    }
+                    for (int g = 0; g < groupBitmaps.length; g++) {
+                        long[] groupWords = groupBitmaps[g].block(block);
+                        if (groupWords == null) {
+                            continue;
+                        }
+                        long count = 0;
+                        for (int w = 0; w < words.length; w++) {
+                            count += Long.bitCount(words[w] & groupWords[w]);
+                        }
+                        groupCounts[g] += count;
+                    }
+                }
+            }
+
+            String prefix = field.name() + ':';
+            for (int g = 0; g < keys.size(); g++) {
+                if (groupCounts[g] > 0) {
+                    counts.put(displayNames.get(prefix + keys.get(g)), groupCounts[g]);
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void index(Map<String, Bitmap> bitmaps, DisasterQuery.Field field, String value, int id) {
+        String key = DisasterQuery.normalize(value);
+        Bitmap bitmap = bitmaps.get(key);
+        if (bitmap == null) {
+            bitmap = new Bitmap();
+            bitmaps.put(key, bitmap);
+            displayNames.put(field.name() + ':' + key, value == null ? "" : value.trim());
+        }
+        bitmap.set(id);
+    }
+
+    /**
+     * Resolves a query into one list of bitmaps per restricted field; a disaster matches if it is
+     * in some bitmap of every list.
+     *
+     * @return the conditions, empty if the query matches everything, or null if it matches nothing
+     */
+    private List<List<Bitmap>> conditions(DisasterQuery query) {
+        List<List<Bitmap>> conditions = new ArrayList<>(3);
+        if (!addExact(conditions, types, query.getTypes()) || !addExact(conditions, severities, query.getSeverities())) {
+            return null;
+        }
+        // An empty prefix matches every location, so it does not restrict the query
+        if (!query.getLocationPrefixes().isEmpty() && !query.getLocationPrefixes().contains("")) {
+            List<Bitmap> matches = new ArrayList<>();
+            for (String prefix : query.getLocationPrefixes()) {
+                // Every key starting with the prefix sorts between the prefix and the prefix followed by the largest char
+                matches.addAll(locations.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values());
+            }
+            if (matches.isEmpty()) {
+                return null;
+            }
+            conditions.add(matches);
+        }
+        // Most selective condition first, so empty blocks are found as early as possible
+        conditions.sort((a, b) -> Long.compare(cardinality(a), cardinality(b)));
+        return conditions;
+    }
+
+    private static boolean addExact(List<List<Bitmap>> conditions, Map<String, Bitmap> bitmaps, List<String> values) {
+        if (values.isEmpty()) {
+            return true;
+        }
+        List<Bitmap> matches = new ArrayList<>(values.size());
+        for (String value : values) {
+            Bitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                matches.add(bitmap);
+            }
+        }
+        if (matches.isEmpty()) {
+            return false;
+        }
+        conditions.add(matches);
+        return true;
+    }
+
+    private static long cardinality(List<Bitmap> bitmaps) {
+        long total = 0;
+        for (Bitmap bitmap : bitmaps) {
+            total += bitmap.cardinality();
+        }
+        return total;
+    }
+
+    private int blockCount() {
+        return (size + (1 << Bitmap.BLOCK_SHIFT) - 1) >>> Bitmap.BLOCK_SHIFT;
+    }
+
+    /**
+     * Evaluates the conditions on one block.
+     *
+     * @return the matching bits of the block, or null if none can match
+     */
+    private static long[] evaluate(List<List<Bitmap>> conditions, int block, Scratch scratch) {
+        long[] result = null;
+        for (List<Bitmap> condition : conditions) {
+            long[] words;
+            if (condition.size() == 1) {
+                words = condition.get(0).block(block);
+            } else {
+                words = scratch.union(condition, block);
+            }
+            if (words == null) {
+                return null;
+            }
+            if (result == null) {
+                result = scratch.result;
+                System.arraycopy(words, 0, result, 0, Bitmap.BLOCK_WORDS);
+            } else {
+                for (int w = 0; w < Bitmap.BLOCK_WORDS; w++) {
+                    result[w] &= words[w];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Per-query working blocks, so evaluation allocates two blocks per query rather than per block.
+     */
+    private static final class Scratch {
+        final long[] result = new long[Bitmap.BLOCK_WORDS];
+        final long[] union = new long[Bitmap.BLOCK_WORDS];
+
+        long[] union(List<Bitmap> bitmaps, int block) {
+            boolean any = false;
+            for (Bitmap bitmap : bitmaps) {
+                long[] words = bitmap.block(block);
+                if (words == null) {
+                    continue;
+                }
+                if (!any) {
+                    System.arraycopy(words, 0, union, 0, Bitmap.BLOCK_WORDS);
+                    any = true;
+                } else {
+                    for (int w = 0; w < Bitmap.BLOCK_WORDS; w++) {
+                        union[w] |= words[w];
+                    }
+                }
+            }
+            return any ? union : null;
+        }
+
+        long[] allOnes(int block, int size) {
+            Arrays.fill(result, -1L);
+            long end = Math.min(size - ((long) block << Bitmap.BLOCK_SHIFT), 1 << Bitmap.BLOCK_SHIFT);
+            int fullWords = (int) (end >>> 6);
+            if (fullWords < Bitmap.BLOCK_WORDS) {
+                int rest = (int) (end & 63);
+                result[fullWords] = rest == 0 ? 0 : -1L >>> (64 - rest);
+                Arrays.fill(result, fullWords + 1, Bitmap.BLOCK_WORDS, 0);
+            }
+            return result;
+        }
+    }
+}
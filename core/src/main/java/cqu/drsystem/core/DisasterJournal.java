@@ -0,0 +1,715 @@
+package cqu.drsystem.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, write-ahead journal of disaster events stored in memory-mapped segment files.
+ * Appends are copied straight into the mapped segment; a background committer forces all pending
+ * appends to disk at once (group commit), so bursts of reports share a single sync. When a segment
+ * is full the journal rolls over to a new segment file.
+ *
+ * Each record is laid out as {@code [length][event type][payload][crc32]}. The length is written
+ * last, and a record whose checksum does not match marks the end of the journal, so a torn write
+ * after a crash is simply dropped on recovery.
+ *
+ * Positions returned by the journal encode the segment index in the upper 32 bits and the byte
+ * offset within the segment in the lower 32 bits, so they increase monotonically.
+ */
+public class DisasterJournal implements Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+
+    private static final byte DISASTER_REPORTED = 1;
+    private static final byte RESOURCES_ALLOCATED = 2;
+    private static final byte DEPARTMENTS_NOTIFIED = 3;
+    private static final byte LOG_CLEARED = 4;
+    private static final byte RESOURCE_MOVED = 5;
+    private static final byte RESOURCES_RELEASED = 6;
+    private static final byte RESOURCE_ASSIGNED = 7;
+    private static final byte ALLOCATION_LEASED = 8;
+    private static final byte LEASE_EXPIRED = 9;
+
+    private static final int LENGTH_SIZE = 4;
+    private static final int CRC_SIZE = 4;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long commitIntervalMillis;
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    private final Thread committer;
+
+    // Guarded by lock
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long writePosition;
+    private long committedPosition;
+    private IOException commitFailure;
+    private boolean closed;
+
+    /**
+     * Opens the journal in the given directory with the default segment size and commit interval,
+     * creating the directory if needed.
+     *
+     * @param directory the directory holding the segment files
+     * @return the opened journal
+     * @throws IOException if the journal cannot be opened or recovered
+     */
+    public static DisasterJournal open(Path directory) throws IOException {
+        return new DisasterJournal(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens the journal in the given directory, recovering the write position from the last segment.
+     *
+     * @param directory the directory holding the segment files
+     * @param segmentSize the size of each segment file in bytes
+     * @param commitIntervalMillis how long the committer waits to gather appends before forcing them to disk
+     * @throws IOException if the journal cannot be opened or recovered
+     */
+    public DisasterJournal(Path directory, int segmentSize, long commitIntervalMillis) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Segment size must be at least 1024 bytes: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitIntervalMillis = commitIntervalMillis;
+
+        Files.createDirectories(directory);
+        List<Integer> segments = listSegments();
+        segmentIndex = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        mapSegment(segmentIndex);
+
+        // Find the end of the valid records and wipe anything written after it (e.g. a torn write).
+        // Reading the tail is cheap; writing it would dirty every page of the segment, so only the
+        // bytes up to the last non-zero one are cleared, and nothing at all after a clean shutdown.
+        int end = scanSegment(segment.duplicate(), 0, segment.capacity(), -1, null);
+        int dirtyEnd = findDirtyEnd(segment, end);
+        for (int offset = end; offset < dirtyEnd; offset++) {
+            segment.put(offset, (byte) 0);
+        }
+        if (dirtyEnd > end) {
+            segment.force();
+        }
+        segment.position(end);
+        writePosition = position(segmentIndex, end);
+        committedPosition = writePosition;
+
+        committer = new Thread(this::runCommitter, "disaster-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Appends a "disaster reported" event.
+     *
+     * @param disasterId the id of the disaster in the log
+     * @param disaster the reported disaster
+     * @return the journal position just after the event
+     */
+    public long appendDisasterReported(long disasterId, Disaster disaster) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(disasterId);
+            putString(disaster.getType());
+            putString(disaster.getLocation());
+            putString(disaster.getSeverity());
+            putString(disaster.getDescription());
+            putPosition(disaster.getPosition());
+            return append(DISASTER_REPORTED);
+        }
+    }
+
+    /**
+     * Appends a "resource moved" event.
+     *
+     * @param resourceId the id of the resource
+     * @param position the new position of the resource, or null if it is no longer known
+     * @return the journal position just after the event
+     */
+    public long appendResourceMoved(String resourceId, GeoPoint position) {
+        synchronized (lock) {
+            scratch.clear();
+            putString(resourceId);
+            putPosition(position);
+            return append(RESOURCE_MOVED);
+        }
+    }
+
+    /**
+     * Appends a "resources allocated" event.
+     *
+     * @param disasterId the id of the disaster the resources were allocated to
+     * @param allocations the allocated line items
+     * @return the journal position just after the event
+     */
+    public long appendResourcesAllocated(long disasterId, List<AllocationRequest> allocations) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(disasterId);
+            putInt(allocations.size());
+            for (AllocationRequest allocation : allocations) {
+                putString(allocation.getResourceName());
+                putInt(allocation.getQuantity());
+            }
+            return append(RESOURCES_ALLOCATED);
+        }
+    }
+
+    /**
+     * Appends a "resource assigned" event, for units of one particular resource rather than
+     * of any resource with a name.
+     *
+     * @param disasterId the id of the disaster the units were assigned to
+     * @param resourceId the id of the resource
+     * @param quantity the number of units
+     * @return the journal position just after the event
+     */
+    public long appendResourceAssigned(long disasterId, String resourceId, int quantity) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(disasterId);
+            putString(resourceId);
+            putInt(quantity);
+            return append(RESOURCE_ASSIGNED);
+        }
+    }
+
+    /**
+     * Appends an "allocation leased" event: units already recorded as allocated that are due
+     * back at a deadline.
+     *
+     * @param leaseId the id of the lease
+     * @param disasterId the id of the disaster holding the units
+     * @param expiresAtMillis when the units are due back, in milliseconds since the epoch
+     * @param units the number of units of each resource, by resource id
+     * @return the journal position just after the event
+     */
+    public long appendAllocationLeased(long leaseId, long disasterId, long expiresAtMillis, Map<String, Integer> units) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(leaseId);
+            putLong(disasterId);
+            putLong(expiresAtMillis);
+            putUnits(units);
+            return append(ALLOCATION_LEASED);
+        }
+    }
+
+    /**
+     * Appends a "lease expired" event, for the units a lease returned when it expired.
+     *
+     * @param leaseId the id of the lease
+     * @param disasterId the id of the disaster that held the units
+     * @param released the number of units returned to each resource, by resource id
+     * @return the journal position just after the event
+     */
+    public long appendLeaseExpired(long leaseId, long disasterId, Map<String, Integer> released) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(leaseId);
+            putLong(disasterId);
+            putUnits(released);
+            return append(LEASE_EXPIRED);
+        }
+    }
+
+    /**
+     * Appends a "resources released" event.
+     *
+     * @param disasterId the id of the disaster the resources were released from
+     * @param releases the released line items
+     * @return the journal position just after the event
+     */
+    public long appendResourcesReleased(long disasterId, List<AllocationRequest> releases) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(disasterId);
+            putInt(releases.size());
+            for (AllocationRequest release : releases) {
+                putString(release.getResourceName());
+                putInt(release.getQuantity());
+            }
+            return append(RESOURCES_RELEASED);
+        }
+    }
+
+    /**
+     * Appends a "departments notified" event.
+     *
+     * @param disasterId the id of the disaster the departments were notified about
+     * @param departments the names of the notified departments
+     * @return the journal position just after the event
+     */
+    public long appendDepartmentsNotified(long disasterId, List<String> departments) {
+        synchronized (lock) {
+            scratch.clear();
+            putLong(disasterId);
+            putInt(departments.size());
+            for (String department : departments) {
+                putString(department);
+            }
+            return append(DEPARTMENTS_NOTIFIED);
+        }
+    }
+
+    /**
+     * Appends a "log cleared" event. Replay resets its state when it reaches this event,
+     * but the earlier history stays in the journal.
+     *
+     * @return the journal position just after the event
+     */
+    public long appendLogCleared() {
+        synchronized (lock) {
+            scratch.clear();
+            return append(LOG_CLEARED);
+        }
+    }
+
+    /**
+     * Gets the position just after the last appended event.
+     *
+     * @return the current write position
+     */
+    public long getPosition() {
+        synchronized (lock) {
+            return writePosition;
+        }
+    }
+
+    /**
+     * Blocks until every event up to the given position has been forced to disk by the committer.
+     *
+     * @param position a position returned by one of the append methods
+     * @throws IOException if the committer failed to force the journal
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void awaitCommit(long position) throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (committedPosition < position && commitFailure == null && !closed) {
+                lock.wait();
+            }
+            if (commitFailure != null) {
+                throw commitFailure;
+            }
+        }
+    }
+
+    /**
+     * Forces every appended event to disk immediately, without waiting for the committer.
+     */
+    public void commit() {
+        synchronized (lock) {
+            segment.force();
+            committedPosition = writePosition;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Replays every event from the given position up to the current write position.
+     *
+     * @param fromPosition the position to start from (0 for the beginning of the journal)
+     * @param listener the listener receiving the events
+     * @return the position just after the last replayed event
+     * @throws IOException if a segment file cannot be read
+     */
+    public long replay(long fromPosition, JournalListener listener) throws IOException {
+        long endPosition = getPosition();
+        int lastSegment = segmentOf(endPosition);
+        long position = fromPosition;
+
+        for (int index : listSegments()) {
+            if (index < segmentOf(fromPosition) || index > lastSegment) {
+                continue;
+            }
+            try (FileChannel reader = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                ByteBuffer buffer = reader.map(FileChannel.MapMode.READ_ONLY, 0, reader.size());
+                int start = index == segmentOf(fromPosition) ? offsetOf(fromPosition) : 0;
+                int limit = index == lastSegment ? offsetOf(endPosition) : buffer.capacity();
+                int end = scanSegment(buffer, start, limit, index, listener);
+                position = position(index, end);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Forces pending events to disk, stops the committer and closes the current segment.
+     *
+     * @throws IOException if the segment file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        committer.interrupt();
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            segment.force();
+            committedPosition = writePosition;
+            channel.close();
+        }
+    }
+
+    /**
+     * Copies the encoded payload in the scratch buffer into the segment as one record.
+     * Must be called while holding the lock.
+     */
+    private long append(byte type) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        scratch.flip();
+        int bodyLength = 1 + scratch.remaining();
+        int recordSize = LENGTH_SIZE + bodyLength + CRC_SIZE;
+        if (recordSize > segmentSize - LENGTH_SIZE) {
+            throw new IllegalArgumentException("Event of " + recordSize + " bytes does not fit in a journal segment");
+        }
+        // Always leave room for the zero length that marks the end of the segment
+        if (segment.remaining() < recordSize + LENGTH_SIZE) {
+            roll();
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(scratch.duplicate());
+
+        int start = segment.position();
+        segment.position(start + LENGTH_SIZE);
+        segment.put(type);
+        segment.put(scratch);
+        segment.putInt((int) crc.getValue());
+        segment.putInt(start, bodyLength);  // Publish the record last
+
+        boolean wasIdle = writePosition == committedPosition;
+        writePosition = position(segmentIndex, segment.position());
+        if (wasIdle) {
+            lock.notifyAll();  // Wake the committer
+        }
+        return writePosition;
+    }
+
+    /**
+     * Forces the full segment to disk and maps the next one. Must be called while holding the lock.
+     */
+    private void roll() {
+        segment.force();
+        committedPosition = writePosition;
+        try {
+            channel.close();
+            segmentIndex++;
+            mapSegment(segmentIndex);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not roll the journal to segment " + segmentIndex, e);
+        }
+        writePosition = position(segmentIndex, 0);
+        committedPosition = writePosition;
+        lock.notifyAll();
+    }
+
+    /**
+     * Group commit loop: waits for appends, lets more arrive for the commit interval,
+     * then forces them to disk with a single sync.
+     */
+    private void runCommitter() {
+        while (true) {
+            MappedByteBuffer toForce;
+            long target;
+            try {
+                synchronized (lock) {
+                    while (!closed && writePosition == committedPosition) {
+                        lock.wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                }
+                Thread.sleep(commitIntervalMillis);
+                synchronized (lock) {
+                    if (closed) {
+                        return;
+                    }
+                    toForce = segment;
+                    target = writePosition;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                toForce.force();
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    commitFailure = new IOException("Could not force the journal to disk", e);
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                if (target > committedPosition) {
+                    committedPosition = target;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Walks the records of one segment between the given offsets, optionally decoding them.
+     *
+     * @return the offset just after the last valid record
+     */
+    private int scanSegment(ByteBuffer buffer, int start, int limit, int index, JournalListener listener) {
+        CRC32 checksum = new CRC32();
+        int offset = start;
+        while (offset + LENGTH_SIZE <= limit) {
+            int bodyLength = buffer.getInt(offset);
+            int recordEnd = offset + LENGTH_SIZE + bodyLength + CRC_SIZE;
+            if (bodyLength <= 0 || recordEnd > limit) {
+                break;
+            }
+            ByteBuffer body = buffer.duplicate();
+            body.position(offset + LENGTH_SIZE).limit(offset + LENGTH_SIZE + bodyLength);
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if ((int) checksum.getValue() != buffer.getInt(recordEnd - CRC_SIZE)) {
+                break;  // Torn or corrupt record: treat it as the end of the journal
+            }
+            if (listener != null) {
+                decode(body, listener);
+            }
+            offset = recordEnd;
+        }
+        return offset;
+    }
+
+    /**
+     * Finds the end of the bytes left after the valid records, such as a torn write.
+     *
+     * @return the offset just after the last non-zero byte, or {@code end} if the tail is all zeros
+     */
+    private static int findDirtyEnd(ByteBuffer buffer, int end) {
+        int dirtyEnd = end;
+        int offset = end;
+        int limit = buffer.capacity();
+        for (; offset + Long.BYTES <= limit; offset += Long.BYTES) {
+            if (buffer.getLong(offset) != 0) {
+                dirtyEnd = offset + Long.BYTES;
+            }
+        }
+        for (; offset < limit; offset++) {
+            if (buffer.get(offset) != 0) {
+                dirtyEnd = offset + 1;
+            }
+        }
+        return dirtyEnd;
+    }
+
+    private static void decode(ByteBuffer body, JournalListener listener) {
+        byte type = body.get();
+        switch (type) {
+            case DISASTER_REPORTED: {
+                long disasterId = body.getLong();
+                Disaster disaster = new Disaster(getString(body), getString(body), getString(body), getString(body));
+                if (body.hasRemaining()) {
+                    disaster.setPosition(getPosition(body));  // Older records end after the description
+                }
+                listener.onDisasterReported(disasterId, disaster);
+                break;
+            }
+            case RESOURCES_ALLOCATED: {
+                long disasterId = body.getLong();
+                listener.onResourcesAllocated(disasterId, getAllocations(body));
+                break;
+            }
+            case RESOURCES_RELEASED: {
+                long disasterId = body.getLong();
+                listener.onResourcesReleased(disasterId, getAllocations(body));
+                break;
+            }
+            case DEPARTMENTS_NOTIFIED: {
+                long disasterId = body.getLong();
+                int count = body.getInt();
+                List<String> departments = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    departments.add(getString(body));
+                }
+                listener.onDepartmentsNotified(disasterId, departments);
+                break;
+            }
+            case RESOURCE_MOVED:
+                listener.onResourceMoved(getString(body), getPosition(body));
+                break;
+            case RESOURCE_ASSIGNED: {
+                long disasterId = body.getLong();
+                listener.onResourceAssigned(disasterId, getString(body), body.getInt());
+                break;
+            }
+            case ALLOCATION_LEASED: {
+                long leaseId = body.getLong();
+                long disasterId = body.getLong();
+                long expiresAtMillis = body.getLong();
+                listener.onAllocationLeased(leaseId, disasterId, expiresAtMillis, getUnits(body));
+                break;
+            }
+            case LEASE_EXPIRED: {
+                long leaseId = body.getLong();
+                long disasterId = body.getLong();
+                listener.onLeaseExpired(leaseId, disasterId, getUnits(body));
+                break;
+            }
+            case LOG_CLEARED:
+                listener.onLogCleared();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal event type: " + type);
+        }
+    }
+
+    private void mapSegment(int index) throws IOException {
+        channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size() > 0 ? channel.size() : segmentSize;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static long position(int segment, int offset) {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            larger.put(scratch);
+            scratch = larger;
+        }
+    }
+
+    private void putInt(int value) {
+        ensureCapacity(Integer.BYTES);
+        scratch.putInt(value);
+    }
+
+    private void putLong(long value) {
+        ensureCapacity(Long.BYTES);
+        scratch.putLong(value);
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensureCapacity(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void putPosition(GeoPoint position) {
+        ensureCapacity(1 + 2 * Double.BYTES);
+        if (position == null) {
+            scratch.put((byte) 0);
+            return;
+        }
+        scratch.put((byte) 1);
+        scratch.putDouble(position.getLatitude());
+        scratch.putDouble(position.getLongitude());
+    }
+
+    private void putUnits(Map<String, Integer> units) {
+        putInt(units.size());
+        for (Map.Entry<String, Integer> entry : units.entrySet()) {
+            putString(entry.getKey());
+            putInt(entry.getValue());
+        }
+    }
+
+    private static GeoPoint getPosition(ByteBuffer body) {
+        if (body.get() == 0) {
+            return null;
+        }
+        return new GeoPoint(body.getDouble(), body.getDouble());
+    }
+
+    private static List<AllocationRequest> getAllocations(ByteBuffer body) {
+        int count = body.getInt();
+        List<AllocationRequest> allocations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            allocations.add(new AllocationRequest(getString(body), body.getInt()));
+        }
+        return allocations;
+    }
+
+    private static Map<String, Integer> getUnits(ByteBuffer body) {
+        int count = body.getInt();
+        Map<String, Integer> units = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            units.put(getString(body), body.getInt());
+        }
+        return units;
+    }
+
+    private static String getString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A filter over the disaster log, answered from the bitmap indexes of {@link DisasterIndex}.
+ * Conditions on different fields must all hold; several values for the same field match any of
+ * them. Matching ignores case, and locations match by prefix. Queries are immutable: each method
+ * returns a new query.
+ *
+ * <pre>
+ * DisasterQuery.all().type("Flood").severity("High").locationPrefix("Rock")
+ * </pre>
+ */
+public final class DisasterQuery {
+
+    /**
+     * The indexed fields of a disaster, used to group counts.
+     */
+    public enum Field {
+        TYPE, SEVERITY, LOCATION
+    }
+
+    private static final DisasterQuery ALL = new DisasterQuery(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+    private final List<String> types;
+    private final List<String> severities;
+    private final List<String> locationPrefixes;
+
+    private DisasterQuery(List<String> types, List<String> severities, List<String> locationPrefixes) {
+        this.types = types;
+        this.severities = severities;
+        this.locationPrefixes = locationPrefixes;
+    }
+
+    /**
+     * Gets the query matching every disaster.
+     *
+     * @return the query
+     */
+    public static DisasterQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Restricts the query to disasters of any of the given types.
+     *
+     * @param values the types, such as "Flood"
+     * @return the restricted query
+     */
+    public DisasterQuery type(String... values) {
+        return new DisasterQuery(with(types, values), severities, locationPrefixes);
+    }
+
+    /**
+     * Restricts the query to disasters of any of the given severities.
+     *
+     * @param values the severities, such as "High"
+     * @return the restricted query
+     */
+    public DisasterQuery severity(String... values) {
+        return new DisasterQuery(types, with(severities, values), locationPrefixes);
+    }
+
+    /**
+     * Restricts the query to disasters whose location starts with any of the given prefixes.
+     *
+     * @param prefixes the prefixes, such as "Rock" for Rockhampton
+     * @return the restricted query
+     */
+    public DisasterQuery locationPrefix(String... prefixes) {
+        return new DisasterQuery(types, severities, with(locationPrefixes, prefixes));
+    }
+
+    List<String> getTypes() {
+        return types;
+    }
+
+    List<String> getSeverities() {
+        return severities;
+    }
+
+    List<String> getLocationPrefixes() {
+        return locationPrefixes;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> with(List<String> current, String[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("At least one value is required");
+        }
+        if (!current.isEmpty()) {
+            throw new IllegalStateException("The field is already restricted; pass all values in one call");
+        }
+        List<String> normalized = new ArrayList<>(values.length);
+        for (String value : values) {
+            normalized.add(normalize(value));
+        }
+        return Collections.unmodifiableList(normalized);
+    }
+
+    @Override
+    public String toString() {
+        return "DisasterQuery[type=" + types + ", severity=" + severities + ", locationPrefix=" + locationPrefixes + "]";
+    }
+}
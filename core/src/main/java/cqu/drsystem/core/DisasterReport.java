@@ -0,0 +1,84 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A disaster report as submitted by an operator or another system: the disaster details
+ * and the resources requested for it.
+ */
+public class DisasterReport {
+    private final String type;
+    private final String location;
+    private final String severity;
+    private final String description;
+    private final List<AllocationRequest> allocationRequests;
+    private final GeoPoint position;
+
+    /**
+     * Constructs a new disaster report.
+     *
+     * @param type the type of the disaster (e.g., "Earthquake", "Flood")
+     * @param location the location where the disaster occurred
+     * @param severity the severity level of the disaster
+     * @param description a brief description of the disaster
+     * @param allocationRequests the resources requested for the disaster
+     */
+    public DisasterReport(String type, String location, String severity, String description,
+                          List<AllocationRequest> allocationRequests) {
+        this(type, location, severity, description, allocationRequests, null);
+    }
+
+    /**
+     * Constructs a new disaster report with the coordinates of the disaster.
+     *
+     * @param type the type of the disaster (e.g., "Earthquake", "Flood")
+     * @param location the location where the disaster occurred
+     * @param severity the severity level of the disaster
+     * @param description a brief description of the disaster
+     * @param allocationRequests the resources requested for the disaster
+     * @param position the coordinates of the disaster, or null if unknown
+     */
+    public DisasterReport(String type, String location, String severity, String description,
+                          List<AllocationRequest> allocationRequests, GeoPoint position) {
+        this.type = type;
+        this.location = location;
+        this.severity = severity;
+        this.description = description;
+        this.allocationRequests = Collections.unmodifiableList(allocationRequests);
+        this.position = position;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getSeverity() {
+        return severity;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<AllocationRequest> getAllocationRequests() {
+        return allocationRequests;
+    }
+
+    public GeoPoint getPosition() {
+        return position;
+    }
+
+    /**
+     * Creates the disaster described by this report.
+     *
+     * @return a new Disaster
+     */
+    public Disaster toDisaster() {
+        return new Disaster(type, location, severity, description, position);
+    }
+}
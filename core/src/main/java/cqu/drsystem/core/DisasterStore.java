@@ -0,0 +1,477 @@
+package cqu.drsystem.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column storage for the disaster log. Rows are kept as a struct of arrays rather than as one
+ * object per disaster: type and severity are byte codes and location an int code into per-column
+ * dictionaries, positions are two double columns allocated only for chunks that contain one, and
+ * descriptions are UTF-8 bytes in direct buffers outside the heap. A row costs about 14 bytes of
+ * heap plus its description off-heap, against a few hundred bytes for a {@link Disaster} with
+ * four strings, and a scan over one column reads consecutive bytes.
+ * <p>
+ * {@link Disaster} is a view over a row: {@link #append} moves a disaster's values into the store
+ * and turns that object into a view of the new row, and {@link #get} hands out further views.
+ * Editing a view writes through to the store; an edited description is appended again and the old
+ * bytes are not reclaimed.
+ * <p>
+ * Writes are serialized on the store's monitor. Reads take no lock: columns grow in fixed-size
+ * chunks that are never moved, and a row becomes visible only once it has been fully written.
+ */
+public class DisasterStore {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int PAGE_SIZE = 16 << 20;  // Off-heap description page, 16 MiB
+    private static final int OVERFLOW = 255;  // Byte code of values past the first 255 of a dictionary
+    private static final long NO_DESCRIPTION = -1;
+
+    private final Dictionary types = new Dictionary();
+    private final Dictionary severities = new Dictionary();
+    private final Dictionary locations = new Dictionary();
+    // Rows whose type or severity did not fit in a byte code
+    private final Map<Integer, String> typeOverflow = new ConcurrentHashMap<>();
+    private final Map<Integer, String> severityOverflow = new ConcurrentHashMap<>();
+
+    private volatile Chunk[] chunks = new Chunk[4];
+    private volatile ByteBuffer[] pages = new ByteBuffer[4];
+    private volatile int size;  // Written last, so readers never see a half-written row
+
+    // Guarded by this
+    private int pageCount;
+    private int currentPage = -1;  // The page small descriptions are appended to
+    private long offHeapBytes;
+
+    /**
+     * Appends a disaster to the store. A disaster that is not yet stored becomes a view of the
+     * new row, so the caller's object stays valid and edits to it reach the store; a view of
+     * another row, or of another store, is copied.
+     *
+     * @param disaster the disaster to append
+     * @return the row of the disaster
+     */
+    public synchronized int append(Disaster disaster) {
+        int row = append(disaster.getType(), disaster.getLocation(), disaster.getSeverity(),
+                disaster.getDescription(), disaster.getPosition());
+        if (!disaster.isStored()) {
+            disaster.attach(this, row);
+        }
+        return row;
+    }
+
+    /**
+     * Appends a row without creating a disaster object.
+     *
+     * @param type the type of the disaster
+     * @param location the location of the disaster
+     * @param severity the severity of the disaster
+     * @param description the description of the disaster
+     * @param position the position of the disaster, or null if unknown
+     * @return the new row
+     */
+    public synchronized int append(String type, String location, String severity, String description, GeoPoint position) {
+        int row = size;
+        int index = row >>> CHUNK_SHIFT;
+        Chunk[] current = chunks;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            chunks = current;
+        }
+        if (current[index] == null) {
+            current[index] = new Chunk();
+        }
+        Chunk chunk = current[index];
+        int slot = row & CHUNK_MASK;
+        chunk.types[slot] = byteCode(types, typeOverflow, row, type);
+        chunk.severities[slot] = byteCode(severities, severityOverflow, row, severity);
+        chunk.locations[slot] = locations.encode(location);
+        chunk.descriptions[slot] = writeDescription(description);
+        if (position != null) {
+            chunk.setPosition(slot, position);
+        }
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Gets a view of a row.
+     *
+     * @param row the row
+     * @return a disaster backed by the row
+     * @throws IndexOutOfBoundsException if the row does not exist
+     */
+    public Disaster get(int row) {
+        checkRow(row);
+        return new Disaster(this, row);
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the number of stored disasters
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Counts the rows matching the given values by scanning the code columns, without decoding
+     * a single string. Values are compared exactly, as they were reported.
+     *
+     * @param type the type to match, or null to match any type
+     * @param severity the severity to match, or null to match any severity
+     * @param location the location to match, or null to match any location
+     * @return the number of matching rows
+     */
+    public long count(String type, String severity, String location) {
+        int rows = size;
+        Chunk[] current = chunks;
+        int typeCode = type == null ? -1 : types.find(type);
+        int severityCode = severity == null ? -1 : severities.find(severity);
+        int locationCode = location == null ? -1 : locations.find(location);
+        if ((type != null && typeCode < 0) || (severity != null && severityCode < 0)
+                || (location != null && locationCode < 0)) {
+            return 0;
+        }
+        if (typeCode >= OVERFLOW || severityCode >= OVERFLOW) {
+            return countSlowly(type, severity, location, rows);
+        }
+        long count = 0;
+        for (int start = 0; start < rows; start += CHUNK_ROWS) {
+            Chunk chunk = current[start >>> CHUNK_SHIFT];
+            int end = Math.min(rows - start, CHUNK_ROWS);
+            for (int slot = 0; slot < end; slot++) {
+                if ((typeCode < 0 || (chunk.types[slot] & 0xFF) == typeCode)
+                        && (severityCode < 0 || (chunk.severities[slot] & 0xFF) == severityCode)
+                        && (locationCode < 0 || chunk.locations[slot] == locationCode)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the rows in a range where any field contains the given text, ignoring case. Each
+     * distinct type, severity and location is matched once rather than once per row, and ASCII
+     * text is matched against the stored description bytes without decoding them.
+     *
+     * @param text the text to look for
+     * @param from the first row to search
+     * @param to the row after the last one to search; rows not yet stored are not searched
+     * @return the matching rows, in order
+     */
+    public int[] findContaining(String text, int from, int to) {
+        int rows = Math.min(to, size);  // Read first, so the dictionaries hold every code these rows use
+        boolean[] typeMatches = types.matching(text);
+        boolean[] severityMatches = severities.matching(text);
+        boolean[] locationMatches = locations.matching(text);
+        byte[] lowerAscii = lowerAscii(text);
+        IntList matches = new IntList();
+        for (int row = Math.max(from, 0); row < rows; row++) {
+            Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+            int slot = row & CHUNK_MASK;
+            if (codeMatches(chunk.types[slot] & 0xFF, typeMatches, typeOverflow, row, text)
+                    || codeMatches(chunk.severities[slot] & 0xFF, severityMatches, severityOverflow, row, text)
+                    || isSet(locationMatches, chunk.locations[slot])
+                    || descriptionContains(chunk.descriptions[slot], row, text, lowerAscii)) {
+                matches.add(row);
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Gets the number of bytes held outside the heap for descriptions.
+     *
+     * @return the allocated off-heap bytes
+     */
+    public synchronized long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    String getType(int row) {
+        int code = chunk(row).types[row & CHUNK_MASK] & 0xFF;
+        return code == OVERFLOW ? typeOverflow.get(row) : types.decode(code);
+    }
+
+    String getSeverity(int row) {
+        int code = chunk(row).severities[row & CHUNK_MASK] & 0xFF;
+        return code == OVERFLOW ? severityOverflow.get(row) : severities.decode(code);
+    }
+
+    String getLocation(int row) {
+        return locations.decode(chunk(row).locations[row & CHUNK_MASK]);
+    }
+
+    String getDescription(int row) {
+        long reference = chunk(row).descriptions[row & CHUNK_MASK];
+        if (reference == NO_DESCRIPTION) {
+            return null;
+        }
+        ByteBuffer page = pages[(int) (reference >>> 32)].duplicate();
+        page.position((int) reference);
+        byte[] bytes = new byte[page.getInt()];
+        page.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    GeoPoint getPosition(int row) {
+        return chunk(row).getPosition(row & CHUNK_MASK);
+    }
+
+    synchronized void setType(int row, String type) {
+        chunk(row).types[row & CHUNK_MASK] = byteCode(types, typeOverflow, row, type);
+    }
+
+    synchronized void setSeverity(int row, String severity) {
+        chunk(row).severities[row & CHUNK_MASK] = byteCode(severities, severityOverflow, row, severity);
+    }
+
+    synchronized void setLocation(int row, String location) {
+        chunk(row).locations[row & CHUNK_MASK] = locations.encode(location);
+    }
+
+    synchronized void setDescription(int row, String description) {
+        chunk(row).descriptions[row & CHUNK_MASK] = writeDescription(description);
+    }
+
+    synchronized void setPosition(int row, GeoPoint position) {
+        chunk(row).setPosition(row & CHUNK_MASK, position);
+    }
+
+    private Chunk chunk(int row) {
+        checkRow(row);
+        return chunks[row >>> CHUNK_SHIFT];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    private long countSlowly(String type, String severity, String location, int rows) {
+        long count = 0;
+        for (int row = 0; row < rows; row++) {
+            if ((type == null || type.equals(getType(row))) && (severity == null || severity.equals(getSeverity(row)))
+                    && (location == null || location.equals(getLocation(row)))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean codeMatches(int code, boolean[] matches, Map<Integer, String> overflow, int row, String text) {
+        return code == OVERFLOW ? containsIgnoreCase(overflow.get(row), text) : isSet(matches, code);
+    }
+
+    private static boolean isSet(boolean[] matches, int code) {
+        return code < matches.length && matches[code];
+    }
+
+    private boolean descriptionContains(long reference, int row, String text, byte[] lowerAscii) {
+        if (reference == NO_DESCRIPTION) {
+            return false;
+        }
+        if (lowerAscii == null) {
+            return containsIgnoreCase(getDescription(row), text);
+        }
+        // UTF-8 never uses ASCII byte values inside a multi-byte character, so ASCII text can be
+        // matched byte by byte
+        ByteBuffer page = pages[(int) (reference >>> 32)];
+        int start = (int) reference + Integer.BYTES;
+        int end = start + page.getInt((int) reference) - lowerAscii.length;
+        for (int i = start; i <= end; i++) {
+            int j = 0;
+            while (j < lowerAscii.length && toLowerAscii(page.get(i + j)) == lowerAscii[j]) {
+                j++;
+            }
+            if (j == lowerAscii.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lower-cases text that is all ASCII into bytes.
+     *
+     * @return the bytes, or null if the text has other characters
+     */
+    private static byte[] lowerAscii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            bytes[i] = toLowerAscii((byte) c);
+        }
+        return bytes;
+    }
+
+    private static byte toLowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static boolean containsIgnoreCase(String value, String text) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i + text.length() <= value.length(); i++) {
+            if (value.regionMatches(true, i, text, 0, text.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte byteCode(Dictionary dictionary, Map<Integer, String> overflow, int row, String value) {
+        int code = dictionary.encode(value);
+        if (code < OVERFLOW) {
+            overflow.remove(row);
+            return (byte) code;
+        }
+        overflow.put(row, value);
+        return (byte) OVERFLOW;
+    }
+
+    /**
+     * Copies a description into the current page, or into a page of its own if it is larger
+     * than a page.
+     *
+     * @return the page number in the high half and the offset in the low half, or NO_DESCRIPTION
+     */
+    private long writeDescription(String description) {
+        if (description == null) {
+            return NO_DESCRIPTION;
+        }
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        int needed = Integer.BYTES + bytes.length;
+        int page;
+        if (needed > PAGE_SIZE) {
+            page = addPage(needed);
+        } else {
+            if (currentPage < 0 || pages[currentPage].remaining() < needed) {
+                currentPage = addPage(PAGE_SIZE);
+            }
+            page = currentPage;
+        }
+        ByteBuffer buffer = pages[page];
+        int offset = buffer.position();
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        return ((long) page << 32) | offset;
+    }
+
+    private int addPage(int capacity) {
+        ByteBuffer[] current = pages;
+        if (pageCount == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[pageCount] = ByteBuffer.allocateDirect(capacity);
+        pages = current;
+        offHeapBytes += capacity;
+        return pageCount++;
+    }
+
+    /**
+     * One block of rows of every column.
+     */
+    private static final class Chunk {
+        final byte[] types = new byte[CHUNK_ROWS];
+        final byte[] severities = new byte[CHUNK_ROWS];
+        final int[] locations = new int[CHUNK_ROWS];
+        final long[] descriptions = new long[CHUNK_ROWS];
+        // Allocated with the first positioned row; NaN marks a row without a position
+        volatile double[] latitudes;
+        volatile double[] longitudes;
+
+        GeoPoint getPosition(int slot) {
+            double[] lat = latitudes;
+            double[] lon = longitudes;
+            if (lat == null || lon == null || Double.isNaN(lat[slot])) {
+                return null;
+            }
+            return new GeoPoint(lat[slot], lon[slot]);
+        }
+
+        void setPosition(int slot, GeoPoint position) {
+            if (latitudes == null) {
+                if (position == null) {
+                    return;
+                }
+                double[] lat = new double[CHUNK_ROWS];
+                double[] lon = new double[CHUNK_ROWS];
+                Arrays.fill(lat, Double.NaN);
+                Arrays.fill(lon, Double.NaN);
+                longitudes = lon;
+                latitudes = lat;
+            }
+            latitudes[slot] = position == null ? Double.NaN : position.getLatitude();
+            longitudes[slot] = position == null ? Double.NaN : position.getLongitude();
+        }
+    }
+
+    /**
+     * Maps the distinct values of a column to dense codes; code 0 is null.
+     */
+    private static final class Dictionary {
+        // Written under the store's lock; read without it by find
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[16];
+        private int count = 1;
+
+        int encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[count] = value;
+            values = current;  // Published before any row refers to the code
+            codes.put(value, count);
+            return count++;
+        }
+
+        String decode(int code) {
+            return values[code];
+        }
+
+        /**
+         * Matches every value of the column against the text once.
+         *
+         * @return whether each code's value contains the text, ignoring case
+         */
+        boolean[] matching(String text) {
+            String[] current = values;
+            boolean[] matches = new boolean[current.length];
+            for (int code = 1; code < current.length; code++) {
+                matches[code] = containsIgnoreCase(current[code], text);
+            }
+            return matches;
+        }
+
+        /**
+         * Looks a value up without adding it.
+         *
+         * @return the code, or -1 if the value has never been stored
+         */
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+    }
+}
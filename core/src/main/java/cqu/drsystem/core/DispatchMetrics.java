@@ -0,0 +1,157 @@
+package cqu.drsystem.core;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of a {@link DispatchService}: counters for reports, allocations and department
+ * notifications, latency histograms for the stages of a dispatch, and gauges for the available
+ * and allocated quantity of every resource.
+ * <p>
+ * Counters are striped {@link LongAdder}s and histograms bump striped buckets, so recording is
+ * lock-free and allocates nothing once a department has been seen. Gauges cost nothing to keep:
+ * they are read from the resources when the metrics are looked at.
+ */
+public class DispatchMetrics implements DispatchMetricsMXBean {
+
+    /**
+     * The timed stages of handling a report.
+     */
+    public enum Stage {
+        VALIDATE, ALLOCATE, ROUTE, RENDER
+    }
+
+    private final ResourceManagement resourceManagement;
+    private final LongAdder reports = new LongAdder();
+    private final LongAdder rejectedReports = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder allocationFailures = new LongAdder();
+    private final Map<String, LongAdder> notifications = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+
+    DispatchMetrics(ResourceManagement resourceManagement) {
+        this.resourceManagement = resourceManagement;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Gets the latency histogram of a stage, such as to record the time the UI took to show a
+     * dispatch.
+     *
+     * @param stage the stage
+     * @return the histogram
+     */
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    void reportAccepted() {
+        reports.increment();
+    }
+
+    void reportRejected() {
+        rejectedReports.increment();
+    }
+
+    void allocated(boolean successful) {
+        (successful ? allocations : allocationFailures).increment();
+    }
+
+    void notified(String department) {
+        LongAdder counter = notifications.get(department);
+        if (counter == null) {
+            counter = notifications.computeIfAbsent(department, d -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Override
+    public long getReports() {
+        return reports.sum();
+    }
+
+    @Override
+    public long getRejectedReports() {
+        return rejectedReports.sum();
+    }
+
+    @Override
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    @Override
+    public long getAllocationFailures() {
+        return allocationFailures.sum();
+    }
+
+    @Override
+    public Map<String, Long> getNotificationsByDepartment() {
+        Map<String, Long> counts = new TreeMap<>();
+        notifications.forEach((department, counter) -> counts.put(department, counter.sum()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Integer> getAvailableQuantities() {
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (Resource resource : resourceManagement.getResources()) {
+            quantities.put(gaugeName(resource), resource.getAvailableQuantity());
+        }
+        return quantities;
+    }
+
+    @Override
+    public Map<String, Integer> getAllocatedQuantities() {
+        Map<String, Integer> quantities = new TreeMap<>();
+        for (Resource resource : resourceManagement.getResources()) {
+            quantities.put(gaugeName(resource), resource.getAllocatedQuantity());
+        }
+        return quantities;
+    }
+
+    @Override
+    public void reset() {
+        reports.reset();
+        rejectedReports.reset();
+        allocations.reset();
+        allocationFailures.reset();
+        notifications.clear();
+        for (LatencyHistogram latency : latencies) {
+            latency.reset();
+        }
+    }
+
+    /**
+     * Formats every metric as "name value" lines, suitable for a dump file.
+     *
+     * @return the formatted metrics
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append("reports ").append(getReports()).append('\n');
+        out.append("reports.rejected ").append(getRejectedReports()).append('\n');
+        out.append("allocations ").append(getAllocations()).append('\n');
+        out.append("allocations.failed ").append(getAllocationFailures()).append('\n');
+        getNotificationsByDepartment().forEach((department, count) ->
+                out.append("notifications[").append(department).append("] ").append(count).append('\n'));
+        for (Stage stage : Stage.values()) {
+            out.append("latency.").append(stage.name().toLowerCase(Locale.ROOT)).append(' ')
+                    .append(getLatency(stage)).append('\n');
+        }
+        Map<String, Integer> allocated = getAllocatedQuantities();
+        getAvailableQuantities().forEach((resource, available) ->
+                out.append("resource[").append(resource).append("] available=").append(available)
+                        .append(" allocated=").append(allocated.get(resource)).append('\n'));
+        return out.toString();
+    }
+
+    private static String gaugeName(Resource resource) {
+        return resource.getId() + " " + resource.getName();
+    }
+}
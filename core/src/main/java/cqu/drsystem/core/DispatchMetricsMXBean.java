@@ -0,0 +1,28 @@
+package cqu.drsystem.core;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link DispatchMetrics}.
+ */
+public interface DispatchMetricsMXBean {
+
+    long getReports();
+
+    long getRejectedReports();
+
+    long getAllocations();
+
+    long getAllocationFailures();
+
+    Map<String, Long> getNotificationsByDepartment();
+
+    Map<String, Integer> getAvailableQuantities();
+
+    Map<String, Integer> getAllocatedQuantities();
+
+    /**
+     * Forgets every counter and histogram. Gauges are read from the resources and are not reset.
+     */
+    void reset();
+}
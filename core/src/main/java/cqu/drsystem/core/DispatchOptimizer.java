@@ -0,0 +1,478 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns available resource units to pending disasters at minimum cost, where the cost of
+ * sending one unit is its travel distance weighted by the severity of the disaster.
+ * <p>
+ * The problem is solved as a min-cost flow: every positioned resource supplies its available
+ * units, every line item of a pending disaster demands its quantity, and each item may be
+ * served by the k resources with that name nearest to the disaster. Line items that cannot be
+ * served are left to a pool of "unassigned" units whose cost dwarfs any travel distance and also
+ * grows with severity, so when units run short it is the less severe disasters that go without.
+ * <p>
+ * The optimizer is incremental. Each disaster added is routed along shortest augmenting paths
+ * through the current plan, which may move units away from earlier disasters when that lowers
+ * the total cost, so the plan is optimal for everything added so far without solving again
+ * from scratch. Candidate resources for large batches are looked up on all cores.
+ * <p>
+ * Supplies are read when a resource first becomes a candidate and no units are reserved until
+ * {@link #commit()}. An optimizer is meant to be driven by a single dispatcher thread. For the
+ * inventory of a {@link DispatchService}, use {@link DispatchService#dispatchOptimized} instead,
+ * which also records the units in the service's ledger and journal.
+ */
+public class DispatchOptimizer {
+
+    /**
+     * The default number of candidate resources considered for each line item.
+     */
+    public static final int DEFAULT_CANDIDATES = 16;
+
+    private static final int PARALLEL_THRESHOLD = 64;  // Line items per batch worth a parallel lookup
+    private static final long UNASSIGNED_COST = 40_000_000L;  // Metres, more than any trip on Earth
+    private static final int UNLIMITED = Integer.MAX_VALUE / 2;
+    private static final long UNREACHED = Long.MAX_VALUE / 4;
+
+    private static final int SOURCE = 0;
+    private static final int UNASSIGNED = 1;
+
+    private final ResourceManagement resourceManagement;
+    private final int candidates;
+
+    private final Map<Resource, Integer> resourceNodes = new IdentityHashMap<>();
+    private final List<Resource> nodeResources = new ArrayList<>();  // Indexed by node, null for non-resource nodes
+    private final List<Demand> demands = new ArrayList<>();
+    private int nodeCount;
+
+    // Residual graph. Edge e and e ^ 1 are each other's reverse.
+    private int[] head = new int[64];
+    private int[] next = new int[256];
+    private int[] target = new int[256];
+    private int[] capacity = new int[256];
+    private long[] cost = new long[256];
+    private int edgeCount;
+
+    // Node potentials keep reduced costs non-negative, so each augmentation is a Dijkstra search
+    private long[] potential = new long[64];
+    private long[] distance = new long[64];
+    private int[] pathEdge = new int[64];
+    private final MinHeap heap = new MinHeap();
+    private final IntList settled = new IntList();
+    private final IntList touched = new IntList();
+
+    /**
+     * Creates an optimizer considering {@link #DEFAULT_CANDIDATES} resources per line item.
+     *
+     * @param resourceManagement The inventory to assign units from
+     */
+    public DispatchOptimizer(ResourceManagement resourceManagement) {
+        this(resourceManagement, DEFAULT_CANDIDATES);
+    }
+
+    /**
+     * Creates an optimizer.
+     *
+     * @param resourceManagement The inventory to assign units from
+     * @param candidates The number of nearest resources considered for each line item;
+     *                   more candidates give better plans when units are scarce, at a higher cost
+     */
+    public DispatchOptimizer(ResourceManagement resourceManagement, int candidates) {
+        if (candidates < 1) {
+            throw new IllegalArgumentException("At least one candidate is required");
+        }
+        this.resourceManagement = resourceManagement;
+        this.candidates = candidates;
+        reset();
+    }
+
+    /**
+     * Adds a pending disaster and updates the plan.
+     *
+     * @param disaster The disaster, which must have a position
+     * @param requests The line items of the disaster
+     */
+    public void add(Disaster disaster, List<AllocationRequest> requests) {
+        Map<Disaster, List<AllocationRequest>> incidents = new LinkedHashMap<>();
+        incidents.put(disaster, requests);
+        addAll(incidents);
+    }
+
+    /**
+     * Adds many pending disasters and updates the plan. Candidate resources are looked up in
+     * parallel for large batches; the assignment itself is then extended one line item at a time.
+     *
+     * @param incidents The line items of each disaster, which must all have positions
+     */
+    public void addAll(Map<Disaster, List<AllocationRequest>> incidents) {
+        List<Demand> added = new ArrayList<>();
+        for (Map.Entry<Disaster, List<AllocationRequest>> incident : incidents.entrySet()) {
+            Disaster disaster = incident.getKey();
+            if (disaster.getPosition() == null) {
+                throw new IllegalArgumentException("Disaster has no position: " + disaster.getType() + " at " + disaster.getLocation());
+            }
+            long weight = severityWeight(disaster.getSeverity());
+            for (AllocationRequest request : incident.getValue()) {
+                if (request.getQuantity() > 0) {
+                    added.add(new Demand(disaster, request, weight));
+                }
+            }
+        }
+
+        // Nearest-neighbour lookups dominate for large batches and only read the spatial index
+        IntStream range = IntStream.range(0, added.size());
+        if (added.size() >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(i -> {
+            Demand demand = added.get(i);
+            demand.candidates = resourceManagement.getNearestAvailableResources(
+                    demand.disaster.getPosition(), candidates, demand.request.getResourceName());
+        });
+
+        for (Demand demand : added) {
+            connect(demand);
+            demands.add(demand);
+            satisfy(demand);
+        }
+    }
+
+    /**
+     * Gets the number of line items waiting in the plan.
+     *
+     * @return the number of line items added since the last commit
+     */
+    public int getPendingCount() {
+        return demands.size();
+    }
+
+    /**
+     * Gets the current plan without reserving anything.
+     *
+     * @return the plan for every disaster added since the last commit
+     */
+    public DispatchPlan getPlan() {
+        List<Assignment> assignments = new ArrayList<>();
+        List<Assignment> shortfalls = new ArrayList<>();
+        double totalDistanceKm = 0;
+        long totalCost = 0;
+        for (Demand demand : demands) {
+            for (int e = head[demand.node]; e != -1; e = next[e]) {
+                // Flow on the edge into the demand shows up as capacity on its reverse
+                int flow = capacity[e];
+                if ((e & 1) == 0 || flow == 0) {
+                    continue;
+                }
+                int from = target[e];
+                long edgeCost = cost[e ^ 1];
+                totalCost += edgeCost * flow;
+                if (from == UNASSIGNED) {
+                    shortfalls.add(new Assignment(demand.disaster, demand.request.getResourceName(), null, flow, 0));
+                } else {
+                    double km = edgeCost / (double) demand.weight / 1000.0;
+                    totalDistanceKm += km * flow;
+                    assignments.add(new Assignment(demand.disaster, demand.request.getResourceName(), nodeResources.get(from), flow, km));
+                }
+            }
+        }
+        return new DispatchPlan(assignments, shortfalls, totalDistanceKm, totalCost);
+    }
+
+    /**
+     * Reserves the units of the current plan straight from the inventory and starts a new, empty
+     * plan. Units that were taken by someone else since the plan was made are reported as
+     * shortfalls.
+     *
+     * @return the plan as it was committed
+     */
+    public DispatchPlan commit() {
+        return commit(assignment -> resourceManagement.allocateResource(assignment.getDisaster(),
+                assignment.getResource(), assignment.getQuantity()));
+    }
+
+    /**
+     * Reserves the units of the current plan through the caller and starts a new, empty plan.
+     *
+     * @param reserve reserves the units of one assignment, returning false if they are gone
+     */
+    DispatchPlan commit(Predicate<Assignment> reserve) {
+        DispatchPlan plan = getPlan();
+        List<Assignment> assignments = new ArrayList<>(plan.getAssignments().size());
+        List<Assignment> shortfalls = new ArrayList<>(plan.getShortfalls());
+        double totalDistanceKm = 0;
+        for (Assignment assignment : plan.getAssignments()) {
+            if (reserve.test(assignment)) {
+                assignments.add(assignment);
+                totalDistanceKm += assignment.getDistanceKm() * assignment.getQuantity();
+            } else {
+                shortfalls.add(new Assignment(assignment.getDisaster(), assignment.getResourceName(), null, assignment.getQuantity(), 0));
+            }
+        }
+        reset();
+        return new DispatchPlan(assignments, shortfalls, totalDistanceKm, plan.getCost());
+    }
+
+    /**
+     * Discards the current plan without reserving anything.
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Weighs the severity of a disaster; travel to a high severity disaster costs three times
+     * as much as the same trip to a low severity one.
+     */
+    static long severityWeight(String severity) {
+        switch (severity == null ? "" : severity.toLowerCase(Locale.ROOT)) {
+            case "high":
+                return 3;
+            case "medium":
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    private void reset() {
+        resourceNodes.clear();
+        nodeResources.clear();
+        demands.clear();
+        nodeCount = 0;
+        edgeCount = 0;
+        Arrays.fill(head, -1);
+        Arrays.fill(potential, 0);
+        Arrays.fill(distance, UNREACHED);
+
+        addNode(null);  // SOURCE
+        addNode(null);  // UNASSIGNED
+        addEdge(SOURCE, UNASSIGNED, UNLIMITED, 0);
+    }
+
+    private int addNode(Resource resource) {
+        if (nodeCount == head.length) {
+            int length = head.length * 2;
+            head = Arrays.copyOf(head, length);
+            Arrays.fill(head, nodeCount, length, -1);
+            potential = Arrays.copyOf(potential, length);
+            distance = Arrays.copyOf(distance, length);
+            Arrays.fill(distance, nodeCount, length, UNREACHED);
+            pathEdge = Arrays.copyOf(pathEdge, length);
+        }
+        nodeResources.add(resource);
+        return nodeCount++;
+    }
+
+    private void addEdge(int from, int to, int edgeCapacity, long edgeCost) {
+        if (edgeCount + 2 > target.length) {
+            int length = target.length * 2;
+            next = Arrays.copyOf(next, length);
+            target = Arrays.copyOf(target, length);
+            capacity = Arrays.copyOf(capacity, length);
+            cost = Arrays.copyOf(cost, length);
+        }
+        link(from, to, edgeCapacity, edgeCost);
+        link(to, from, 0, -edgeCost);
+    }
+
+    private void link(int from, int to, int edgeCapacity, long edgeCost) {
+        target[edgeCount] = to;
+        capacity[edgeCount] = edgeCapacity;
+        cost[edgeCount] = edgeCost;
+        next[edgeCount] = head[from];
+        head[from] = edgeCount++;
+    }
+
+    private int resourceNode(Resource resource) {
+        Integer node = resourceNodes.get(resource);
+        if (node == null) {
+            // A new supply starts unused; a potential equal to the source's keeps its reduced cost at zero
+            node = addNode(resource);
+            potential[node] = potential[SOURCE];
+            addEdge(SOURCE, node, resource.getAvailableQuantity(), 0);
+            resourceNodes.put(resource, node);
+        }
+        return node;
+    }
+
+    private void connect(Demand demand) {
+        demand.node = addNode(null);
+        long reach = potential[UNASSIGNED] + UNASSIGNED_COST * demand.weight;
+        addEdge(UNASSIGNED, demand.node, UNLIMITED, UNASSIGNED_COST * demand.weight);
+        for (Neighbor<Resource> candidate : demand.candidates) {
+            int from = resourceNode(candidate.getItem());
+            long edgeCost = Math.round(candidate.getDistanceKm() * 1000) * demand.weight;
+            addEdge(from, demand.node, UNLIMITED, edgeCost);
+            reach = Math.min(reach, potential[from] + edgeCost);
+        }
+        // The demand node only has edges coming in, so any potential no larger than every
+        // incoming path keeps their reduced costs non-negative
+        potential[demand.node] = reach;
+        demand.candidates = null;
+    }
+
+    /**
+     * Sends the quantity of a line item from the source along successive shortest paths.
+     * A path may pass backwards through units already assigned to other line items, which
+     * reassigns them.
+     */
+    private void satisfy(Demand demand) {
+        int remaining = demand.request.getQuantity();
+        while (remaining > 0) {
+            shortestPathTo(demand.node);
+            int bottleneck = remaining;
+            for (int u = SOURCE; u != demand.node; u = target[pathEdge[u]]) {
+                bottleneck = Math.min(bottleneck, capacity[pathEdge[u]]);
+            }
+            for (int u = SOURCE; u != demand.node; u = target[pathEdge[u]]) {
+                capacity[pathEdge[u]] -= bottleneck;
+                capacity[pathEdge[u] ^ 1] += bottleneck;
+            }
+            remaining -= bottleneck;
+        }
+    }
+
+    /**
+     * Runs Dijkstra on reduced costs backwards from a line item until the source is settled,
+     * leaving the path in {@code pathEdge}. Searching from the line item keeps the search local:
+     * it stops at the first nearby resource with spare units instead of visiting every supply.
+     * Only the nodes settled before the source have their potentials raised, which shifts the
+     * others by a constant and keeps every reduced cost non-negative.
+     */
+    private void shortestPathTo(int sink) {
+        heap.clear();
+        settled.clear();
+        distance[sink] = 0;
+        touched.add(sink);
+        heap.push(0, sink);
+        long sourceDistance = UNREACHED;
+        while (!heap.isEmpty()) {
+            long d = heap.peekKey();
+            int v = heap.pop();
+            if (d > distance[v]) {
+                continue;
+            }
+            if (v == SOURCE) {
+                sourceDistance = d;
+                break;
+            }
+            settled.add(v);
+            for (int e = head[v]; e != -1; e = next[e]) {
+                int reverse = e ^ 1;
+                if (capacity[reverse] == 0) {
+                    continue;
+                }
+                int u = target[e];
+                long candidate = d + cost[reverse] + potential[u] - potential[v];
+                if (candidate < distance[u]) {
+                    if (distance[u] == UNREACHED) {
+                        touched.add(u);
+                    }
+                    distance[u] = candidate;
+                    pathEdge[u] = reverse;
+                    heap.push(candidate, u);
+                }
+            }
+        }
+        if (sourceDistance == UNREACHED) {
+            // Cannot happen: the unassigned pool always reaches every line item
+            throw new IllegalStateException("Line item is unreachable");
+        }
+        for (int i = 0; i < settled.size(); i++) {
+            int v = settled.get(i);
+            potential[v] += sourceDistance - distance[v];
+        }
+        for (int i = 0; i < touched.size(); i++) {
+            distance[touched.get(i)] = UNREACHED;
+        }
+        touched.clear();
+    }
+
+    /**
+     * A line item of a pending disaster.
+     */
+    private static final class Demand {
+        final Disaster disaster;
+        final AllocationRequest request;
+        final long weight;
+        List<Neighbor<Resource>> candidates;
+        int node;
+
+        Demand(Disaster disaster, AllocationRequest request, long weight) {
+            this.disaster = disaster;
+            this.request = request;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A binary min-heap of nodes keyed by distance, with stale entries skipped by the caller.
+     */
+    private static final class MinHeap {
+        private long[] keys = new long[256];
+        private int[] values = new int[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekKey() {
+            return keys[0];
+        }
+
+        void push(long key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            long key = keys[--size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of dispatching one disaster report: the logged disaster, the outcome of
+ * its resource allocation and the departments that were notified.
+ */
+public class DispatchOutcome {
+    private final long disasterId;
+    private final Disaster disaster;
+    private final AllocationResult allocation;
+    private final List<String> notifiedDepartments;
+
+    DispatchOutcome(long disasterId, Disaster disaster, AllocationResult allocation, List<String> notifiedDepartments) {
+        this.disasterId = disasterId;
+        this.disaster = disaster;
+        this.allocation = allocation;
+        this.notifiedDepartments = Collections.unmodifiableList(notifiedDepartments);
+    }
+
+    /**
+     * Gets the id of the disaster, i.e. its position in the disaster log.
+     *
+     * @return the disaster id
+     */
+    public long getDisasterId() {
+        return disasterId;
+    }
+
+    public Disaster getDisaster() {
+        return disaster;
+    }
+
+    public AllocationResult getAllocation() {
+        return allocation;
+    }
+
+    public List<String> getNotifiedDepartments() {
+        return notifiedDepartments;
+    }
+}
@@ -0,0 +1,58 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The assignment of resource units to pending disasters computed by the {@link DispatchOptimizer}.
+ */
+public final class DispatchPlan {
+    private final List<Assignment> assignments;
+    private final List<Assignment> shortfalls;
+    private final double totalDistanceKm;
+    private final long cost;
+
+    DispatchPlan(List<Assignment> assignments, List<Assignment> shortfalls, double totalDistanceKm, long cost) {
+        this.assignments = Collections.unmodifiableList(assignments);
+        this.shortfalls = Collections.unmodifiableList(shortfalls);
+        this.totalDistanceKm = totalDistanceKm;
+        this.cost = cost;
+    }
+
+    /**
+     * Gets the assigned units, grouped by disaster in the order the disasters were added.
+     *
+     * @return the assignments
+     */
+    public List<Assignment> getAssignments() {
+        return assignments;
+    }
+
+    /**
+     * Gets the requested units that could not be assigned.
+     *
+     * @return the shortfalls, one per disaster and resource name
+     */
+    public List<Assignment> getShortfalls() {
+        return shortfalls;
+    }
+
+    /**
+     * Gets the total travel distance of the assigned units, counting each unit.
+     *
+     * @return the distance in kilometres
+     */
+    public double getTotalDistanceKm() {
+        return totalDistanceKm;
+    }
+
+    /**
+     * Gets the objective the optimizer minimized: severity-weighted travel distance in metres,
+     * plus a penalty for every unassigned unit.
+     *
+     * @return the cost of the plan
+     */
+    public long getCost() {
+        return cost;
+    }
+}
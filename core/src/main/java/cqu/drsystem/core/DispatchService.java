@@ -0,0 +1,1209 @@
+package cqu.drsystem.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The headless dispatch core of the Disaster Response System. It validates and logs disaster
+ * reports, allocates resources, routes reports to departments and answers queries about the
+ * current state, without any dependency on JavaFX.
+ *
+ * The service is safe to use from many threads. Reports share the state lock and rely on the
+ * lock-free resource reservation, so they run concurrently; resets, restores and snapshots take
+ * the state lock exclusively so they always see a consistent state.
+ */
+public class DispatchService implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(DispatchService.class.getName());
+    private static final long RELEASE_TICK_MILLIS = 100;  // Precision of automatic releases
+    private static final long EXPIRY_RETRY_MILLIS = 1000;
+
+    private final ResourceManagement resourceManagement = new ResourceManagement();
+    private final DepartmentRouter router;
+    private final Object logLock = new Object();
+    // Guarded by logLock; replaced rather than cleared on reset, so snapshots keep the rows they cover
+    private DisasterStore disasterLog = new DisasterStore();
+    private int logGeneration;  // Guarded by logLock; counts the times disasterLog has been replaced
+    private final Map<String, IntList> departmentCoordination = new ConcurrentHashMap<>();  // Disaster ids, guarded by each list
+    private final SpatialGrid<Disaster> disasterLocations = new SpatialGrid<>(0.1);
+    private final DisasterIndex disasterIndex = new DisasterIndex();  // Updated under logLock
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final DisasterJournal journal;
+    private final NotificationDispatcher notifier;
+    private final AllocationScheduler scheduler;
+    private final AllocationLedger ledger = new AllocationLedger();
+    private final TimerWheel releaseTimer = new TimerWheel(RELEASE_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    // Timed allocations still out, by disaster id, oldest first; guarded by itself, as is nextLeaseId
+    private final Map<Long, List<AllocationLease>> leases = new HashMap<>();
+    private long nextLeaseId;
+    private final DispatchMetrics metrics = new DispatchMetrics(resourceManagement);
+
+    /**
+     * Constructs a dispatch service with the default departments and resources.
+     *
+     * @param journal the journal to record events in, or null to keep the state in memory only
+     */
+    public DispatchService(DisasterJournal journal) {
+        this(journal, new DepartmentRouter());
+    }
+
+    /**
+     * Constructs a dispatch service with the default resources and the given routing rules.
+     *
+     * @param journal the journal to record events in, or null to keep the state in memory only
+     * @param router the router that decides which departments are notified
+     */
+    public DispatchService(DisasterJournal journal, DepartmentRouter router) {
+        this(journal, router, null);
+    }
+
+    /**
+     * Constructs a dispatch service that also delivers department notifications outside the system.
+     *
+     * @param journal the journal to record events in, or null to keep the state in memory only
+     * @param router the router that decides which departments are notified
+     * @param notifier the dispatcher that delivers the notifications, or null to only record them
+     */
+    public DispatchService(DisasterJournal journal, DepartmentRouter router, NotificationDispatcher notifier) {
+        this.journal = journal;
+        this.router = router;
+        this.notifier = notifier;
+        this.scheduler = new AllocationScheduler(resourceManagement);
+        this.scheduler.setRecorder(new ScheduleRecorder());  // Under the scheduler's lock, so releases never overtake grants
+        initializeDefaults();
+    }
+
+    /**
+     * Validates a disaster report.
+     *
+     * @param report the report to validate
+     * @return the validation errors, empty if the report is valid
+     */
+    public List<ValidationError> validate(DisasterReport report) {
+        return Validators.DISASTER_REPORT.validate(report);
+    }
+
+    /**
+     * Dispatches a disaster report: logs the disaster, allocates the requested resources
+     * (all or nothing) and notifies the relevant departments. Notifications are delivered in
+     * the background, so this does not wait for any department.
+     *
+     * @param report the report to dispatch
+     * @return the outcome of the dispatch
+     * @throws ValidationException if the report is not valid
+     */
+    public DispatchOutcome report(DisasterReport report) {
+        checkReport(report);
+
+        stateLock.readLock().lock();
+        try {
+            Disaster disaster = report.toDisaster();
+            long disasterId;
+            synchronized (logLock) {
+                // Ids and journal order must agree, so both are assigned under the log monitor
+                disasterId = disasterLog.append(disaster);
+                disasterIndex.add(disasterId, disaster);
+                if (journal != null) {
+                    journal.appendDisasterReported(disasterId, disaster);
+                }
+            }
+            indexLocation(disaster);
+            metrics.reportAccepted();
+            AllocationResult allocation = allocateLocked(disasterId, disaster, report.getAllocationRequests());
+            List<String> departments = notifyDepartmentsLocked(disasterId, disaster);
+            return new DispatchOutcome(disasterId, disaster, allocation, departments);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dispatches many disaster reports at once. Works like {@link #report(DisasterReport)} for
+     * each report, but the reports are logged together and allocated in one pass, in order.
+     *
+     * @param reports the reports to dispatch
+     * @return one outcome per report, in the same order
+     * @throws ValidationException if any report is not valid; then none is dispatched
+     */
+    public List<DispatchOutcome> reportBatch(List<DisasterReport> reports) {
+        for (DisasterReport report : reports) {
+            checkReport(report);
+        }
+        return dispatchValidated(reports);
+    }
+
+    /**
+     * Dispatches reports that have already been validated, such as by the importer's workers.
+     */
+    List<DispatchOutcome> dispatchValidated(List<DisasterReport> reports) {
+        stateLock.readLock().lock();
+        try {
+            Map<Disaster, List<AllocationRequest>> allocations = new LinkedHashMap<>();
+            long firstId;
+            synchronized (logLock) {
+                firstId = disasterLog.size();
+                for (DisasterReport report : reports) {
+                    Disaster disaster = report.toDisaster();
+                    if (journal != null) {
+                        journal.appendDisasterReported(disasterLog.size(), disaster);
+                    }
+                    disasterIndex.add(disasterLog.append(disaster), disaster);
+                    allocations.put(disaster, report.getAllocationRequests());
+                }
+            }
+            for (Disaster disaster : allocations.keySet()) {
+                indexLocation(disaster);
+            }
+
+            long allocateStart = System.nanoTime();
+            List<AllocationResult> results = resourceManagement.allocateBatch(allocations);
+            metrics.getLatency(DispatchMetrics.Stage.ALLOCATE).recordSince(allocateStart);
+            List<DispatchOutcome> outcomes = new ArrayList<>(results.size());
+            long disasterId = firstId;
+            for (AllocationResult result : results) {
+                Disaster disaster = result.getDisaster();
+                metrics.reportAccepted();
+                metrics.allocated(result.isSuccessful());
+                List<AllocationRequest> requests = allocations.get(disaster);
+                recordAllocated(disasterId, result, requests);
+                if (result.isSuccessful() && journal != null && !requests.isEmpty()) {
+                    journal.appendResourcesAllocated(disasterId, requests);
+                }
+                List<String> departments = notifyDepartmentsLocked(disasterId, disaster);
+                outcomes.add(new DispatchOutcome(disasterId, disaster, result, departments));
+                disasterId++;
+            }
+            return outcomes;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Allocates resources to a disaster that is already in the log, all or nothing.
+     *
+     * @param disasterId the id of the disaster
+     * @param requests the line items to allocate
+     * @return the outcome of the allocation
+     */
+    public AllocationResult allocate(long disasterId, List<AllocationRequest> requests) {
+        stateLock.readLock().lock();
+        try {
+            return allocateLocked(disasterId, getDisaster(disasterId), requests);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Assigns units to disasters already in the log with a {@link DispatchOptimizer}, so that
+     * the nearest units go to the most severe disasters, and reserves them. Each assignment is
+     * recorded in the ledger and journaled by resource id, so a restart gives the same units
+     * back to the same disasters even when several resources share a name. Line items that
+     * cannot be served are left as shortfalls in the plan; they can be queued with
+     * {@link #queue}.
+     *
+     * @param incidents the line items of each disaster, by disaster id; the disasters need positions
+     * @return the plan as it was committed
+     */
+    public DispatchPlan dispatchOptimized(Map<Long, List<AllocationRequest>> incidents) {
+        stateLock.readLock().lock();
+        try {
+            Map<Disaster, List<AllocationRequest>> pending = new LinkedHashMap<>();
+            Map<Disaster, Long> ids = new IdentityHashMap<>();
+            for (Map.Entry<Long, List<AllocationRequest>> incident : incidents.entrySet()) {
+                Disaster disaster = getDisaster(incident.getKey());
+                pending.put(disaster, incident.getValue());
+                ids.put(disaster, incident.getKey());
+            }
+            long start = System.nanoTime();
+            DispatchOptimizer optimizer = new DispatchOptimizer(resourceManagement);
+            optimizer.addAll(pending);
+            DispatchPlan plan = optimizer.commit(assignment -> {
+                Resource resource = assignment.getResource();
+                if (!resourceManagement.allocateResource(assignment.getDisaster(), resource, assignment.getQuantity())) {
+                    return false;
+                }
+                long disasterId = ids.get(assignment.getDisaster());
+                ledger.record(disasterId, resource, assignment.getQuantity());
+                if (journal != null) {
+                    journal.appendResourceAssigned(disasterId, resource.getId(), assignment.getQuantity());
+                }
+                return true;
+            });
+            metrics.getLatency(DispatchMetrics.Stage.ALLOCATE).recordSince(start);
+            return plan;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues the line items of a disaster that could not be allocated, as one unit. The
+     * scheduler grants them together, most severe and longest waiting first, once every one of
+     * them fits, so the disaster never holds part of what it asked for; grants are recorded in
+     * the journal. Waiting line items are not journaled and are lost on restart.
+     *
+     * @param disasterId the id of the disaster
+     * @param requests the line items to queue
+     * @return one pending allocation per line item, either all granted already or all waiting
+     */
+    public List<PendingAllocation> queue(long disasterId, List<AllocationRequest> requests) {
+        stateLock.readLock().lock();
+        try {
+            return scheduler.submitAll(disasterId, getDisaster(disasterId), requests);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the units of a line item granted by the scheduler, so they can go to the next
+     * waiting disaster. The release is recorded in the journal.
+     *
+     * @param allocation the granted allocation
+     * @return true if the allocation was granted and has been released
+     */
+    public boolean release(PendingAllocation allocation) {
+        stateLock.readLock().lock();
+        try {
+            return releaseLocked(allocation);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Allocates resources to a disaster for an expected duration, all or nothing. Once the
+     * duration has passed, the units of this allocation the disaster still holds are returned
+     * and go to the next waiting disaster. Units the disaster returns before then are taken off
+     * its timed allocations first, oldest first, and an allocation with nothing left out no
+     * longer expires; units the disaster holds from other allocations are never returned by
+     * the expiry. The deadline is recorded in the journal and the snapshot, so it still applies
+     * after a restart, or at once if it passed while the service was down.
+     *
+     * @param disasterId the id of the disaster
+     * @param requests the line items to allocate
+     * @param duration how long the disaster is expected to need the units
+     * @param unit the unit of the duration
+     * @return the outcome of the allocation
+     */
+    public AllocationResult allocate(long disasterId, List<AllocationRequest> requests, long duration, TimeUnit unit) {
+        stateLock.readLock().lock();
+        try {
+            AllocationResult result = allocateLocked(disasterId, getDisaster(disasterId), requests);
+            if (result.isSuccessful() && !requests.isEmpty()) {
+                int[] quantities = new int[requests.size()];
+                for (int i = 0; i < quantities.length; i++) {
+                    quantities[i] = requests.get(i).getQuantity();
+                }
+                long expiresAt = System.currentTimeMillis() + unit.toMillis(duration);
+                synchronized (leases) {
+                    AllocationLease lease = new AllocationLease(nextLeaseId++, disasterId, expiresAt,
+                            result.getAllocatedResources(), quantities);
+                    leases.computeIfAbsent(disasterId, id -> new ArrayList<>()).add(lease);
+                    if (journal != null) {
+                        journal.appendAllocationLeased(lease.getLeaseId(), disasterId, expiresAt, unitsById(lease));
+                    }
+                    lease.setTimeout(releaseTimer.schedule(() -> expire(lease), duration, unit));
+                }
+                releaseTimer.start();
+            }
+            return result;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns units a disaster holds to their resource, where they go to the next waiting
+     * disaster. Units granted by the scheduler are returned with {@link #release(PendingAllocation)}
+     * instead. The release is recorded in the journal.
+     *
+     * @param disasterId the id of the disaster
+     * @param resource the resource to return units to
+     * @param quantity the number of units to return (must be positive)
+     * @return the number of units returned, which is less than asked if the disaster holds fewer
+     */
+    public int release(long disasterId, Resource resource, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        stateLock.readLock().lock();
+        try {
+            return releaseLocked(disasterId, resource, quantity);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns everything a disaster holds, including units granted by the scheduler, such as
+     * when the incident is closed. The releases are recorded in the journal.
+     *
+     * @param disasterId the id of the disaster
+     * @return the number of units returned
+     */
+    public int releaseAll(long disasterId) {
+        stateLock.readLock().lock();
+        try {
+            int released = 0;
+            for (PendingAllocation allocation : scheduler.getGranted(disasterId)) {
+                if (releaseLocked(allocation)) {
+                    released += allocation.getRequest().getQuantity();
+                }
+            }
+            for (AllocationEntry entry : ledger.getEntries(disasterId)) {
+                released += releaseLocked(disasterId, entry.getResource(), entry.getQuantity());
+            }
+            return released;
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the ledger of what is committed to each disaster. Allocations, scheduler grants,
+     * preemptions and releases made through the service are recorded in it.
+     *
+     * @return the allocation ledger
+     */
+    public AllocationLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Gets the runtime metrics of the service.
+     *
+     * @return the metrics
+     */
+    public DispatchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the scheduler that holds line items waiting for units.
+     *
+     * @return the scheduler
+     */
+    public AllocationScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Gets the departments to notify about a disaster, without notifying them.
+     *
+     * @param disaster the disaster
+     * @return the names of the departments to notify
+     */
+    public List<String> route(Disaster disaster) {
+        return router.route(disaster);
+    }
+
+    /**
+     * Gets the router that decides which departments are notified.
+     *
+     * @return the department router
+     */
+    public DepartmentRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * Gets the dispatcher that delivers department notifications.
+     *
+     * @return the notification dispatcher, or null if notifications are only recorded
+     */
+    public NotificationDispatcher getNotificationDispatcher() {
+        return notifier;
+    }
+
+    /**
+     * Moves a resource to a new position. The move is recorded in the journal.
+     *
+     * @param resourceId the id of the resource
+     * @param position the new position, or null if it is no longer known
+     * @throws IllegalArgumentException if there is no such resource
+     */
+    public void moveResource(String resourceId, GeoPoint position) {
+        stateLock.readLock().lock();
+        try {
+            Resource resource = resourceManagement.getResourceById(resourceId);
+            if (resource == null) {
+                throw new IllegalArgumentException("Unknown resource: " + resourceId);
+            }
+            resourceManagement.moveResource(resource, position);
+            if (journal != null) {
+                journal.appendResourceMoved(resourceId, position);
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the available resources nearest to a point.
+     *
+     * @param point the point, such as the position of a disaster
+     * @param k the maximum number of resources to find
+     * @return up to k resources with units available, nearest first
+     */
+    public List<Neighbor<Resource>> findNearestResources(GeoPoint point, int k) {
+        return resourceManagement.getNearestAvailableResources(point, k);
+    }
+
+    /**
+     * Finds the logged disasters nearest to a point.
+     *
+     * @param point the point
+     * @param k the maximum number of disasters to find
+     * @return up to k disasters with a known position, nearest first
+     */
+    public List<Neighbor<Disaster>> findNearestDisasters(GeoPoint point, int k) {
+        return disasterLocations.nearest(point, k);
+    }
+
+    /**
+     * Finds the logged disasters within a distance of a point.
+     *
+     * @param point the point
+     * @param radiusKm the distance in kilometres
+     * @return the disasters within the distance, nearest first
+     */
+    public List<Neighbor<Disaster>> findDisastersWithinRadius(GeoPoint point, double radiusKm) {
+        return disasterLocations.withinRadius(point, radiusKm);
+    }
+
+    /**
+     * Finds the disasters matching a query using the bitmap indexes, without scanning the log.
+     *
+     * @param query the query, such as {@code DisasterQuery.all().type("Flood").severity("High")}
+     * @param limit the maximum number of disasters to return
+     * @return up to {@code limit} matching disasters, in log order
+     */
+    public List<Disaster> findDisasters(DisasterQuery query, int limit) {
+        long[] ids = disasterIndex.find(query, limit);
+        List<Disaster> disasters = new ArrayList<>(ids.length);
+        synchronized (logLock) {
+            for (long id : ids) {
+                if (id < disasterLog.size()) {  // The log may have been reset since the query ran
+                    disasters.add(disasterLog.get((int) id));
+                }
+            }
+        }
+        return disasters;
+    }
+
+    /**
+     * Counts the disasters matching a query using the bitmap indexes.
+     *
+     * @param query the query
+     * @return the number of matching disasters
+     */
+    public long countDisasters(DisasterQuery query) {
+        return disasterIndex.count(query);
+    }
+
+    /**
+     * Counts the disasters matching a query, grouped by type, severity or location.
+     *
+     * @param query the query
+     * @param field the field to group by
+     * @return the number of matching disasters per value of the field
+     */
+    public Map<String, Long> countDisastersBy(DisasterQuery query, DisasterQuery.Field field) {
+        return disasterIndex.countBy(query, field);
+    }
+
+    /**
+     * Gets a disaster from the log.
+     *
+     * @param disasterId the id of the disaster
+     * @return the disaster
+     */
+    public Disaster getDisaster(long disasterId) {
+        synchronized (logLock) {
+            return disasterLog.get((int) disasterId);
+        }
+    }
+
+    /**
+     * Gets the number of disasters in the log.
+     *
+     * @return the number of logged disasters
+     */
+    public int getDisasterCount() {
+        synchronized (logLock) {
+            return disasterLog.size();
+        }
+    }
+
+    /**
+     * Gets the generation of the disaster log. The log only grows until it is reset or restored
+     * from a snapshot, which starts a new generation; the rows of an older generation are gone.
+     *
+     * @return the generation
+     */
+    public int getLogGeneration() {
+        synchronized (logLock) {
+            return logGeneration;
+        }
+    }
+
+    /**
+     * Finds the disasters in part of the log where any field contains the given text, ignoring
+     * case. The rows are scanned without holding the log's lock, so reports are not held up.
+     *
+     * @param text the text to look for
+     * @param from the first disaster id to search
+     * @param to the disaster id after the last one to search
+     * @return the ids of the matching disasters, in log order
+     */
+    public int[] findDisastersContaining(String text, int from, int to) {
+        DisasterStore store;
+        synchronized (logLock) {
+            store = disasterLog;
+        }
+        return store.findContaining(text, from, to);
+    }
+
+    /**
+     * Gets a copy of the disaster log.
+     *
+     * @return views of the logged disasters, in reporting order
+     */
+    public List<Disaster> getDisasters() {
+        synchronized (logLock) {
+            List<Disaster> disasters = new ArrayList<>(disasterLog.size());
+            for (int row = 0; row < disasterLog.size(); row++) {
+                disasters.add(disasterLog.get(row));
+            }
+            return disasters;
+        }
+    }
+
+    /**
+     * Gets the number of disasters each department has been notified about.
+     *
+     * @return the notification count per department
+     */
+    public Map<String, Integer> getDepartmentCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String department : router.getDepartments()) {
+            counts.put(department, getDepartmentCount(department));
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the number of disasters one department has been notified about, without counting
+     * the others.
+     *
+     * @param department the name of the department
+     * @return the notification count, or 0 if the department has not been notified
+     */
+    public int getDepartmentCount(String department) {
+        IntList notified = departmentCoordination.get(department);
+        if (notified == null) {
+            return 0;
+        }
+        synchronized (notified) {
+            return notified.size();
+        }
+    }
+
+    /**
+     * Gets a copy of the resource inventory.
+     *
+     * @return the resources, in inventory order
+     */
+    public List<Resource> getResources() {
+        stateLock.readLock().lock();
+        try {
+            return new ArrayList<>(resourceManagement.getResources());
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the resource inventory used by this service.
+     *
+     * @return the resource management
+     */
+    public ResourceManagement getResourceManagement() {
+        return resourceManagement;
+    }
+
+    /**
+     * Stops returning the units of timed allocations and the thread that does it. Leases still
+     * out are dropped from memory only: they stay in the journal and the last snapshot, so the
+     * next {@link #restore} picks them up again. Close the service before its journal; it must
+     * not be used afterwards.
+     */
+    @Override
+    public void close() {
+        stateLock.writeLock().lock();  // Waits for an expiry that is already running
+        try {
+            releaseTimer.close();
+            releaseTimer.clear();
+            synchronized (leases) {
+                leases.clear();
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resets the system to its default departments and resources. The reset is recorded in
+     * the journal, but the earlier history stays there.
+     */
+    public void reset() {
+        stateLock.writeLock().lock();
+        try {
+            initializeDefaults();
+            if (journal != null) {
+                journal.appendLogCleared();
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restores the state from a snapshot file, if it exists, and then replays the part of the
+     * journal written after the snapshot.
+     *
+     * @param snapshotFile the snapshot file
+     * @throws IOException if the journal cannot be replayed
+     */
+    public void restore(Path snapshotFile) throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            initializeDefaults();
+            long replayFrom = 0;
+            if (Files.exists(snapshotFile)) {
+                try {
+                    StateSnapshot snapshot = StateSnapshot.readFrom(snapshotFile);
+                    applySnapshot(snapshot);
+                    replayFrom = snapshot.getJournalPosition();
+                } catch (IOException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Could not load the state snapshot, replaying the full journal: " + e.getMessage());
+                    initializeDefaults();
+                }
+            }
+            if (journal != null) {
+                journal.replay(replayFrom, new Replayer());
+            }
+            armLeases();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Captures a snapshot of the current state. Reports are held back only while resource
+     * quantities and department lists are copied; the disaster rows are shared, since the log
+     * only grows. Encoding and writing the snapshot can happen afterwards on any thread.
+     *
+     * @return the snapshot
+     */
+    public StateSnapshot captureSnapshot() {
+        // Only the sizes of the department lists are taken under the lock. The lists only grow, and a
+        // reset replaces them rather than clearing them, so their prefixes can be copied afterwards,
+        // into the map the snapshot holds, before the snapshot is returned.
+        Map<String, int[]> departments = new LinkedHashMap<>();
+        Map<String, IntList> lists = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        StateSnapshot snapshot;
+        stateLock.writeLock().lock();
+        try {
+            long position = journal == null ? 0 : journal.getPosition();
+            for (Map.Entry<String, IntList> entry : departmentCoordination.entrySet()) {
+                synchronized (entry.getValue()) {
+                    lists.put(entry.getKey(), entry.getValue());
+                    sizes.put(entry.getKey(), entry.getValue().size());
+                }
+            }
+            List<AllocationLease> outstanding = new ArrayList<>();
+            synchronized (leases) {
+                for (List<AllocationLease> disasterLeases : leases.values()) {
+                    outstanding.addAll(disasterLeases);
+                }
+            }
+            synchronized (logLock) {
+                snapshot = StateSnapshot.capture(position, resourceManagement, disasterLog, departments, ledger, outstanding);
+            }
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+            synchronized (entry.getValue()) {
+                departments.put(entry.getKey(), entry.getValue().toArray(sizes.get(entry.getKey())));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Formats a disaster as a line of the disaster log.
+     *
+     * @param number the 1-based number of the disaster in the log
+     * @param disaster the disaster
+     * @return the log line
+     */
+    public static String formatLogEntry(long number, Disaster disaster) {
+        return number + ". " + disaster;
+    }
+
+    private void checkReport(DisasterReport report) {
+        long start = System.nanoTime();
+        try {
+            Validators.DISASTER_REPORT.check(report);
+        } catch (ValidationException e) {
+            metrics.reportRejected();
+            throw e;
+        } finally {
+            metrics.getLatency(DispatchMetrics.Stage.VALIDATE).recordSince(start);
+        }
+    }
+
+    private AllocationResult allocateLocked(long disasterId, Disaster disaster, List<AllocationRequest> requests) {
+        long start = System.nanoTime();
+        AllocationResult result = resourceManagement.allocateBatch(disaster, requests);
+        metrics.getLatency(DispatchMetrics.Stage.ALLOCATE).recordSince(start);
+        metrics.allocated(result.isSuccessful());
+        recordAllocated(disasterId, result, requests);
+        if (result.isSuccessful() && journal != null && !requests.isEmpty()) {
+            journal.appendResourcesAllocated(disasterId, requests);
+        }
+        return result;
+    }
+
+    private boolean releaseLocked(PendingAllocation allocation) {
+        // Recorded only by the release that takes the allocation back, and before the freed units
+        // are granted, so replay frees the units once and ahead of the grants the release triggers
+        return scheduler.release(allocation, released -> {
+            synchronized (leases) {
+                if (journal != null) {
+                    journal.appendResourcesReleased(released.getDisasterId(), Collections.singletonList(released.getRequest()));
+                }
+                ledger.release(released.getDisasterId(), released.getResource(), released.getRequest().getQuantity());
+                takeFromLeases(released.getDisasterId(), released.getResource(), released.getRequest().getQuantity());
+            }
+        });
+    }
+
+    private int releaseLocked(long disasterId, Resource resource, int quantity) {
+        // Units granted by the scheduler are tracked there too, so they are not released from here
+        int granted = 0;
+        for (PendingAllocation allocation : scheduler.getGranted(disasterId)) {
+            if (allocation.getResource() == resource) {
+                granted += allocation.getRequest().getQuantity();
+            }
+        }
+        int released;
+        // The journal, the ledger and the leases change together, so replay takes the release
+        // off the same leases
+        synchronized (leases) {
+            AllocationEntry entry = ledger.getEntry(disasterId, resource);
+            int held = entry == null ? 0 : entry.getQuantity() - granted;
+            released = Math.min(quantity, held);
+            if (released <= 0) {
+                return 0;
+            }
+            if (journal != null) {
+                journal.appendResourcesReleased(disasterId,
+                        Collections.singletonList(new AllocationRequest(resource.getName(), released)));
+            }
+            ledger.release(disasterId, resource, released);
+            takeFromLeases(disasterId, resource, released);
+        }
+        scheduler.release(resource, released);  // Hands the units to whoever waits next
+        return released;
+    }
+
+    /**
+     * Returns what an expired lease still counts, leaving alone any units the disaster holds
+     * from other allocations.
+     */
+    private void expire(AllocationLease lease) {
+        stateLock.readLock().lock();
+        try {
+            long disasterId = lease.getDisasterId();
+            Map<Resource, Integer> granted = new IdentityHashMap<>();
+            for (PendingAllocation allocation : scheduler.getGranted(disasterId)) {
+                granted.merge(allocation.getResource(), allocation.getRequest().getQuantity(), Integer::sum);
+            }
+            List<Resource> resources = lease.getResources();
+            int[] released = new int[resources.size()];
+            synchronized (leases) {
+                List<AllocationLease> disasterLeases = leases.get(disasterId);
+                if (disasterLeases == null || !disasterLeases.contains(lease)) {
+                    return;  // Returned in full or reset meanwhile
+                }
+                // Other releases also hold the leases' lock, so what is held cannot shrink until the ledger is updated
+                Map<String, Integer> units = new LinkedHashMap<>();
+                for (int i = 0; i < resources.size(); i++) {
+                    Resource resource = resources.get(i);
+                    AllocationEntry entry = ledger.getEntry(disasterId, resource);
+                    int held = entry == null ? 0 : entry.getQuantity() - granted.getOrDefault(resource, 0);
+                    released[i] = Math.max(0, Math.min(lease.getRemaining(i), held));
+                    if (released[i] > 0) {
+                        units.put(resource.getId(), released[i]);
+                    }
+                }
+                // Journaled first: if that fails nothing has changed, and the lease is tried again later
+                if (journal != null) {
+                    try {
+                        journal.appendLeaseExpired(lease.getLeaseId(), disasterId, units);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Could not record the expiry of lease " + lease.getLeaseId()
+                                + ", will try again: " + e);
+                        lease.setTimeout(releaseTimer.schedule(() -> expire(lease), EXPIRY_RETRY_MILLIS, TimeUnit.MILLISECONDS));
+                        return;
+                    }
+                }
+                disasterLeases.remove(lease);
+                if (disasterLeases.isEmpty()) {
+                    leases.remove(disasterId);
+                }
+                for (int i = 0; i < resources.size(); i++) {
+                    if (released[i] > 0) {
+                        ledger.release(disasterId, resources.get(i), released[i]);
+                    }
+                }
+            }
+            for (int i = 0; i < resources.size(); i++) {
+                if (released[i] > 0) {
+                    scheduler.release(resources.get(i), released[i]);
+                }
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes units a disaster returned off its leases, oldest first, and stops the leases that
+     * have nothing left. Must be called holding the leases' lock.
+     */
+    private void takeFromLeases(long disasterId, Resource resource, int quantity) {
+        List<AllocationLease> disasterLeases = leases.get(disasterId);
+        if (disasterLeases == null) {
+            return;
+        }
+        for (Iterator<AllocationLease> it = disasterLeases.iterator(); it.hasNext() && quantity > 0; ) {
+            AllocationLease lease = it.next();
+            quantity -= lease.take(resource, quantity);
+            if (lease.isEmpty()) {
+                lease.cancel();
+                it.remove();
+            }
+        }
+        if (disasterLeases.isEmpty()) {
+            leases.remove(disasterId);
+        }
+    }
+
+    /**
+     * Schedules the expiry of every lease, such as after a restore. Leases past their deadline
+     * expire on the next tick.
+     */
+    private void armLeases() {
+        long now = System.currentTimeMillis();
+        boolean armed = false;
+        synchronized (leases) {
+            for (List<AllocationLease> disasterLeases : leases.values()) {
+                for (AllocationLease lease : disasterLeases) {
+                    lease.setTimeout(releaseTimer.schedule(() -> expire(lease),
+                            lease.getExpiresAtMillis() - now, TimeUnit.MILLISECONDS));
+                    armed = true;
+                }
+            }
+        }
+        if (armed) {
+            releaseTimer.start();
+        }
+    }
+
+    private static Map<String, Integer> unitsById(AllocationLease lease) {
+        Map<String, Integer> units = new LinkedHashMap<>();
+        for (int i = 0; i < lease.getResources().size(); i++) {
+            units.put(lease.getResources().get(i).getId(), lease.getRemaining(i));
+        }
+        return units;
+    }
+
+    private void recordAllocated(long disasterId, AllocationResult result, List<AllocationRequest> requests) {
+        if (result.isSuccessful()) {
+            List<Resource> resources = result.getAllocatedResources();
+            for (int i = 0; i < resources.size(); i++) {
+                ledger.record(disasterId, resources.get(i), requests.get(i).getQuantity());
+            }
+        }
+    }
+
+    private List<String> notifyDepartmentsLocked(long disasterId, Disaster disaster) {
+        long start = System.nanoTime();
+        List<String> departments = router.route(disaster);
+        metrics.getLatency(DispatchMetrics.Stage.ROUTE).recordSince(start);
+        for (String department : departments) {
+            recordNotified(department, disasterId);
+            metrics.notified(department);
+        }
+        if (journal != null) {
+            journal.appendDepartmentsNotified(disasterId, departments);
+        }
+        if (notifier != null) {
+            notifier.submit(disasterId, disaster, departments);  // Queued, never waits for delivery
+        }
+        return departments;
+    }
+
+    private void indexLocation(Disaster disaster) {
+        if (disaster.getPosition() != null) {
+            disasterLocations.put(disaster, disaster.getPosition());
+        }
+    }
+
+    private IntList departmentList(String department) {
+        return departmentCoordination.computeIfAbsent(department, d -> new IntList());
+    }
+
+    private void recordNotified(String department, long disasterId) {
+        IntList notified = departmentList(department);
+        synchronized (notified) {
+            notified.add((int) disasterId);
+        }
+    }
+
+    /**
+     * Restores the default departments and resources. Must be called with the write lock held
+     * (or from the constructor).
+     */
+    private void initializeDefaults() {
+        synchronized (logLock) {
+            disasterLog = new DisasterStore();
+            logGeneration++;
+            disasterIndex.clear();
+        }
+        disasterLocations.clear();
+        scheduler.clear();
+        ledger.clear();
+        releaseTimer.clear();
+        synchronized (leases) {
+            leases.clear();
+            nextLeaseId = 0;
+        }
+        departmentCoordination.clear();
+        for (String department : router.getDepartments()) {
+            departmentList(department);
+        }
+        resourceManagement.clear();
+        resourceManagement.addResource(new Resource("1", "Fire Truck", "Vehicle", "available", 10));
+        resourceManagement.addResource(new Resource("2", "Ambulance", "Vehicle", "available", 8));
+        resourceManagement.addResource(new Resource("3", "Rescue Team", "Personnel", "available", 15));
+    }
+
+    private void applySnapshot(StateSnapshot snapshot) {
+        List<Disaster> disasters = snapshot.getDisasters();
+        synchronized (logLock) {
+            DisasterStore store = snapshot.getDisasterStore();
+            if (store.size() == snapshot.getDisasterCount()) {
+                disasterLog = store;  // A loaded snapshot's store holds exactly its rows, so it can be taken over
+                logGeneration++;
+                for (int row = 0; row < disasters.size(); row++) {
+                    disasterIndex.add(row, disasters.get(row));
+                }
+            } else {
+                for (Disaster disaster : disasters) {
+                    disasterIndex.add(disasterLog.append(disaster), disaster);
+                }
+            }
+        }
+        for (int row = 0; row < disasters.size(); row++) {
+            indexLocation(getDisaster(row));
+        }
+        for (Map.Entry<String, int[]> entry : snapshot.getDepartmentIds().entrySet()) {
+            IntList notified = departmentList(entry.getKey());
+            synchronized (notified) {
+                notified.addAll(entry.getValue());
+            }
+        }
+        resourceManagement.clear();
+        for (Resource resource : snapshot.getResources()) {
+            resourceManagement.addResource(resource);
+        }
+        for (AllocationEntry entry : snapshot.getAllocations()) {
+            ledger.restore(entry);
+        }
+        synchronized (leases) {
+            for (AllocationLease lease : snapshot.getLeases()) {
+                leases.computeIfAbsent(lease.getDisasterId(), id -> new ArrayList<>()).add(lease);
+                nextLeaseId = Math.max(nextLeaseId, lease.getLeaseId() + 1);
+            }
+        }
+    }
+
+    /**
+     * Records the scheduler's grants and preemptions in the ledger and the journal. Runs under
+     * the scheduler's lock, as the releases of granted units do, so the journal has them in the
+     * order they happened.
+     */
+    private class ScheduleRecorder implements SchedulerListener {
+
+        @Override
+        public void onGranted(PendingAllocation allocation) {
+            ledger.record(allocation.getDisasterId(), allocation.getResource(), allocation.getRequest().getQuantity());
+            if (journal != null) {
+                journal.appendResourcesAllocated(allocation.getDisasterId(), Collections.singletonList(allocation.getRequest()));
+            }
+        }
+
+        @Override
+        public void onPreempted(PendingAllocation allocation, Resource resource) {
+            synchronized (leases) {
+                ledger.release(allocation.getDisasterId(), resource, allocation.getRequest().getQuantity());
+                if (journal != null) {
+                    journal.appendResourcesReleased(allocation.getDisasterId(), Collections.singletonList(allocation.getRequest()));
+                }
+                takeFromLeases(allocation.getDisasterId(), resource, allocation.getRequest().getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Applies replayed journal events to the service state. Runs with the write lock held.
+     */
+    private class Replayer implements JournalListener {
+
+        @Override
+        public void onDisasterReported(long disasterId, Disaster disaster) {
+            synchronized (logLock) {
+                disasterIndex.add(disasterLog.append(disaster), disaster);
+            }
+            indexLocation(disaster);
+        }
+
+        @Override
+        public void onResourcesAllocated(long disasterId, List<AllocationRequest> allocations) {
+            for (AllocationRequest allocation : allocations) {
+                Resource resource = resourceManagement.getResourceByName(allocation.getResourceName());
+                if (resource != null && resource.tryReserve(allocation.getQuantity())) {
+                    ledger.record(disasterId, resource, allocation.getQuantity());
+                }
+            }
+        }
+
+        @Override
+        public void onResourceAssigned(long disasterId, String resourceId, int quantity) {
+            Resource resource = resourceManagement.getResourceById(resourceId);
+            if (resource != null && resource.tryReserve(quantity)) {
+                ledger.record(disasterId, resource, quantity);
+            }
+        }
+
+        @Override
+        public void onResourcesReleased(long disasterId, List<AllocationRequest> releases) {
+            for (AllocationRequest release : releases) {
+                // Prefer the resource the ledger says the disaster holds
+                Resource holder = null;
+                for (AllocationEntry entry : ledger.getEntries(disasterId)) {
+                    if (entry.getResource().getName().equalsIgnoreCase(release.getResourceName())
+                            && entry.getQuantity() >= release.getQuantity()) {
+                        holder = entry.getResource();
+                        break;
+                    }
+                }
+                if (holder == null) {
+                    for (Resource resource : resourceManagement.getResourcesByName(release.getResourceName())) {
+                        if (resource.getAllocatedQuantity() >= release.getQuantity()) {
+                            holder = resource;
+                            break;
+                        }
+                    }
+                }
+                if (holder != null) {
+                    holder.release(release.getQuantity());
+                    ledger.release(disasterId, holder, release.getQuantity());
+                    synchronized (leases) {
+                        takeFromLeases(disasterId, holder, release.getQuantity());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void onAllocationLeased(long leaseId, long disasterId, long expiresAtMillis, Map<String, Integer> units) {
+            List<Resource> resources = new ArrayList<>(units.size());
+            int[] quantities = new int[units.size()];
+            for (Map.Entry<String, Integer> unit : units.entrySet()) {
+                Resource resource = resourceManagement.getResourceById(unit.getKey());
+                if (resource != null) {
+                    quantities[resources.size()] = unit.getValue();
+                    resources.add(resource);
+                }
+            }
+            synchronized (leases) {
+                leases.computeIfAbsent(disasterId, id -> new ArrayList<>())
+                        .add(new AllocationLease(leaseId, disasterId, expiresAtMillis, resources, quantities));
+                nextLeaseId = Math.max(nextLeaseId, leaseId + 1);
+            }
+        }
+
+        @Override
+        public void onLeaseExpired(long leaseId, long disasterId, Map<String, Integer> released) {
+            synchronized (leases) {
+                List<AllocationLease> disasterLeases = leases.get(disasterId);
+                if (disasterLeases != null) {
+                    disasterLeases.removeIf(lease -> lease.getLeaseId() == leaseId);
+                    if (disasterLeases.isEmpty()) {
+                        leases.remove(disasterId);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> unit : released.entrySet()) {
+                Resource resource = resourceManagement.getResourceById(unit.getKey());
+                if (resource != null && resource.getAllocatedQuantity() >= unit.getValue()) {
+                    resource.release(unit.getValue());
+                    ledger.release(disasterId, resource, unit.getValue());
+                }
+            }
+        }
+
+        @Override
+        public void onDepartmentsNotified(long disasterId, List<String> departments) {
+            for (String department : departments) {
+                recordNotified(department, disasterId);
+            }
+        }
+
+        @Override
+        public void onResourceMoved(String resourceId, GeoPoint position) {
+            Resource resource = resourceManagement.getResourceById(resourceId);
+            if (resource != null) {
+                resourceManagement.moveResource(resource, position);
+            }
+        }
+
+        @Override
+        public void onLogCleared() {
+            initializeDefaults();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cqu.drsystem.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivers notifications by appending them to one text file per department, named after the
+ * department (for example {@code Fire_Department.log}).
+ */
+public class FileNotificationSink implements NotificationSink {
+
+    private final Path directory;
+    private final Map<String, Writer> writers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a sink that writes into the given directory, creating it if needed.
+     *
+     * @param directory the directory for the department files
+     * @throws IOException if the directory cannot be created
+     */
+    public FileNotificationSink(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public void deliver(Notification notification) throws IOException {
+        Writer writer = writers.get(notification.getDepartment());
+        if (writer == null) {
+            writer = Files.newBufferedWriter(directory.resolve(fileName(notification.getDepartment())),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            Writer existing = writers.putIfAbsent(notification.getDepartment(), writer);
+            if (existing != null) {
+                writer.close();
+                writer = existing;
+            }
+        }
+        // A department is only ever delivered by one worker at a time
+        writer.write(notification.toLine());
+        writer.write(System.lineSeparator());
+        writer.flush();
+    }
+
+    private static String fileName(String department) {
+        return department.replaceAll("[^A-Za-z0-9-]", "_") + ".log";
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Writer writer : writers.values()) {
+            writer.close();
+        }
+        writers.clear();
+    }
+}
@@ -0,0 +1,78 @@
+package cqu.drsystem.core;
+
+/**
+ * An immutable position on the earth, in degrees of latitude and longitude.
+ */
+public final class GeoPoint {
+
+    /** Mean radius of the earth, in kilometres. */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double latitude;
+    private final double longitude;
+
+    /**
+     * Constructs a position.
+     *
+     * @param latitude the latitude, from -90 to 90
+     * @param longitude the longitude, from -180 to 180
+     * @throws IllegalArgumentException if a coordinate is out of range
+     */
+    public GeoPoint(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Invalid coordinates: " + latitude + ", " + longitude);
+        }
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Gets the great-circle distance to another position.
+     *
+     * @param other the other position
+     * @return the distance in kilometres
+     */
+    public double distanceKm(GeoPoint other) {
+        return distanceKm(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    /**
+     * Gets the great-circle distance between two positions, using the haversine formula.
+     *
+     * @return the distance in kilometres
+     */
+    static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof GeoPoint)) {
+            return false;
+        }
+        GeoPoint point = (GeoPoint) other;
+        return Double.compare(latitude, point.latitude) == 0 && Double.compare(longitude, point.longitude) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + latitude + ", " + longitude + ")";
+    }
+}
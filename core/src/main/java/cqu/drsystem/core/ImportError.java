@@ -0,0 +1,39 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A record of an imported file that could not be dispatched, and why.
+ */
+public final class ImportError {
+    private final long lineNumber;
+    private final List<ValidationError> errors;
+
+    ImportError(long lineNumber, List<ValidationError> errors) {
+        this.lineNumber = lineNumber;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Gets the line of the file the record starts on.
+     *
+     * @return the 1-based line number
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public List<ValidationError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Line ").append(lineNumber).append(':');
+        for (ValidationError error : errors) {
+            text.append(' ').append(error.getMessage());
+        }
+        return text.toString();
+    }
+}
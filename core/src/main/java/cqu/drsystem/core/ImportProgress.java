@@ -0,0 +1,160 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A point-in-time view of a running or finished import by the {@link DisasterImporter}.
+ *
+ * The importer works in three stages: reading records from the file, parsing and validating
+ * them on worker threads, and dispatching them in batches. Each stage's throughput is measured
+ * over the time the stage was actually busy, so the slowest stage is the one to look at.
+ */
+public final class ImportProgress {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final long totalBytes;
+    private final long bytesRead;
+    private final long rowsRead;
+    private final long rowsValidated;
+    private final long rowsInvalid;
+    private final long rowsDispatched;
+    private final long allocationsFailed;
+    private final long readNanos;
+    private final long validateNanos;
+    private final long dispatchNanos;
+    private final long elapsedNanos;
+    private final boolean finished;
+    private final List<ImportError> errors;
+
+    ImportProgress(long totalBytes, long bytesRead, long rowsRead, long rowsValidated, long rowsInvalid,
+                   long rowsDispatched, long allocationsFailed, long readNanos, long validateNanos,
+                   long dispatchNanos, long elapsedNanos, boolean finished, List<ImportError> errors) {
+        this.totalBytes = totalBytes;
+        this.bytesRead = bytesRead;
+        this.rowsRead = rowsRead;
+        this.rowsValidated = rowsValidated;
+        this.rowsInvalid = rowsInvalid;
+        this.rowsDispatched = rowsDispatched;
+        this.allocationsFailed = allocationsFailed;
+        this.readNanos = readNanos;
+        this.validateNanos = validateNanos;
+        this.dispatchNanos = dispatchNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.finished = finished;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Gets the fraction of the file read so far.
+     *
+     * @return a value from 0 to 1
+     */
+    public double getFractionRead() {
+        return totalBytes == 0 ? 1 : (double) bytesRead / totalBytes;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Gets the number of records parsed and validated, valid or not.
+     *
+     * @return the number of validated records
+     */
+    public long getRowsValidated() {
+        return rowsValidated;
+    }
+
+    public long getRowsInvalid() {
+        return rowsInvalid;
+    }
+
+    public long getRowsDispatched() {
+        return rowsDispatched;
+    }
+
+    /**
+     * Gets the number of dispatched reports whose resources could not be allocated.
+     *
+     * @return the number of failed allocations
+     */
+    public long getAllocationsFailed() {
+        return allocationsFailed;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Gets the first invalid records. Only a limited number is kept, so that importing a
+     * file full of errors still runs in constant memory.
+     *
+     * @return the errors, in file order
+     */
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the read stage's throughput.
+     *
+     * @return records read per second of reading
+     */
+    public double getReadRate() {
+        return rate(rowsRead, readNanos);
+    }
+
+    /**
+     * Gets the parse and validate stage's throughput, over the combined busy time of its workers.
+     *
+     * @return records validated per second of worker time
+     */
+    public double getValidateRate() {
+        return rate(rowsValidated, validateNanos);
+    }
+
+    /**
+     * Gets the dispatch stage's throughput.
+     *
+     * @return records dispatched per second of dispatching
+     */
+    public double getDispatchRate() {
+        return rate(rowsDispatched, dispatchNanos);
+    }
+
+    /**
+     * Gets the end-to-end throughput.
+     *
+     * @return records dispatched per second since the import started
+     */
+    public double getOverallRate() {
+        return rate(rowsDispatched, elapsedNanos);
+    }
+
+    private static double rate(long rows, long nanos) {
+        return nanos == 0 ? 0 : rows * NANOS_PER_SECOND / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d rows (%.0f%%): %d dispatched, %d invalid, %d not allocated; "
+                        + "read %.0f/s, validate %.0f/s per worker, dispatch %.0f/s, overall %.0f/s",
+                finished ? "Imported" : "Importing", rowsRead, getFractionRead() * 100, rowsDispatched,
+                rowsInvalid, allocationsFailed, getReadRate(), getValidateRate(), getDispatchRate(), getOverallRate());
+    }
+}
@@ -0,0 +1,527 @@
+package cqu.drsystem.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A headless surge simulation for capacity planning. Several producer threads generate synthetic
+ * disaster reports with a configured mix of types and severities and send them through a fresh
+ * {@link DispatchService}, which allocates resources and routes departments as it does for real
+ * reports. Allocated units are held for a while and then released, so a surge that outpaces the
+ * inventory shows up as allocation failures.
+ * <p>
+ * Arrivals are open-loop: each producer follows a Poisson schedule fixed in advance, and a report
+ * is timed from when it was due rather than from when the producer got round to it. If dispatch
+ * cannot keep up, the response time keeps growing instead of the producers quietly slowing down.
+ * <p>
+ * Runs without JavaFX, from the core module alone:
+ * <pre>
+ *   java -p core/target/classes -m cqu.drsystem.core/cqu.drsystem.core.IncidentSimulation \
+ *       --producers=8 --rate=2000 --duration=30 --inventory=500 --hold=5 \
+ *       --types=Earthquake:70,Fire:20,Flood:10 --severities=High:50,Medium:30,Low:20
+ * </pre>
+ */
+public final class IncidentSimulation {
+
+    private static final String[] LOCATIONS = {"Rockhampton", "Brisbane", "Cairns", "Townsville", "Mackay", "Gladstone", "Bundaberg"};
+
+    private final int producers;
+    private final double reportsPerSecond;
+    private final Duration duration;
+    private final Duration holdTime;
+    private final int inventory;
+    private final long seed;
+    private final WeightedChoice types;
+    private final WeightedChoice severities;
+
+    private IncidentSimulation(Builder builder) {
+        this.producers = builder.producers;
+        this.reportsPerSecond = builder.reportsPerSecond;
+        this.duration = builder.duration;
+        this.holdTime = builder.holdTime;
+        this.inventory = builder.inventory;
+        this.seed = builder.seed;
+        this.types = new WeightedChoice(builder.typeMix);
+        this.severities = new WeightedChoice(builder.severityMix);
+    }
+
+    /**
+     * Runs the simulation to the end of its duration.
+     *
+     * @return the results
+     * @throws InterruptedException if interrupted while the producers run
+     */
+    public Result run() throws InterruptedException {
+        DispatchService service = new DispatchService(null);
+        try {
+            List<String> resourceNames = new ArrayList<>();
+            for (Resource resource : service.getResourceManagement().getResources()) {
+                if (inventory >= 0) {
+                    resource.setAvailableQuantity(inventory);
+                }
+                resourceNames.add(resource.getName());
+            }
+
+            Result result = new Result(this);
+            try (TimerWheel releases = new TimerWheel(10, TimeUnit.MILLISECONDS)) {
+                releases.start();
+                long start = System.nanoTime();
+                long end = start + duration.toNanos();
+                List<Thread> threads = new ArrayList<>(producers);
+                for (int i = 0; i < producers; i++) {
+                    Random random = new Random(seed + i);
+                    Thread thread = new Thread(() -> produce(service, releases, resourceNames, random, start, end, result),
+                            "simulation-producer-" + i);
+                    threads.add(thread);
+                    thread.start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                result.elapsedNanos = System.nanoTime() - start;
+            }
+            result.metrics = service.getMetrics().format();
+            return result;
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Sends reports on this producer's share of the schedule until the end time.
+     */
+    private void produce(DispatchService service, TimerWheel releases, List<String> resourceNames, Random random,
+                         long start, long end, Result result) {
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) * producers / reportsPerSecond;
+        double due = start;
+        for (int number = 1; ; number++) {
+            // Exponential gaps make a Poisson stream; the sum of the producers' streams is one too
+            due += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+            long dueNanos = (long) due;
+            if (dueNanos >= end) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now < dueNanos) {
+                LockSupport.parkNanos(dueNanos - now);
+            }
+            DisasterReport report = generate(random, resourceNames, number);
+            long sent = System.nanoTime();
+            DispatchOutcome outcome;
+            try {
+                outcome = service.report(report);
+            } catch (ValidationException e) {
+                result.rejected.increment();
+                continue;
+            }
+            long done = System.nanoTime();
+            result.generated.increment();
+            result.serviceTime.record(done - sent);
+            result.responseTime.record(done - dueNanos);
+            AllocationResult allocation = outcome.getAllocation();
+            if (allocation.isSuccessful()) {
+                result.allocated.increment();
+                if (!holdTime.isZero()) {
+                    long disasterId = outcome.getDisasterId();
+                    releases.schedule(() -> service.releaseAll(disasterId), holdTime.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            } else {
+                result.failuresByResource.computeIfAbsent(allocation.getFailedRequest().getResourceName(),
+                        name -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * Builds a report of a random type and severity asking for one or two resources; the more
+     * severe, the more units.
+     */
+    private DisasterReport generate(Random random, List<String> resourceNames, int number) {
+        String type = types.pick(random);
+        String severity = severities.pick(random);
+        int units = severity.equalsIgnoreCase("High") ? 4 : severity.equalsIgnoreCase("Medium") ? 2 : 1;
+        List<AllocationRequest> requests = new ArrayList<>(2);
+        int first = random.nextInt(resourceNames.size());
+        requests.add(new AllocationRequest(resourceNames.get(first), units));
+        if (resourceNames.size() > 1 && random.nextInt(10) < 3) {
+            int second = (first + 1 + random.nextInt(resourceNames.size() - 1)) % resourceNames.size();
+            requests.add(new AllocationRequest(resourceNames.get(second), units));
+        }
+        GeoPoint position = new GeoPoint(-29 + random.nextDouble() * 19, 138 + random.nextDouble() * 16);
+        return new DisasterReport(type, LOCATIONS[random.nextInt(LOCATIONS.length)], severity,
+                "Simulated report " + number + " of a " + type.toLowerCase(Locale.ROOT), requests, position);
+    }
+
+    /**
+     * Runs a simulation configured from {@code --name=value} arguments and prints the results.
+     * Every argument is optional: {@code --producers}, {@code --rate} (reports per second),
+     * {@code --duration} and {@code --hold} (seconds), {@code --inventory} (units of each
+     * resource), {@code --types} and {@code --severities} (as {@code Name:weight,...}) and
+     * {@code --seed}.
+     *
+     * @param args the arguments
+     * @throws InterruptedException if interrupted while running
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Builder builder = builder();
+        try {
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String value = arg.substring(equals + 1);
+                switch (arg.substring(2, equals)) {
+                    case "producers":
+                        builder.producers(Integer.parseInt(value));
+                        break;
+                    case "rate":
+                        builder.reportsPerSecond(Double.parseDouble(value));
+                        break;
+                    case "duration":
+                        builder.duration(Duration.ofMillis((long) (Double.parseDouble(value) * 1000)));
+                        break;
+                    case "hold":
+                        builder.holdTime(Duration.ofMillis((long) (Double.parseDouble(value) * 1000)));
+                        break;
+                    case "inventory":
+                        builder.inventory(Integer.parseInt(value));
+                        break;
+                    case "types":
+                        builder.typeMix(parseMix(value));
+                        break;
+                    case "severities":
+                        builder.severityMix(parseMix(value));
+                        break;
+                    case "seed":
+                        builder.seed(Long.parseLong(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+        System.out.print(builder.build().run().format());
+    }
+
+    private static Map<String, Integer> parseMix(String text) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String item : text.split(",")) {
+            int colon = item.lastIndexOf(':');
+            if (colon < 0) {
+                mix.put(item.trim(), 1);
+            } else {
+                mix.put(item.substring(0, colon).trim(), Integer.parseInt(item.substring(colon + 1).trim()));
+            }
+        }
+        return mix;
+    }
+
+    /**
+     * Creates a builder with the defaults: 4 producers sending 1000 reports a second for 10
+     * seconds, units held for 2 seconds, the default inventory, and a mix of types and
+     * severities weighted towards earthquakes.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Configures a simulation.
+     */
+    public static final class Builder {
+        private int producers = 4;
+        private double reportsPerSecond = 1000;
+        private Duration duration = Duration.ofSeconds(10);
+        private Duration holdTime = Duration.ofSeconds(2);
+        private int inventory = -1;
+        private long seed = 24;
+        private Map<String, Integer> typeMix = mix("Earthquake", 40, "Flood", 20, "Fire", 20, "Hurricane", 10, "Tornado", 10);
+        private Map<String, Integer> severityMix = mix("Low", 30, "Medium", 40, "High", 30);
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the number of producer threads sharing the arrival rate.
+         *
+         * @param producers the number of producers, at least 1
+         * @return this builder
+         */
+        public Builder producers(int producers) {
+            if (producers < 1) {
+                throw new IllegalArgumentException("At least one producer is needed: " + producers);
+            }
+            this.producers = producers;
+            return this;
+        }
+
+        /**
+         * Sets the arrival rate of all producers together.
+         *
+         * @param reportsPerSecond the mean number of reports a second
+         * @return this builder
+         */
+        public Builder reportsPerSecond(double reportsPerSecond) {
+            if (!(reportsPerSecond > 0)) {
+                throw new IllegalArgumentException("Rate must be positive: " + reportsPerSecond);
+            }
+            this.reportsPerSecond = reportsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets how long reports arrive for.
+         *
+         * @param duration the length of the run, not negative
+         * @return this builder
+         */
+        public Builder duration(Duration duration) {
+            if (duration == null || duration.isNegative()) {
+                throw new IllegalArgumentException("Duration cannot be negative: " + duration);
+            }
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * Sets how long allocated units stay out before they are released.
+         *
+         * @param holdTime the holding time, or zero to never release them
+         * @return this builder
+         */
+        public Builder holdTime(Duration holdTime) {
+            if (holdTime == null || holdTime.isNegative()) {
+                throw new IllegalArgumentException("Hold time cannot be negative: " + holdTime);
+            }
+            this.holdTime = holdTime;
+            return this;
+        }
+
+        /**
+         * Sets the number of available units of every resource, replacing the default inventory.
+         *
+         * @param units the units of each resource
+         * @return this builder
+         */
+        public Builder inventory(int units) {
+            if (units < 0) {
+                throw new IllegalArgumentException("Inventory cannot be negative: " + units);
+            }
+            this.inventory = units;
+            return this;
+        }
+
+        /**
+         * Sets the relative frequency of each disaster type.
+         *
+         * @param weights the weight of each type, such as {@code {"Earthquake": 70, "Flood": 30}}
+         * @return this builder
+         */
+        public Builder typeMix(Map<String, Integer> weights) {
+            this.typeMix = new LinkedHashMap<>(weights);
+            return this;
+        }
+
+        /**
+         * Sets the relative frequency of each severity.
+         *
+         * @param weights the weight of each severity, such as {@code {"High": 60, "Low": 40}}
+         * @return this builder
+         */
+        public Builder severityMix(Map<String, Integer> weights) {
+            this.severityMix = new LinkedHashMap<>(weights);
+            return this;
+        }
+
+        /**
+         * Sets the seed of the report generators, so runs can be repeated.
+         *
+         * @param seed the seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Builds the simulation.
+         *
+         * @return the simulation
+         * @throws IllegalArgumentException if a mix has no positive weight
+         */
+        public IncidentSimulation build() {
+            return new IncidentSimulation(this);
+        }
+
+        private static Map<String, Integer> mix(Object... namesAndWeights) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (int i = 0; i < namesAndWeights.length; i += 2) {
+                mix.put((String) namesAndWeights[i], (Integer) namesAndWeights[i + 1]);
+            }
+            return mix;
+        }
+    }
+
+    /**
+     * The outcome of a run. Latency percentiles are the upper bounds of power-of-two buckets.
+     */
+    public static final class Result {
+        private final IncidentSimulation simulation;
+        private final LongAdder generated = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final Map<String, LongAdder> failuresByResource = new ConcurrentHashMap<>();
+        private final LatencyHistogram responseTime = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private long elapsedNanos;
+        private String metrics;
+
+        private Result(IncidentSimulation simulation) {
+            this.simulation = simulation;
+        }
+
+        /**
+         * Gets the number of reports dispatched.
+         *
+         * @return the dispatched reports
+         */
+        public long getReports() {
+            return generated.sum();
+        }
+
+        /**
+         * Gets the number of reports dispatched per second of the run.
+         *
+         * @return the achieved throughput
+         */
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : getReports() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Gets the number of reports whose resources could not all be allocated.
+         *
+         * @return the allocation failures
+         */
+        public long getAllocationFailures() {
+            long failures = 0;
+            for (LongAdder count : failuresByResource.values()) {
+                failures += count.sum();
+            }
+            return failures;
+        }
+
+        /**
+         * Gets the allocation failures by the resource that ran out.
+         *
+         * @return the failures by resource name, sorted by name
+         */
+        public Map<String, Long> getAllocationFailuresByResource() {
+            Map<String, Long> failures = new TreeMap<>();
+            failuresByResource.forEach((name, count) -> failures.put(name, count.sum()));
+            return Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * Gets the time from when each report was due to when its dispatch finished, including
+         * any time it waited for its producer.
+         *
+         * @return the response times
+         */
+        public LatencyHistogram getResponseTime() {
+            return responseTime;
+        }
+
+        /**
+         * Gets the time each dispatch took once it started.
+         *
+         * @return the service times
+         */
+        public LatencyHistogram getServiceTime() {
+            return serviceTime;
+        }
+
+        /**
+         * Formats the results as a plain-text report, followed by the dispatch metrics.
+         *
+         * @return the report
+         */
+        public String format() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("simulation producers=%d offered=%.0f/s duration=%.1fs hold=%.1fs%n",
+                    simulation.producers, simulation.reportsPerSecond, simulation.duration.toMillis() / 1000.0,
+                    simulation.holdTime.toMillis() / 1000.0));
+            out.append(String.format("throughput %d reports in %.1fs = %.1f/s, %d rejected%n",
+                    getReports(), elapsedNanos / 1e9, getThroughput(), rejected.sum()));
+            long failures = getAllocationFailures();
+            out.append(String.format("allocations %d succeeded, %d failed (%.1f%%)%n", allocated.sum(), failures,
+                    getReports() == 0 ? 0.0 : 100.0 * failures / getReports()));
+            getAllocationFailuresByResource().forEach((name, count) ->
+                    out.append("allocations.failed[").append(name).append("] ").append(count).append('\n'));
+            appendLatency(out, "latency.response", responseTime);
+            appendLatency(out, "latency.service", serviceTime);
+            out.append(metrics);
+            return out.toString();
+        }
+
+        private static void appendLatency(StringBuilder out, String name, LatencyHistogram histogram) {
+            out.append(String.format("%s p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n", name,
+                    histogram.getPercentileNanos(50) / 1000.0, histogram.getPercentileNanos(90) / 1000.0,
+                    histogram.getPercentileNanos(99) / 1000.0, histogram.getPercentileNanos(99.9) / 1000.0,
+                    histogram.getMaxMicros()));
+        }
+    }
+
+    /**
+     * Picks names at random in proportion to their weights.
+     */
+    private static final class WeightedChoice {
+        private final String[] names;
+        private final int[] cumulative;
+
+        WeightedChoice(Map<String, Integer> weights) {
+            names = new String[weights.size()];
+            cumulative = new int[weights.size()];
+            int total = 0;
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                if (entry.getValue() < 0) {
+                    throw new IllegalArgumentException("Weight of " + entry.getKey() + " cannot be negative");
+                }
+                total += entry.getValue();
+                names[i] = entry.getKey();
+                cumulative[i++] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("A mix needs at least one positive weight: " + weights);
+            }
+        }
+
+        String pick(Random random) {
+            int target = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; ; i++) {
+                if (target < cumulative[i]) {
+                    return names[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cqu.drsystem.core;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, such as node numbers or disaster ids, without boxing.
+ * Not thread-safe.
+ */
+final class IntList {
+    private int[] items = new int[64];
+    private int size;
+
+    void add(int item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+        }
+        items[size++] = item;
+    }
+
+    void addAll(int[] values) {
+        if (size + values.length > items.length) {
+            items = Arrays.copyOf(items, Math.max(size + values.length, items.length * 2));
+        }
+        System.arraycopy(values, 0, items, size, values.length);
+        size += values.length;
+    }
+
+    int get(int index) {
+        return items[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    /**
+     * Copies the first items of the list.
+     */
+    int[] toArray(int length) {
+        if (length > size) {
+            throw new IndexOutOfBoundsException("Prefix of " + length + " items in a list of " + size);
+        }
+        return Arrays.copyOf(items, length);
+    }
+}
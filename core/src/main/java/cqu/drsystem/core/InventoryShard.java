@@ -0,0 +1,474 @@
+package cqu.drsystem.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The part of the resource inventory owned by one region, such as a state or district, served by
+ * its own node or process. Shards reach each other through a pluggable {@link ShardTransport}.
+ * <p>
+ * An allocation is served from the shard's own inventory whenever it can be, without talking to
+ * anyone. When the region runs short of a resource, the rest is borrowed from the other regions
+ * in a two-phase protocol: the peers are asked in order of preference to set units aside until
+ * the shortfall is covered, and then every peer that set units aside is told to commit. If the
+ * shortfall cannot be covered, or a commit is refused, everything set aside or lent for the
+ * allocation is given back and the allocation fails as a whole. A loan that cannot be returned
+ * because its lender is unreachable is kept and returned again, with growing pauses, until the
+ * lender takes it.
+ * <p>
+ * As a lender, the shard serves {@link ShardEndpoint}: units set aside for a borrower that
+ * neither commits nor aborts within the prepare timeout are released again, so a borrower that
+ * dies mid-protocol does not strand them. Lent units are never taken back on the lender's own
+ * say: every loan check interval the lender asks the borrower whether an allocation still holds
+ * them, and takes them back only once the borrower answers that it does not, such as when its
+ * return was lost. While the borrower cannot be reached, the units stay lent.
+ * <p>
+ * Allocation and lending may run concurrently from many threads; units are reserved with the same
+ * atomic reservations as {@link ResourceManagement}, whose other rules on concurrent use apply.
+ */
+public class InventoryShard implements ShardEndpoint, AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(InventoryShard.class.getName());
+    private static final Duration DEFAULT_PREPARE_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_LOAN_CHECK_INTERVAL = Duration.ofHours(1);
+    private static final long CALL_TIMEOUT_MILLIS = 5000;
+    private static final long FIRST_RETRY_MILLIS = 500;  // Doubles after every failed return
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    private final String region;
+    private final ResourceManagement inventory;
+    private final ShardTransport transport;
+    private final List<String> peers;
+    private final Duration prepareTimeout;
+    private final Duration loanCheckInterval;
+    private final TimerWheel expiry = new TimerWheel(100, TimeUnit.MILLISECONDS);
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();  // Units set aside or lent, by transaction
+    private final Map<String, ShardAllocation.Loan> pendingReturns = new ConcurrentHashMap<>();  // By transaction and lender
+    private final Set<String> heldLoans = ConcurrentHashMap.newKeySet();  // Borrowed and not given back, likewise
+    private final AtomicLong transactions = new AtomicLong();
+
+    /**
+     * Creates a shard and binds it to the transport under its region.
+     *
+     * @param region the region the shard owns
+     * @param inventory the region's resources
+     * @param transport the transport to the other shards
+     * @param peers the regions to borrow from, in order of preference such as nearest first
+     */
+    public InventoryShard(String region, ResourceManagement inventory, ShardTransport transport, List<String> peers) {
+        this(region, inventory, transport, peers, DEFAULT_PREPARE_TIMEOUT);
+    }
+
+    /**
+     * Creates a shard and binds it to the transport under its region.
+     *
+     * @param region the region the shard owns
+     * @param inventory the region's resources
+     * @param transport the transport to the other shards
+     * @param peers the regions to borrow from, in order of preference such as nearest first
+     * @param prepareTimeout how long units set aside for a borrower wait for it to commit
+     */
+    public InventoryShard(String region, ResourceManagement inventory, ShardTransport transport, List<String> peers,
+                          Duration prepareTimeout) {
+        this(region, inventory, transport, peers, prepareTimeout, DEFAULT_LOAN_CHECK_INTERVAL);
+    }
+
+    /**
+     * Creates a shard and binds it to the transport under its region.
+     *
+     * @param region the region the shard owns
+     * @param inventory the region's resources
+     * @param transport the transport to the other shards
+     * @param peers the regions to borrow from, in order of preference such as nearest first
+     * @param prepareTimeout how long units set aside for a borrower wait for it to commit
+     * @param loanCheckInterval how often the borrower of lent units is asked whether it still holds them
+     */
+    public InventoryShard(String region, ResourceManagement inventory, ShardTransport transport, List<String> peers,
+                          Duration prepareTimeout, Duration loanCheckInterval) {
+        this.region = region;
+        this.inventory = inventory;
+        this.transport = transport;
+        this.peers = new ArrayList<>(peers);
+        this.peers.remove(region);
+        this.prepareTimeout = prepareTimeout;
+        this.loanCheckInterval = loanCheckInterval;
+        transport.bind(region, this);
+        expiry.start();
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public ResourceManagement getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Allocates every line item, or none of them. Units come from this region first and are
+     * borrowed from the peers for whatever it lacks.
+     *
+     * @param requests the line items
+     * @return the outcome of the allocation
+     */
+    public ShardAllocation allocate(List<AllocationRequest> requests) {
+        List<Resource> localResources = new ArrayList<>(requests.size());
+        List<Integer> localQuantities = new ArrayList<>(requests.size());
+        List<ShardAllocation.Loan> loans = new ArrayList<>();
+        for (AllocationRequest request : requests) {
+            int local = reserveByName(request.getResourceName(), request.getQuantity(), localResources, localQuantities);
+            int shortfall = request.getQuantity() - local;
+            if (shortfall > 0) {
+                List<ShardAllocation.Loan> borrowed = borrow(request.getResourceName(), shortfall);
+                if (borrowed == null) {
+                    giveBack(localResources, localQuantities, loans);
+                    return new ShardAllocation(region, Collections.emptyList(), Collections.emptyList(),
+                            Collections.emptyList(), request);
+                }
+                loans.addAll(borrowed);
+            }
+        }
+        return new ShardAllocation(region, localResources, localQuantities, loans, null);
+    }
+
+    /**
+     * Gives the units of a successful allocation back, returning borrowed units to their lenders.
+     * Loans whose lender cannot be reached are returned again later.
+     *
+     * @param allocation an allocation made by this shard
+     */
+    public void release(ShardAllocation allocation) {
+        if (!allocation.getRegion().equals(region)) {
+            throw new IllegalArgumentException("Allocation of region " + allocation.getRegion() + " released in " + region);
+        }
+        giveBack(allocation.getLocalResources(), allocation.getLocalQuantities(), allocation.getLoans());
+    }
+
+    /**
+     * Gets the number of units of a resource this region has lent and not yet had back.
+     *
+     * @param resourceName the name of the resource
+     * @return the lent units
+     */
+    public int getLentQuantity(String resourceName) {
+        int lent = 0;
+        for (Hold hold : holds.values()) {
+            synchronized (hold) {
+                if (hold.lent && hold.resourceName.equalsIgnoreCase(resourceName)) {
+                    lent += hold.quantity;
+                }
+            }
+        }
+        return lent;
+    }
+
+    /**
+     * Gets the number of loans given back while their lender could not be reached, which are
+     * still to be returned.
+     *
+     * @return the loans waiting to be returned
+     */
+    public int getPendingReturnCount() {
+        return pendingReturns.size();
+    }
+
+    @Override
+    public int prepareBorrow(String transactionId, String borrower, String resourceName, int quantity) {
+        List<Resource> resources = new ArrayList<>(1);
+        List<Integer> quantities = new ArrayList<>(1);
+        int reserved = quantity <= 0 ? 0 : reserveByName(resourceName, quantity, resources, quantities);
+        if (reserved == 0) {
+            return 0;
+        }
+        Hold hold = new Hold(borrower, resourceName, resources, quantities, reserved);
+        synchronized (hold) {
+            // Locked before it is published, so no commit or abort sees the hold without its timeout
+            if (holds.putIfAbsent(transactionId, hold) != null) {
+                hold.release();  // A retried prepare; the first one stands
+                return 0;
+            }
+            // Presumed abort: a borrower that never decides gets nothing
+            hold.timeout = expiry.schedule(() -> abortBorrow(transactionId), prepareTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return reserved;
+    }
+
+    @Override
+    public boolean commitBorrow(String transactionId) {
+        Hold hold = holds.get(transactionId);
+        if (hold == null) {
+            return false;
+        }
+        synchronized (hold) {
+            if (hold.lent) {
+                return true;
+            }
+            hold.timeout.cancel();
+            hold.lent = true;
+            hold.timeout = scheduleLoanCheck(transactionId, hold);
+        }
+        LOGGER.log(System.Logger.Level.DEBUG, () -> region + " lent " + hold.quantity + " x " + hold.resourceName
+                + " to " + hold.borrower);
+        return true;
+    }
+
+    @Override
+    public void abortBorrow(String transactionId) {
+        Hold hold = holds.get(transactionId);
+        if (hold == null) {
+            return;
+        }
+        synchronized (hold) {
+            if (hold.lent) {
+                return;
+            }
+            holds.remove(transactionId);
+            hold.timeout.cancel();
+        }
+        hold.release();
+    }
+
+    @Override
+    public void returnLoan(String transactionId) {
+        Hold hold = holds.get(transactionId);
+        if (hold == null) {
+            return;
+        }
+        synchronized (hold) {
+            if (!hold.lent) {
+                return;
+            }
+            holds.remove(transactionId);
+            hold.timeout.cancel();
+        }
+        hold.release();
+    }
+
+    @Override
+    public boolean holdsLoan(String transactionId, String lender) {
+        return heldLoans.contains(loanKey(transactionId, lender));
+    }
+
+    /**
+     * Stops expiring prepared borrows, checking loans and retrying returns. The transport is left
+     * open, as other shards may share it.
+     */
+    @Override
+    public void close() {
+        expiry.close();
+    }
+
+    /**
+     * Borrows units from the peers in order of preference.
+     *
+     * @return the loans covering the quantity, or null if it could not be covered
+     */
+    private List<ShardAllocation.Loan> borrow(String resourceName, int quantity) {
+        String transactionId = region + "-" + transactions.incrementAndGet();
+        List<String> asked = new ArrayList<>();
+        List<ShardAllocation.Loan> prepared = new ArrayList<>();
+        int remaining = quantity;
+
+        // Phase one: set units aside until the shortfall is covered
+        for (String peer : peers) {
+            if (remaining == 0) {
+                break;
+            }
+            asked.add(peer);
+            Integer reserved = await(transport.prepareBorrow(peer, transactionId, region, resourceName, remaining));
+            if (reserved != null && reserved > 0) {
+                prepared.add(new ShardAllocation.Loan(peer, transactionId, resourceName, reserved));
+                remaining -= reserved;
+            }
+        }
+        if (remaining > 0) {
+            // Peers that timed out may still have set units aside, so every peer asked is told
+            for (String peer : asked) {
+                transport.abortBorrow(peer, transactionId);
+            }
+            return null;
+        }
+
+        // Phase two: turn what was set aside into loans. They count as held from the moment a
+        // lender may have lent them, so no lender ever hears they were given up too early
+        List<Future<Boolean>> commits = new ArrayList<>(prepared.size());
+        for (ShardAllocation.Loan loan : prepared) {
+            heldLoans.add(loanKey(transactionId, loan.getLender()));
+            commits.add(transport.commitBorrow(loan.getLender(), transactionId));
+        }
+        boolean committed = true;
+        for (Future<Boolean> commit : commits) {
+            committed &= Boolean.TRUE.equals(await(commit));
+        }
+        if (!committed) {
+            // A lender expired the borrow before it was committed; undo the others
+            for (ShardAllocation.Loan loan : prepared) {
+                heldLoans.remove(loanKey(transactionId, loan.getLender()));
+                returnLoan(loan, FIRST_RETRY_MILLIS);
+                transport.abortBorrow(loan.getLender(), transactionId);
+            }
+            return null;
+        }
+        return prepared;
+    }
+
+    private void giveBack(List<Resource> resources, List<Integer> quantities, List<ShardAllocation.Loan> loans) {
+        for (int i = 0; i < resources.size(); i++) {
+            resources.get(i).release(quantities.get(i));
+        }
+        for (ShardAllocation.Loan loan : loans) {
+            heldLoans.remove(loanKey(loan.getTransactionId(), loan.getLender()));  // Given up, even if the return is late
+            returnLoan(loan, FIRST_RETRY_MILLIS);
+        }
+    }
+
+    /**
+     * Returns a loan to its lender, and if that fails, keeps it and tries again after a pause.
+     *
+     * @param retryMillis the pause before the next attempt if this one fails
+     */
+    private void returnLoan(ShardAllocation.Loan loan, long retryMillis) {
+        String key = loanKey(loan.getTransactionId(), loan.getLender());
+        transport.returnLoan(loan.getLender(), loan.getTransactionId()).whenComplete((ignored, failure) -> {
+            if (failure == null) {
+                pendingReturns.remove(key);
+                return;
+            }
+            if (pendingReturns.put(key, loan) == null) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not return " + loan + " from " + region
+                        + ", will try again: " + failure);
+            }
+            expiry.schedule(() -> returnLoan(loan, Math.min(2 * retryMillis, MAX_RETRY_MILLIS)),
+                    retryMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private TimerWheel.Timeout scheduleLoanCheck(String transactionId, Hold hold) {
+        return expiry.schedule(() -> checkLoan(transactionId, hold), loanCheckInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Asks the borrower whether it still holds a loan, and takes the units back only if it
+     * answers that it does not. A borrower that cannot be reached is asked again later.
+     */
+    private void checkLoan(String transactionId, Hold hold) {
+        transport.holdsLoan(hold.borrower, transactionId, region).whenComplete((held, failure) -> {
+            synchronized (hold) {
+                if (holds.get(transactionId) != hold) {
+                    return;  // Returned meanwhile
+                }
+                if (failure != null || !Boolean.FALSE.equals(held)) {
+                    hold.timeout = scheduleLoanCheck(transactionId, hold);
+                    return;
+                }
+                holds.remove(transactionId);
+            }
+            LOGGER.log(System.Logger.Level.WARNING, region + " took back " + hold.quantity + " x " + hold.resourceName
+                    + " lent to " + hold.borrower + ", which no longer holds them");
+            hold.release();
+        });
+    }
+
+    private static String loanKey(String transactionId, String lender) {
+        return transactionId + "@" + lender;
+    }
+
+    /**
+     * Reserves units of every local resource with a name, in inventory order, until the
+     * quantity is covered or none are left.
+     *
+     * @param resources receives each resource units were reserved from
+     * @param quantities receives the units reserved from each of them
+     * @return the number of units reserved
+     */
+    private int reserveByName(String name, int quantity, List<Resource> resources, List<Integer> quantities) {
+        int reserved = 0;
+        for (Resource resource : inventory.getResourcesByName(name)) {
+            if (reserved == quantity) {
+                break;
+            }
+            int taken = reserveUpTo(resource, quantity - reserved);
+            if (taken > 0) {
+                resources.add(resource);
+                quantities.add(taken);
+                reserved += taken;
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Reserves as many units as are available, up to the quantity.
+     *
+     * @return the number of units reserved
+     */
+    private static int reserveUpTo(Resource resource, int quantity) {
+        if (!ResourceManagement.isAvailable(resource.getStatus())) {
+            return 0;
+        }
+        while (true) {
+            int take = Math.min(quantity, resource.getAvailableQuantity());
+            if (take <= 0) {
+                return 0;
+            }
+            if (resource.tryReserve(take)) {
+                return take;
+            }
+        }
+    }
+
+    /**
+     * Waits for a call to another region.
+     *
+     * @return the result, or null if the region could not be reached in time
+     */
+    private <T> T await(Future<T> call) {
+        try {
+            return call.get(CALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Borrow call from " + region + " failed: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Units set aside for, or lent to, a borrower.
+     */
+    private static final class Hold {
+        final String borrower;
+        final String resourceName;
+        final List<Resource> resources;  // Every local resource with the name that units came from
+        final List<Integer> quantities;
+        final int quantity;
+        // Guarded by the hold
+        TimerWheel.Timeout timeout;
+        boolean lent;
+
+        Hold(String borrower, String resourceName, List<Resource> resources, List<Integer> quantities, int quantity) {
+            this.borrower = borrower;
+            this.resourceName = resourceName;
+            this.resources = resources;
+            this.quantities = quantities;
+            this.quantity = quantity;
+        }
+
+        void release() {
+            for (int i = 0; i < resources.size(); i++) {
+                resources.get(i).release(quantities.get(i));
+            }
+        }
+    }
+}
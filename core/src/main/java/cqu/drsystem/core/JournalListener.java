@@ -0,0 +1,89 @@
+package cqu.drsystem.core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives the events of a {@link DisasterJournal} while it is being replayed.
+ * Disaster ids are the positions of the disasters in the log at the time they were reported.
+ */
+public interface JournalListener {
+
+    /**
+     * Called for every "disaster reported" event.
+     *
+     * @param disasterId the id of the disaster in the log
+     * @param disaster the reported disaster
+     */
+    void onDisasterReported(long disasterId, Disaster disaster);
+
+    /**
+     * Called for every "resources allocated" event.
+     *
+     * @param disasterId the id of the disaster the resources were allocated to
+     * @param allocations the allocated line items
+     */
+    void onResourcesAllocated(long disasterId, List<AllocationRequest> allocations);
+
+    /**
+     * Called for every "resource assigned" event. Does nothing by default.
+     *
+     * @param disasterId the id of the disaster the units were assigned to
+     * @param resourceId the id of the resource the units belong to
+     * @param quantity the number of units
+     */
+    default void onResourceAssigned(long disasterId, String resourceId, int quantity) {
+    }
+
+    /**
+     * Called for every "resources released" event. Does nothing by default.
+     *
+     * @param disasterId the id of the disaster the resources were released from
+     * @param releases the released line items
+     */
+    default void onResourcesReleased(long disasterId, List<AllocationRequest> releases) {
+    }
+
+    /**
+     * Called for every "allocation leased" event. Does nothing by default.
+     *
+     * @param leaseId the id of the lease
+     * @param disasterId the id of the disaster holding the units
+     * @param expiresAtMillis when the units are due back, in milliseconds since the epoch
+     * @param units the number of units of each resource, by resource id
+     */
+    default void onAllocationLeased(long leaseId, long disasterId, long expiresAtMillis, Map<String, Integer> units) {
+    }
+
+    /**
+     * Called for every "lease expired" event. Does nothing by default.
+     *
+     * @param leaseId the id of the lease
+     * @param disasterId the id of the disaster that held the units
+     * @param released the number of units returned to each resource, by resource id
+     */
+    default void onLeaseExpired(long leaseId, long disasterId, Map<String, Integer> released) {
+    }
+
+    /**
+     * Called for every "departments notified" event.
+     *
+     * @param disasterId the id of the disaster the departments were notified about
+     * @param departments the names of the notified departments
+     */
+    void onDepartmentsNotified(long disasterId, List<String> departments);
+
+    /**
+     * Called for every "resource moved" event. Does nothing by default.
+     *
+     * @param resourceId the id of the moved resource
+     * @param position the new position of the resource, or null if it is no longer known
+     */
+    default void onResourceMoved(String resourceId, GeoPoint position) {
+    }
+
+    /**
+     * Called when the log was cleaned and the system reset to its default state.
+     */
+    void onLogCleared();
+}
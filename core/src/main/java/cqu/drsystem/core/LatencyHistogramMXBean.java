@@ -0,0 +1,18 @@
+package cqu.drsystem.core;
+
+/**
+ * The JMX view of a {@link LatencyHistogram}. Percentiles are upper bounds of power-of-two
+ * buckets, so they overstate the true value by less than a factor of two.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,96 @@
+package cqu.drsystem.core;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A {@link ShardTransport} between shards in one process. Calls are handed to a thread pool, as
+ * a network transport would hand them to another process, so callers never run a peer's code on
+ * their own thread. A region can be disconnected to see how the cluster copes with a node that
+ * cannot be reached.
+ */
+public class LoopbackTransport implements ShardTransport {
+
+    private final Map<String, ShardEndpoint> endpoints = new ConcurrentHashMap<>();
+    private final Set<String> disconnected = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "loopback-transport");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public void bind(String region, ShardEndpoint endpoint) {
+        if (endpoints.putIfAbsent(region, endpoint) != null) {
+            throw new IllegalStateException("Region is already bound: " + region);
+        }
+    }
+
+    /**
+     * Makes a region unreachable: calls to it fail until it is reconnected.
+     *
+     * @param region the region
+     */
+    public void disconnect(String region) {
+        disconnected.add(region);
+    }
+
+    /**
+     * Makes a disconnected region reachable again.
+     *
+     * @param region the region
+     */
+    public void reconnect(String region) {
+        disconnected.remove(region);
+    }
+
+    @Override
+    public CompletableFuture<Integer> prepareBorrow(String region, String transactionId, String borrower, String resourceName, int quantity) {
+        return call(region, endpoint -> endpoint.prepareBorrow(transactionId, borrower, resourceName, quantity));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> commitBorrow(String region, String transactionId) {
+        return call(region, endpoint -> endpoint.commitBorrow(transactionId));
+    }
+
+    @Override
+    public CompletableFuture<Void> abortBorrow(String region, String transactionId) {
+        return call(region, endpoint -> {
+            endpoint.abortBorrow(transactionId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> returnLoan(String region, String transactionId) {
+        return call(region, endpoint -> {
+            endpoint.returnLoan(transactionId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> holdsLoan(String region, String transactionId, String lender) {
+        return call(region, endpoint -> endpoint.holdsLoan(transactionId, lender));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> call(String region, Function<ShardEndpoint, T> request) {
+        ShardEndpoint endpoint = endpoints.get(region);
+        if (endpoint == null || disconnected.contains(region)) {
+            return CompletableFuture.failedFuture(new IOException("Region " + region + " is unreachable"));
+        }
+        return CompletableFuture.supplyAsync(() -> request.apply(endpoint), executor);
+    }
+}
@@ -0,0 +1,133 @@
+package cqu.drsystem.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes {@link DispatchMetrics} as JMX MBeans on the platform MBean server and, optionally,
+ * dumps them to a local file at a fixed period. The dump file is replaced atomically, so a
+ * reader never sees a half-written file.
+ */
+public class MetricsReporter implements Closeable {
+
+    /**
+     * The JMX domain of the published MBeans.
+     */
+    public static final String DOMAIN = "cqu.drsystem";
+
+    private static final System.Logger LOGGER = System.getLogger(MetricsReporter.class.getName());
+
+    private final DispatchMetrics metrics;
+    private final Path dumpFile;
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final ScheduledExecutorService dumper;
+
+    /**
+     * Publishes the metrics and starts dumping them.
+     *
+     * @param metrics the metrics to publish
+     * @param dumpFile the file to dump the metrics to, or null to only publish them over JMX
+     * @param period the time between dumps
+     * @param unit the unit of the period
+     * @throws IllegalStateException if the MBeans cannot be registered, such as when another
+     *                               reporter has already published metrics in this JVM
+     */
+    public MetricsReporter(DispatchMetrics metrics, Path dumpFile, long period, TimeUnit unit) {
+        this.metrics = metrics;
+        this.dumpFile = dumpFile;
+        try {
+            register(new ObjectName(DOMAIN, "type", "DispatchMetrics"), metrics);
+            for (DispatchMetrics.Stage stage : DispatchMetrics.Stage.values()) {
+                ObjectName name = ObjectName.getInstance(DOMAIN + ":type=Latency,stage=" + stage.name().toLowerCase(Locale.ROOT));
+                register(name, metrics.getLatency(stage));
+            }
+        } catch (JMException e) {
+            unregisterAll();
+            throw new IllegalStateException("Could not publish the metrics over JMX", e);
+        }
+
+        if (dumpFile == null) {
+            dumper = null;
+        } else {
+            dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleAtFixedRate(this::dumpQuietly, period, period, unit);
+        }
+    }
+
+    /**
+     * Writes the current metrics to the dump file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void dump() throws IOException {
+        if (dumpFile == null) {
+            return;
+        }
+        Path directory = dumpFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "metrics", ".tmp");
+        try {
+            String content = "# " + Instant.now() + "\n" + metrics.format();
+            Files.write(temporary, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, dumpFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Stops dumping, writes a final dump and withdraws the MBeans.
+     */
+    @Override
+    public void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumpQuietly();
+        }
+        unregisterAll();
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not write the metrics to " + dumpFile + ": " + e.getMessage());
+        }
+    }
+
+    private void register(ObjectName name, Object mbean) throws JMException {
+        server.registerMBean(mbean, name);
+        registered.add(name);
+    }
+
+    private void unregisterAll() {
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone; nothing left to withdraw
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,29 @@
+package cqu.drsystem.core;
+
+/**
+ * An item found by a {@link SpatialGrid} query, with its distance from the query point.
+ *
+ * @param <T> the type of indexed item
+ */
+public final class Neighbor<T> {
+    private final T item;
+    private final double distanceKm;
+
+    Neighbor(T item, double distanceKm) {
+        this.item = item;
+        this.distanceKm = distanceKm;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    @Override
+    public String toString() {
+        return item + " at " + String.format("%.2f km", distanceKm);
+    }
+}
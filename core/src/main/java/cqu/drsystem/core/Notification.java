@@ -0,0 +1,54 @@
+package cqu.drsystem.core;
+
+/**
+ * A notification of a disaster to one department, waiting in or delivered by the
+ * {@link NotificationDispatcher}.
+ */
+public final class Notification {
+    private final long disasterId;
+    private final String department;
+    private final Disaster disaster;
+    private final long enqueuedNanos;
+
+    Notification(long disasterId, String department, Disaster disaster, long enqueuedNanos) {
+        this.disasterId = disasterId;
+        this.department = department;
+        this.disaster = disaster;
+        this.enqueuedNanos = enqueuedNanos;
+    }
+
+    public long getDisasterId() {
+        return disasterId;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public Disaster getDisaster() {
+        return disaster;
+    }
+
+    /**
+     * Gets the {@link System#nanoTime()} at which the notification was queued.
+     *
+     * @return the queueing time in nanoseconds
+     */
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    /**
+     * Formats the notification as one line of text, as written by the file and socket sinks.
+     *
+     * @return the notification line
+     */
+    public String toLine() {
+        return department + "\t" + disasterId + "\t" + disaster;
+    }
+
+    @Override
+    public String toString() {
+        return "Notification [Department=" + department + ", Disaster=" + disasterId + "]";
+    }
+}
@@ -0,0 +1,278 @@
+package cqu.drsystem.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers department notifications asynchronously, so reporting a disaster never waits for a
+ * department. Every department has its own bounded queue; a small pool of worker threads
+ * drains the queues that have work, one worker per department at a time, so each department
+ * receives its notifications in order and a slow or failing department only holds up itself.
+ *
+ * When a queue is full the {@link BackpressurePolicy} decides which notification is lost.
+ * Failed deliveries are retried with the {@link RetryPolicy}'s backoff without occupying a
+ * worker in the meantime.
+ */
+public class NotificationDispatcher implements Closeable {
+
+    private static final System.Logger LOGGER = System.getLogger(NotificationDispatcher.class.getName());
+    private static final int MAX_BATCH = 64;  // Deliveries per turn before yielding to other departments
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final NotificationSink sink;
+    private final int queueCapacity;
+    private final BackpressurePolicy backpressure;
+    private final RetryPolicy retry;
+    private final ScheduledThreadPoolExecutor workers;
+    private final Map<String, DepartmentQueue> queues = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a dispatcher.
+     *
+     * @param sink where notifications are delivered
+     * @param queueCapacity the maximum number of waiting notifications per department
+     * @param backpressure what to do when a department's queue is full
+     * @param retry how failed deliveries are retried
+     * @param workerThreads the number of worker threads
+     */
+    public NotificationDispatcher(NotificationSink sink, int queueCapacity, BackpressurePolicy backpressure,
+                                  RetryPolicy retry, int workerThreads) {
+        if (queueCapacity < 1 || workerThreads < 1) {
+            throw new IllegalArgumentException("Queue capacity and worker threads must be positive");
+        }
+        this.sink = sink;
+        this.queueCapacity = queueCapacity;
+        this.backpressure = backpressure;
+        this.retry = retry;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ScheduledThreadPoolExecutor(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a disaster notification for each of the given departments. Never blocks.
+     *
+     * @param disasterId the id of the disaster
+     * @param disaster the disaster
+     * @param departments the departments to notify
+     * @return the number of notifications accepted
+     */
+    public int submit(long disasterId, Disaster disaster, List<String> departments) {
+        int accepted = 0;
+        long now = System.nanoTime();
+        for (String department : departments) {
+            if (queueFor(department).offer(new Notification(disasterId, department, disaster, now))) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Queues a disaster notification for one department. Never blocks.
+     *
+     * @param disasterId the id of the disaster
+     * @param department the department to notify
+     * @param disaster the disaster
+     * @return true if the notification was accepted, false if it was rejected or the dispatcher is closed
+     */
+    public boolean submit(long disasterId, String department, Disaster disaster) {
+        return queueFor(department).offer(new Notification(disasterId, department, disaster, System.nanoTime()));
+    }
+
+    /**
+     * Gets the current queue depth and delivery statistics of every department that has been notified.
+     *
+     * @return the statistics per department
+     */
+    public Map<String, NotificationStats> getStats() {
+        Map<String, NotificationStats> stats = new LinkedHashMap<>();
+        for (DepartmentQueue queue : queues.values()) {
+            stats.put(queue.department, queue.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the current queue depth and delivery statistics of a department.
+     *
+     * @param department the department
+     * @return the statistics, all zero if the department has never been notified
+     */
+    public NotificationStats getStats(String department) {
+        return queueFor(department).stats();
+    }
+
+    /**
+     * Waits until every queued notification has been delivered or given up.
+     *
+     * @param timeoutMillis the longest time to wait
+     * @return true if the dispatcher is idle, false if the timeout passed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!isIdle()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private boolean isIdle() {
+        for (DepartmentQueue queue : queues.values()) {
+            if (queue.scheduled.get() || !queue.queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting notifications, gives the queued ones a few seconds to be delivered,
+     * then stops the workers and closes the sink.
+     *
+     * @throws IOException if the sink cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            awaitIdle(CLOSE_TIMEOUT_MILLIS);
+            workers.shutdownNow();
+            workers.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+
+    private DepartmentQueue queueFor(String department) {
+        DepartmentQueue queue = queues.get(department);
+        return queue != null ? queue : queues.computeIfAbsent(department, DepartmentQueue::new);
+    }
+
+    /**
+     * One department's queue. At most one worker drains it at a time, which the
+     * {@code scheduled} flag guarantees; that worker alone touches the in-flight notification
+     * and the delivery counters.
+     */
+    private final class DepartmentQueue implements Runnable {
+        final String department;
+        final ArrayBlockingQueue<Notification> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final LongAdder dropped = new LongAdder();
+        volatile Notification inFlight;
+        int failedAttempts;
+        volatile long delivered;
+        volatile long failed;
+        volatile long retries;
+        volatile long totalLatencyNanos;
+        volatile long maxLatencyNanos;
+
+        DepartmentQueue(String department) {
+            this.department = department;
+        }
+
+        boolean offer(Notification notification) {
+            if (closed) {
+                dropped.increment();
+                return false;
+            }
+            if (!queue.offer(notification)) {
+                if (backpressure == BackpressurePolicy.REJECT) {
+                    dropped.increment();
+                    return false;
+                }
+                do {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                } while (!queue.offer(notification));
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                execute(0);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            for (int delivery = 0; delivery < MAX_BATCH; delivery++) {
+                Notification notification = inFlight;
+                if (notification == null) {
+                    notification = queue.poll();
+                    if (notification == null) {
+                        break;
+                    }
+                    inFlight = notification;
+                }
+                try {
+                    sink.deliver(notification);
+                    long latency = System.nanoTime() - notification.getEnqueuedNanos();
+                    delivered++;
+                    totalLatencyNanos += latency;
+                    maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+                    inFlight = null;
+                    failedAttempts = 0;
+                } catch (IOException | RuntimeException e) {
+                    failedAttempts++;
+                    if (failedAttempts < retry.getMaxAttempts() && !closed) {
+                        retries++;
+                        execute(retry.getDelayMillis(failedAttempts));  // Keeps the queue scheduled
+                        return;
+                    }
+                    LOGGER.log(System.Logger.Level.WARNING, "Giving up on " + notification + " after " + failedAttempts
+                            + " attempts: " + e.getMessage());
+                    failed++;
+                    inFlight = null;
+                    failedAttempts = 0;
+                }
+            }
+            if (!queue.isEmpty()) {
+                execute(0);  // Batch used up: let other departments have the worker
+                return;
+            }
+            scheduled.set(false);
+            // A notification may have arrived after the last poll but before the flag was cleared
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                execute(0);
+            }
+        }
+
+        private void execute(long delayMillis) {
+            try {
+                if (delayMillis == 0) {
+                    workers.execute(this);
+                } else {
+                    workers.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);  // Shutting down: whatever is left stays undelivered
+            }
+        }
+
+        NotificationStats stats() {
+            return new NotificationStats(department, queue.size() + (inFlight != null ? 1 : 0), delivered,
+                    dropped.sum(), failed, retries, totalLatencyNanos, maxLatencyNanos);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package cqu.drsystem.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Delivers department notifications somewhere outside the system. Each department's
+ * notifications are delivered one at a time and in order, but different departments may
+ * be delivered concurrently, so implementations must be thread-safe.
+ */
+public interface NotificationSink extends Closeable {
+
+    /**
+     * Delivers a notification.
+     *
+     * @param notification the notification to deliver
+     * @throws IOException if delivery failed; the dispatcher retries it according to its policy
+     */
+    void deliver(Notification notification) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
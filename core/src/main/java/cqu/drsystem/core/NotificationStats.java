@@ -0,0 +1,86 @@
+package cqu.drsystem.core;
+
+/**
+ * A point-in-time view of one department's notification queue in the {@link NotificationDispatcher}.
+ */
+public final class NotificationStats {
+    private final String department;
+    private final int queueDepth;
+    private final long delivered;
+    private final long dropped;
+    private final long failed;
+    private final long retries;
+    private final long totalLatencyNanos;
+    private final long maxLatencyNanos;
+
+    NotificationStats(String department, int queueDepth, long delivered, long dropped, long failed, long retries,
+                      long totalLatencyNanos, long maxLatencyNanos) {
+        this.department = department;
+        this.queueDepth = queueDepth;
+        this.delivered = delivered;
+        this.dropped = dropped;
+        this.failed = failed;
+        this.retries = retries;
+        this.totalLatencyNanos = totalLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    /**
+     * Gets the number of notifications waiting to be delivered, including one being retried.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * Gets the number of notifications lost to backpressure.
+     *
+     * @return the number of rejected or dropped notifications
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Gets the number of notifications given up after the last retry.
+     *
+     * @return the number of failed notifications
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Gets the mean time from queueing to successful delivery.
+     *
+     * @return the mean delivery latency in nanoseconds, 0 if nothing was delivered
+     */
+    public long getMeanLatencyNanos() {
+        return delivered == 0 ? 0 : totalLatencyNanos / delivered;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return department + ": queued=" + queueDepth + ", delivered=" + delivered + ", dropped=" + dropped
+                + ", failed=" + failed + ", retries=" + retries
+                + ", meanLatency=" + getMeanLatencyNanos() / 1000 + "us, maxLatency=" + maxLatencyNanos / 1000 + "us";
+    }
+}
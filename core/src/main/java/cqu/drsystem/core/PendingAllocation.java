@@ -0,0 +1,126 @@
+package cqu.drsystem.core;
+
+import java.util.List;
+
+/**
+ * A line item waiting in, or granted by, an {@link AllocationScheduler}.
+ */
+public final class PendingAllocation {
+
+    /**
+     * The states of a pending allocation.
+     */
+    public enum State {
+        WAITING, GRANTED, RELEASED, CANCELLED
+    }
+
+    private final long sequence;
+    private final long disasterId;
+    private final Disaster disaster;
+    private final AllocationRequest request;
+    private final long weight;
+    private final long enqueuedNanos;
+    private final long priorityKey;  // Lower is served first
+
+    // Guarded by the scheduler's lock
+    private volatile State state = State.WAITING;
+    private volatile Resource resource;
+    private long grantedNanos;
+    private List<PendingAllocation> group;  // The line items granted together with this one, or null
+
+    PendingAllocation(long sequence, long disasterId, Disaster disaster, AllocationRequest request,
+                      long weight, long enqueuedNanos, long agingQuantumNanos) {
+        this.sequence = sequence;
+        this.disasterId = disasterId;
+        this.disaster = disaster;
+        this.request = request;
+        this.weight = weight;
+        this.enqueuedNanos = enqueuedNanos;
+        this.priorityKey = enqueuedNanos - weight * agingQuantumNanos;
+    }
+
+    /**
+     * Gets the id of the disaster the units are for.
+     *
+     * @return the disaster id given when the allocation was submitted
+     */
+    public long getDisasterId() {
+        return disasterId;
+    }
+
+    public Disaster getDisaster() {
+        return disaster;
+    }
+
+    public AllocationRequest getRequest() {
+        return request;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the resource holding the granted units.
+     *
+     * @return the resource, or null unless the allocation is granted
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Gets the time the allocation was submitted, from {@link System#nanoTime()}. A preempted
+     * allocation keeps its original time, so it does not lose its place for having been served.
+     *
+     * @return the submission time in nanoseconds
+     */
+    public long getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getWeight() {
+        return weight;
+    }
+
+    long getPriorityKey() {
+        return priorityKey;
+    }
+
+    long getGrantedNanos() {
+        return grantedNanos;
+    }
+
+    List<PendingAllocation> getGroup() {
+        return group;
+    }
+
+    void setGroup(List<PendingAllocation> group) {
+        this.group = group;
+    }
+
+    void grant(Resource resource, long nowNanos) {
+        this.resource = resource;
+        this.grantedNanos = nowNanos;
+        this.state = State.GRANTED;
+    }
+
+    void requeue() {
+        this.resource = null;
+        this.state = State.WAITING;
+    }
+
+    void finish(State state) {
+        this.resource = null;
+        this.state = state;
+    }
+
+    @Override
+    public String toString() {
+        return request + " for " + disaster.getType() + " at " + disaster.getLocation() + " (" + state + ")";
+    }
+}
@@ -0,0 +1,212 @@
+package cqu.drsystem.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Resource class represents a resource that can be allocated during disaster response.
+ * It contains information such as resource name, type, status, available quantity, and allocated quantity.
+ * Which disasters the allocated units went to is kept by the {@link AllocationLedger}.
+ * Quantities are atomic, so units can be reserved and released from several threads without a lock.
+ */
+public class Resource {
+    private String id;
+    private String name;
+    private String type;
+    private volatile ResourceStatus status;
+    private final AtomicInteger availableQuantity;  // Available quantity of the resource
+    private final AtomicInteger allocatedQuantity;  // Quantity allocated to all disasters together
+    private volatile GeoPoint position;  // Where the resource is, if known
+
+    /**
+     * Constructs a new Resource with the specified details.
+     *
+     * @param id the unique identifier of the resource
+     * @param name the name of the resource
+     * @param type the type of resource (e.g., Vehicle, Personnel)
+     * @param status the current status of the resource (e.g., available, unavailable)
+     * @param availableQuantity the number of available resources
+     * @throws IllegalArgumentException if the status is not a known status
+     */
+    public Resource(String id, String name, String type, String status, int availableQuantity) {
+        this(id, name, type, ResourceStatus.parse(status), availableQuantity);
+    }
+
+    /**
+     * Constructs a new Resource with the specified details.
+     *
+     * @param id the unique identifier of the resource
+     * @param name the name of the resource
+     * @param type the type of resource (e.g., Vehicle, Personnel)
+     * @param status the current status of the resource
+     * @param availableQuantity the number of available resources
+     */
+    public Resource(String id, String name, String type, ResourceStatus status, int availableQuantity) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.status = status;
+        this.availableQuantity = new AtomicInteger(availableQuantity);
+        this.allocatedQuantity = new AtomicInteger(0);  // Initial allocated quantity is set to 0
+    }
+
+    /**
+     * Gets the unique identifier of the resource.
+     *
+     * @return the identifier of the resource
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the name of the resource.
+     *
+     * @return the name of the resource
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the type of the resource.
+     *
+     * @return the type of the resource (e.g., Vehicle, Personnel)
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the current status of the resource.
+     *
+     * @return the status of the resource
+     */
+    public ResourceStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status of the resource. Use {@link ResourceManagement#updateResourceStatus} for a
+     * managed resource, so the transition is checked and its status index follows.
+     *
+     * @param status the new status of the resource
+     */
+    void setStatus(ResourceStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the available quantity of the resource.
+     *
+     * @return the available quantity
+     */
+    public int getAvailableQuantity() {
+        return availableQuantity.get();
+    }
+
+    /**
+     * Sets the available quantity of the resource.
+     *
+     * @param availableQuantity the new available quantity
+     */
+    public void setAvailableQuantity(int availableQuantity) {
+        this.availableQuantity.set(availableQuantity);
+    }
+
+    /**
+     * Gets the quantity of the resource that has been allocated to disasters, all together.
+     *
+     * @return the allocated quantity
+     */
+    public int getAllocatedQuantity() {
+        return allocatedQuantity.get();
+    }
+
+    /**
+     * Sets the quantity of the resource that has been allocated to disasters, all together,
+     * such as when restoring a snapshot. The share of each disaster is kept by the ledger.
+     *
+     * @param allocatedQuantity the new allocated quantity
+     */
+    public void setAllocatedQuantity(int allocatedQuantity) {
+        this.allocatedQuantity.set(allocatedQuantity);
+    }
+
+    /**
+     * Atomically reserves the given number of units. The reservation either takes
+     * all requested units or none of them, so concurrent callers can never
+     * oversubscribe the resource.
+     *
+     * @param quantity the number of units to reserve (must be positive)
+     * @return true if the units were reserved, false if not enough were available
+     */
+    public boolean tryReserve(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        while (true) {
+            int current = availableQuantity.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (availableQuantity.compareAndSet(current, current - quantity)) {
+                allocatedQuantity.addAndGet(quantity);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns previously reserved units to the available pool.
+     *
+     * @param quantity the number of units to release (must be positive and no more than are allocated)
+     * @throws IllegalArgumentException if the quantity is not positive or more units would be
+     *         released than are allocated, such as when the same units are released twice
+     */
+    public void release(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + quantity);
+        }
+        while (true) {
+            int current = allocatedQuantity.get();
+            if (current < quantity) {
+                throw new IllegalArgumentException("Cannot release " + quantity + " units of " + name
+                        + ", only " + current + " are allocated");
+            }
+            if (allocatedQuantity.compareAndSet(current, current - quantity)) {
+                availableQuantity.addAndGet(quantity);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the current position of the resource.
+     *
+     * @return the position, or null if unknown
+     */
+    public GeoPoint getPosition() {
+        return position;
+    }
+
+    /**
+     * Sets the position of the resource. Use {@link ResourceManagement#moveResource} for a
+     * managed resource, so its spatial index follows.
+     *
+     * @param position the new position, or null if unknown
+     */
+    void setPosition(GeoPoint position) {
+        this.position = position;
+    }
+
+    /**
+     * Returns a string representation of the resource, showing its name, type,
+     * allocated quantity, and available quantity.
+     *
+     * @return a string describing the resource
+     */
+    @Override
+    public String toString() {
+        return name + " (" + type + ") - Allocated: " + allocatedQuantity + " - Available: " + availableQuantity;
+    }
+}
@@ -0,0 +1,361 @@
+package cqu.drsystem.core;
+
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Manages resources in the Disaster Response System.
+ * Resources are kept in hash indexes by name, type and status (case-normalized),
+ * so lookups do not have to scan the whole inventory.
+ * Positioned resources are also kept in a {@link SpatialGrid}, which answers "nearest
+ * available unit" queries without a scan.
+ * Lookups, quantity reservations and moves may run concurrently; adding resources, changing
+ * their status or clearing the inventory must not overlap with other calls.
+ * Allocations are logged at DEBUG level, so they cost nothing unless that level is enabled.
+ */
+public class ResourceManagement {
+
+    private static final System.Logger LOGGER = System.getLogger(ResourceManagement.class.getName());
+    private static final double GRID_CELL_DEGREES = 0.1;  // About 11 km north to south
+
+    private final List<Resource> resources = new ArrayList<>();
+    private final List<Resource> resourcesView = Collections.unmodifiableList(resources);
+
+    // Case-normalized indexes, kept in insertion order so lookups return the first match
+    private final Map<String, Set<Resource>> nameIndex = new HashMap<>();
+    private final Map<String, Set<Resource>> typeIndex = new HashMap<>();
+    private final Map<ResourceStatus, Set<Resource>> statusIndex = new EnumMap<>(ResourceStatus.class);
+    private final Map<String, Set<Resource>> availableByName = new HashMap<>();
+    private final Map<String, Set<Resource>> availableByType = new HashMap<>();
+    private final Map<String, Resource> idIndex = new HashMap<>();
+    private final SpatialGrid<Resource> locations = new SpatialGrid<>(GRID_CELL_DEGREES);
+
+    /**
+     * Adds a new resource to the system.
+     *
+     * @param resource The resource to add
+     */
+    public void addResource(Resource resource) {
+        resources.add(resource);
+        idIndex.put(resource.getId(), resource);
+        if (resource.getPosition() != null) {
+            locations.put(resource, resource.getPosition());
+        }
+        addToIndex(nameIndex, resource.getName(), resource);
+        addToIndex(typeIndex, resource.getType(), resource);
+        statusIndex.computeIfAbsent(resource.getStatus(), s -> new LinkedHashSet<>()).add(resource);
+        if (isAvailable(resource.getStatus())) {
+            addToIndex(availableByName, resource.getName(), resource);
+            addToIndex(availableByType, resource.getType(), resource);
+        }
+    }
+
+    /**
+     * Retrieves a resource by its name.
+     *
+     * @param name The name of the resource
+     * @return The resource if available, or null if not found
+     */
+    public Resource getResourceByName(String name) {
+        Set<Resource> matches = availableByName.get(normalize(name));
+        if (matches == null || matches.isEmpty()) {
+            return null;  // If no available resource is found
+        }
+        return matches.iterator().next();
+    }
+
+    /**
+     * Retrieves a resource by its identifier.
+     *
+     * @param id The identifier of the resource
+     * @return The resource, or null if not found
+     */
+    public Resource getResourceById(String id) {
+        return idIndex.get(id);
+    }
+
+    /**
+     * Moves a resource and updates the spatial index.
+     *
+     * @param resource The resource to move
+     * @param position The new position, or null if it is no longer known
+     */
+    public void moveResource(Resource resource, GeoPoint position) {
+        resource.setPosition(position);
+        if (position == null) {
+            locations.remove(resource);
+        } else {
+            locations.put(resource, position);
+        }
+    }
+
+    /**
+     * Finds the available resources nearest to a point.
+     *
+     * @param point The point, such as the position of a disaster
+     * @param k The maximum number of resources to find
+     * @return Up to k positioned resources with units available, nearest first
+     */
+    public List<Neighbor<Resource>> getNearestAvailableResources(GeoPoint point, int k) {
+        return locations.nearest(point, k, resource -> isAvailable(resource.getStatus()) && resource.getAvailableQuantity() > 0);
+    }
+
+    /**
+     * Finds the available resources with a given name nearest to a point.
+     *
+     * @param point The point, such as the position of a disaster
+     * @param k The maximum number of resources to find
+     * @param name The name of the resources, such as "Ambulance"
+     * @return Up to k positioned resources with units available, nearest first
+     */
+    public List<Neighbor<Resource>> getNearestAvailableResources(GeoPoint point, int k, String name) {
+        return locations.nearest(point, k, resource -> resource.getName().equalsIgnoreCase(name)
+                && isAvailable(resource.getStatus()) && resource.getAvailableQuantity() > 0);
+    }
+
+    /**
+     * Finds every positioned resource within a distance of a point, whatever its status.
+     *
+     * @param point The point
+     * @param radiusKm The distance in kilometres
+     * @return The resources within the distance, nearest first
+     */
+    public List<Neighbor<Resource>> getResourcesWithinRadius(GeoPoint point, double radiusKm) {
+        return locations.withinRadius(point, radiusKm);
+    }
+
+    /**
+     * Retrieves every resource with the given name, whatever its status.
+     *
+     * @param name The name of the resource
+     * @return An unmodifiable view of the matching resources
+     */
+    public Set<Resource> getResourcesByName(String name) {
+        return lookup(nameIndex, name);
+    }
+
+    /**
+     * Retrieves every resource of the given type, whatever its status.
+     *
+     * @param type The type of the resource (e.g., Vehicle, Personnel)
+     * @return An unmodifiable view of the matching resources
+     */
+    public Set<Resource> getResourcesByType(String type) {
+        return lookup(typeIndex, type);
+    }
+
+    /**
+     * Retrieves every resource currently in the given status.
+     *
+     * @param status The status to look for
+     * @return An unmodifiable view of the matching resources
+     */
+    public Set<Resource> getResourcesByStatus(ResourceStatus status) {
+        Set<Resource> bucket = statusIndex.get(status);
+        return bucket == null ? Collections.emptySet() : Collections.unmodifiableSet(bucket);
+    }
+
+    /**
+     * Retrieves every available resource of the given type.
+     *
+     * @param type The type of the resource (e.g., Vehicle, Personnel)
+     * @return An unmodifiable view of the available resources of that type
+     */
+    public Set<Resource> getAvailableResourcesByType(String type) {
+        return lookup(availableByType, type);
+    }
+
+    /**
+     * Deploys a whole resource to a disaster, so none of its units can be allocated until it
+     * stands down. Use an {@link AllocationLedger} to record which disaster it went to.
+     *
+     * @param disaster The disaster
+     * @param resource The resource to allocate
+     */
+    public void allocateResource(Disaster disaster, Resource resource) {
+        if (isAvailable(resource.getStatus())) {
+            updateResourceStatus(resource, ResourceStatus.DEPLOYED);
+            if (LOGGER.isLoggable(Level.DEBUG)) {
+                LOGGER.log(Level.DEBUG, "Resource allocated: " + resource.getName() + " to disaster " + disaster.getType());
+            }
+        } else if (LOGGER.isLoggable(Level.DEBUG)) {
+            LOGGER.log(Level.DEBUG, "Resource " + resource.getName() + " is not available.");
+        }
+    }
+
+    /**
+     * Allocates a quantity of a resource to a disaster. The units are reserved
+     * atomically, so the allocation either fully succeeds or leaves the resource
+     * untouched, even when several threads allocate the same resource at once.
+     *
+     * @param disaster The disaster
+     * @param resource The resource to allocate
+     * @param quantity The number of units to allocate
+     * @return true if the units were reserved, false if the resource is unavailable or short
+     */
+    public boolean allocateResource(Disaster disaster, Resource resource, int quantity) {
+        if (isAvailable(resource.getStatus()) && resource.tryReserve(quantity)) {
+            if (LOGGER.isLoggable(Level.DEBUG)) {
+                LOGGER.log(Level.DEBUG, "Resource allocated: " + quantity + " x " + resource.getName() + " to disaster " + disaster.getType());
+            }
+            return true;
+        }
+        if (LOGGER.isLoggable(Level.DEBUG)) {
+            LOGGER.log(Level.DEBUG, "Resource " + resource.getName() + " is not available in quantity " + quantity + ".");
+        }
+        return false;
+    }
+
+    /**
+     * Allocates every line item of a disaster report, or none of them. If any
+     * item cannot be reserved, the items already reserved for the report are
+     * released again before returning.
+     *
+     * @param disaster The disaster
+     * @param requests The line items of the report
+     * @return The outcome of the allocation
+     */
+    public AllocationResult allocateBatch(Disaster disaster, List<AllocationRequest> requests) {
+        Map<Disaster, List<AllocationRequest>> reports = new LinkedHashMap<>();
+        reports.put(disaster, requests);
+        return allocateBatch(reports).get(0);
+    }
+
+    /**
+     * Allocates many disaster reports in one pass. Each report is all-or-nothing
+     * on its own; resource names are resolved once for the whole batch.
+     *
+     * @param reports The line items of each report, in dispatch order
+     * @return One outcome per report, in the same order
+     */
+    public List<AllocationResult> allocateBatch(Map<Disaster, List<AllocationRequest>> reports) {
+        Map<String, Resource> resolved = new HashMap<>();
+        List<AllocationResult> results = new ArrayList<>(reports.size());
+        int allocatedReports = 0;
+
+        for (Map.Entry<Disaster, List<AllocationRequest>> report : reports.entrySet()) {
+            List<AllocationRequest> requests = report.getValue();
+            List<Resource> reserved = new ArrayList<>(requests.size());
+            AllocationRequest failed = null;
+
+            for (AllocationRequest request : requests) {
+                Resource resource = resolved.computeIfAbsent(normalize(request.getResourceName()), this::getResourceByName);
+                if (resource == null || !isAvailable(resource.getStatus()) || !resource.tryReserve(request.getQuantity())) {
+                    failed = request;
+                    break;
+                }
+                reserved.add(resource);
+            }
+
+            if (failed != null) {
+                // Roll back the items already reserved for this report
+                for (int i = 0; i < reserved.size(); i++) {
+                    reserved.get(i).release(requests.get(i).getQuantity());
+                }
+                reserved.clear();
+            } else {
+                allocatedReports++;
+            }
+            results.add(new AllocationResult(report.getKey(), reserved, failed));
+        }
+
+        if (LOGGER.isLoggable(Level.DEBUG)) {
+            LOGGER.log(Level.DEBUG, "Batch allocation: " + allocatedReports + " of " + reports.size() + " reports allocated.");
+        }
+        return results;
+    }
+
+    /**
+     * Updates the status of a resource and moves it between the status indexes.
+     *
+     * @param resource The resource to update
+     * @param status The new status of the resource
+     * @throws IllegalStateException if the resource cannot move from its status to the new one
+     */
+    public void updateResourceStatus(Resource resource, ResourceStatus status) {
+        ResourceStatus oldStatus = resource.getStatus();
+        if (!oldStatus.canTransitionTo(status)) {
+            throw new IllegalStateException("Resource " + resource.getName() + " cannot go from " + oldStatus + " to " + status);
+        }
+        resource.setStatus(status);
+
+        Set<Resource> oldBucket = statusIndex.get(oldStatus);
+        if (oldBucket != null) {
+            oldBucket.remove(resource);
+            if (oldBucket.isEmpty()) {
+                statusIndex.remove(oldStatus);
+            }
+        }
+        statusIndex.computeIfAbsent(status, s -> new LinkedHashSet<>()).add(resource);
+
+        boolean wasAvailable = isAvailable(oldStatus);
+        boolean nowAvailable = isAvailable(status);
+        if (wasAvailable && !nowAvailable) {
+            removeFromIndex(availableByName, resource.getName(), resource);
+            removeFromIndex(availableByType, resource.getType(), resource);
+        } else if (!wasAvailable && nowAvailable) {
+            addToIndex(availableByName, resource.getName(), resource);
+            addToIndex(availableByType, resource.getType(), resource);
+        }
+    }
+
+    /**
+     * Removes every resource from the system.
+     */
+    public void clear() {
+        resources.clear();
+        nameIndex.clear();
+        typeIndex.clear();
+        statusIndex.clear();
+        availableByName.clear();
+        availableByType.clear();
+        idIndex.clear();
+        locations.clear();
+    }
+
+    /**
+     * Lists all resources in the system.
+     *
+     * @return An unmodifiable view of all resources, in the order they were added
+     */
+    public List<Resource> getResources() {
+        return resourcesView;
+    }
+
+    static boolean isAvailable(ResourceStatus status) {
+        return status.isAllocatable();
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.toLowerCase(Locale.ROOT);
+    }
+
+    private static void addToIndex(Map<String, Set<Resource>> index, String key, Resource resource) {
+        index.computeIfAbsent(normalize(key), k -> new LinkedHashSet<>()).add(resource);
+    }
+
+    private static void removeFromIndex(Map<String, Set<Resource>> index, String key, Resource resource) {
+        String normalized = normalize(key);
+        Set<Resource> bucket = index.get(normalized);
+        if (bucket != null) {
+            bucket.remove(resource);
+            if (bucket.isEmpty()) {
+                index.remove(normalized);
+            }
+        }
+    }
+
+    private static Set<Resource> lookup(Map<String, Set<Resource>> index, String key) {
+        Set<Resource> bucket = index.get(normalize(key));
+        return bucket == null ? Collections.emptySet() : Collections.unmodifiableSet(bucket);
+    }
+}
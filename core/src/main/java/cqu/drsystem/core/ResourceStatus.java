@@ -0,0 +1,91 @@
+package cqu.drsystem.core;
+
+import java.util.Locale;
+
+/**
+ * The status of a resource. Only an available resource hands out units; how many units are
+ * committed to which disaster is kept by the {@link AllocationLedger}, not by the status.
+ * <p>
+ * Statuses form a small state machine: an available resource can be deployed as a whole or taken
+ * out of service, a deployed resource stands down to available, and any resource can be taken out
+ * of service and later returned to available. Other transitions are rejected.
+ */
+public enum ResourceStatus {
+
+    /** Units can be allocated. */
+    AVAILABLE("available"),
+
+    /** The resource as a whole is committed to a disaster, so no units can be allocated. */
+    DEPLOYED("deployed"),
+
+    /** The resource is not usable, such as while under repair. */
+    OUT_OF_SERVICE("out of service");
+
+    private final String label;
+
+    ResourceStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Tells whether units of a resource in this status can be allocated.
+     *
+     * @return true if the status is {@link #AVAILABLE}
+     */
+    public boolean isAllocatable() {
+        return this == AVAILABLE;
+    }
+
+    /**
+     * Tells whether a resource may move from this status to another.
+     *
+     * @param next the status to move to
+     * @return true if the transition is allowed
+     */
+    public boolean canTransitionTo(ResourceStatus next) {
+        switch (this) {
+            case AVAILABLE:
+                return next != AVAILABLE;
+            case DEPLOYED:
+                return next != DEPLOYED;
+            case OUT_OF_SERVICE:
+                return next == AVAILABLE;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Parses a status. Besides the labels of the statuses, this accepts the free-text statuses
+     * earlier versions stored: "allocated to ..." is deployed and "unavailable" is out of service.
+     *
+     * @param text the status text, in any case
+     * @return the status
+     * @throws IllegalArgumentException if the text is not a known status
+     */
+    public static ResourceStatus parse(String text) {
+        String normalized = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        for (ResourceStatus status : values()) {
+            if (status.label.equals(normalized) || status.name().toLowerCase(Locale.ROOT).equals(normalized)) {
+                return status;
+            }
+        }
+        if (normalized.startsWith("allocated")) {
+            return DEPLOYED;
+        }
+        if (normalized.equals("unavailable")) {
+            return OUT_OF_SERVICE;
+        }
+        throw new IllegalArgumentException("Unknown resource status: " + text);
+    }
+
+    /**
+     * Returns the label of the status, such as "available".
+     *
+     * @return the label
+     */
+    @Override
+    public String toString() {
+        return label;
+    }
+}
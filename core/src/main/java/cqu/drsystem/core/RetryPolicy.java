@@ -0,0 +1,51 @@
+package cqu.drsystem.core;
+
+/**
+ * How often and how fast the {@link NotificationDispatcher} retries a failed delivery. The
+ * delay doubles after every failed attempt, up to a maximum.
+ */
+public final class RetryPolicy {
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * Constructs a retry policy with exponential backoff.
+     *
+     * @param maxAttempts the number of delivery attempts before a notification is given up
+     * @param initialDelayMillis the delay before the first retry
+     * @param maxDelayMillis the longest delay between retries
+     */
+    public RetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1 || initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Gets a policy that tries every delivery exactly once.
+     *
+     * @return the policy
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy(1, 0, 0);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the delay before the next attempt.
+     *
+     * @param failedAttempts the number of attempts that have failed so far, at least 1
+     * @return the delay in milliseconds
+     */
+    public long getDelayMillis(int failedAttempts) {
+        long delay = initialDelayMillis << Math.min(failedAttempts - 1, 30);
+        return delay < 0 || delay > maxDelayMillis ? maxDelayMillis : delay;
+    }
+}
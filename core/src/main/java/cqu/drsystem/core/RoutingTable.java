@@ -0,0 +1,181 @@
+package cqu.drsystem.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, compiled set of department routing rules. Departments, disaster types and
+ * regions are given dense ids, and the route of every (type, region) combination is computed
+ * up front, so resolving a disaster is two hash lookups and an array access.
+ *
+ * Type and region id 0 stand for "no specific rule": unknown types use the {@code *} rule,
+ * and locations that are not a configured region only get their type's departments.
+ */
+final class RoutingTable {
+
+    private static final String ANY = "*";
+    private static final String DEPARTMENTS = "departments";
+
+    private final List<String> departments;
+    private final Map<String, Integer> typeIds;
+    private final Map<String, Integer> regionIds;
+    private final int regionCount;
+    private final DepartmentRoute[] routes;
+
+    private RoutingTable(List<String> departments, Map<String, Integer> typeIds, Map<String, Integer> regionIds,
+                         int regionCount, DepartmentRoute[] routes) {
+        this.departments = departments;
+        this.typeIds = typeIds;
+        this.regionIds = regionIds;
+        this.regionCount = regionCount;
+        this.routes = routes;
+    }
+
+    List<String> getDepartments() {
+        return departments;
+    }
+
+    DepartmentRoute resolve(String type, String region) {
+        return routes[idOf(typeIds, type) * regionCount + idOf(regionIds, region)];
+    }
+
+    /**
+     * Looks up a dense id. Keys are stored both as written in the rules and lower-cased,
+     * so the common case of an exact spelling does not allocate.
+     */
+    private static int idOf(Map<String, Integer> ids, String key) {
+        if (key == null) {
+            return 0;
+        }
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.get(key.trim().toLowerCase(Locale.ROOT));
+        }
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Parses and compiles routing rules.
+     *
+     * @param source the rules, in the format described in the default {@code routing.conf}
+     * @return the compiled table
+     * @throws IOException if the rules cannot be read or are malformed
+     */
+    static RoutingTable parse(Reader source) throws IOException {
+        // Rules keyed by lower-cased type, then lower-cased region ("" for the base rule)
+        Map<String, Map<String, List<String>>> rules = new LinkedHashMap<>();
+        Map<String, Integer> departmentIds = new LinkedHashMap<>();
+        Map<String, Integer> typeIds = new HashMap<>();
+        Map<String, Integer> regionIds = new HashMap<>();
+        List<String> typeKeys = new ArrayList<>();
+        List<String> regionKeys = new ArrayList<>();
+        typeKeys.add(ANY);
+        regionKeys.add("");
+
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw new IOException("Line " + lineNumber + ": expected '<type>[@<region>] = <departments>'");
+            }
+            String selector = line.substring(0, equals).trim();
+            String type = selector;
+            String region = "";
+            int at = selector.indexOf('@');
+            if (at >= 0) {
+                type = selector.substring(0, at).trim();
+                region = selector.substring(at + 1).trim();
+            }
+            if (selector.equalsIgnoreCase(DEPARTMENTS)) {
+                // Declares the departments up front, which fixes their order and ids
+                for (String department : line.substring(equals + 1).split(",")) {
+                    if (!department.trim().isEmpty()) {
+                        departmentIds.putIfAbsent(department.trim(), departmentIds.size());
+                    }
+                }
+                continue;
+            }
+            if (type.isEmpty()) {
+                throw new IOException("Line " + lineNumber + ": missing disaster type");
+            }
+
+            List<String> notified = new ArrayList<>();
+            for (String department : line.substring(equals + 1).split(",")) {
+                department = department.trim();
+                if (!department.isEmpty()) {
+                    departmentIds.putIfAbsent(department, departmentIds.size());
+                    notified.add(department);
+                }
+            }
+
+            String typeKey = type.toLowerCase(Locale.ROOT);
+            String regionKey = region.toLowerCase(Locale.ROOT);
+            if (!typeKeys.contains(typeKey)) {
+                typeKeys.add(typeKey);
+                typeIds.put(type, typeKeys.size() - 1);
+                typeIds.put(typeKey, typeKeys.size() - 1);
+            }
+            if (!regionKey.isEmpty() && !regionKeys.contains(regionKey)) {
+                regionKeys.add(regionKey);
+                regionIds.put(region, regionKeys.size() - 1);
+                regionIds.put(regionKey, regionKeys.size() - 1);
+            }
+            rules.computeIfAbsent(typeKey, k -> new HashMap<>()).put(regionKey, notified);
+        }
+
+        if (rules.isEmpty()) {
+            // Also catches a file caught half-written by an editor during a hot reload
+            throw new IOException("No routing rules found");
+        }
+
+        // Precompute the route of every (type, region) cell
+        List<String> departmentNames = new ArrayList<>(departmentIds.keySet());
+        int regionCount = regionKeys.size();
+        DepartmentRoute[] routes = new DepartmentRoute[typeKeys.size() * regionCount];
+        for (int t = 0; t < typeKeys.size(); t++) {
+            Map<String, List<String>> typeRules = rules.getOrDefault(typeKeys.get(t), Collections.emptyMap());
+            Map<String, List<String>> anyRules = rules.getOrDefault(ANY, Collections.emptyMap());
+            for (int r = 0; r < regionCount; r++) {
+                String regionKey = regionKeys.get(r);
+                Set<String> notified = new LinkedHashSet<>();
+                List<String> base = typeRules.get("");
+                notified.addAll(base != null ? base : anyRules.getOrDefault("", Collections.emptyList()));
+                if (!regionKey.isEmpty()) {
+                    notified.addAll(typeRules.getOrDefault(regionKey, Collections.emptyList()));
+                    notified.addAll(anyRules.getOrDefault(regionKey, Collections.emptyList()));
+                }
+                routes[t * regionCount + r] = compileRoute(notified, departmentIds);
+            }
+        }
+        return new RoutingTable(Collections.unmodifiableList(departmentNames), typeIds, regionIds, regionCount, routes);
+    }
+
+    private static DepartmentRoute compileRoute(Set<String> notified, Map<String, Integer> departmentIds) {
+        int[] ids = new int[notified.size()];
+        long[] bits = new long[(departmentIds.size() + 63) >>> 6];
+        int i = 0;
+        for (String department : notified) {
+            int id = departmentIds.get(department);
+            ids[i++] = id;
+            bits[id >>> 6] |= 1L << id;
+        }
+        return new DepartmentRoute(ids, bits, new ArrayList<>(notified));
+    }
+}
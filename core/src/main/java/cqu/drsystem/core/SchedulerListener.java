@@ -0,0 +1,26 @@
+package cqu.drsystem.core;
+
+/**
+ * Receives the decisions of an {@link AllocationScheduler}. Callbacks run on the thread whose
+ * call made the decision, after the scheduler's lock has been released, except for the
+ * scheduler's recorder (see {@link AllocationScheduler#setRecorder}), which runs under it.
+ */
+public interface SchedulerListener {
+
+    /**
+     * Called when a pending allocation has been granted units.
+     *
+     * @param allocation the granted allocation; {@link PendingAllocation#getResource()} holds the units
+     */
+    void onGranted(PendingAllocation allocation);
+
+    /**
+     * Called when a granted allocation lost its units to a more severe disaster and is waiting
+     * again. Does nothing by default.
+     *
+     * @param allocation the preempted allocation
+     * @param resource the resource the units were taken from
+     */
+    default void onPreempted(PendingAllocation allocation, Resource resource) {
+    }
+}
@@ -0,0 +1,38 @@
+package cqu.drsystem.core;
+
+/**
+ * A verified login, identified by an unguessable token. Holding the token lets an operator
+ * act without their password being hashed again until the session expires.
+ */
+public final class Session {
+    private final String token;
+    private final String username;
+    private volatile long expiresAtMillis;
+
+    Session(String token, String username, long expiresAtMillis) {
+        this.token = token;
+        this.username = username;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    void extendTo(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Session [Username=" + username + "]";  // Never print the token
+    }
+}
@@ -0,0 +1,123 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of an all-or-nothing allocation by an {@link InventoryShard}. Units come from the
+ * shard's own inventory where it has them and are borrowed from other regions for the rest.
+ * Give a successful allocation back with {@link InventoryShard#release}.
+ */
+public final class ShardAllocation {
+
+    private final String region;
+    private final List<Resource> localResources;
+    private final List<Integer> localQuantities;
+    private final List<Loan> loans;
+    private final AllocationRequest failedRequest;
+
+    ShardAllocation(String region, List<Resource> localResources, List<Integer> localQuantities, List<Loan> loans,
+                    AllocationRequest failedRequest) {
+        this.region = region;
+        this.localResources = Collections.unmodifiableList(localResources);
+        this.localQuantities = Collections.unmodifiableList(localQuantities);
+        this.loans = Collections.unmodifiableList(loans);
+        this.failedRequest = failedRequest;
+    }
+
+    /**
+     * Gets the region that made the allocation.
+     *
+     * @return the region
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Checks whether every line item was filled.
+     *
+     * @return true if the allocation succeeded
+     */
+    public boolean isSuccessful() {
+        return failedRequest == null;
+    }
+
+    /**
+     * Checks whether the allocation was filled without borrowing.
+     *
+     * @return true if every unit came from the shard's own inventory
+     */
+    public boolean isLocal() {
+        return loans.isEmpty();
+    }
+
+    /**
+     * Gets the shard's own resources the units were taken from.
+     *
+     * @return the resources, each with its quantity at the same index of {@link #getLocalQuantities()}
+     */
+    public List<Resource> getLocalResources() {
+        return localResources;
+    }
+
+    public List<Integer> getLocalQuantities() {
+        return localQuantities;
+    }
+
+    /**
+     * Gets the units borrowed from other regions.
+     *
+     * @return the loans, empty for a local or failed allocation
+     */
+    public List<Loan> getLoans() {
+        return loans;
+    }
+
+    /**
+     * Gets the first line item that could not be filled.
+     *
+     * @return the failed request, or null if the allocation succeeded
+     */
+    public AllocationRequest getFailedRequest() {
+        return failedRequest;
+    }
+
+    /**
+     * Units of a resource lent by another region.
+     */
+    public static final class Loan {
+        private final String lender;
+        private final String transactionId;
+        private final String resourceName;
+        private final int quantity;
+
+        Loan(String lender, String transactionId, String resourceName, int quantity) {
+            this.lender = lender;
+            this.transactionId = transactionId;
+            this.resourceName = resourceName;
+            this.quantity = quantity;
+        }
+
+        public String getLender() {
+            return lender;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getResourceName() {
+            return resourceName;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public String toString() {
+            return quantity + " x " + resourceName + " from " + lender;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cqu.drsystem.core;
+
+/**
+ * The lending side of the borrow protocol between inventory shards, as served by the shard that
+ * owns a region. A {@link ShardTransport} carries calls from other shards to it.
+ * <p>
+ * Borrowing is two-phase: {@link #prepareBorrow} sets units aside under a transaction id, and the
+ * borrower then either commits the transaction, turning the units into a loan, or aborts it. A
+ * prepared transaction that is neither committed nor aborted in time is aborted by the lender.
+ * A committed loan is never taken back by the lender on its own: it is returned by the borrower,
+ * or taken back once the borrower answers {@link #holdsLoan} with false.
+ * Calls for an unknown or already decided transaction do nothing. Implementations must be
+ * thread-safe.
+ */
+public interface ShardEndpoint {
+
+    /**
+     * Sets aside up to the given number of units for a borrower.
+     *
+     * @param transactionId the id of the borrow, unique per borrower
+     * @param borrower the region asking
+     * @param resourceName the name of the resource, such as "Ambulance"
+     * @param quantity the number of units wanted
+     * @return the number of units set aside, between 0 and the quantity
+     */
+    int prepareBorrow(String transactionId, String borrower, String resourceName, int quantity);
+
+    /**
+     * Lends the units set aside by a prepared borrow.
+     *
+     * @param transactionId the id of the borrow
+     * @return true if the units are now lent, false if the borrow was no longer prepared
+     */
+    boolean commitBorrow(String transactionId);
+
+    /**
+     * Releases the units set aside by a prepared borrow.
+     *
+     * @param transactionId the id of the borrow
+     */
+    void abortBorrow(String transactionId);
+
+    /**
+     * Takes back the units of a committed borrow.
+     *
+     * @param transactionId the id of the borrow
+     */
+    void returnLoan(String transactionId);
+
+    /**
+     * Tells a lender whether the units of a loan are still in use, as the borrower sees it.
+     *
+     * @param transactionId the id of the borrow
+     * @param lender the region that lent the units
+     * @return true if an allocation still holds them, false if they were given back or never received
+     */
+    boolean holdsLoan(String transactionId, String lender);
+}
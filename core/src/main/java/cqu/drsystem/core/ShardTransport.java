@@ -0,0 +1,78 @@
+package cqu.drsystem.core;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries borrow calls between inventory shards, which may live in different processes or on
+ * different nodes. Each shard binds its {@link ShardEndpoint} under its region, and other shards
+ * call it by region. Calls are asynchronous; a region that cannot be reached completes the
+ * future exceptionally, and callers treat that like a region with nothing to lend.
+ * <p>
+ * {@link LoopbackTransport} connects shards within one process, so a cluster can be run and
+ * tested on one machine. Implementations must be thread-safe.
+ */
+public interface ShardTransport extends AutoCloseable {
+
+    /**
+     * Makes a shard reachable under its region.
+     *
+     * @param region the region the shard owns
+     * @param endpoint the shard
+     */
+    void bind(String region, ShardEndpoint endpoint);
+
+    /**
+     * Asks a region to set units aside, as {@link ShardEndpoint#prepareBorrow}.
+     *
+     * @param region the region to borrow from
+     * @param transactionId the id of the borrow
+     * @param borrower the region asking
+     * @param resourceName the name of the resource
+     * @param quantity the number of units wanted
+     * @return the number of units set aside
+     */
+    CompletableFuture<Integer> prepareBorrow(String region, String transactionId, String borrower, String resourceName, int quantity);
+
+    /**
+     * Asks a region to lend the units of a prepared borrow, as {@link ShardEndpoint#commitBorrow}.
+     *
+     * @param region the region to borrow from
+     * @param transactionId the id of the borrow
+     * @return true if the units are lent
+     */
+    CompletableFuture<Boolean> commitBorrow(String region, String transactionId);
+
+    /**
+     * Tells a region to release the units of a prepared borrow, as {@link ShardEndpoint#abortBorrow}.
+     *
+     * @param region the region to borrow from
+     * @param transactionId the id of the borrow
+     * @return completes once the region has released them
+     */
+    CompletableFuture<Void> abortBorrow(String region, String transactionId);
+
+    /**
+     * Gives the units of a loan back to the region that lent them, as {@link ShardEndpoint#returnLoan}.
+     *
+     * @param region the region that lent the units
+     * @param transactionId the id of the borrow
+     * @return completes once the region has taken them back
+     */
+    CompletableFuture<Void> returnLoan(String region, String transactionId);
+
+    /**
+     * Asks the borrower of a loan whether it still holds the units, as {@link ShardEndpoint#holdsLoan}.
+     *
+     * @param region the region that borrowed the units
+     * @param transactionId the id of the borrow
+     * @param lender the region asking, which lent the units
+     * @return true if the borrower still holds them
+     */
+    CompletableFuture<Boolean> holdsLoan(String region, String transactionId, String lender);
+
+    /**
+     * Releases the transport's connections and threads.
+     */
+    @Override
+    void close();
+}
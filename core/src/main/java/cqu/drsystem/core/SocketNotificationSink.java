@@ -0,0 +1,59 @@
+package cqu.drsystem.core;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Delivers notifications as lines of text over a TCP connection, standing in for the
+ * departments' own systems. The connection is opened on first use and reopened after a
+ * failure, so a receiver that restarts is picked up again by the dispatcher's retries.
+ */
+public class SocketNotificationSink implements NotificationSink {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+    private final InetSocketAddress address;
+    private Socket socket;  // Guarded by this
+    private Writer writer;  // Guarded by this
+
+    /**
+     * Constructs a sink that sends to the given address.
+     *
+     * @param host the receiver's host
+     * @param port the receiver's port
+     */
+    public SocketNotificationSink(String host, int port) {
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    @Override
+    public synchronized void deliver(Notification notification) throws IOException {
+        try {
+            if (socket == null) {
+                socket = new Socket();
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            }
+            writer.write(notification.toLine());
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        Socket closing = socket;
+        socket = null;
+        writer = null;
+        if (closing != null) {
+            closing.close();
+        }
+    }
+}
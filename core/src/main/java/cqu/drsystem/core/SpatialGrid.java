@@ -0,0 +1,352 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * A spatial index of items by position, answering nearest-neighbour and radius queries.
+ *
+ * Positions are bucketed into a uniform grid of square cells, measured in degrees. Only
+ * occupied cells are stored, so the grid can span the whole earth. A nearest query searches
+ * rings of cells outwards from the query point and stops as soon as no closer item can be in
+ * the next ring, so its cost depends on how many items are nearby, not on the size of the
+ * index. Items are added, moved and removed one at a time, in constant time.
+ *
+ * Distances are great-circle distances. The grid does not wrap around the antimeridian, so
+ * items just across longitude ±180 from the query point are not found by its nearest queries.
+ *
+ * The grid is thread-safe: queries share a read lock and updates take a write lock.
+ *
+ * @param <T> the type of indexed item, compared by identity
+ */
+public class SpatialGrid<T> {
+
+    private static final double KM_PER_DEGREE = Math.PI * GeoPoint.EARTH_RADIUS_KM / 180;
+
+    private final double cellSize;
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Bounds of the occupied cells, so a search for more items than there are stops
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minColumn = Integer.MAX_VALUE;
+    private int maxColumn = Integer.MIN_VALUE;
+
+    /**
+     * Constructs an empty grid.
+     *
+     * @param cellSizeDegrees the size of a cell, in degrees; roughly the radius of a typical query works well
+     */
+    public SpatialGrid(double cellSizeDegrees) {
+        if (!(cellSizeDegrees > 0 && cellSizeDegrees <= 90)) {
+            throw new IllegalArgumentException("Invalid cell size: " + cellSizeDegrees);
+        }
+        this.cellSize = cellSizeDegrees;
+    }
+
+    /**
+     * Adds an item, or moves it if it is already in the grid.
+     *
+     * @param item the item
+     * @param position the item's position
+     */
+    public void put(T item, GeoPoint position) {
+        int row = row(position.getLatitude());
+        int column = column(position.getLongitude());
+        lock.writeLock().lock();
+        try {
+            Entry<T> entry = entries.get(item);
+            if (entry == null) {
+                entry = new Entry<>(item);
+                entries.put(item, entry);
+            } else if (entry.row == row && entry.column == column) {
+                entry.position = position;  // Moved within its cell
+                return;
+            } else {
+                unlink(entry);
+            }
+            entry.position = position;
+            entry.row = row;
+            entry.column = column;
+            List<Entry<T>> cell = cells.computeIfAbsent(key(row, column), k -> new ArrayList<>(4));
+            entry.slot = cell.size();
+            cell.add(entry);
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an item.
+     *
+     * @param item the item
+     * @return true if the item was in the grid
+     */
+    public boolean remove(T item) {
+        lock.writeLock().lock();
+        try {
+            Entry<T> entry = entries.remove(item);
+            if (entry == null) {
+                return false;
+            }
+            unlink(entry);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the position of an item.
+     *
+     * @param item the item
+     * @return the item's position, or null if it is not in the grid
+     */
+    public GeoPoint positionOf(T item) {
+        lock.readLock().lock();
+        try {
+            Entry<T> entry = entries.get(item);
+            return entry == null ? null : entry.position;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of items in the grid.
+     *
+     * @return the number of items
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every item.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            entries.clear();
+            minRow = minColumn = Integer.MAX_VALUE;
+            maxRow = maxColumn = Integer.MIN_VALUE;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the items nearest to a point.
+     *
+     * @param point the query point
+     * @param k the maximum number of items to find
+     * @return up to k items, nearest first
+     */
+    public List<Neighbor<T>> nearest(GeoPoint point, int k) {
+        return nearest(point, k, null);
+    }
+
+    /**
+     * Finds the items nearest to a point that pass a filter, such as resources that are available.
+     *
+     * @param point the query point
+     * @param k the maximum number of items to find
+     * @param filter the items to consider, or null for all
+     * @return up to k items, nearest first
+     */
+    public List<Neighbor<T>> nearest(GeoPoint point, int k, Predicate<? super T> filter) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        // Max-heap of the best k so far, so the worst of them can be replaced
+        PriorityQueue<Neighbor<T>> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble((Neighbor<T> neighbor) -> neighbor.getDistanceKm()).reversed());
+        double latitude = point.getLatitude();
+        double longitude = point.getLongitude();
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+
+        lock.readLock().lock();
+        try {
+            if (entries.isEmpty()) {
+                return new ArrayList<>();
+            }
+            int maxRing = Math.max(Math.max(centerRow - minRow, maxRow - centerRow),
+                    Math.max(centerColumn - minColumn, maxColumn - centerColumn));
+            for (int ring = 0; ring <= maxRing; ring++) {
+                if (best.size() == k && ring > 0 && ringBoundKm(latitude, ring) > best.peek().getDistanceKm()) {
+                    break;  // Nothing in this ring or beyond can be closer
+                }
+                for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                    boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                    int step = edgeRow ? 1 : 2 * ring;
+                    for (int column = centerColumn - ring; column <= centerColumn + ring; column += Math.max(step, 1)) {
+                        List<Entry<T>> cell = cells.get(key(row, column));
+                        if (cell != null) {
+                            offerAll(cell, latitude, longitude, k, filter, best);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sorted(best);
+    }
+
+    /**
+     * Finds every item within a distance of a point.
+     *
+     * @param point the query point
+     * @param radiusKm the distance in kilometres
+     * @return the items within the distance, nearest first
+     */
+    public List<Neighbor<T>> withinRadius(GeoPoint point, double radiusKm) {
+        return withinRadius(point, radiusKm, null);
+    }
+
+    /**
+     * Finds every item within a distance of a point that passes a filter.
+     *
+     * @param point the query point
+     * @param radiusKm the distance in kilometres
+     * @param filter the items to consider, or null for all
+     * @return the items within the distance, nearest first
+     */
+    public List<Neighbor<T>> withinRadius(GeoPoint point, double radiusKm, Predicate<? super T> filter) {
+        double latitude = point.getLatitude();
+        double longitude = point.getLongitude();
+        double latitudeSpan = radiusKm / KM_PER_DEGREE;
+        double edgeLatitude = Math.min(90, Math.abs(latitude) + latitudeSpan);
+        double cos = Math.cos(Math.toRadians(edgeLatitude));
+        double longitudeSpan = cos <= 1e-9 ? 360 : Math.min(360, latitudeSpan / cos);
+
+        List<Neighbor<T>> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (entries.isEmpty()) {
+                return found;
+            }
+            int firstRow = Math.max(minRow, row(Math.max(-90, latitude - latitudeSpan)));
+            int lastRow = Math.min(maxRow, row(Math.min(90, latitude + latitudeSpan)));
+            int firstColumn = Math.max(minColumn, column(Math.max(-180, longitude - longitudeSpan)));
+            int lastColumn = Math.min(maxColumn, column(Math.min(180, longitude + longitudeSpan)));
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    List<Entry<T>> cell = cells.get(key(row, column));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry<T> entry : cell) {
+                        if (filter != null && !filter.test(entry.item)) {
+                            continue;
+                        }
+                        double distance = GeoPoint.distanceKm(latitude, longitude,
+                                entry.position.getLatitude(), entry.position.getLongitude());
+                        if (distance <= radiusKm) {
+                            found.add(new Neighbor<>(entry.item, distance));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return found;
+    }
+
+    /**
+     * Gets a lower bound on the distance from a point to any item r rings of cells away. Such
+     * an item is at least r - 1 cells away in latitude or in longitude; the longitude case is
+     * the smaller one, and is smallest at the pole-most latitude the ring reaches.
+     */
+    private double ringBoundKm(double latitude, int ring) {
+        double edgeLatitude = Math.min(90, Math.abs(latitude) + (ring + 1) * cellSize);
+        double halfSpan = Math.toRadians(Math.min(180, (ring - 1) * cellSize)) / 2;
+        return 2 * GeoPoint.EARTH_RADIUS_KM * Math.asin(Math.cos(Math.toRadians(edgeLatitude)) * Math.sin(halfSpan));
+    }
+
+    private void offerAll(List<Entry<T>> cell, double latitude, double longitude, int k,
+                          Predicate<? super T> filter, PriorityQueue<Neighbor<T>> best) {
+        for (Entry<T> entry : cell) {
+            if (filter != null && !filter.test(entry.item)) {
+                continue;
+            }
+            double distance = GeoPoint.distanceKm(latitude, longitude,
+                    entry.position.getLatitude(), entry.position.getLongitude());
+            if (best.size() < k) {
+                best.add(new Neighbor<>(entry.item, distance));
+            } else if (distance < best.peek().getDistanceKm()) {
+                best.poll();
+                best.add(new Neighbor<>(entry.item, distance));
+            }
+        }
+    }
+
+    private static <T> List<Neighbor<T>> sorted(PriorityQueue<Neighbor<T>> best) {
+        List<Neighbor<T>> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return result;
+    }
+
+    private void unlink(Entry<T> entry) {
+        Long key = key(entry.row, entry.column);
+        List<Entry<T>> cell = cells.get(key);
+        // Swap the last entry into the freed slot so removal is constant-time
+        Entry<T> last = cell.remove(cell.size() - 1);
+        if (last != entry) {
+            cell.set(entry.slot, last);
+            last.slot = entry.slot;
+        }
+        if (cell.isEmpty()) {
+            cells.remove(key);
+        }
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellSize);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / cellSize);
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * An item's place in the grid.
+     */
+    private static final class Entry<T> {
+        final T item;
+        GeoPoint position;
+        int row;
+        int column;
+        int slot;  // Index in its cell's list
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package cqu.drsystem.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary snapshot of the system state: the resource inventory, the disaster log,
+ * the department coordination map, the allocation ledger and the timed allocations still out,
+ * together with the journal
+ * position it was taken at.
+ *
+ * Capturing only copies references, so it is cheap enough for the FX thread; encoding and
+ * writing can then run in the background. Disasters stay in their {@link DisasterStore}, which
+ * only ever grows, so the snapshot just remembers how many rows it covers. Types, locations and
+ * severities are stored through a string dictionary, and departments refer to disasters by their
+ * index in the log.
+ * Loading is a single sequential read; the journal is then replayed from the snapshot position.
+ */
+public class StateSnapshot {
+
+    private static final int MAGIC = 0x44525331;  // "DRS1"
+    private static final int VERSION = 4;  // 2 added positions, 3 the allocation ledger and 4 leases; older files still load
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final long journalPosition;
+    private final List<Resource> resources;
+    private final DisasterStore store;
+    private final int disasterCount;  // The rows of the store the snapshot covers
+    private final Map<String, int[]> departments;  // Disaster ids per department
+    private final List<AllocationEntry> allocations;  // Refer to the resources of the snapshot
+    private final List<AllocationLease> leases;  // Likewise
+
+    private StateSnapshot(long journalPosition, List<Resource> resources, DisasterStore store, int disasterCount,
+                          Map<String, int[]> departments, List<AllocationEntry> allocations, List<AllocationLease> leases) {
+        this.journalPosition = journalPosition;
+        this.resources = resources;
+        this.store = store;
+        this.disasterCount = disasterCount;
+        this.departments = departments;
+        this.allocations = allocations;
+        this.leases = leases;
+    }
+
+    /**
+     * Captures the current state from plain lists. Resource quantities and disasters are copied.
+     *
+     * @param journalPosition the journal position the state corresponds to
+     * @param resourceManagement the resource inventory
+     * @param disasterLog the disaster log
+     * @param departmentCoordination the disasters each department has been notified about
+     * @return the captured snapshot
+     */
+    public static StateSnapshot capture(long journalPosition, ResourceManagement resourceManagement,
+                                        List<Disaster> disasterLog, Map<String, List<Disaster>> departmentCoordination) {
+        // The disasters are copied into a store of their own; the caller's objects are left alone
+        DisasterStore store = new DisasterStore();
+        Map<Disaster, Integer> indexes = new IdentityHashMap<>(disasterLog.size() * 2);
+        for (Disaster disaster : disasterLog) {
+            indexes.put(disaster, store.append(disaster.getType(), disaster.getLocation(), disaster.getSeverity(),
+                    disaster.getDescription(), disaster.getPosition()));
+        }
+        Map<String, int[]> departments = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Disaster>> entry : departmentCoordination.entrySet()) {
+            IntList ids = new IntList();
+            for (Disaster disaster : entry.getValue()) {
+                Integer index = indexes.get(disaster);
+                if (index != null) {
+                    ids.add(index);
+                }
+            }
+            departments.put(entry.getKey(), ids.toArray());
+        }
+        return new StateSnapshot(journalPosition, copyOf(resourceManagement), store, store.size(), departments, new ArrayList<>(),
+                new ArrayList<>());
+    }
+
+    /**
+     * Captures the current state of a store-backed log. Must be called while the log is not
+     * being appended to.
+     *
+     * @param journalPosition the journal position the state corresponds to
+     * @param resourceManagement the resource inventory
+     * @param store the disaster log
+     * @param departments the ids of the disasters each department has been notified about
+     * @param ledger the allocation ledger
+     * @param leases the timed allocations still out
+     */
+    static StateSnapshot capture(long journalPosition, ResourceManagement resourceManagement, DisasterStore store,
+                                 Map<String, int[]> departments, AllocationLedger ledger, List<AllocationLease> leases) {
+        List<Resource> resources = copyOf(resourceManagement);
+        Map<Resource, Resource> copies = new IdentityHashMap<>();
+        for (int i = 0; i < resources.size(); i++) {
+            copies.put(resourceManagement.getResources().get(i), resources.get(i));
+        }
+        List<AllocationEntry> allocations = new ArrayList<>();
+        for (AllocationEntry entry : ledger.getEntries()) {
+            Resource copy = copies.get(entry.getResource());
+            if (copy != null) {
+                allocations.add(new AllocationEntry(entry.getDisasterId(), copy, entry.getQuantity(),
+                        entry.getAllocatedAtMillis(), entry.getUpdatedAtMillis()));
+            }
+        }
+        List<AllocationLease> leaseCopies = new ArrayList<>(leases.size());
+        for (AllocationLease lease : leases) {
+            leaseCopies.add(lease.copy(copies));
+        }
+        return new StateSnapshot(journalPosition, resources, store, store.size(), departments, allocations, leaseCopies);
+    }
+
+    /**
+     * Gets the journal position the snapshot corresponds to.
+     *
+     * @return the journal position to resume replay from
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * Gets the resources in the snapshot.
+     *
+     * @return the resources, in inventory order
+     */
+    public List<Resource> getResources() {
+        return resources;
+    }
+
+    /**
+     * Gets the disasters in the snapshot.
+     *
+     * @return the disaster log, as views of the stored rows
+     */
+    public List<Disaster> getDisasters() {
+        return new AbstractList<Disaster>() {
+            @Override
+            public Disaster get(int index) {
+                if (index < 0 || index >= disasterCount) {
+                    throw new IndexOutOfBoundsException("Index " + index + " of " + disasterCount);
+                }
+                return store.get(index);
+            }
+
+            @Override
+            public int size() {
+                return disasterCount;
+            }
+        };
+    }
+
+    /**
+     * Gets the department coordination map in the snapshot.
+     *
+     * @return the disasters each department has been notified about
+     */
+    public Map<String, List<Disaster>> getDepartments() {
+        Map<String, List<Disaster>> notified = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> entry : departments.entrySet()) {
+            List<Disaster> disasters = new ArrayList<>(entry.getValue().length);
+            for (int id : entry.getValue()) {
+                disasters.add(store.get(id));
+            }
+            notified.put(entry.getKey(), disasters);
+        }
+        return notified;
+    }
+
+    /**
+     * Gets the allocation ledger entries in the snapshot.
+     *
+     * @return what each disaster held, referring to the resources of {@link #getResources()}
+     */
+    public List<AllocationEntry> getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * Gets the timed allocations still out when the snapshot was taken.
+     *
+     * @return the leases, referring to the resources of {@link #getResources()}, without timeouts
+     */
+    List<AllocationLease> getLeases() {
+        return leases;
+    }
+
+    DisasterStore getDisasterStore() {
+        return store;
+    }
+
+    int getDisasterCount() {
+        return disasterCount;
+    }
+
+    Map<String, int[]> getDepartmentIds() {
+        return departments;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and atomically moves it over the target,
+     * so a crash while writing never leaves a half-written snapshot behind.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void writeTo(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalPosition);
+
+            out.writeInt(resources.size());
+            for (Resource resource : resources) {
+                writeString(out, resource.getId());
+                writeString(out, resource.getName());
+                writeString(out, resource.getType());
+                writeString(out, resource.getStatus().toString());
+                out.writeInt(resource.getAvailableQuantity());
+                out.writeInt(resource.getAllocatedQuantity());
+                writePosition(out, resource.getPosition());
+            }
+
+            Map<String, Integer> dictionary = new HashMap<>();
+            out.writeInt(disasterCount);
+            for (int row = 0; row < disasterCount; row++) {
+                writeDictionaryString(out, dictionary, store.getType(row));
+                writeDictionaryString(out, dictionary, store.getLocation(row));
+                writeDictionaryString(out, dictionary, store.getSeverity(row));
+                writeString(out, store.getDescription(row));
+                writePosition(out, store.getPosition(row));
+            }
+
+            out.writeInt(departments.size());
+            for (Map.Entry<String, int[]> entry : departments.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int id : entry.getValue()) {
+                    out.writeInt(id);
+                }
+            }
+
+            out.writeInt(allocations.size());
+            for (AllocationEntry entry : allocations) {
+                out.writeLong(entry.getDisasterId());
+                writeString(out, entry.getResource().getId());
+                out.writeInt(entry.getQuantity());
+                out.writeLong(entry.getAllocatedAtMillis());
+                out.writeLong(entry.getUpdatedAtMillis());
+            }
+
+            out.writeInt(leases.size());
+            for (AllocationLease lease : leases) {
+                out.writeLong(lease.getLeaseId());
+                out.writeLong(lease.getDisasterId());
+                out.writeLong(lease.getExpiresAtMillis());
+                out.writeInt(lease.getResources().size());
+                for (int i = 0; i < lease.getResources().size(); i++) {
+                    writeString(out, lease.getResources().get(i).getId());
+                    out.writeInt(lease.getRemaining(i));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot with a single sequential pass over the file.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static StateSnapshot readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a state snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long journalPosition = in.readLong();
+
+            int resourceCount = in.readInt();
+            List<Resource> resources = new ArrayList<>(resourceCount);
+            for (int i = 0; i < resourceCount; i++) {
+                Resource resource = new Resource(readString(in), readString(in), readString(in), readString(in), in.readInt());
+                resource.setAllocatedQuantity(in.readInt());
+                if (version >= 2) {
+                    resource.setPosition(readPosition(in));
+                }
+                resources.add(resource);
+            }
+
+            List<String> dictionary = new ArrayList<>();
+            int disasterCount = in.readInt();
+            DisasterStore store = new DisasterStore();
+            for (int i = 0; i < disasterCount; i++) {
+                String type = readDictionaryString(in, dictionary);
+                String location = readDictionaryString(in, dictionary);
+                String severity = readDictionaryString(in, dictionary);
+                String description = readString(in);
+                store.append(type, location, severity, description, version >= 2 ? readPosition(in) : null);
+            }
+
+            int departmentCount = in.readInt();
+            Map<String, int[]> departments = new LinkedHashMap<>();
+            for (int i = 0; i < departmentCount; i++) {
+                String name = readString(in);
+                int count = in.readInt();
+                IntList notified = new IntList();
+                for (int j = 0; j < count; j++) {
+                    int index = in.readInt();
+                    if (index >= 0 && index < disasterCount) {
+                        notified.add(index);
+                    }
+                }
+                departments.put(name, notified.toArray());
+            }
+
+            Map<String, Resource> resourcesById = new HashMap<>();
+            for (Resource resource : resources) {
+                resourcesById.put(resource.getId(), resource);
+            }
+            List<AllocationEntry> allocations = new ArrayList<>();
+            if (version >= 3) {
+                int allocationCount = in.readInt();
+                for (int i = 0; i < allocationCount; i++) {
+                    long disasterId = in.readLong();
+                    Resource resource = resourcesById.get(readString(in));
+                    int quantity = in.readInt();
+                    long allocatedAt = in.readLong();
+                    long updatedAt = in.readLong();
+                    if (resource != null) {
+                        allocations.add(new AllocationEntry(disasterId, resource, quantity, allocatedAt, updatedAt));
+                    }
+                }
+            }
+            List<AllocationLease> leases = new ArrayList<>();
+            if (version >= 4) {
+                int leaseCount = in.readInt();
+                for (int i = 0; i < leaseCount; i++) {
+                    long leaseId = in.readLong();
+                    long disasterId = in.readLong();
+                    long expiresAt = in.readLong();
+                    int count = in.readInt();
+                    List<Resource> leased = new ArrayList<>(count);
+                    int[] quantities = new int[count];
+                    for (int j = 0; j < count; j++) {
+                        Resource resource = resourcesById.get(readString(in));
+                        int quantity = in.readInt();
+                        if (resource != null) {
+                            quantities[leased.size()] = quantity;
+                            leased.add(resource);
+                        }
+                    }
+                    leases.add(new AllocationLease(leaseId, disasterId, expiresAt, leased, quantities));
+                }
+            }
+            return new StateSnapshot(journalPosition, resources, store, disasterCount, departments, allocations, leases);
+        }
+    }
+
+    private static List<Resource> copyOf(ResourceManagement resourceManagement) {
+        List<Resource> resources = new ArrayList<>(resourceManagement.getResources().size());
+        for (Resource resource : resourceManagement.getResources()) {
+            resources.add(copyOf(resource));
+        }
+        return resources;
+    }
+
+    private static Resource copyOf(Resource resource) {
+        Resource copy = new Resource(resource.getId(), resource.getName(), resource.getType(),
+                resource.getStatus(), resource.getAvailableQuantity());
+        copy.setAllocatedQuantity(resource.getAllocatedQuantity());
+        copy.setPosition(resource.getPosition());
+        return copy;
+    }
+
+    private static void writePosition(DataOutputStream out, GeoPoint position) throws IOException {
+        out.writeBoolean(position != null);
+        if (position != null) {
+            out.writeDouble(position.getLatitude());
+            out.writeDouble(position.getLongitude());
+        }
+    }
+
+    private static GeoPoint readPosition(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new GeoPoint(in.readDouble(), in.readDouble()) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a dictionary reference, defining the entry inline the first time a value is seen.
+     */
+    private static void writeDictionaryString(DataOutputStream out, Map<String, Integer> dictionary, String value) throws IOException {
+        Integer code = dictionary.get(value);
+        if (code != null) {
+            out.writeInt(code);
+        } else {
+            out.writeInt(-1);
+            writeString(out, value);
+            if (value != null) {
+                dictionary.put(value, dictionary.size());
+            }
+        }
+    }
+
+    private static String readDictionaryString(DataInputStream in, List<String> dictionary) throws IOException {
+        int code = in.readInt();
+        if (code >= 0) {
+            return dictionary.get(code);
+        }
+        String value = readString(in);
+        if (value != null) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+}
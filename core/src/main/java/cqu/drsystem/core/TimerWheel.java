@@ -0,0 +1,287 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A hierarchical timer wheel for a large number of timeouts, such as the expected end of every
+ * outstanding allocation. Time advances in fixed ticks; there are four levels of 64 slots, each
+ * level covering 64 times the span of the one below. A timeout goes into the lowest level whose
+ * span reaches its deadline and moves down a level each time the level above turns over, so
+ * scheduling and cancelling are O(1) and every timeout is touched at most four times before it
+ * fires, however many are pending. Deadlines beyond the top level wait there and are placed
+ * again when their slot comes round.
+ * <p>
+ * Timeouts fire no earlier than requested and at most one tick late. Tasks run on the thread
+ * that advances the wheel, outside the wheel's lock, so they may schedule or cancel timeouts.
+ * The wheel can be advanced by hand with {@link #advance()} or by its own daemon thread started
+ * with {@link #start()}. It is safe to use from many threads.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(TimerWheel.class.getName());
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final LongSupplier clock;
+    private final long startNanos;
+    private final Timeout[][] wheel = new Timeout[LEVELS][SLOTS];  // Sentinel of each slot's list
+
+    // Guarded by this
+    private long currentTick;
+    private int pending;
+    private Thread ticker;
+
+    /**
+     * Creates a wheel.
+     *
+     * @param tick the length of one tick, which is the precision of the timeouts
+     * @param unit the unit of the tick
+     */
+    public TimerWheel(long tick, TimeUnit unit) {
+        this(unit.toNanos(tick), System::nanoTime);
+    }
+
+    TimerWheel(long tickNanos, LongSupplier clock) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        for (Timeout[] level : wheel) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout sentinel = new Timeout(null, null, 0);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                level[slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task the task to run when the delay has passed
+     * @param delay the delay
+     * @param unit the unit of the delay
+     * @return the timeout, which can be cancelled until it fires
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long delayNanos = Math.max(0, unit.toNanos(delay));
+        long elapsed = clock.getAsLong() - startNanos;
+        // Round up, so the task never runs before the delay has passed
+        long deadline = (elapsed + delayNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(this, task, deadline);
+        synchronized (this) {
+            // The slot of the current tick has already fired, so the earliest is the next tick
+            timeout.deadline = Math.max(deadline, currentTick + 1);
+            place(timeout);
+            pending++;
+        }
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the current time and runs the tasks that are due.
+     *
+     * @return the number of tasks run
+     */
+    public int advance() {
+        long target = (clock.getAsLong() - startNanos) / tickNanos;
+        List<Timeout> due = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < target) {
+                currentTick++;
+                // Cascade from the top, so timeouts can drop through several levels in one tick
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        cascade(level, slotOf(currentTick, level));
+                    }
+                }
+                Timeout sentinel = wheel[0][slotOf(currentTick, 0)];
+                for (Timeout timeout = sentinel.next; timeout != sentinel; ) {
+                    Timeout next = timeout.next;
+                    unlink(timeout);
+                    timeout.state = Timeout.EXPIRED;
+                    pending--;
+                    due.add(timeout);
+                    timeout = next;
+                }
+            }
+        }
+        for (Timeout timeout : due) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Timer task failed", e);
+            }
+        }
+        return due.size();
+    }
+
+    /**
+     * Starts a daemon thread that advances the wheel every tick. Does nothing if it is running.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(this::tick, "timer-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Gets the number of timeouts that have neither fired nor been cancelled.
+     *
+     * @return the pending timeouts
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Cancels every pending timeout.
+     */
+    public synchronized void clear() {
+        for (Timeout[] level : wheel) {
+            for (Timeout sentinel : level) {
+                for (Timeout timeout = sentinel.next; timeout != sentinel; timeout = timeout.next) {
+                    timeout.state = Timeout.CANCELLED;
+                }
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+        pending = 0;
+    }
+
+    /**
+     * Stops the ticking thread, if any. Pending timeouts stay scheduled.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+            ticker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void tick() {
+        long tickMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(tickNanos));
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    /**
+     * Puts a timeout into the lowest level whose span reaches its deadline. A timeout cascading
+     * down on its deadline tick lands in the level 0 slot about to fire.
+     */
+    private void place(Timeout timeout) {
+        long delta = timeout.deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long tick = timeout.deadline;
+        if (delta >= 1L << (SLOT_BITS * LEVELS)) {
+            // Past the top level: wait in the last slot it reaches and be placed again from there
+            tick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        }
+        Timeout sentinel = wheel[level][slotOf(tick, level)];
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout sentinel = wheel[level][slot];
+        Timeout timeout = sentinel.next;
+        sentinel.previous = sentinel;
+        sentinel.next = sentinel;
+        while (timeout != sentinel) {
+            Timeout next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.state != Timeout.PENDING) {
+            return false;
+        }
+        unlink(timeout);
+        timeout.state = Timeout.CANCELLED;
+        pending--;
+        return true;
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final TimerWheel owner;
+        private final Runnable task;
+        private long deadline;  // In ticks since the wheel was created
+
+        // Guarded by the owner
+        private Timeout previous;
+        private Timeout next;
+        private volatile int state = PENDING;
+
+        private Timeout(TimerWheel owner, Runnable task, long deadline) {
+            this.owner = owner;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout, so its task does not run.
+         *
+         * @return true if it was pending and has been cancelled
+         */
+        public boolean cancel() {
+            return owner.cancel(this);
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+    }
+}
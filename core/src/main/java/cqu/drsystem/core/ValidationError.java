@@ -0,0 +1,27 @@
+package cqu.drsystem.core;
+
+/**
+ * One failed validation rule: which field failed and the message to show for it.
+ */
+public final class ValidationError {
+    private final String field;
+    private final String message;
+
+    public ValidationError(String field, String message) {
+        this.field = field;
+        this.message = message;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return field + ": " + message;
+    }
+}
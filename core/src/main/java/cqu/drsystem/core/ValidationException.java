@@ -0,0 +1,24 @@
+package cqu.drsystem.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown when input fails validation. Carries the individual errors; the exception message
+ * joins their messages with line breaks.
+ */
+public class ValidationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<ValidationError> errors;
+
+    public ValidationException(List<ValidationError> errors) {
+        super(errors.stream().map(ValidationError::getMessage).collect(Collectors.joining("\n")));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public List<ValidationError> getErrors() {
+        return errors;
+    }
+}
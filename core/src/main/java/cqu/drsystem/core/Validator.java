@@ -0,0 +1,334 @@
+package cqu.drsystem.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Validates objects of one type against a fixed set of declarative rules.
+ *
+ * Rules are declared per field with a {@link Builder} and compiled once: all text rules on a
+ * field are checked in a single pass over its characters, using {@link CharClass} tables
+ * instead of regular expressions. A validator is immutable and thread-safe, and validating a
+ * valid object does not allocate, so one instance can check millions of imported records.
+ *
+ * Errors are reported in the order their rules were declared, whichever field they belong to.
+ *
+ * @param <T> the type of object validated
+ */
+public final class Validator<T> {
+
+    // Random-access lists, walked by index so that validating does not allocate an iterator
+    private final List<FieldCheck<T>> fields;
+    private final List<Check<T>> checks;
+
+    private Validator(List<FieldCheck<T>> fields, List<Check<T>> checks) {
+        this.fields = fields;
+        this.checks = checks;
+    }
+
+    /**
+     * Validates an object.
+     *
+     * @param value the object to validate
+     * @return the errors in declaration order, an empty list if the object is valid
+     */
+    public List<ValidationError> validate(T value) {
+        List<Rule> failed = null;
+        for (int i = 0; i < fields.size(); i++) {
+            failed = fields.get(i).check(value, failed);
+        }
+        for (int i = 0; i < checks.size(); i++) {
+            Check<T> check = checks.get(i);
+            if (!check.valid.test(value)) {
+                failed = add(failed, check);
+            }
+        }
+        if (failed == null) {
+            return Collections.emptyList();
+        }
+        failed.sort(Comparator.comparingInt(rule -> rule.order));
+        List<ValidationError> errors = new ArrayList<>(failed.size());
+        for (Rule rule : failed) {
+            errors.add(rule.error);
+        }
+        return errors;
+    }
+
+    /**
+     * Validates an object and throws if it is not valid.
+     *
+     * @param value the object to validate
+     * @throws ValidationException if the object is not valid
+     */
+    public void check(T value) {
+        List<ValidationError> errors = validate(value);
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+    }
+
+    /**
+     * Checks whether an object is valid, without collecting the errors.
+     *
+     * @param value the object to validate
+     * @return true if the object is valid
+     */
+    public boolean isValid(T value) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).check(value, null) != null) {
+                return false;
+            }
+        }
+        for (int i = 0; i < checks.size(); i++) {
+            if (!checks.get(i).valid.test(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Rule> add(List<Rule> failed, Rule rule) {
+        if (failed == null) {
+            failed = new ArrayList<>(4);
+        }
+        failed.add(rule);
+        return failed;
+    }
+
+    /**
+     * Declares the fields and rules of a validator.
+     *
+     * @param <T> the type of object validated
+     */
+    public static final class Builder<T> {
+        private final Map<String, FieldSpec<T>> fields = new LinkedHashMap<>();
+        private final List<Check<T>> checks = new ArrayList<>();
+        private int order;
+
+        /**
+         * Declares a text field. Null values are treated as empty text.
+         *
+         * @param name the field name reported in errors
+         * @param getter reads the field from the validated object
+         * @return this builder
+         */
+        public Builder<T> field(String name, Function<? super T, String> getter) {
+            if (fields.putIfAbsent(name, new FieldSpec<>(getter)) != null) {
+                throw new IllegalArgumentException("Field declared twice: " + name);
+            }
+            return this;
+        }
+
+        /**
+         * Requires a field not to be blank.
+         *
+         * @param field the field name
+         * @param message the error message
+         * @return this builder
+         */
+        public Builder<T> required(String field, String message) {
+            spec(field).required = new Rule(field, message, order++);
+            return this;
+        }
+
+        /**
+         * Requires a field to have at least a number of characters, ignoring leading and
+         * trailing whitespace.
+         *
+         * @param field the field name
+         * @param length the minimum length
+         * @param message the error message
+         * @return this builder
+         */
+        public Builder<T> minLength(String field, int length, String message) {
+            FieldSpec<T> spec = spec(field);
+            spec.minLength = length;
+            spec.minLengthRule = new Rule(field, message, order++);
+            return this;
+        }
+
+        /**
+         * Requires a field to be non-empty and to consist only of characters in a class.
+         *
+         * @param field the field name
+         * @param allowed the allowed characters
+         * @param message the error message
+         * @return this builder
+         */
+        public Builder<T> onlyChars(String field, CharClass allowed, String message) {
+            FieldSpec<T> spec = spec(field);
+            spec.allowed = allowed;
+            spec.allowedRule = new Rule(field, message, order++);
+            return this;
+        }
+
+        /**
+         * Requires a field to contain at least one character of a class.
+         *
+         * @param field the field name
+         * @param required the characters of which at least one must appear
+         * @param message the error message
+         * @return this builder
+         */
+        public Builder<T> containsChar(String field, CharClass required, String message) {
+            FieldSpec<T> spec = spec(field);
+            if (spec.charClasses.size() == 64) {
+                throw new IllegalArgumentException("Too many character rules on " + field);
+            }
+            spec.charClasses.add(required);
+            spec.charClassRules.add(new Rule(field, message, order++));
+            return this;
+        }
+
+        /**
+         * Adds a rule that is not about the characters of a single field, such as two fields
+         * having to match.
+         *
+         * @param field the field name reported in the error
+         * @param valid returns true if the object passes the rule
+         * @param message the error message
+         * @return this builder
+         */
+        public Builder<T> check(String field, Predicate<? super T> valid, String message) {
+            checks.add(new Check<>(field, message, order++, valid));
+            return this;
+        }
+
+        /**
+         * Compiles the declared rules.
+         *
+         * @return the validator
+         */
+        public Validator<T> build() {
+            List<FieldCheck<T>> compiled = new ArrayList<>();
+            for (FieldSpec<T> spec : fields.values()) {
+                compiled.add(new FieldCheck<>(spec));
+            }
+            return new Validator<>(List.copyOf(compiled), List.copyOf(checks));
+        }
+
+        private FieldSpec<T> spec(String field) {
+            FieldSpec<T> spec = fields.get(field);
+            if (spec == null) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+            return spec;
+        }
+    }
+
+    private static class Rule {
+        final ValidationError error;  // Errors are immutable, so each rule reuses one
+        final int order;
+
+        Rule(String field, String message, int order) {
+            this.error = new ValidationError(field, message);
+            this.order = order;
+        }
+    }
+
+    private static final class Check<T> extends Rule {
+        final Predicate<? super T> valid;
+
+        Check(String field, String message, int order, Predicate<? super T> valid) {
+            super(field, message, order);
+            this.valid = valid;
+        }
+    }
+
+    private static final class FieldSpec<T> {
+        final Function<? super T, String> getter;
+        Rule required;
+        int minLength;
+        Rule minLengthRule;
+        CharClass allowed;
+        Rule allowedRule;
+        final List<CharClass> charClasses = new ArrayList<>();
+        final List<Rule> charClassRules = new ArrayList<>();
+
+        FieldSpec(Function<? super T, String> getter) {
+            this.getter = getter;
+        }
+    }
+
+    /**
+     * The compiled rules of one text field.
+     */
+    private static final class FieldCheck<T> {
+        private final Function<? super T, String> getter;
+        private final Rule required;
+        private final int minLength;
+        private final Rule minLengthRule;
+        private final CharClass allowed;
+        private final Rule allowedRule;
+        private final CharClass[] requiredClasses;
+        private final Rule[] requiredClassRules;
+        private final long allRequiredSeen;
+
+        FieldCheck(FieldSpec<T> spec) {
+            this.getter = spec.getter;
+            this.required = spec.required;
+            this.minLength = spec.minLength;
+            this.minLengthRule = spec.minLengthRule;
+            this.allowed = spec.allowed;
+            this.allowedRule = spec.allowedRule;
+            this.requiredClasses = spec.charClasses.toArray(new CharClass[0]);
+            this.requiredClassRules = spec.charClassRules.toArray(new Rule[0]);
+            this.allRequiredSeen = requiredClasses.length == 64 ? -1L : (1L << requiredClasses.length) - 1;
+        }
+
+        List<Rule> check(T value, List<Rule> errors) {
+            String text = getter.apply(value);
+            if (text == null) {
+                text = "";
+            }
+
+            // One pass: trimmed bounds, allowed characters and required character classes
+            int first = -1;
+            int last = -1;
+            boolean allAllowed = !text.isEmpty();
+            long seen = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c > ' ') {
+                    if (first < 0) {
+                        first = i;
+                    }
+                    last = i;
+                }
+                if (allowed != null && allAllowed && !allowed.contains(c)) {
+                    allAllowed = false;
+                }
+                for (int k = 0; k < requiredClasses.length; k++) {
+                    if (requiredClasses[k].contains(c)) {
+                        seen |= 1L << k;
+                    }
+                }
+            }
+            int trimmedLength = first < 0 ? 0 : last - first + 1;
+
+            if (required != null && trimmedLength == 0) {
+                errors = add(errors, required);
+            }
+            if (minLengthRule != null && trimmedLength < minLength) {
+                errors = add(errors, minLengthRule);
+            }
+            if (allowedRule != null && !allAllowed) {
+                errors = add(errors, allowedRule);
+            }
+            if (seen != allRequiredSeen) {
+                for (int k = 0; k < requiredClasses.length; k++) {
+                    if ((seen & (1L << k)) == 0) {
+                        errors = add(errors, requiredClassRules[k]);
+                    }
+                }
+            }
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package cqu.drsystem.core;
+
+/**
+ * The validation rules of the system's input forms, compiled once and shared by the UI,
+ * the dispatch service and bulk imports.
+ */
+public final class Validators {
+
+    /**
+     * The rules for a disaster report.
+     */
+    public static final Validator<DisasterReport> DISASTER_REPORT = new Validator.Builder<DisasterReport>()
+            .field("type", DisasterReport::getType)
+            .field("location", DisasterReport::getLocation)
+            .field("severity", DisasterReport::getSeverity)
+            .field("description", DisasterReport::getDescription)
+            .required("type", "Please select a valid disaster type.")
+            .minLength("location", 3, "Please enter a valid location (at least 3 characters).")
+            .onlyChars("location", CharClass.LETTERS.or(CharClass.WHITESPACE), "Location must contain only letters and spaces.")
+            .required("severity", "Please select the severity of the disaster.")
+            .minLength("description", 10, "Please provide a more detailed description (at least 10 characters).")
+            .check("resources", report -> !report.getAllocationRequests().isEmpty(), "Please select at least one resource to allocate.")
+            .build();
+
+    /**
+     * The rules for the login form.
+     */
+    public static final Validator<CredentialForm> LOGIN = new Validator.Builder<CredentialForm>()
+            .field("username", CredentialForm::getUsername)
+            .field("password", CredentialForm::getPassword)
+            .required("username", "Username cannot be empty.")
+            .required("password", "Password cannot be empty.")
+            .minLength("username", 3, "Username must be at least 3 characters long.")
+            .minLength("password", 6, "Password must be at least 6 characters long.")
+            .build();
+
+    /**
+     * The rules for the registration form.
+     */
+    public static final Validator<CredentialForm> REGISTRATION = new Validator.Builder<CredentialForm>()
+            .field("username", CredentialForm::getUsername)
+            .field("password", CredentialForm::getPassword)
+            .field("confirmation", CredentialForm::getConfirmation)
+            .required("username", "Username cannot be empty.")
+            .required("password", "Password cannot be empty.")
+            .required("confirmation", "Confirm Password cannot be empty.")
+            .check("confirmation", form -> form.getPassword() == null ? form.getConfirmation() == null
+                    : form.getPassword().equals(form.getConfirmation()), "Passwords do not match.")
+            .minLength("username", 3, "Username must be at least 3 characters long.")
+            .minLength("password", 6, "Password must be at least 6 characters long.")
+            .containsChar("password", CharClass.UPPERCASE, "Password must contain at least one uppercase letter.")
+            .containsChar("password", CharClass.DIGITS, "Password must contain at least one digit.")
+            .build();
+
+    private Validators() {
+    }
+}
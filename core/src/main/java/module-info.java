@@ -0,0 +1,5 @@
+module cqu.drsystem.core {
+    requires java.management;
+
+    exports cqu.drsystem.core;
+}
@@ -0,0 +1,253 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AllocationSchedulerTest {
+
+    private static final long QUANTUM = TimeUnit.MINUTES.toNanos(5);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ResourceManagement inventory = new ResourceManagement();
+    private final Resource fireTrucks = new Resource("1", "Fire Truck", "Vehicle", "available", 4);
+    private final Resource ambulances = new Resource("2", "Ambulance", "Vehicle", "available", 3);
+
+    AllocationSchedulerTest() {
+        inventory.addResource(fireTrucks);
+        inventory.addResource(ambulances);
+    }
+
+    @Test
+    void grantsWaitingItemsMostSevereFirst() {
+        AllocationScheduler scheduler = scheduler(false);
+        PendingAllocation holder = scheduler.submit(0, disaster("Low"), new AllocationRequest("Fire Truck", 4));
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        PendingAllocation low = scheduler.submit(1, disaster("Low"), new AllocationRequest("Fire Truck", 2));
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        PendingAllocation high = scheduler.submit(2, disaster("High"), new AllocationRequest("Fire Truck", 2));
+
+        assertEquals(Arrays.asList(high, low), scheduler.getWaiting("Fire Truck"));
+        assertTrue(scheduler.release(holder));
+        assertEquals(PendingAllocation.State.GRANTED, high.getState());
+        assertEquals(PendingAllocation.State.GRANTED, low.getState());
+        assertEquals(0, fireTrucks.getAvailableQuantity());
+    }
+
+    @Test
+    void headOfQueueIsNotOvertakenBySmallerRequests() {
+        AllocationScheduler scheduler = scheduler(false);
+        scheduler.submit(0, disaster("Low"), new AllocationRequest("Fire Truck", 3));
+        PendingAllocation big = scheduler.submit(1, disaster("Low"), new AllocationRequest("Fire Truck", 2));
+        PendingAllocation small = scheduler.submit(2, disaster("Low"), new AllocationRequest("Fire Truck", 1));
+
+        assertEquals(PendingAllocation.State.WAITING, big.getState());
+        assertEquals(PendingAllocation.State.WAITING, small.getState());
+        assertEquals(1, fireTrucks.getAvailableQuantity());
+
+        assertTrue(scheduler.cancel(big));
+        assertEquals(PendingAllocation.State.GRANTED, small.getState());
+    }
+
+    @Test
+    void unitIsGrantedOnlyWhenEveryItemFits() {
+        AllocationScheduler scheduler = scheduler(false);
+        PendingAllocation holder = scheduler.submit(0, disaster("Low"), new AllocationRequest("Ambulance", 2));
+        List<PendingAllocation> unit = scheduler.submitAll(1, disaster("Medium"),
+                Arrays.asList(new AllocationRequest("Fire Truck", 3), new AllocationRequest("Ambulance", 2)));
+
+        for (PendingAllocation item : unit) {
+            assertEquals(PendingAllocation.State.WAITING, item.getState());
+        }
+        assertEquals(4, fireTrucks.getAvailableQuantity(), "no fire trucks held while the ambulances are short");
+        // A later single item may not take the fire trucks the unit is waiting for
+        PendingAllocation later = scheduler.submit(2, disaster("Low"), new AllocationRequest("Fire Truck", 2));
+        assertEquals(PendingAllocation.State.WAITING, later.getState());
+
+        assertTrue(scheduler.release(holder));
+
+        for (PendingAllocation item : unit) {
+            assertEquals(PendingAllocation.State.GRANTED, item.getState());
+        }
+        assertEquals(1, fireTrucks.getAvailableQuantity());
+        assertEquals(1, ambulances.getAvailableQuantity());
+        assertEquals(PendingAllocation.State.WAITING, later.getState());
+        assertEquals(1, scheduler.getWaitingCount());
+    }
+
+    @Test
+    void unitsWaitingForTheSameResourcesDoNotBlockEachOther() {
+        AllocationScheduler scheduler = scheduler(false);
+        PendingAllocation trucks = scheduler.submit(0, disaster("Low"), new AllocationRequest("Fire Truck", 4));
+        PendingAllocation ambulance = scheduler.submit(1, disaster("Low"), new AllocationRequest("Ambulance", 3));
+        List<PendingAllocation> first = scheduler.submitAll(2, disaster("Low"),
+                Arrays.asList(new AllocationRequest("Ambulance", 2), new AllocationRequest("Fire Truck", 2)));
+        List<PendingAllocation> second = scheduler.submitAll(3, disaster("Low"),
+                Arrays.asList(new AllocationRequest("Fire Truck", 2), new AllocationRequest("Ambulance", 1)));
+
+        assertTrue(scheduler.release(trucks));
+        assertEquals(4, fireTrucks.getAvailableQuantity(), "both units still wait for ambulances");
+        assertTrue(scheduler.release(ambulance));
+
+        for (PendingAllocation item : first) {
+            assertEquals(PendingAllocation.State.GRANTED, item.getState());
+        }
+        for (PendingAllocation item : second) {
+            assertEquals(PendingAllocation.State.GRANTED, item.getState());
+        }
+        assertEquals(0, scheduler.getWaitingCount());
+    }
+
+    @Test
+    void cancellingOneItemWithdrawsTheWholeUnit() {
+        AllocationScheduler scheduler = scheduler(false);
+        scheduler.submit(0, disaster("Low"), new AllocationRequest("Ambulance", 3));
+        List<PendingAllocation> unit = scheduler.submitAll(1, disaster("High"),
+                Arrays.asList(new AllocationRequest("Fire Truck", 1), new AllocationRequest("Ambulance", 1)));
+        PendingAllocation behind = scheduler.submit(2, disaster("Low"), new AllocationRequest("Fire Truck", 4));
+
+        assertTrue(scheduler.cancel(unit.get(1)));
+
+        assertEquals(PendingAllocation.State.CANCELLED, unit.get(0).getState());
+        assertEquals(PendingAllocation.State.CANCELLED, unit.get(1).getState());
+        assertEquals(PendingAllocation.State.GRANTED, behind.getState());
+        assertFalse(scheduler.cancel(unit.get(0)));
+    }
+
+    @Test
+    void preemptionGrantsLeftoverUnitsToTheNextWaiter() {
+        AllocationScheduler scheduler = scheduler(false);
+        PendingAllocation victim = scheduler.submit(0, disaster("Low"), new AllocationRequest("Fire Truck", 4));
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        // Ranks ahead of the victim once it is requeued, and fits in what the urgent request leaves
+        PendingAllocation small = scheduler.submit(1, disaster("Medium"), new AllocationRequest("Fire Truck", 1));
+        scheduler.setPreemptive(true);
+        List<String> events = new ArrayList<>();
+        scheduler.addListener(new SchedulerListener() {
+            @Override
+            public void onGranted(PendingAllocation allocation) {
+                events.add("granted " + allocation.getDisasterId());
+            }
+
+            @Override
+            public void onPreempted(PendingAllocation allocation, Resource resource) {
+                events.add("preempted " + allocation.getDisasterId());
+            }
+        });
+
+        PendingAllocation urgent = scheduler.submit(2, disaster("High"), new AllocationRequest("Fire Truck", 2));
+
+        assertEquals(PendingAllocation.State.GRANTED, urgent.getState());
+        assertEquals(PendingAllocation.State.WAITING, victim.getState());
+        assertEquals(PendingAllocation.State.GRANTED, small.getState(), "the leftover units are not left idle");
+        assertEquals(1, fireTrucks.getAvailableQuantity());
+        assertEquals(Arrays.asList("preempted 0", "granted 2", "granted 1"), events);
+    }
+
+    @Test
+    void itemsOfAUnitAreNotPreempted() {
+        AllocationScheduler scheduler = scheduler(true);
+        List<PendingAllocation> unit = scheduler.submitAll(0, disaster("Low"),
+                Arrays.asList(new AllocationRequest("Fire Truck", 3), new AllocationRequest("Ambulance", 1)));
+        PendingAllocation single = scheduler.submit(1, disaster("Low"), new AllocationRequest("Ambulance", 2));
+
+        PendingAllocation urgent = scheduler.submit(2, disaster("High"), new AllocationRequest("Fire Truck", 2));
+        PendingAllocation ambulance = scheduler.submit(3, disaster("High"), new AllocationRequest("Ambulance", 2));
+
+        assertEquals(PendingAllocation.State.WAITING, urgent.getState(), "only the unit holds fire trucks");
+        for (PendingAllocation item : unit) {
+            assertEquals(PendingAllocation.State.GRANTED, item.getState());
+        }
+        assertEquals(PendingAllocation.State.GRANTED, ambulance.getState());
+        assertEquals(PendingAllocation.State.WAITING, single.getState(), "a single item is still preempted");
+        assertEquals(1, fireTrucks.getAvailableQuantity());
+        assertEquals(0, ambulances.getAvailableQuantity());
+    }
+
+    @Test
+    void concurrentReleasesOfOneGrantSucceedOnce() throws Exception {
+        AllocationScheduler scheduler = scheduler(false);
+        for (int round = 0; round < 200; round++) {
+            PendingAllocation allocation = scheduler.submit(round, disaster("Low"), new AllocationRequest("Ambulance", 3));
+            AtomicInteger recorded = new AtomicInteger();
+            AtomicInteger succeeded = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    boolean released = scheduler.release(allocation, claimed -> {
+                        assertSame(ambulances, claimed.getResource());
+                        recorded.incrementAndGet();
+                    });
+                    if (released) {
+                        succeeded.incrementAndGet();
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(1, succeeded.get());
+            assertEquals(1, recorded.get());
+            assertEquals(3, ambulances.getAvailableQuantity());
+            assertNull(allocation.getResource());
+        }
+    }
+
+    @Test
+    void recorderSeesTheGrantBeforeAReleaseOnAnotherThread() throws Exception {
+        AllocationScheduler scheduler = scheduler(false);
+        List<String> recorded = Collections.synchronizedList(new ArrayList<>());
+        scheduler.setRecorder(allocation -> recorded.add("granted " + allocation.getDisasterId()));
+        PendingAllocation holder = scheduler.submit(0, disaster("Low"), new AllocationRequest("Ambulance", 3));
+        PendingAllocation waiting = scheduler.submit(1, disaster("Low"), new AllocationRequest("Ambulance", 3));
+        CountDownLatch granted = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        scheduler.addListener(allocation -> {
+            // The granting thread is held here, after the lock, until the grant has been released
+            granted.countDown();
+            try {
+                released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread releaser = new Thread(() -> scheduler.release(holder));
+        releaser.start();
+        assertTrue(granted.await(10, TimeUnit.SECONDS));
+        assertTrue(scheduler.release(waiting, allocation -> recorded.add("released " + allocation.getDisasterId())));
+        released.countDown();
+        releaser.join();
+
+        assertEquals(Arrays.asList("granted 0", "granted 1", "released 1"), recorded);
+    }
+
+    private AllocationScheduler scheduler(boolean preemptive) {
+        return new AllocationScheduler(inventory, QUANTUM, preemptive, clock::get);
+    }
+
+    private static Disaster disaster(String severity) {
+        return new Disaster("Fire", "Rockhampton", severity, "Grass fire near the highway");
+    }
+}
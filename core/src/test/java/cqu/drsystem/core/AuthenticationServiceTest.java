@@ -0,0 +1,110 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AuthenticationServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesAHashThatVerifiesTheRightPasswordOnly() throws Exception {
+        Path file = directory.resolve("users.db");
+        try (AuthenticationService service = new AuthenticationService(file, 2)) {
+            char[] password = "correct horse".toCharArray();
+            assertTrue(service.register("alice", password).get(10, TimeUnit.SECONDS));
+            assertArrayEquals(new char[password.length], password, "the password is cleared once hashed");
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertFalse(lines.get(0).contains("correct horse"));
+        assertEquals(4, lines.get(0).split(":").length, "username, iterations, salt and hash");
+
+        try (AuthenticationService service = new AuthenticationService(file, 2)) {
+            assertTrue(service.isRegistered("alice"));
+            Session session = login(service, "alice", "correct horse");
+            assertNotNull(session);
+            assertEquals("alice", session.getUsername());
+            assertNull(login(service, "alice", "Correct horse"));
+            assertNull(login(service, "alice", ""));
+        }
+    }
+
+    @Test
+    void sameUsernameCannotRegisterTwice() throws Exception {
+        try (AuthenticationService service = new AuthenticationService(directory.resolve("users.db"), 2)) {
+            assertTrue(service.register("alice", "first password".toCharArray()).get(10, TimeUnit.SECONDS));
+            assertFalse(service.register("alice", "second password".toCharArray()).get(10, TimeUnit.SECONDS));
+
+            assertNotNull(login(service, "alice", "first password"));
+            assertNull(login(service, "alice", "second password"));
+        }
+    }
+
+    @Test
+    void startsEmptyWithoutACredentialFile() throws Exception {
+        Path file = directory.resolve("new").resolve("users.db");
+        try (AuthenticationService service = new AuthenticationService(file, 1)) {
+            assertFalse(service.isRegistered("alice"));
+            assertNull(login(service, "alice", "correct horse"));
+
+            assertTrue(service.register("alice", "correct horse".toCharArray()).get(10, TimeUnit.SECONDS));
+        }
+        assertTrue(Files.exists(file), "created with its directory on the first registration");
+    }
+
+    @Test
+    void skipsDamagedLinesOfTheCredentialFile() throws Exception {
+        Path file = directory.resolve("users.db");
+        try (AuthenticationService service = new AuthenticationService(file, 1)) {
+            service.register("alice", "correct horse".toCharArray()).get(10, TimeUnit.SECONDS);
+        }
+        String valid = Files.readAllLines(file, StandardCharsets.UTF_8).get(0);
+        Files.write(file, Arrays.asList(
+                "garbage",
+                "bob:many:c2FsdA==:aGFzaA==",
+                "carol:65536:not base64!:aGFzaA==",
+                valid.substring(0, valid.length() / 2),
+                valid), StandardCharsets.UTF_8);
+
+        try (AuthenticationService service = new AuthenticationService(file, 1)) {
+            assertFalse(service.isRegistered("bob"));
+            assertFalse(service.isRegistered("carol"));
+            assertNotNull(login(service, "alice", "correct horse"), "a later line replaces a truncated one");
+        }
+    }
+
+    @Test
+    void sessionsAreCheckedWithoutHashing() throws Exception {
+        try (AuthenticationService service = new AuthenticationService(directory.resolve("users.db"), 1)) {
+            service.register("alice", "correct horse".toCharArray()).get(10, TimeUnit.SECONDS);
+            Session session = login(service, "alice", "correct horse");
+
+            assertSame(session, service.validate(session.getToken()));
+            assertNull(service.validate("not a token"));
+            assertNull(service.validate(null));
+            service.logout(session.getToken());
+            assertNull(service.validate(session.getToken()));
+        }
+    }
+
+    private static Session login(AuthenticationService service, String username, String password) throws Exception {
+        return service.login(username, password.toCharArray()).get(10, TimeUnit.SECONDS);
+    }
+}
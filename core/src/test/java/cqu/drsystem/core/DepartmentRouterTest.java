@@ -0,0 +1,148 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DepartmentRouterTest {
+
+    private static final String RULES = String.join("\n",
+            "# Departments in notification order",
+            "departments = Fire Service, Police, Medical, Council",
+            "Fire = Fire Service, Medical",
+            "Fire@Rockhampton = Council",
+            "Flood@Rockhampton = Police",
+            "* = Police",
+            "*@Mackay = Council");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void combinesTheTypeRuleWithItsRegionRules() throws IOException {
+        RoutingTable table = RoutingTable.parse(new StringReader(RULES));
+
+        assertEquals(Arrays.asList("Fire Service", "Police", "Medical", "Council"), table.getDepartments());
+        assertEquals(Arrays.asList("Fire Service", "Medical", "Council"),
+                table.resolve("Fire", "Rockhampton").getDepartmentNames());
+        assertEquals(Arrays.asList("Fire Service", "Medical", "Council"),
+                table.resolve("Fire", "Mackay").getDepartmentNames(), "the region rule of any type applies too");
+        assertEquals(Arrays.asList("Fire Service", "Medical"), table.resolve("Fire", "Gladstone").getDepartmentNames());
+        assertEquals(Arrays.asList("Fire Service", "Medical", "Council"),
+                table.resolve(" fIRE ", "ROCKHAMPTON").getDepartmentNames(), "names ignore case and spaces");
+    }
+
+    @Test
+    void fallsBackToTheAnyTypeRule() throws IOException {
+        RoutingTable table = RoutingTable.parse(new StringReader(RULES));
+
+        assertEquals(Collections.singletonList("Police"), table.resolve("Tornado", "Gladstone").getDepartmentNames());
+        assertEquals(Collections.singletonList("Police"), table.resolve(null, null).getDepartmentNames());
+        assertEquals(Collections.singletonList("Police"), table.resolve("Flood", "Rockhampton").getDepartmentNames(),
+                "a type with only region rules uses the base rule of any type, without duplicates");
+        assertEquals(Arrays.asList("Police", "Council"), table.resolve("Tornado", "Mackay").getDepartmentNames());
+    }
+
+    @Test
+    void routeKnowsItsDepartmentIds() throws IOException {
+        RoutingTable table = RoutingTable.parse(new StringReader(RULES));
+        DepartmentRoute route = table.resolve("Fire", "Mackay");
+        List<Integer> ids = new ArrayList<>();
+
+        route.forEachDepartment(ids::add);
+
+        assertEquals(Arrays.asList(0, 2, 3), ids);
+        assertEquals(3, route.size());
+        assertTrue(route.contains(2));
+        assertFalse(route.contains(1));
+        assertFalse(route.contains(200));
+        assertEquals(route, table.resolve("Fire", "Mackay"), "routes are shared");
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        assertThrows(IOException.class, () -> RoutingTable.parse(new StringReader("Fire Fire Service")));
+        assertThrows(IOException.class, () -> RoutingTable.parse(new StringReader("@Mackay = Police")));
+        assertThrows(IOException.class, () -> RoutingTable.parse(new StringReader("# Nothing yet\n")));
+    }
+
+    @Test
+    void keepsTheOldRulesWhenTheNewFileIsInvalid() throws IOException {
+        Path file = write("Fire = Fire Service");
+        DepartmentRouter router = new DepartmentRouter(file);
+
+        write("Fire Police");
+
+        assertThrows(IOException.class, router::reload);
+        assertEquals(Collections.singletonList("Fire Service"), router.route(disaster("Fire")));
+    }
+
+    @Test
+    void readersSeeOneRuleSetOrTheOtherDuringReloads() throws Exception {
+        String police = "departments = Fire Service, Police\nFire = Police";
+        String fireService = "departments = Fire Service, Police\nFire = Fire Service";
+        Path file = write(fireService);
+        DepartmentRouter router = new DepartmentRouter(file);
+        Disaster fire = disaster("Fire");
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(4);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> seen = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                seen.add(readers.submit(() -> {
+                    started.countDown();
+                    int routed = 0;
+                    while (reloading.get()) {
+                        List<String> departments = router.route(fire);
+                        assertTrue(departments.equals(Collections.singletonList("Police"))
+                                || departments.equals(Collections.singletonList("Fire Service")), departments::toString);
+                        assertEquals(Arrays.asList("Fire Service", "Police"), router.getDepartments());
+                        routed++;
+                    }
+                    return routed;
+                }));
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 200; i++) {
+                Files.write(file, (i % 2 == 0 ? police : fireService).getBytes(StandardCharsets.UTF_8));
+                router.reload();
+            }
+            reloading.set(false);
+            for (Future<Integer> routed : seen) {
+                assertTrue(routed.get(10, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            reloading.set(false);
+            readers.shutdownNow();
+        }
+        assertEquals(Collections.singletonList("Fire Service"), router.route(fire));
+    }
+
+    private Path write(String rules) throws IOException {
+        return Files.write(directory.resolve("routing.conf"), rules.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Disaster disaster(String type) {
+        return new Disaster(type, "Rockhampton", "High", "Grass fire near the highway");
+    }
+}
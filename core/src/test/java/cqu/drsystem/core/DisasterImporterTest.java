@@ -0,0 +1,85 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DisasterImporterTest {
+
+    private static final String HEADER = "type,location,severity,description,resources\n";
+    private static final String ROW = "Fire,Rockhampton,High,Grass fire near the highway,Fire Truck:1\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void importsCsvWithQuotedFieldsAcrossLines() throws Exception {
+        Path file = write("reports.csv", HEADER + ROW
+                + "Flood,Mackay,Medium,\"River rising,\nroads cut\",Ambulance:1\n"
+                + "\n"
+                + "Storm,X,Low,Too short,Rescue Team:1\n");
+        DispatchService service = new DispatchService(null);
+
+        ImportProgress progress = new DisasterImporter(service, 2).importFile(file, DisasterImporter.Format.CSV, null);
+
+        assertTrue(progress.isFinished());
+        assertEquals(3, progress.getRowsRead());
+        assertEquals(2, progress.getRowsDispatched());
+        assertEquals(1, progress.getRowsInvalid());
+        assertEquals(6, progress.getErrors().get(0).getLineNumber());
+        assertEquals("River rising,\nroads cut", service.getDisaster(1).getDescription());
+    }
+
+    @Test
+    void rejectsARecordLeftOpenByAQuoteAndResumes() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER).append(ROW);
+        csv.append("Fire,\"Rockhampton,High,Quote that is never closed,Fire Truck:1\n");
+        int rows = 2 * DisasterImporter.MAX_RECORD_CHARS / ROW.length();
+        for (int i = 0; i < rows; i++) {
+            csv.append(ROW);
+        }
+        Path file = write("reports.csv", csv.toString());
+        DispatchService service = new DispatchService(null);
+
+        ImportProgress progress = new DisasterImporter(service, 2).importFile(file, DisasterImporter.Format.CSV, null);
+
+        assertEquals(1, progress.getRowsInvalid());
+        assertEquals(3, progress.getErrors().get(0).getLineNumber());
+        assertTrue(progress.getErrors().get(0).getErrors().get(0).getMessage().contains("longer than"));
+        // The rows swallowed by the open quote are lost, but reading resumes well before the end
+        assertTrue(progress.getRowsDispatched() > rows / 3, "dispatched " + progress.getRowsDispatched());
+        assertEquals(progress.getRowsDispatched(), service.getDisasterCount());
+    }
+
+    @Test
+    void rejectsAnOverlongJsonLineAndKeepsTheNext() throws Exception {
+        StringBuilder longDescription = new StringBuilder();
+        while (longDescription.length() <= DisasterImporter.MAX_RECORD_CHARS) {
+            longDescription.append("very long description ");
+        }
+        Path file = write("reports.jsonl",
+                "{\"type\":\"Fire\",\"location\":\"Rockhampton\",\"severity\":\"High\",\"description\":\"" + longDescription
+                        + "\",\"resources\":{\"Fire Truck\":1}}\n"
+                        + "{\"type\":\"Flood\",\"location\":\"Mackay\",\"severity\":\"Low\",\"description\":\"Water over the road\","
+                        + "\"resources\":\"Ambulance:1\"}\n");
+        DispatchService service = new DispatchService(null);
+
+        ImportProgress progress = new DisasterImporter(service, 1).importFile(file, DisasterImporter.Format.JSON_LINES, null);
+
+        assertEquals(2, progress.getRowsRead());
+        assertEquals(1, progress.getRowsInvalid());
+        assertEquals(1, progress.getErrors().get(0).getLineNumber());
+        assertEquals(1, progress.getRowsDispatched());
+        assertEquals("Flood", service.getDisaster(0).getType());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
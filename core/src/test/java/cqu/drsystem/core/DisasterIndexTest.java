@@ -0,0 +1,155 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class DisasterIndexTest {
+
+    private static final int BLOCK = 1 << Bitmap.BLOCK_SHIFT;
+    private static final String[] TYPES = {"Fire", "Flood", "Earthquake", " fire ", "FLOOD"};
+    private static final String[] SEVERITIES = {"Low", "Medium", "High", "high"};
+    private static final String[] LOCATIONS = {"Rockhampton", "Rockley", "Mackay", "Mount Morgan", "mackay", "Gladstone"};
+
+    @Test
+    void agreesWithABruteForceScan() {
+        Random random = new Random(18);
+        DisasterIndex index = new DisasterIndex();
+        List<Disaster> disasters = new ArrayList<>();
+        for (int id = 0; id < BLOCK + 500; id++) {
+            // Tornadoes only in the second block, so the first block is skipped for them
+            String type = id >= BLOCK && random.nextInt(10) == 0 ? "Tornado" : TYPES[random.nextInt(TYPES.length)];
+            Disaster disaster = new Disaster(type, LOCATIONS[random.nextInt(LOCATIONS.length)],
+                    SEVERITIES[random.nextInt(SEVERITIES.length)], "Reported by a passer by");
+            index.add(id, disaster);
+            disasters.add(disaster);
+        }
+
+        List<DisasterQuery> queries = Arrays.asList(
+                DisasterQuery.all(),
+                DisasterQuery.all().type("fire"),
+                DisasterQuery.all().type("Fire", "Flood"),
+                DisasterQuery.all().type("Fire").severity("High"),
+                DisasterQuery.all().type("Flood", "Earthquake").severity("low", "medium"),
+                DisasterQuery.all().locationPrefix("Rock"),
+                DisasterQuery.all().locationPrefix("mack", "Mount"),
+                DisasterQuery.all().type("Earthquake").severity("High").locationPrefix("Rockh"),
+                DisasterQuery.all().type("Tornado"),
+                DisasterQuery.all().type("Tornado").severity("High"),
+                DisasterQuery.all().type("Tornado", "Fire").locationPrefix("Glad"),
+                DisasterQuery.all().type("Hurricane"),
+                DisasterQuery.all().locationPrefix("Brisbane"),
+                DisasterQuery.all().locationPrefix(""));
+        for (DisasterQuery query : queries) {
+            long[] expected = scan(disasters, query);
+            assertEquals(expected.length, index.count(query), query::toString);
+            assertArrayEquals(expected, index.find(query, Integer.MAX_VALUE), query::toString);
+            assertArrayEquals(Arrays.copyOf(expected, Math.min(expected.length, 10)), index.find(query, 10), query::toString);
+            for (DisasterQuery.Field field : DisasterQuery.Field.values()) {
+                assertEquals(scanBy(disasters, query, field), normalizedKeys(index.countBy(query, field)), query + " by " + field);
+            }
+        }
+    }
+
+    @Test
+    void findsMatchesOnBothSidesOfABlockEdge() {
+        DisasterIndex index = new DisasterIndex();
+        for (int id = 0; id < BLOCK + 2; id++) {
+            boolean edge = id >= BLOCK - 2;
+            index.add(id, new Disaster(edge ? "Flood" : "Fire", "Mackay", edge ? "High" : "Low", "Reported by a passer by"));
+        }
+
+        DisasterQuery floods = DisasterQuery.all().type("Flood").severity("High");
+        assertArrayEquals(new long[] {BLOCK - 2, BLOCK - 1, BLOCK, BLOCK + 1}, index.find(floods, 10));
+        assertEquals(4, index.count(floods));
+        long[] fires = index.find(DisasterQuery.all().type("Fire"), BLOCK);
+        assertEquals(BLOCK - 2, fires.length);
+        assertEquals(BLOCK - 3, fires[fires.length - 1]);
+        long[] all = index.find(DisasterQuery.all(), BLOCK + 1);
+        assertEquals(BLOCK + 1, all.length, "the limit ends one past the block edge");
+        assertEquals(BLOCK, all[BLOCK]);
+
+        index.clear();
+        index.add(0, new Disaster("Flood", "Mackay", "High", "Reported by a passer by"));
+        assertArrayEquals(new long[] {0}, index.find(floods, 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void rebuildsFromTheNewLogAfterAReset() {
+        DispatchService service = new DispatchService(null);
+        service.report(report("Fire", "Rockhampton"));
+        service.report(report("Flood", "Mackay"));
+
+        service.reset();
+        service.report(report("Flood", "Rockhampton"));
+
+        assertEquals(1, service.countDisasters(DisasterQuery.all()));
+        assertEquals(0, service.countDisasters(DisasterQuery.all().type("Fire")));
+        List<Disaster> floods = service.findDisasters(DisasterQuery.all().type("Flood"), 10);
+        assertEquals(1, floods.size());
+        assertEquals("Rockhampton", floods.get(0).getLocation());
+        assertEquals(Collections.singletonMap("Rockhampton", 1L),
+                service.countDisastersBy(DisasterQuery.all(), DisasterQuery.Field.LOCATION));
+    }
+
+    private static long[] scan(List<Disaster> disasters, DisasterQuery query) {
+        List<Long> ids = new ArrayList<>();
+        for (int id = 0; id < disasters.size(); id++) {
+            if (matches(disasters.get(id), query)) {
+                ids.add((long) id);
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Map<String, Long> scanBy(List<Disaster> disasters, DisasterQuery query, DisasterQuery.Field field) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Disaster disaster : disasters) {
+            if (matches(disaster, query)) {
+                String value = field == DisasterQuery.Field.TYPE ? disaster.getType()
+                        : field == DisasterQuery.Field.SEVERITY ? disaster.getSeverity() : disaster.getLocation();
+                counts.merge(DisasterQuery.normalize(value), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> normalizedKeys(Map<String, Long> counts) {
+        Map<String, Long> normalized = new TreeMap<>();
+        counts.forEach((key, count) -> normalized.merge(key.toLowerCase(Locale.ROOT), count, Long::sum));
+        return normalized;
+    }
+
+    private static boolean matches(Disaster disaster, DisasterQuery query) {
+        return matchesAny(query.getTypes(), DisasterQuery.normalize(disaster.getType()), false)
+                && matchesAny(query.getSeverities(), DisasterQuery.normalize(disaster.getSeverity()), false)
+                && matchesAny(query.getLocationPrefixes(), DisasterQuery.normalize(disaster.getLocation()), true);
+    }
+
+    private static boolean matchesAny(List<String> values, String value, boolean prefix) {
+        if (values.isEmpty()) {
+            return true;
+        }
+        for (String wanted : values) {
+            if (prefix ? value.startsWith(wanted) : value.equals(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static DisasterReport report(String type, String location) {
+        return new DisasterReport(type, location, "High", "Reported by a passer by",
+                Collections.singletonList(new AllocationRequest("Fire Truck", 1)));
+    }
+}
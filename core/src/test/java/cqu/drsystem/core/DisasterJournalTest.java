@@ -0,0 +1,134 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DisasterJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEventsInOrderAfterReopening() throws IOException {
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            journal.appendDisasterReported(0, new Disaster("Flood", "Rockhampton", "High", "River broke its banks"));
+            journal.appendResourcesAllocated(0, Arrays.asList(new AllocationRequest("Ambulance", 2)));
+            journal.appendDepartmentsNotified(0, Arrays.asList("Fire Department"));
+            journal.appendResourcesReleased(0, Arrays.asList(new AllocationRequest("Ambulance", 1)));
+        }
+
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            assertEquals(Arrays.asList("reported 0 Flood", "allocated 0 [2 x Ambulance]",
+                    "notified 0 [Fire Department]", "released 0 [1 x Ambulance]"), replay(journal));
+        }
+    }
+
+    @Test
+    void rollsOverToNewSegments() throws IOException {
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            for (int i = 0; i < 200; i++) {
+                journal.appendDisasterReported(i, new Disaster("Fire", "Site " + i, "Low", "Grass fire"));
+            }
+            assertEquals(200, replay(journal).size());
+        }
+        assertEquals(true, segmentFiles().size() > 1);
+    }
+
+    @Test
+    void dropsTornRecordAndAppendsAfterTheValidOnes() throws IOException {
+        long end;
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            journal.appendDisasterReported(0, new Disaster("Storm", "Mackay", "Medium", "Roofs lifted"));
+            end = journal.getPosition();
+        }
+        // A crash mid-append: the body reached the disk but the length that publishes it did not,
+        // and a later record landed in full
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end + 4);
+            file.write(new byte[] {2, 0, 0, 0, 0, 0, 0, 0, 7});
+            file.seek(end + 64);
+            file.writeInt(5);
+            file.write(new byte[] {4, 1, 2, 3, 4, 5, 6, 7, 8});
+        }
+
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            assertEquals(end, journal.getPosition());
+            journal.appendLogCleared();
+            assertEquals(Arrays.asList("reported 0 Storm", "cleared"), replay(journal));
+        }
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            assertEquals(Arrays.asList("reported 0 Storm", "cleared"), replay(journal));
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        for (int i = (int) end + 16; i < bytes.length; i++) {
+            assertEquals(0, bytes[i], "byte " + i + " after the journal end");
+        }
+    }
+
+    @Test
+    void leavesACleanTailUntouched() throws IOException {
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            journal.appendLogCleared();
+        }
+        Path segment = segmentFiles().get(0);
+        long modified = Files.getLastModifiedTime(segment).toMillis();
+        byte[] before = Files.readAllBytes(segment);
+
+        try (DisasterJournal journal = new DisasterJournal(directory, SEGMENT_SIZE, 1)) {
+            assertEquals(Arrays.asList("cleared"), replay(journal));
+        }
+        assertEquals(Arrays.toString(before), Arrays.toString(Files.readAllBytes(segment)));
+        assertEquals(modified, Files.getLastModifiedTime(segment).toMillis());
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> replay(DisasterJournal journal) throws IOException {
+        List<String> events = new ArrayList<>();
+        journal.replay(0, new JournalListener() {
+            @Override
+            public void onDisasterReported(long disasterId, Disaster disaster) {
+                events.add("reported " + disasterId + " " + disaster.getType());
+            }
+
+            @Override
+            public void onResourcesAllocated(long disasterId, List<AllocationRequest> allocations) {
+                events.add("allocated " + disasterId + " " + allocations);
+            }
+
+            @Override
+            public void onResourcesReleased(long disasterId, List<AllocationRequest> releases) {
+                events.add("released " + disasterId + " " + releases);
+            }
+
+            @Override
+            public void onDepartmentsNotified(long disasterId, List<String> departments) {
+                events.add("notified " + disasterId + " " + departments);
+            }
+
+            @Override
+            public void onLogCleared() {
+                events.add("cleared");
+            }
+        });
+        return events;
+    }
+}
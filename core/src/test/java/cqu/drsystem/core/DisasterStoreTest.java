@@ -0,0 +1,56 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class DisasterStoreTest {
+
+    @Test
+    void countsRowsByDictionaryCodes() {
+        DisasterStore store = new DisasterStore();
+        store.append("Fire", "Rockhampton", "High", "Grass fire near the highway", null);
+        store.append("Flood", "Mackay", "Low", "Water over the road", null);
+        store.append("Fire", "Mackay", "High", "Shed alight", null);
+
+        assertEquals(2, store.count("Fire", "High", null));
+        assertEquals(1, store.count(null, null, "Rockhampton"));
+        assertEquals(0, store.count("Tornado", null, null));
+        assertEquals("Water over the road", store.get(1).getDescription());
+    }
+
+    @Test
+    void findsRowsContainingTextInAnyField() {
+        DisasterStore store = new DisasterStore();
+        store.append("Fire", "Rockhampton", "High", "Grass fire near the HIGHWAY", null);
+        store.append("Flood", "Mackay", "Low", "Water over the road", null);
+        store.append("Earthquake", "Gladstone", "Medium", "Crèche évacuée", null);
+        store.append("Fire", "Mackay", "High", null, null);
+
+        assertArrayEquals(new int[] {0, 3}, store.findContaining("fIRe", 0, 4));
+        assertArrayEquals(new int[] {1, 3}, store.findContaining("mack", 0, 4));
+        assertArrayEquals(new int[] {0}, store.findContaining("highway", 0, 4), "matched in the stored bytes");
+        assertArrayEquals(new int[] {2}, store.findContaining("ÉVACU", 0, 4), "decoded for non-ASCII text");
+        assertArrayEquals(new int[] {2}, store.findContaining("che", 0, 4));
+        assertArrayEquals(new int[] {3}, store.findContaining("fire", 1, 10), "only the rows in range");
+        assertArrayEquals(new int[0], store.findContaining("tornado", 0, 4));
+    }
+
+    @Test
+    void disasterKeepsItsHashCodeWhenStored() {
+        DisasterStore store = new DisasterStore();
+        Disaster disaster = new Disaster("Fire", "Rockhampton", "High", "Grass fire near the highway");
+        Set<Disaster> seen = new HashSet<>();
+        seen.add(disaster);
+
+        store.append(disaster);
+
+        assertEquals(true, seen.contains(disaster));
+        assertEquals("Rockhampton", disaster.getLocation());
+        assertNotEquals(store.get(0), store.get(0), "views are compared by identity");
+    }
+}
@@ -0,0 +1,144 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DispatchMetricsTest {
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void countsReportsAllocationsAndNotifications() {
+        DispatchService service = new DispatchService(null);
+
+        service.report(report("Fire", "Fire Truck", 2));
+        service.report(report("Flood", "Ambulance", 50));
+        assertThrows(ValidationException.class, () -> service.report(report(null, "Ambulance", 1)));
+
+        DispatchMetrics metrics = service.getMetrics();
+        assertEquals(2, metrics.getReports());
+        assertEquals(1, metrics.getRejectedReports());
+        assertEquals(1, metrics.getAllocations());
+        assertEquals(1, metrics.getAllocationFailures());
+        assertEquals(2L, metrics.getNotificationsByDepartment().get("Emergency Response"));
+        assertEquals(1L, metrics.getNotificationsByDepartment().get("Fire Department"));
+        assertEquals(8, metrics.getAvailableQuantities().get("1 Fire Truck"));
+        assertEquals(2, metrics.getAllocatedQuantities().get("1 Fire Truck"));
+        assertEquals(2, metrics.getLatency(DispatchMetrics.Stage.ALLOCATE).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getReports());
+        assertEquals(Collections.emptyMap(), metrics.getNotificationsByDepartment());
+        assertEquals(0, metrics.getLatency(DispatchMetrics.Stage.ALLOCATE).getCount());
+        assertEquals(2, metrics.getAllocatedQuantities().get("1 Fire Truck"), "gauges are read from the resources");
+    }
+
+    @Test
+    void estimatesPercentilesByPowerOfTwoBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+
+        for (int i = 0; i < 990; i++) {
+            histogram.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000);
+        }
+
+        assertEquals(1023, histogram.getPercentileNanos(50), "the upper bound of the bucket holding 1000");
+        assertEquals(1023, histogram.getPercentileNanos(99));
+        assertEquals(1_000_000, histogram.getPercentileNanos(99.5), "capped at the largest value seen");
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        assertEquals(1000, histogram.getCount());
+        assertEquals((990 * 1000 + 10 * 1_000_000) / 1000.0 / 1000.0, histogram.getMeanMicros(), 1e-9);
+        assertEquals(1000.0, histogram.getMaxMicros());
+    }
+
+    @Test
+    void countsNegativeTimesAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(-5);
+        histogram.record(0);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(100));
+        assertEquals(0, histogram.getTotalNanos());
+    }
+
+    @Test
+    void publishesTheMetricsOverJmxUntilClosed() throws Exception {
+        DispatchService service = new DispatchService(null);
+        service.report(report("Fire", "Fire Truck", 1));
+        ObjectName dispatch = new ObjectName(MetricsReporter.DOMAIN, "type", "DispatchMetrics");
+        ObjectName allocate = ObjectName.getInstance(MetricsReporter.DOMAIN + ":type=Latency,stage=allocate");
+
+        try (MetricsReporter reporter = new MetricsReporter(service.getMetrics(), null, 1, TimeUnit.HOURS)) {
+            assertEquals(1L, server.getAttribute(dispatch, "Reports"));
+            assertEquals(1L, server.getAttribute(allocate, "Count"));
+            server.invoke(dispatch, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(dispatch, "Reports"));
+        }
+
+        assertFalse(server.isRegistered(dispatch));
+        assertFalse(server.isRegistered(allocate));
+    }
+
+    @Test
+    void secondServicePublishesOnlyOnceTheFirstIsWithdrawn() throws Exception {
+        DispatchService first = new DispatchService(null);
+        DispatchService second = new DispatchService(null);
+        second.report(report("Fire", "Fire Truck", 1));
+        second.report(report("Fire", "Fire Truck", 1));
+        ObjectName dispatch = new ObjectName(MetricsReporter.DOMAIN, "type", "DispatchMetrics");
+
+        MetricsReporter reporter = new MetricsReporter(first.getMetrics(), null, 1, TimeUnit.HOURS);
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> new MetricsReporter(second.getMetrics(), null, 1, TimeUnit.HOURS));
+            assertEquals(0L, server.getAttribute(dispatch, "Reports"), "the failed reporter withdrew nothing of the first");
+        } finally {
+            reporter.close();
+        }
+
+        try (MetricsReporter replacement = new MetricsReporter(second.getMetrics(), null, 1, TimeUnit.HOURS)) {
+            assertEquals(2L, server.getAttribute(dispatch, "Reports"));
+        }
+    }
+
+    @Test
+    void dumpsTheMetricsToAFile() throws Exception {
+        DispatchService service = new DispatchService(null);
+        service.report(report("Fire", "Fire Truck", 1));
+        Path dumpFile = directory.resolve("metrics").resolve("dispatch.txt");
+
+        try (MetricsReporter reporter = new MetricsReporter(service.getMetrics(), dumpFile, 1, TimeUnit.HOURS)) {
+            reporter.dump();
+            String dump = new String(Files.readAllBytes(dumpFile), StandardCharsets.UTF_8);
+            assertTrue(dump.contains("\nreports 1\n"), dump);
+            assertTrue(dump.contains("notifications[Fire Department] 1"), dump);
+            assertTrue(dump.contains("resource[1 Fire Truck] available=9 allocated=1"), dump);
+        }
+    }
+
+    private static DisasterReport report(String type, String resource, int quantity) {
+        return new DisasterReport(type, "Rockhampton", "High", "Reported by a passer by",
+                Collections.singletonList(new AllocationRequest(resource, quantity)));
+    }
+}
@@ -0,0 +1,414 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DispatchServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int REPORTS = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentReportsAllocateExactlyTheAvailableUnits() throws Exception {
+        DispatchService service = new DispatchService(null);
+        Resource fireTrucks = service.getResourceManagement().getResourceByName("Fire Truck");
+        int available = fireTrucks.getAvailableQuantity();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    int allocated = 0;
+                    for (int i = 0; i < REPORTS / THREADS; i++) {
+                        if (service.report(report("Fire", "Fire Truck", 1)).getAllocation().isSuccessful()) {
+                            allocated++;
+                        }
+                    }
+                    return allocated;
+                }));
+            }
+            start.countDown();
+            int allocated = 0;
+            for (Future<Integer> worker : workers) {
+                allocated += worker.get(60, TimeUnit.SECONDS);
+            }
+
+            assertEquals(available, allocated);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(REPORTS, service.getDisasterCount());
+        assertEquals(0, fireTrucks.getAvailableQuantity());
+        assertEquals(available, fireTrucks.getAllocatedQuantity());
+        assertEquals(available, service.getLedger().getCommittedQuantity(fireTrucks));
+    }
+
+    @Test
+    void rejectsInvalidReportsWithoutLoggingThem() {
+        DispatchService service = new DispatchService(null);
+
+        assertThrows(ValidationException.class,
+                () -> service.report(new DisasterReport("Fire", "X", "High", "short", Collections.emptyList())));
+        assertEquals(0, service.getDisasterCount());
+    }
+
+    @Test
+    void resetStartsANewGenerationOfTheLog() {
+        DispatchService service = new DispatchService(null);
+        service.report(report("Fire", "Fire Truck", 1));
+        int generation = service.getLogGeneration();
+
+        service.reset();
+        service.report(report("Flood", "Ambulance", 1));
+        service.report(report("Fire", "Ambulance", 1));
+
+        assertTrue(service.getLogGeneration() != generation, "the rows before the reset are gone");
+        assertEquals(2, service.getDisasterCount());
+        assertArrayEquals(new int[] {1}, service.findDisastersContaining("fire", 0, 2));
+    }
+
+    @Test
+    void restoresFromSnapshotAndJournalTail() throws IOException {
+        Path snapshotFile = directory.resolve("state.snapshot");
+        Map<String, Integer> departments;
+        int ambulances;
+        try (DisasterJournal journal = new DisasterJournal(directory.resolve("journal"), 4096, 1)) {
+            DispatchService service = new DispatchService(journal);
+            for (int i = 0; i < 5; i++) {
+                service.report(report("Fire", "Fire Truck", 1));
+            }
+            service.captureSnapshot().writeTo(snapshotFile);
+            for (int i = 0; i < 3; i++) {
+                service.report(report("Flood", "Ambulance", 2));
+            }
+            departments = service.getDepartmentCounts();
+            ambulances = service.getResourceManagement().getResourceByName("Ambulance").getAvailableQuantity();
+        }
+
+        try (DisasterJournal journal = new DisasterJournal(directory.resolve("journal"), 4096, 1)) {
+            DispatchService service = new DispatchService(journal);
+            service.restore(snapshotFile);
+
+            assertEquals(8, service.getDisasterCount());
+            assertEquals(departments, service.getDepartmentCounts());
+            assertEquals(5, service.getResourceManagement().getResourceByName("Fire Truck").getAllocatedQuantity());
+            assertEquals(ambulances, service.getResourceManagement().getResourceByName("Ambulance").getAvailableQuantity());
+        }
+    }
+
+    @Test
+    void optimizedDispatchIsRecordedAndSurvivesARestart() throws IOException {
+        Path journalDirectory = directory.resolve("journal");
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 4096, 1)) {
+            DispatchService service = new DispatchService(journal);
+            service.moveResource("1", new GeoPoint(-23.38, 150.51));
+            service.moveResource("2", new GeoPoint(-21.14, 149.19));
+            long fire = service.report(new DisasterReport("Fire", "Rockhampton", "High", "Grass fire near the highway",
+                    Collections.singletonList(new AllocationRequest("Rescue Team", 1)), new GeoPoint(-23.40, 150.50)))
+                    .getDisasterId();
+            Map<Long, List<AllocationRequest>> incidents = new LinkedHashMap<>();
+            incidents.put(fire, Arrays.asList(new AllocationRequest("Fire Truck", 3), new AllocationRequest("Ambulance", 20)));
+
+            DispatchPlan plan = service.dispatchOptimized(incidents);
+
+            // Every fire truck asked for, but only the 8 ambulances there are
+            assertEquals(2, plan.getAssignments().size());
+            assertEquals("1", plan.getAssignments().get(0).getResource().getId());
+            assertEquals(3, plan.getAssignments().get(0).getQuantity());
+            assertEquals(8, plan.getAssignments().get(1).getQuantity());
+            assertEquals(12, plan.getShortfalls().stream().mapToInt(Assignment::getQuantity).sum());
+            Resource fireTrucks = service.getResourceManagement().getResourceById("1");
+            assertEquals(7, fireTrucks.getAvailableQuantity());
+            assertEquals(3, service.getLedger().getEntry(fire, fireTrucks).getQuantity());
+        }
+
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 4096, 1)) {
+            DispatchService service = new DispatchService(journal);
+            service.restore(directory.resolve("missing.snapshot"));
+
+            Resource fireTrucks = service.getResourceManagement().getResourceById("1");
+            Resource ambulances = service.getResourceManagement().getResourceById("2");
+            assertEquals(7, fireTrucks.getAvailableQuantity());
+            assertEquals(0, ambulances.getAvailableQuantity());
+            assertEquals(3, service.getLedger().getEntry(0, fireTrucks).getQuantity());
+            assertEquals(3 + 8 + 1, service.releaseAll(0));  // The rescue team from the report, too
+            assertEquals(10, fireTrucks.getAvailableQuantity());
+            assertEquals(8, ambulances.getAvailableQuantity());
+        }
+    }
+
+    @Test
+    void timedAllocationReturnsOnlyItsOwnUnits() throws Exception {
+        try (DispatchService service = new DispatchService(null)) {
+            long fire = service.report(report("Fire", "Rescue Team", 1)).getDisasterId();
+            Resource fireTrucks = service.getResourceManagement().getResourceByName("Fire Truck");
+            Resource ambulances = service.getResourceManagement().getResourceByName("Ambulance");
+
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Fire Truck", 3)), 200, TimeUnit.MILLISECONDS);
+            service.release(fire, fireTrucks, 3);  // Returned early, so the timeout is stopped
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Fire Truck", 2)));
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Ambulance", 2)), 200, TimeUnit.MILLISECONDS);
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Ambulance", 1)));
+
+            awaitAvailable(ambulances, 7);
+            Thread.sleep(400);
+            assertEquals(2, service.getLedger().getEntry(fire, fireTrucks).getQuantity());
+            assertEquals(1, service.getLedger().getEntry(fire, ambulances).getQuantity());
+            assertEquals(7, ambulances.getAvailableQuantity());
+        }
+    }
+
+    @Test
+    void timedAllocationExpiresAfterARestart() throws Exception {
+        Path snapshotFile = directory.resolve("state.snapshot");
+        Path journalDirectory = directory.resolve("journal");
+        long fire;
+        long flood;
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 4096, 1);
+             DispatchService service = new DispatchService(journal)) {
+            fire = service.report(report("Fire", "Rescue Team", 1)).getDisasterId();
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Ambulance", 3)), 1, TimeUnit.SECONDS);
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Ambulance", 1)));
+            service.captureSnapshot().writeTo(snapshotFile);
+            // In the journal tail: one of the timed units back early, and a lease that is due at once
+            service.release(fire, service.getResourceManagement().getResourceByName("Ambulance"), 1);
+            flood = service.report(report("Flood", "Rescue Team", 1)).getDisasterId();
+            service.allocate(flood, Arrays.asList(new AllocationRequest("Fire Truck", 4)), 1, TimeUnit.MILLISECONDS);
+            service.allocate(flood, Arrays.asList(new AllocationRequest("Fire Truck", 1)), 1, TimeUnit.HOURS);
+        }
+        Thread.sleep(50);
+
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 4096, 1);
+             DispatchService service = new DispatchService(journal)) {
+            service.restore(snapshotFile);
+            Resource fireTrucks = service.getResourceManagement().getResourceByName("Fire Truck");
+            Resource ambulances = service.getResourceManagement().getResourceByName("Ambulance");
+            assertEquals(3, service.getLedger().getEntry(fire, ambulances).getQuantity());
+
+            awaitAvailable(fireTrucks, 9);
+            awaitAvailable(ambulances, 7);
+            assertEquals(1, service.getLedger().getEntry(fire, ambulances).getQuantity());
+            assertEquals(1, service.getLedger().getEntry(flood, fireTrucks).getQuantity());
+        }
+    }
+
+    @Test
+    void closingStopsTimedReturns() throws Exception {
+        DispatchService service = new DispatchService(null);
+        long fire = service.report(report("Fire", "Rescue Team", 1)).getDisasterId();
+        service.allocate(fire, Arrays.asList(new AllocationRequest("Fire Truck", 2)), 100, TimeUnit.MILLISECONDS);
+
+        service.close();
+        Thread.sleep(400);
+
+        Resource fireTrucks = service.getResourceManagement().getResourceByName("Fire Truck");
+        assertEquals(8, fireTrucks.getAvailableQuantity());
+        assertEquals(2, service.getLedger().getEntry(fire, fireTrucks).getQuantity());
+    }
+
+    @Test
+    void expiryThatCannotBeJournaledChangesNothing() throws Exception {
+        DisasterJournal journal = new DisasterJournal(directory.resolve("journal"), 4096, 1);
+        try (DispatchService service = new DispatchService(journal)) {
+            long fire = service.report(report("Fire", "Rescue Team", 1)).getDisasterId();
+            Resource fireTrucks = service.getResourceManagement().getResourceByName("Fire Truck");
+            service.allocate(fire, Arrays.asList(new AllocationRequest("Fire Truck", 2)), 100, TimeUnit.MILLISECONDS);
+
+            journal.close();
+            Thread.sleep(400);
+
+            assertEquals(2, fireTrucks.getAllocatedQuantity());
+            assertEquals(2, service.getLedger().getCommittedQuantity(fireTrucks));
+            assertEquals(2, service.getLedger().getEntry(fire, fireTrucks).getQuantity());
+        }
+    }
+
+    @Test
+    void grantsAreJournaledBeforeTheirReleases() throws Exception {
+        Path journalDirectory = directory.resolve("journal");
+        int rounds = 200;
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 1 << 20, 1);
+             DispatchService service = new DispatchService(journal)) {
+            Resource ambulances = service.getResourceManagement().getResourceByName("Ambulance");
+            long[] disasters = new long[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                disasters[t] = service.report(report("Flood", "Rescue Team", 1)).getDisasterId();
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> workers = new ArrayList<>();
+            try {
+                for (int t = 0; t < THREADS; t++) {
+                    long disasterId = disasters[t];
+                    workers.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < rounds; i++) {
+                            // Every unit at once, so most requests are granted by another thread's release
+                            PendingAllocation allocation = service.queue(disasterId,
+                                    Collections.singletonList(new AllocationRequest("Ambulance", 8))).get(0);
+                            while (allocation.getState() != PendingAllocation.State.GRANTED) {
+                                Thread.onSpinWait();
+                            }
+                            service.release(allocation);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> worker : workers) {
+                    worker.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(8, ambulances.getAvailableQuantity());
+
+            Map<Long, Integer> held = new HashMap<>();
+            journal.replay(0, new JournalListener() {
+                @Override
+                public void onDisasterReported(long disasterId, Disaster disaster) {
+                }
+
+                @Override
+                public void onResourcesAllocated(long disasterId, List<AllocationRequest> allocations) {
+                    change(disasterId, allocations, 1);
+                }
+
+                @Override
+                public void onResourcesReleased(long disasterId, List<AllocationRequest> releases) {
+                    change(disasterId, releases, -1);
+                }
+
+                @Override
+                public void onDepartmentsNotified(long disasterId, List<String> departments) {
+                }
+
+                @Override
+                public void onLogCleared() {
+                }
+
+                private void change(long disasterId, List<AllocationRequest> items, int sign) {
+                    for (AllocationRequest item : items) {
+                        if (item.getResourceName().equals("Ambulance")) {
+                            int now = held.merge(disasterId, sign * item.getQuantity(), Integer::sum);
+                            assertTrue(now >= 0, "released before it was granted to disaster " + disasterId);
+                        }
+                    }
+                }
+            });
+            for (int t = 0; t < THREADS; t++) {
+                assertEquals(0, held.getOrDefault(disasters[t], 0));
+            }
+        }
+    }
+
+    @Test
+    void ledgerAgreesWithTheResourcesThroughAllocationsReleasesExpiriesAndReplay() throws Exception {
+        Path journalDirectory = directory.resolve("journal");
+        String[] names = {"Fire Truck", "Ambulance", "Rescue Team"};
+        Random random = new Random(20);
+        Map<String, Integer> allocatedBeforeRestart;
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 1 << 20, 1);
+             DispatchService service = new DispatchService(journal)) {
+            List<Long> disasters = new ArrayList<>();
+            List<PendingAllocation> queued = new ArrayList<>();
+            for (int step = 0; step < 300; step++) {
+                String name = names[random.nextInt(names.length)];
+                Resource resource = service.getResourceManagement().getResourceByName(name);
+                List<AllocationRequest> requests = Collections.singletonList(new AllocationRequest(name, 1 + random.nextInt(3)));
+                long disaster = disasters.isEmpty() ? -1 : disasters.get(random.nextInt(disasters.size()));
+                int operation = disasters.isEmpty() ? 0 : random.nextInt(7);
+                if (operation == 0) {
+                    disasters.add(service.report(report("Fire", name, 1 + random.nextInt(3))).getDisasterId());
+                } else if (operation == 1) {
+                    service.allocate(disaster, requests);
+                } else if (operation == 2) {
+                    // Long enough that nothing expires while the steps run
+                    service.allocate(disaster, requests, 1, TimeUnit.HOURS);
+                } else if (operation == 3) {
+                    service.release(disaster, resource, 1 + random.nextInt(4));
+                } else if (operation == 4) {
+                    queued.addAll(service.queue(disaster, requests));
+                } else if (operation == 5 && !queued.isEmpty()) {
+                    service.release(queued.remove(random.nextInt(queued.size())));
+                } else if (operation == 6 && random.nextInt(4) == 0) {
+                    service.releaseAll(disaster);
+                }
+                assertLedgerAgrees(service, "step " + step);
+            }
+
+            for (long disaster : disasters.subList(0, 5)) {
+                service.allocate(disaster, Collections.singletonList(new AllocationRequest("Rescue Team", 1)),
+                        50, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(500);
+            assertLedgerAgrees(service, "after the expiries");
+            allocatedBeforeRestart = allocatedQuantities(service);
+        }
+
+        try (DisasterJournal journal = new DisasterJournal(journalDirectory, 1 << 20, 1);
+             DispatchService service = new DispatchService(journal)) {
+            service.restore(directory.resolve("missing.snapshot"));
+            assertLedgerAgrees(service, "after replay");
+            assertEquals(allocatedBeforeRestart, allocatedQuantities(service));
+        }
+    }
+
+    private static void assertLedgerAgrees(DispatchService service, String when) {
+        Map<Resource, Integer> entryTotals = new HashMap<>();
+        for (AllocationEntry entry : service.getLedger().getEntries()) {
+            entryTotals.merge(entry.getResource(), entry.getQuantity(), Integer::sum);
+        }
+        for (Resource resource : service.getResources()) {
+            String message = resource.getName() + " " + when;
+            assertEquals(resource.getAllocatedQuantity(), service.getLedger().getCommittedQuantity(resource), message);
+            assertEquals(resource.getAllocatedQuantity(), (int) entryTotals.getOrDefault(resource, 0), message);
+        }
+    }
+
+    private static Map<String, Integer> allocatedQuantities(DispatchService service) {
+        Map<String, Integer> allocated = new HashMap<>();
+        for (Resource resource : service.getResources()) {
+            allocated.put(resource.getName(), resource.getAllocatedQuantity());
+        }
+        return allocated;
+    }
+
+    private static void awaitAvailable(Resource resource, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (resource.getAvailableQuantity() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, resource.getAvailableQuantity(), resource.getName() + " available");
+    }
+
+    private static DisasterReport report(String type, String resource, int quantity) {
+        return new DisasterReport(type, "Rockhampton", "High", "Reported by a passer by",
+                Collections.singletonList(new AllocationRequest(resource, quantity)));
+    }
+}
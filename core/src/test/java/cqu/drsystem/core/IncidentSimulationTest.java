@@ -0,0 +1,49 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class IncidentSimulationTest {
+
+    @Test
+    void runsAShortSimulation() throws InterruptedException {
+        IncidentSimulation.Result result = IncidentSimulation.builder()
+                .producers(2)
+                .reportsPerSecond(400)
+                .duration(Duration.ofMillis(300))
+                .holdTime(Duration.ofMillis(50))
+                .inventory(3)  // Too few for any high severity report, which asks for 4 units
+                .seed(24)
+                .build()
+                .run();
+
+        assertTrue(result.getReports() > 0);
+        assertEquals(result.getReports(), result.getResponseTime().getCount());
+        assertEquals(result.getReports(), result.getServiceTime().getCount());
+        assertTrue(result.getAllocationFailures() > 0);
+        assertTrue(result.getAllocationFailures() < result.getReports());
+        assertTrue(result.format().startsWith("simulation producers=2 offered=400/s duration=0.3s hold=0.1s"),
+                result.format());
+    }
+
+    @Test
+    void builderRejectsInvalidSettings() {
+        IncidentSimulation.Builder builder = IncidentSimulation.builder();
+
+        assertThrows(IllegalArgumentException.class, () -> builder.producers(0));
+        assertThrows(IllegalArgumentException.class, () -> builder.reportsPerSecond(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> builder.duration(null));
+        assertThrows(IllegalArgumentException.class, () -> builder.duration(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.holdTime(null));
+        assertThrows(IllegalArgumentException.class, () -> builder.holdTime(Duration.ofSeconds(-1)));
+        assertThrows(IllegalArgumentException.class, () -> builder.inventory(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.typeMix(Collections.singletonMap("Fire", 0)).build());
+        builder.duration(Duration.ZERO).holdTime(Duration.ZERO);
+    }
+}
@@ -0,0 +1,174 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class InventoryShardTest {
+
+    private static final List<String> REGIONS = Arrays.asList("north", "central");
+
+    private final LoopbackTransport transport = new LoopbackTransport();
+    private final Resource northAmbulances = new Resource("n2", "Ambulance", "Vehicle", "available", 2);
+    private final Resource centralAmbulances = new Resource("c2", "Ambulance", "Vehicle", "available", 5);
+    private InventoryShard north;
+    private InventoryShard central;
+
+    @AfterEach
+    void closeShards() {
+        north.close();
+        central.close();
+        transport.close();
+    }
+
+    @Test
+    void borrowsTheShortfallAndReturnsIt() throws Exception {
+        start(Duration.ofHours(1));
+
+        ShardAllocation allocation = north.allocate(request(4));
+
+        assertTrue(allocation.isSuccessful());
+        assertEquals(2, allocation.getLoans().get(0).getQuantity());
+        assertEquals(2, central.getLentQuantity("Ambulance"));
+        assertEquals(3, centralAmbulances.getAvailableQuantity());
+
+        north.release(allocation);
+        await(centralAmbulances::getAvailableQuantity, 5);
+        assertEquals(0, central.getLentQuantity("Ambulance"));
+        assertEquals(2, northAmbulances.getAvailableQuantity());
+    }
+
+    @Test
+    void failsAsAWholeWhenThePeersCannotCoverIt() throws Exception {
+        start(Duration.ofHours(1));
+
+        ShardAllocation allocation = north.allocate(request(8));
+
+        assertFalse(allocation.isSuccessful());
+        assertEquals(2, northAmbulances.getAvailableQuantity());
+        await(centralAmbulances::getAvailableQuantity, 5);  // The abort reaches the lender in the background
+    }
+
+    @Test
+    void returnsALoanOnceTheLenderIsReachableAgain() throws Exception {
+        start(Duration.ofHours(1));
+        ShardAllocation allocation = north.allocate(request(4));
+
+        transport.disconnect("central");
+        north.release(allocation);
+
+        assertEquals(1, north.getPendingReturnCount());
+        assertEquals(2, central.getLentQuantity("Ambulance"));
+        transport.reconnect("central");
+        await(north::getPendingReturnCount, 0);
+        await(centralAmbulances::getAvailableQuantity, 5);
+        assertEquals(0, central.getLentQuantity("Ambulance"));
+    }
+
+    @Test
+    void keepsLendingToAnIncidentThatOutlastsTheCheckInterval() throws Exception {
+        start(Duration.ofMillis(200));
+
+        ShardAllocation allocation = north.allocate(request(4));
+        Thread.sleep(700);  // Several checks; the borrower still holds the units every time
+
+        assertEquals(2, central.getLentQuantity("Ambulance"));
+        assertEquals(3, centralAmbulances.getAvailableQuantity());
+        north.release(allocation);
+        await(centralAmbulances::getAvailableQuantity, 5);
+    }
+
+    @Test
+    void takesBackALoanTheBorrowerGaveUpWhenItsReturnIsLost() throws Exception {
+        start(Duration.ofMillis(200));
+        ShardAllocation allocation = north.allocate(request(4));
+
+        transport.disconnect("central");
+        north.release(allocation);
+        north.close();  // The borrower stops retrying, so the return never arrives
+        assertEquals(1, north.getPendingReturnCount());
+        transport.reconnect("central");
+
+        await(centralAmbulances::getAvailableQuantity, 5);
+        assertEquals(0, central.getLentQuantity("Ambulance"));
+    }
+
+    @Test
+    void keepsTheLoanWhileTheBorrowerCannotBeAsked() throws Exception {
+        start(Duration.ofMillis(200));
+        north.allocate(request(4));
+
+        transport.disconnect("north");
+        Thread.sleep(700);
+
+        assertEquals(2, central.getLentQuantity("Ambulance"));
+        assertEquals(3, centralAmbulances.getAvailableQuantity());
+    }
+
+    @Test
+    void usesEveryLocalResourceWithTheNameBeforeBorrowing() throws Exception {
+        Resource moreAmbulances = new Resource("n3", "Ambulance", "Vehicle", "available", 3);
+        north = new InventoryShard("north", inventory(northAmbulances, moreAmbulances), transport, REGIONS);
+        central = new InventoryShard("central", inventory(centralAmbulances), transport, REGIONS);
+
+        ShardAllocation local = north.allocate(request(4));
+        ShardAllocation borrowed = north.allocate(request(3));
+
+        assertTrue(local.isLocal());
+        assertEquals(Arrays.asList(2, 2), local.getLocalQuantities());
+        assertEquals(Arrays.asList(1), borrowed.getLocalQuantities());
+        assertEquals(2, borrowed.getLoans().get(0).getQuantity());
+        north.release(local);
+        north.release(borrowed);
+        assertEquals(5, northAmbulances.getAvailableQuantity() + moreAmbulances.getAvailableQuantity());
+        await(centralAmbulances::getAvailableQuantity, 5);
+    }
+
+    @Test
+    void lendsFromEveryResourceWithTheName() {
+        Resource moreAmbulances = new Resource("c3", "Ambulance", "Vehicle", "available", 1);
+        north = new InventoryShard("north", inventory(northAmbulances), transport, REGIONS);
+        central = new InventoryShard("central", inventory(centralAmbulances, moreAmbulances), transport, REGIONS);
+
+        ShardAllocation allocation = north.allocate(request(8));
+
+        assertTrue(allocation.isSuccessful());
+        assertEquals(6, allocation.getLoans().get(0).getQuantity());
+        assertEquals(6, central.getLentQuantity("Ambulance"));
+        assertEquals(0, centralAmbulances.getAvailableQuantity() + moreAmbulances.getAvailableQuantity());
+    }
+
+    private void start(Duration loanTerm) {
+        north = new InventoryShard("north", inventory(northAmbulances), transport, REGIONS, Duration.ofSeconds(30), loanTerm);
+        central = new InventoryShard("central", inventory(centralAmbulances), transport, REGIONS, Duration.ofSeconds(30), loanTerm);
+    }
+
+    private static ResourceManagement inventory(Resource... resources) {
+        ResourceManagement inventory = new ResourceManagement();
+        for (Resource resource : resources) {
+            inventory.addResource(resource);
+        }
+        return inventory;
+    }
+
+    private static List<AllocationRequest> request(int ambulances) {
+        return Collections.singletonList(new AllocationRequest("Ambulance", ambulances));
+    }
+
+    private static void await(IntSupplier value, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (value.getAsInt() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, value.getAsInt());
+    }
+}
@@ -0,0 +1,190 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class NotificationDispatcherTest {
+
+    private static final Disaster FIRE = new Disaster("Fire", "Rockhampton", "High", "Grass fire near the highway");
+
+    private final RecordingSink sink = new RecordingSink();
+    private NotificationDispatcher dispatcher;
+
+    @AfterEach
+    void closeDispatcher() throws IOException {
+        sink.unblock("Police");
+        dispatcher.close();
+    }
+
+    @Test
+    void rejectsNewNotificationsWhenTheQueueIsFull() throws Exception {
+        dispatcher = new NotificationDispatcher(sink, 2, BackpressurePolicy.REJECT, RetryPolicy.none(), 2);
+        fillWhileBlocked();
+
+        assertFalse(dispatcher.submit(3, "Police", FIRE));
+        assertEquals(1, dispatcher.getStats("Police").getDropped());
+        assertEquals(3, dispatcher.getStats("Police").getQueueDepth());
+
+        sink.unblock("Police");
+        assertTrue(dispatcher.awaitIdle(10_000));
+        assertEquals(Arrays.asList(0L, 1L, 2L), sink.delivered("Police"));
+        assertEquals(3, dispatcher.getStats("Police").getDelivered());
+    }
+
+    @Test
+    void dropsTheOldestQueuedNotificationWhenTheQueueIsFull() throws Exception {
+        dispatcher = new NotificationDispatcher(sink, 2, BackpressurePolicy.DROP_OLDEST, RetryPolicy.none(), 2);
+        fillWhileBlocked();
+
+        assertTrue(dispatcher.submit(3, "Police", FIRE));
+        assertEquals(1, dispatcher.getStats("Police").getDropped());
+
+        sink.unblock("Police");
+        assertTrue(dispatcher.awaitIdle(10_000));
+        assertEquals(Arrays.asList(0L, 2L, 3L), sink.delivered("Police"), "the one being delivered is not dropped");
+    }
+
+    @Test
+    void slowDepartmentOnlyHoldsUpItself() throws Exception {
+        dispatcher = new NotificationDispatcher(sink, 16, BackpressurePolicy.REJECT, RetryPolicy.none(), 2);
+        sink.block("Police");
+        for (long id = 0; id < 10; id++) {
+            dispatcher.submit(id, FIRE, Arrays.asList("Police", "Medical"));
+        }
+
+        assertTrue(sink.awaitDelivered("Medical", 10));
+        assertEquals(Collections.emptyList(), sink.delivered("Police"));
+        assertEquals(10, dispatcher.getStats("Police").getQueueDepth());
+
+        sink.unblock("Police");
+        assertTrue(dispatcher.awaitIdle(10_000));
+        assertEquals(10, sink.delivered("Police").size());
+    }
+
+    @Test
+    void retriesFailedDeliveriesAndGivesUpAfterTheLastAttempt() throws Exception {
+        dispatcher = new NotificationDispatcher(sink, 16, BackpressurePolicy.REJECT, new RetryPolicy(3, 1, 10), 2);
+        sink.failures.put("Police", new AtomicInteger(2));
+        sink.failures.put("Medical", new AtomicInteger(Integer.MAX_VALUE));
+
+        dispatcher.submit(0, FIRE, Arrays.asList("Police", "Medical"));
+
+        assertTrue(dispatcher.awaitIdle(10_000));
+        assertEquals(Collections.singletonList(0L), sink.delivered("Police"));
+        assertEquals(2, dispatcher.getStats("Police").getRetries());
+        assertEquals(1, dispatcher.getStats("Medical").getFailed());
+        assertEquals(0, dispatcher.getStats("Medical").getDelivered());
+    }
+
+    @Test
+    void closeDeliversWhatIsQueuedThenRejectsTheRest() throws Exception {
+        dispatcher = new NotificationDispatcher(sink, 16, BackpressurePolicy.REJECT, RetryPolicy.none(), 1);
+        sink.delayMillis = 20;
+        for (long id = 0; id < 5; id++) {
+            assertTrue(dispatcher.submit(id, "Police", FIRE));
+        }
+
+        dispatcher.close();
+
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), sink.delivered("Police"));
+        assertTrue(sink.closed);
+        assertFalse(dispatcher.submit(5, "Police", FIRE));
+        assertEquals(1, dispatcher.getStats("Police").getDropped());
+    }
+
+    /**
+     * Blocks the Police department on its first notification and fills its queue of two behind it.
+     */
+    private void fillWhileBlocked() throws InterruptedException {
+        sink.block("Police");
+        assertTrue(dispatcher.submit(0, "Police", FIRE));
+        assertTrue(sink.awaitEntered("Police"));
+        assertTrue(dispatcher.submit(1, "Police", FIRE));
+        assertTrue(dispatcher.submit(2, "Police", FIRE));
+    }
+
+    /**
+     * Records what it delivers; a department can be blocked in delivery or made to fail.
+     */
+    private static final class RecordingSink implements NotificationSink {
+        final Map<String, List<Long>> delivered = new ConcurrentHashMap<>();
+        final Map<String, CountDownLatch> blocked = new ConcurrentHashMap<>();
+        final Map<String, CountDownLatch> entered = new ConcurrentHashMap<>();
+        final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+        volatile long delayMillis;
+        volatile boolean closed;
+
+        @Override
+        public void deliver(Notification notification) throws IOException {
+            String department = notification.getDepartment();
+            entered.computeIfAbsent(department, d -> new CountDownLatch(1)).countDown();
+            CountDownLatch gate = blocked.get(department);
+            try {
+                if (gate != null) {
+                    gate.await();
+                }
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+            AtomicInteger failing = failures.get(department);
+            if (failing != null && failing.getAndDecrement() > 0) {
+                throw new IOException(department + " is not answering");
+            }
+            delivered.computeIfAbsent(department, d -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(notification.getDisasterId());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        void block(String department) {
+            blocked.put(department, new CountDownLatch(1));
+        }
+
+        void unblock(String department) {
+            CountDownLatch gate = blocked.remove(department);
+            if (gate != null) {
+                gate.countDown();
+            }
+        }
+
+        boolean awaitEntered(String department) throws InterruptedException {
+            return entered.computeIfAbsent(department, d -> new CountDownLatch(1)).await(10, TimeUnit.SECONDS);
+        }
+
+        boolean awaitDelivered(String department, int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (delivered(department).size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return delivered(department).size() >= count;
+        }
+
+        List<Long> delivered(String department) {
+            List<Long> ids = delivered.getOrDefault(department, Collections.emptyList());
+            synchronized (ids) {
+                return new ArrayList<>(ids);
+            }
+        }
+    }
+}
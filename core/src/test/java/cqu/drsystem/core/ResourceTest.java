@@ -0,0 +1,153 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ResourceTest {
+
+    private static final int CAPACITY = 50;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    void reserveTakesAllOrNothing() {
+        Resource resource = new Resource("1", "Fire Truck", "Vehicle", "available", 5);
+
+        assertTrue(resource.tryReserve(3));
+        assertFalse(resource.tryReserve(3));
+        assertEquals(2, resource.getAvailableQuantity());
+        assertEquals(3, resource.getAllocatedQuantity());
+
+        resource.release(3);
+        assertEquals(5, resource.getAvailableQuantity());
+        assertEquals(0, resource.getAllocatedQuantity());
+    }
+
+    @Test
+    void rejectsNonPositiveQuantities() {
+        Resource resource = new Resource("1", "Fire Truck", "Vehicle", "available", 5);
+
+        assertThrows(IllegalArgumentException.class, () -> resource.tryReserve(0));
+        assertThrows(IllegalArgumentException.class, () -> resource.release(-1));
+    }
+
+    @Test
+    void rejectsReleasingTheSameUnitsTwice() {
+        Resource resource = new Resource("1", "Fire Truck", "Vehicle", "available", 5);
+        assertTrue(resource.tryReserve(3));
+
+        resource.release(3);
+
+        assertThrows(IllegalArgumentException.class, () -> resource.release(3));
+        assertThrows(IllegalArgumentException.class, () -> resource.release(1));
+        assertEquals(5, resource.getAvailableQuantity());
+        assertEquals(0, resource.getAllocatedQuantity());
+        assertTrue(resource.tryReserve(2));
+        assertThrows(IllegalArgumentException.class, () -> resource.release(3), "more than is allocated");
+        assertEquals(2, resource.getAllocatedQuantity());
+    }
+
+    @Test
+    void concurrentReservationsNeverOversubscribe() throws Exception {
+        Resource resource = new Resource("1", "Ambulance", "Vehicle", "available", CAPACITY);
+        AtomicInteger held = new AtomicInteger();  // Units the threads believe they hold
+        AtomicInteger maxHeld = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                long seed = t;
+                workers.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    start.await();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        int quantity = 1 + random.nextInt(5);
+                        if (resource.tryReserve(quantity)) {
+                            int now = held.addAndGet(quantity);
+                            maxHeld.accumulateAndGet(now, Math::max);
+                            int available = resource.getAvailableQuantity();
+                            if (available < 0 || available > CAPACITY) {
+                                violations.incrementAndGet();
+                            }
+                            held.addAndGet(-quantity);
+                            resource.release(quantity);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, violations.get(), "available quantity left [0, capacity]");
+        assertTrue(maxHeld.get() <= CAPACITY, "held " + maxHeld.get() + " units of " + CAPACITY);
+        assertEquals(CAPACITY, resource.getAvailableQuantity());
+        assertEquals(0, resource.getAllocatedQuantity());
+    }
+
+    @Test
+    void availablePlusAllocatedStaysConstantUnderContention() throws Exception {
+        Resource resource = new Resource("1", "Rescue Team", "Personnel", "available", CAPACITY);
+        List<Thread> threads = new ArrayList<>();
+        int[] heldAtEnd = new int[THREADS];
+        AtomicInteger violations = new AtomicInteger();
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            threads.add(new Thread(() -> {
+                Random random = new Random(index);
+                int held = 0;
+                for (int i = 0; i < ROUNDS; i++) {
+                    if (held > 0 && random.nextBoolean()) {
+                        int quantity = 1 + random.nextInt(held);
+                        resource.release(quantity);
+                        held -= quantity;
+                    } else {
+                        int quantity = 1 + random.nextInt(3);
+                        if (resource.tryReserve(quantity)) {
+                            held += quantity;
+                        }
+                    }
+                    if (resource.getAvailableQuantity() < 0) {
+                        violations.incrementAndGet();
+                    }
+                }
+                heldAtEnd[index] = held;
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+        }
+
+        int held = 0;
+        for (int units : heldAtEnd) {
+            held += units;
+        }
+        assertEquals(0, violations.get(), "available quantity went negative");
+        assertEquals(held, resource.getAllocatedQuantity());
+        assertEquals(CAPACITY - held, resource.getAvailableQuantity());
+        assertEquals(CAPACITY, resource.getAvailableQuantity() + resource.getAllocatedQuantity());
+    }
+}
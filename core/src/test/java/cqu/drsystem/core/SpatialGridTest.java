@@ -0,0 +1,142 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpatialGridTest {
+
+    @Test
+    void movesItemsBetweenCells() {
+        SpatialGrid<String> grid = new SpatialGrid<>(1);
+        String truck = "truck";
+        String ambulance = "ambulance";
+        grid.put(truck, new GeoPoint(0.5, 0.5));
+        grid.put(ambulance, new GeoPoint(-0.5, -0.5));  // The cell below and to the left of the origin
+
+        grid.put(truck, new GeoPoint(0.9, 0.9));
+        grid.put(ambulance, new GeoPoint(0.1, 0.1));
+
+        assertEquals(2, grid.size());
+        assertEquals(new GeoPoint(0.9, 0.9), grid.positionOf(truck));
+        assertEquals(Arrays.asList(ambulance, truck), items(grid.withinRadius(new GeoPoint(0, 0), 150)));
+        assertEquals(Collections.emptyList(), grid.withinRadius(new GeoPoint(-0.5, -0.5), 20));
+        assertTrue(grid.remove(truck));
+        assertFalse(grid.remove(truck));
+        assertNull(grid.positionOf(truck));
+        assertEquals(Collections.singletonList(ambulance), items(grid.nearest(new GeoPoint(0.9, 0.9), 5)));
+    }
+
+    @Test
+    void findsItemsJustAcrossACellEdge() {
+        SpatialGrid<String> grid = new SpatialGrid<>(1);
+        String across = "across";
+        String farInside = "far inside";
+        grid.put(across, new GeoPoint(-23.001, 150.001));  // A different cell in both directions
+        grid.put(farInside, new GeoPoint(-23.9, 150.9));
+
+        GeoPoint point = new GeoPoint(-22.999, 149.999);
+        assertEquals(Collections.singletonList(across), items(grid.withinRadius(point, 1)));
+        assertEquals(Collections.singletonList(across), items(grid.nearest(point, 1)));
+        assertEquals(Arrays.asList(across, farInside), items(grid.nearest(point, 2)));
+    }
+
+    @Test
+    void agreesWithABruteForceScan() {
+        Random random = new Random(14);
+        SpatialGrid<String> grid = new SpatialGrid<>(0.5);
+        List<String> items = new ArrayList<>();
+        List<GeoPoint> positions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String item = "item " + i;
+            // Dense near the equator and the pole, where cells are widest and narrowest
+            GeoPoint position = new GeoPoint(i % 2 == 0 ? random.nextDouble() * 10 - 5 : 80 + random.nextDouble() * 10,
+                    random.nextDouble() * 20 - 10);
+            grid.put(item, position);
+            items.add(item);
+            positions.add(position);
+        }
+
+        for (int query = 0; query < 200; query++) {
+            GeoPoint point = new GeoPoint(query % 2 == 0 ? random.nextDouble() * 10 - 5 : 80 + random.nextDouble() * 10,
+                    random.nextDouble() * 20 - 10);
+            double radiusKm = 10 + random.nextDouble() * 200;
+            List<Neighbor<String>> expected = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                expected.add(new Neighbor<>(items.get(i), point.distanceKm(positions.get(i))));
+            }
+            expected.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+
+            List<String> within = new ArrayList<>();
+            for (Neighbor<String> neighbor : expected) {
+                if (neighbor.getDistanceKm() <= radiusKm) {
+                    within.add(neighbor.getItem());
+                }
+            }
+            assertEquals(within, items(grid.withinRadius(point, radiusKm)), "within " + radiusKm + " km of " + point);
+            List<Neighbor<String>> nearest = grid.nearest(point, 7);
+            for (int i = 0; i < 7; i++) {
+                assertEquals(expected.get(i).getDistanceKm(), nearest.get(i).getDistanceKm(), 1e-9, "nearest to " + point);
+            }
+        }
+    }
+
+    @Test
+    void searchesAcrossThePole() {
+        SpatialGrid<String> grid = new SpatialGrid<>(1);
+        String otherSide = "other side";
+        String sameSide = "same side";
+        grid.put(otherSide, new GeoPoint(89.9, 179));  // About 22 km away over the pole
+        grid.put(sameSide, new GeoPoint(89.5, 0));  // About 44 km away
+
+        GeoPoint point = new GeoPoint(89.9, 0);
+        assertEquals(Arrays.asList(otherSide, sameSide), items(grid.nearest(point, 2)));
+        assertEquals(Collections.singletonList(otherSide), items(grid.withinRadius(point, 30)));
+
+        String south = "south";
+        grid.put(south, new GeoPoint(-89.95, 90));
+        GeoPoint southPoint = new GeoPoint(-89.95, -90);  // About 11 km away over the south pole
+        assertEquals(Collections.singletonList(south), items(grid.nearest(southPoint, 1)));
+        assertEquals(Collections.singletonList(south), items(grid.withinRadius(southPoint, 15)));
+    }
+
+    @Test
+    void doesNotWrapAroundTheAntimeridian() {
+        SpatialGrid<String> grid = new SpatialGrid<>(1);
+        String east = "east";
+        String west = "west";
+        grid.put(east, new GeoPoint(0, 179.95));
+        grid.put(west, new GeoPoint(0, -179.95));  // 11 km from the other across longitude ±180
+
+        assertEquals(Collections.singletonList(east), items(grid.withinRadius(new GeoPoint(0, 180), 20)));
+        assertEquals(Collections.singletonList(west), items(grid.nearest(new GeoPoint(0, -179.99), 1)));
+        // As documented, the search stays on its side of longitude ±180, though the other item is 7 km away
+        assertEquals(Collections.singletonList(east), items(grid.withinRadius(new GeoPoint(0, 179.99), 20)));
+        assertEquals(Collections.singletonList(west), items(grid.withinRadius(new GeoPoint(0, -179.99), 20)));
+    }
+
+    @Test
+    void rejectsInvalidCellSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGrid<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGrid<String>(91));
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGrid<String>(Double.NaN));
+    }
+
+    private static List<String> items(List<Neighbor<String>> neighbors) {
+        List<String> items = new ArrayList<>();
+        for (Neighbor<String> neighbor : neighbors) {
+            items.add(neighbor.getItem());
+        }
+        return items;
+    }
+}
@@ -0,0 +1,87 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final TimerWheel wheel = new TimerWheel(TICK, clock::get);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    void firesNoEarlierThanTheDelayAndAtMostOneTickLate() {
+        clock.set(TimeUnit.MILLISECONDS.toNanos(7));  // Between ticks, so the deadline of 32ms is too
+        wheel.schedule(() -> fired.add("a"), 25, TimeUnit.MILLISECONDS);
+
+        advanceTo(TimeUnit.MILLISECONDS.toNanos(39));
+        assertEquals(Arrays.asList(), fired);
+        advanceTo(TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(Arrays.asList("a"), fired);
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    void cascadesTimeoutsFromTheUpperLevels() {
+        long[] delays = {5, 63, 64, 65, 4095, 4096, 300_000};
+        List<Long> due = new ArrayList<>();
+        for (long delay : delays) {
+            wheel.schedule(() -> due.add(clock.get() / TICK), delay * 10, TimeUnit.MILLISECONDS);
+        }
+
+        for (long tick = 1; tick <= 300_000; tick++) {
+            clock.set(tick * TICK);
+            wheel.advance();
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long delay : delays) {
+            expected.add(delay);
+        }
+        assertEquals(expected, due);
+    }
+
+    @Test
+    void cancelledTimeoutDoesNotFire() {
+        TimerWheel.Timeout kept = wheel.schedule(() -> fired.add("kept"), 100, TimeUnit.MILLISECONDS);
+        TimerWheel.Timeout cancelled = wheel.schedule(() -> fired.add("cancelled"), 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.getPendingCount());
+        advanceTo(TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(Arrays.asList("kept"), fired);
+        assertTrue(kept.isExpired());
+        assertFalse(kept.cancel());
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test
+    void tasksMayScheduleMoreTimeouts() {
+        wheel.schedule(() -> {
+            fired.add("first");
+            wheel.schedule(() -> fired.add("second"), 0, TimeUnit.MILLISECONDS);
+        }, 10, TimeUnit.MILLISECONDS);
+
+        advanceTo(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(Arrays.asList("first"), fired);
+        advanceTo(TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(Arrays.asList("first", "second"), fired);
+    }
+
+    private void advanceTo(long nanos) {
+        clock.set(nanos);
+        wheel.advance();
+    }
+}
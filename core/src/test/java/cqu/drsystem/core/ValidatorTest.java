@@ -0,0 +1,147 @@
+package cqu.drsystem.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ValidatorTest {
+
+    private static final List<AllocationRequest> ONE_TRUCK = Collections.singletonList(new AllocationRequest("Fire Truck", 1));
+
+    @Test
+    void acceptsAValidReport() {
+        DisasterReport report = report("Fire", "Rockhampton", "High", "Grass fire near the highway", ONE_TRUCK);
+
+        assertEquals(Collections.emptyList(), Validators.DISASTER_REPORT.validate(report));
+        assertTrue(Validators.DISASTER_REPORT.isValid(report));
+        Validators.DISASTER_REPORT.check(report);
+    }
+
+    @Test
+    void requiresAType() {
+        assertFails(Collections.singletonList("type"), report(null, "Rockhampton", "High", "Grass fire near the highway", ONE_TRUCK));
+        assertFails(Collections.singletonList("type"), report(" \t", "Rockhampton", "High", "Grass fire near the highway", ONE_TRUCK));
+    }
+
+    @Test
+    void requiresALocationOfAtLeastThreeLettersOrSpaces() {
+        assertFails(Collections.singletonList("location"), report("Fire", "Ab", "High", "Grass fire near the highway", ONE_TRUCK));
+        assertFails(Collections.singletonList("location"), report("Fire", " Ab  ", "High", "Grass fire near the highway", ONE_TRUCK));
+        assertFails(Collections.singletonList("location"), report("Fire", "Rockhampton 4700", "High", "Grass fire near the highway", ONE_TRUCK));
+        assertFails(Arrays.asList("location", "location"), report("Fire", null, "High", "Grass fire near the highway", ONE_TRUCK));
+        assertFails(Collections.emptyList(), report("Fire", " Mount Morgan ", "High", "Grass fire near the highway", ONE_TRUCK));
+    }
+
+    @Test
+    void requiresASeverity() {
+        assertFails(Collections.singletonList("severity"), report("Fire", "Rockhampton", null, "Grass fire near the highway", ONE_TRUCK));
+        assertFails(Collections.singletonList("severity"), report("Fire", "Rockhampton", "", "Grass fire near the highway", ONE_TRUCK));
+    }
+
+    @Test
+    void requiresADescriptionOfAtLeastTenCharacters() {
+        assertFails(Collections.singletonList("description"), report("Fire", "Rockhampton", "High", "Grass fir", ONE_TRUCK));
+        assertFails(Collections.singletonList("description"), report("Fire", "Rockhampton", "High", "   Grass fir   ", ONE_TRUCK));
+        assertFails(Collections.emptyList(), report("Fire", "Rockhampton", "High", "  Grass fire ", ONE_TRUCK));
+    }
+
+    @Test
+    void requiresAResource() {
+        assertFails(Collections.singletonList("resources"),
+                report("Fire", "Rockhampton", "High", "Grass fire near the highway", Collections.emptyList()));
+    }
+
+    @Test
+    void reportsErrorsInDeclarationOrder() {
+        List<ValidationError> errors = Validators.DISASTER_REPORT.validate(report(null, "R2", null, "", Collections.emptyList()));
+
+        assertEquals(Arrays.asList("Please select a valid disaster type.",
+                "Please enter a valid location (at least 3 characters).",
+                "Location must contain only letters and spaces.",
+                "Please select the severity of the disaster.",
+                "Please provide a more detailed description (at least 10 characters).",
+                "Please select at least one resource to allocate."), messages(errors));
+        ValidationException thrown = assertThrows(ValidationException.class,
+                () -> Validators.DISASTER_REPORT.check(report(null, "R2", null, "", Collections.emptyList())));
+        assertEquals(errors.size(), thrown.getErrors().size());
+    }
+
+    @Test
+    void loginRequiresAUsernameAndPasswordOfMinimumLength() {
+        assertEquals(Collections.emptyList(), Validators.LOGIN.validate(new CredentialForm("amy", "secret")));
+        assertEquals(Arrays.asList("username", "password"), fields(Validators.LOGIN.validate(new CredentialForm("am", "short"))));
+        assertEquals(Arrays.asList("Username cannot be empty.", "Password cannot be empty.",
+                "Username must be at least 3 characters long.", "Password must be at least 6 characters long."),
+                messages(Validators.LOGIN.validate(new CredentialForm(null, null))));
+    }
+
+    @Test
+    void registrationRequiresAMatchingPasswordWithAnUppercaseLetterAndADigit() {
+        assertEquals(Collections.emptyList(), Validators.REGISTRATION.validate(new CredentialForm("amy", "Secret1", "Secret1")));
+        assertEquals(Collections.singletonList("Password must contain at least one uppercase letter."),
+                messages(Validators.REGISTRATION.validate(new CredentialForm("amy", "secret1", "secret1"))));
+        assertEquals(Collections.singletonList("Password must contain at least one digit."),
+                messages(Validators.REGISTRATION.validate(new CredentialForm("amy", "Secrets", "Secrets"))));
+        assertEquals(Collections.singletonList("Passwords do not match."),
+                messages(Validators.REGISTRATION.validate(new CredentialForm("amy", "Secret1", "Secret2"))));
+        assertEquals(Arrays.asList("Password cannot be empty.", "Confirm Password cannot be empty.",
+                "Password must be at least 6 characters long.", "Password must contain at least one uppercase letter.",
+                "Password must contain at least one digit."),
+                messages(Validators.REGISTRATION.validate(new CredentialForm("amy", null, null))));
+    }
+
+    @Test
+    void builderRejectsUnknownAndDuplicateFields() {
+        Validator.Builder<CredentialForm> builder = new Validator.Builder<CredentialForm>()
+                .field("username", CredentialForm::getUsername);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.field("username", CredentialForm::getPassword));
+        assertThrows(IllegalArgumentException.class, () -> builder.required("password", "Password cannot be empty."));
+    }
+
+    @Test
+    void onlyCharsRejectsEmptyText() {
+        Validator<CredentialForm> digits = new Validator.Builder<CredentialForm>()
+                .field("username", CredentialForm::getUsername)
+                .onlyChars("username", CharClass.DIGITS, "Digits only.")
+                .build();
+
+        assertTrue(digits.isValid(new CredentialForm("4700", null)));
+        assertFalse(digits.isValid(new CredentialForm("47a0", null)));
+        assertFalse(digits.isValid(new CredentialForm("", null)));
+    }
+
+    private static void assertFails(List<String> expectedFields, DisasterReport report) {
+        List<ValidationError> errors = Validators.DISASTER_REPORT.validate(report);
+        assertEquals(expectedFields, fields(errors));
+        assertEquals(expectedFields.isEmpty(), Validators.DISASTER_REPORT.isValid(report));
+    }
+
+    private static List<String> fields(List<ValidationError> errors) {
+        List<String> fields = new ArrayList<>();
+        for (ValidationError error : errors) {
+            fields.add(error.getField());
+        }
+        return fields;
+    }
+
+    private static List<String> messages(List<ValidationError> errors) {
+        List<String> messages = new ArrayList<>();
+        for (ValidationError error : errors) {
+            messages.add(error.getMessage());
+        }
+        return messages;
+    }
+
+    private static DisasterReport report(String type, String location, String severity, String description,
+                                         List<AllocationRequest> requests) {
+        return new DisasterReport(type, location, severity, description, requests);
+    }
+}
@@ -0,0 +1,243 @@
+package cqu.drsystem;
+
+import cqu.drsystem.core.AuthenticationService;
+import cqu.drsystem.core.BackpressurePolicy;
+import cqu.drsystem.core.DepartmentRouter;
+import cqu.drsystem.core.DisasterJournal;
+import cqu.drsystem.core.DispatchService;
+import cqu.drsystem.core.FileNotificationSink;
+import cqu.drsystem.core.MetricsReporter;
+import cqu.drsystem.core.NotificationDispatcher;
+import cqu.drsystem.core.NotificationSink;
+import cqu.drsystem.core.RetryPolicy;
+import cqu.drsystem.core.Session;
+import cqu.drsystem.core.SocketNotificationSink;
+import cqu.drsystem.core.StateSnapshot;
+import javafx.application.Application;
+import javafx.scene.Group;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class App extends Application {
+    private static final System.Logger LOGGER = System.getLogger(App.class.getName());
+
+    private static Scene scene;
+    private static ScreenCache screens;  // Every screen loaded so far, with its controller
+    private static Session session = null;  // The logged-in user's session
+    private static AuthenticationService authenticationService;  // Verifies logins off the FX thread
+    private static DisasterJournal journal = null;  // Durable event journal, null if it could not be opened
+    private static ScheduledExecutorService backgroundExecutor;  // Runs snapshots and other background work
+    private static DispatchService dispatchService;  // Headless dispatch core shared by all screens
+    private static NotificationDispatcher notifier;  // Delivers department notifications, null if unavailable
+    private static MetricsReporter metricsReporter;  // Publishes dispatch metrics, null if unavailable
+
+    @Override
+    public void start(Stage stage) throws IOException {
+        long startNanos = System.nanoTime();
+        backgroundExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "drsystem-background");
+            thread.setDaemon(true);
+            return thread;
+        });
+        openJournal();
+        authenticationService = new AuthenticationService(getDataDirectory().resolve("credentials"),
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        openNotifier();
+        dispatchService = new DispatchService(journal, DepartmentRouter.createConfigured(), notifier);
+        dispatchService.restore(getSnapshotFile());
+        dispatchService.getScheduler().setPreemptive(Boolean.getBoolean("drsystem.scheduler.preemptive"));
+        scheduleSnapshots();
+        openMetricsReporter();
+
+        // Load login screen first; with drsystem.startup.timing set, log when each screen takes input
+        screens = new ScreenCache(Boolean.getBoolean("drsystem.startup.timing"));
+        scene = new Scene(new Group(), 600, 400);
+        screens.show(scene, "login", startNanos);  // Initial scene is the login page
+        stage.setTitle("Disaster Response System - Login");
+        stage.setScene(scene);
+        stage.show();
+
+        // Build the main page while the user logs in
+        screens.preload("primary", backgroundExecutor);
+    }
+
+    @Override
+    public void stop() throws IOException, InterruptedException {
+        screens.clear();
+        // Write a final snapshot so the next start does not replay the whole journal
+        if (journal != null) {
+            backgroundExecutor.execute(App::writeSnapshot);
+        }
+        backgroundExecutor.shutdown();
+        backgroundExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        dispatchService.getRouter().close();
+        authenticationService.close();
+        if (metricsReporter != null) {
+            metricsReporter.close();
+            metricsReporter = null;
+        }
+        if (notifier != null) {
+            notifier.close();
+            notifier = null;
+        }
+        dispatchService.close();  // No timed release may reach the journal once it is closed
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Gets the directory holding the journal and snapshots: the {@code drsystem.data.dir}
+     * system property, or {@code ~/.drsystem} by default.
+     *
+     * @return the data directory
+     */
+    public static Path getDataDirectory() {
+        String configured = System.getProperty("drsystem.data.dir");
+        return configured != null
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".drsystem");
+    }
+
+    /**
+     * Gets the file the latest state snapshot is stored in.
+     *
+     * @return the snapshot file
+     */
+    public static Path getSnapshotFile() {
+        return getDataDirectory().resolve("snapshot.bin");
+    }
+
+    /**
+     * Opens the disaster journal in the data directory. The system still runs
+     * without a journal if it cannot be opened.
+     */
+    private static void openJournal() {
+        Path directory = getDataDirectory().resolve("journal");
+        try {
+            journal = DisasterJournal.open(directory);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not open the disaster journal in " + directory + ": " + e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * Opens the department notification dispatcher. Notifications go to the socket named by
+     * {@code drsystem.notify.socket} ({@code host:port}) if set, otherwise to one file per
+     * department in the data directory. Queue capacity and backpressure can be set with
+     * {@code drsystem.notify.queue.capacity} and {@code drsystem.notify.backpressure}.
+     */
+    private static void openNotifier() {
+        try {
+            NotificationSink sink;
+            String socket = System.getProperty("drsystem.notify.socket");
+            if (socket != null) {
+                int colon = socket.lastIndexOf(':');
+                sink = new SocketNotificationSink(socket.substring(0, colon), Integer.parseInt(socket.substring(colon + 1)));
+            } else {
+                sink = new FileNotificationSink(getDataDirectory().resolve("notifications"));
+            }
+            int capacity = Integer.getInteger("drsystem.notify.queue.capacity", 1024);
+            BackpressurePolicy backpressure = BackpressurePolicy.valueOf(
+                    System.getProperty("drsystem.notify.backpressure", BackpressurePolicy.DROP_OLDEST.name()));
+            notifier = new NotificationDispatcher(sink, capacity, backpressure, new RetryPolicy(5, 100, 5000), 4);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not open the notification dispatcher: " + e.getMessage());
+            notifier = null;
+        }
+    }
+
+    /**
+     * Publishes the dispatch metrics over JMX and dumps them to {@code metrics.txt} in the data
+     * directory every {@code drsystem.metrics.dump.seconds} seconds (60 by default).
+     */
+    private static void openMetricsReporter() {
+        long period = Long.getLong("drsystem.metrics.dump.seconds", 60);
+        try {
+            metricsReporter = new MetricsReporter(dispatchService.getMetrics(),
+                    getDataDirectory().resolve("metrics.txt"), period, TimeUnit.SECONDS);
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not publish the dispatch metrics: " + e.getMessage());
+            metricsReporter = null;
+        }
+    }
+
+    /**
+     * Schedules periodic state snapshots every {@code drsystem.snapshot.interval.minutes}
+     * minutes (5 by default). Snapshots are only useful together with the journal.
+     */
+    private static void scheduleSnapshots() {
+        if (journal == null) {
+            return;
+        }
+        long interval = Long.getLong("drsystem.snapshot.interval.minutes", 5);
+        backgroundExecutor.scheduleAtFixedRate(App::writeSnapshot, interval, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Captures the dispatch state and writes it to the snapshot file. Runs on the background executor.
+     */
+    private static void writeSnapshot() {
+        StateSnapshot snapshot = dispatchService.captureSnapshot();
+        try {
+            snapshot.writeTo(getSnapshotFile());
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Could not write the state snapshot: " + e.getMessage());
+        }
+    }
+
+    public static DisasterJournal getJournal() {
+        return journal;
+    }
+
+    public static AuthenticationService getAuthenticationService() {
+        return authenticationService;
+    }
+
+    public static DispatchService getDispatchService() {
+        return dispatchService;
+    }
+
+    public static ScheduledExecutorService getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+    /**
+     * Shows a screen. Screens are loaded once and kept, so returning to one finds it as it was left.
+     *
+     * @param fxml the name of the screen's FXML file, without extension
+     * @throws IOException if the screen could not be loaded
+     */
+    public static void setRoot(String fxml) throws IOException {
+        screens.show(scene, fxml, System.nanoTime());
+    }
+
+    public static String getLoggedInUser() {
+        Session current = session == null ? null : authenticationService.validate(session.getToken());
+        return current == null ? null : current.getUsername();
+    }
+
+    public static void setSession(Session newSession) {
+        session = newSession;
+    }
+
+    public static void logout() throws IOException {
+        if (session != null) {
+            authenticationService.logout(session.getToken());
+            session = null;
+        }
+        setRoot("login");  // Redirect to login page
+    }
+
+    public static void main(String[] args) {
+        launch();
+    }
+}
@@ -0,0 +1,211 @@
+package cqu.drsystem;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * The rows of a list panel, one per key, kept up to date from any thread. Changes are recorded
+ * per key and applied on the FX thread in a single batch: however many arrive between two pulses,
+ * at most one {@link Platform#runLater} is outstanding, only the latest value of each key is
+ * applied, and only rows whose text actually changed are touched. A list view bound to
+ * {@link #getRows()} therefore updates a handful of cells per pulse instead of rebuilding every
+ * row after every change.
+ *
+ * @param <K> the key of a row, such as a department name or resource id
+ * @param <V> the value shown in a row
+ */
+public class CoalescingListModel<K, V> {
+
+    private final ObservableList<V> rows = FXCollections.observableArrayList();
+    private final Executor fxExecutor;
+
+    // Owned by the FX thread
+    private final List<K> keys = new ArrayList<>();
+    private final Map<K, Integer> indexOf = new HashMap<>();
+
+    // Guarded by this
+    private Map<K, Change<V>> pending = new LinkedHashMap<>();
+    private boolean replacing;  // The pending puts are the complete set of rows
+    private boolean scheduled;
+
+    /**
+     * Creates a model that applies its changes on the JavaFX application thread.
+     */
+    public CoalescingListModel() {
+        this(Platform::runLater);
+    }
+
+    /**
+     * Creates a model that applies its changes through the given executor, which must run
+     * them one at a time on the thread that owns the rows.
+     *
+     * @param fxExecutor the executor of the thread that owns the rows
+     */
+    public CoalescingListModel(Executor fxExecutor) {
+        this.fxExecutor = fxExecutor;
+    }
+
+    /**
+     * Gets the rows, for binding to a list view. Only read them on the thread that owns them.
+     *
+     * @return the rows, in the order their keys were first put
+     */
+    public ObservableList<V> getRows() {
+        return rows;
+    }
+
+    /**
+     * Sets the row of a key, adding it at the end if the key is not shown yet.
+     *
+     * @param key the key of the row
+     * @param value the value to show
+     */
+    public void put(K key, V value) {
+        record(key, new Change<>(value, false));
+    }
+
+    /**
+     * Sets the row of a key only if the key is shown, such as to refresh a resource that may
+     * have been taken off the panel in the meantime.
+     *
+     * @param key the key of the row
+     * @param value the value to show
+     */
+    public void update(K key, V value) {
+        record(key, new Change<>(value, true));
+    }
+
+    /**
+     * Removes the row of a key, if it is shown.
+     *
+     * @param key the key of the row
+     */
+    public void remove(K key) {
+        record(key, new Change<>(null, false));
+    }
+
+    /**
+     * Replaces all rows. Rows whose value is unchanged are left alone, so replacing the panel
+     * with an almost identical set costs only the rows that differ.
+     *
+     * @param values the new rows by key, in the order to show new keys
+     */
+    public void replaceAll(Map<K, V> values) {
+        boolean schedule;
+        synchronized (this) {
+            pending = new LinkedHashMap<>();
+            for (Map.Entry<K, V> entry : values.entrySet()) {
+                pending.put(entry.getKey(), new Change<>(entry.getValue(), false));
+            }
+            replacing = true;
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            fxExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Removes all rows.
+     */
+    public void clear() {
+        replaceAll(Map.of());
+    }
+
+    private void record(K key, Change<V> change) {
+        boolean schedule;
+        synchronized (this) {
+            Change<V> previous = pending.get(key);
+            if (change.ifShown && replacing && previous == null) {
+                return;  // Not part of the replacement, so it will not be shown
+            }
+            if (change.ifShown && previous != null && !previous.ifShown) {
+                // A put or remove already pending decides whether the key is shown
+                change = previous.value == null ? previous : new Change<>(change.value, false);
+            }
+            pending.put(key, change);
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            fxExecutor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Applies the pending changes. Runs on the thread that owns the rows.
+     */
+    void flush() {
+        Map<K, Change<V>> changes;
+        boolean replace;
+        synchronized (this) {
+            changes = pending;
+            replace = replacing;
+            pending = new LinkedHashMap<>();
+            replacing = false;
+            scheduled = false;
+        }
+        if (replace) {
+            // Drop the rows that are not part of the new set, from the end so indexes stay valid
+            boolean removed = false;
+            for (int index = keys.size() - 1; index >= 0; index--) {
+                if (!changes.containsKey(keys.get(index))) {
+                    indexOf.remove(keys.remove(index));
+                    rows.remove(index);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                reindex(0);
+            }
+        }
+        for (Map.Entry<K, Change<V>> entry : changes.entrySet()) {
+            K key = entry.getKey();
+            Change<V> change = entry.getValue();
+            Integer index = indexOf.get(key);
+            if (change.value == null) {
+                if (index != null) {
+                    indexOf.remove(key);
+                    keys.remove((int) index);
+                    rows.remove((int) index);
+                    reindex(index);
+                }
+            } else if (index != null) {
+                if (!change.value.equals(rows.get(index))) {
+                    rows.set(index, change.value);
+                }
+            } else if (!change.ifShown) {
+                indexOf.put(key, keys.size());
+                keys.add(key);
+                rows.add(change.value);
+            }
+        }
+    }
+
+    private void reindex(int from) {
+        for (int index = from; index < keys.size(); index++) {
+            indexOf.put(keys.get(index), index);
+        }
+    }
+
+    /**
+     * The latest change of a key: a new value, or null to remove the row.
+     */
+    private static final class Change<V> {
+        final V value;
+        final boolean ifShown;  // Only update a row that is already shown
+
+        Change(V value, boolean ifShown) {
+            this.value = value;
+            this.ifShown = ifShown;
+        }
+    }
+}
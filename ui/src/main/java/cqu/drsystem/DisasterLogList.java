@@ -0,0 +1,192 @@
+package cqu.drsystem;
+
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DispatchService;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The disaster log as a list view sees it, read straight from the service's store. Nothing is
+ * copied: a row's disaster is looked up when a cell asks for it, so only the rows on screen have
+ * views, however long the log grows. The list only changes when {@link #refresh()} is called on
+ * the FX thread, so rows logged from other threads appear at the next refresh.
+ * <p>
+ * With a filter set, the list holds the ids of the matching rows. The log is searched on a
+ * background thread and the matches are published on the FX thread, so typing in the filter
+ * never scans the log on the FX thread. Until a search finishes the list shows the previous
+ * matches.
+ */
+class DisasterLogList extends ObservableListBase<Disaster> {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final DispatchService service;
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "drsystem-log-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Only used on the FX thread
+    private int generation;  // The log generation the rows belong to
+    private int covered;  // The log rows the list is up to date with
+    private String filter;  // Null when every row is shown
+    private int[] matches;  // The ids of the rows shown, or null while every row is shown
+    private int size;  // The rows announced to listeners so far
+    private long searchId;  // Identifies the latest search, so older results are dropped
+    private boolean searching;
+
+    /**
+     * Creates an empty list over the service's log; call {@link #refresh()} to show its rows.
+     *
+     * @param service the service whose log is shown
+     */
+    DisasterLogList(DispatchService service) {
+        this.service = service;
+        this.generation = service.getLogGeneration();
+    }
+
+    @Override
+    public Disaster get(int index) {
+        return service.getDisaster(getLogIndex(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the position in the full log of a row of the list.
+     *
+     * @param index the row of the list
+     * @return the disaster id of the row
+     */
+    int getLogIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+        }
+        return matches == null ? index : matches[index];
+    }
+
+    /**
+     * Brings the list up to the rows now in the log. The log only grows until it is reset, which
+     * starts a new generation of it; then every row announced so far is removed first. With a
+     * filter set, new rows are searched in the background and appear once the search is done.
+     */
+    void refresh() {
+        int currentGeneration = service.getLogGeneration();  // Read before the count, so a reset in between is seen next time
+        int count = service.getDisasterCount();
+        if (currentGeneration != generation) {
+            generation = currentGeneration;
+            covered = 0;
+            searchId++;  // Whatever is being searched belongs to the old rows
+            searching = false;
+            replaceRows(filter == null ? null : NO_ROWS, 0);
+        }
+        if (count <= covered) {
+            return;
+        }
+        if (filter == null) {
+            beginChange();
+            nextAdd(size, count);
+            size = count;
+            endChange();
+            covered = count;
+        } else if (!searching) {
+            search(covered, count);
+        }
+    }
+
+    /**
+     * Shows only the rows where any field contains the text, ignoring case.
+     *
+     * @param text the text to look for, or null or blank to show every row
+     */
+    void setFilter(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        String newFilter = trimmed.isEmpty() ? null : trimmed;
+        if (newFilter == null ? filter == null : newFilter.equals(filter)) {
+            return;
+        }
+        filter = newFilter;
+        searchId++;
+        searching = false;
+        if (newFilter == null) {
+            int count = service.getDisasterCount();
+            replaceRows(null, Math.min(count, covered));
+            refresh();
+        } else {
+            search(0, covered);  // The previous rows stay on screen until the new matches are in
+        }
+    }
+
+    /**
+     * Searches part of the log for the filter in the background.
+     *
+     * @param from the first log row to search; 0 replaces the matches, otherwise they are extended
+     * @param to the log row after the last one to search
+     */
+    private void search(int from, int to) {
+        long id = ++searchId;
+        String text = filter;
+        int searchGeneration = generation;
+        searching = true;
+        searcher.execute(() -> {
+            int[] found = service.findDisastersContaining(text, from, to);
+            if (service.getLogGeneration() != searchGeneration) {
+                found = null;  // The log was replaced while it was searched; the next refresh starts over
+            }
+            int[] result = found;
+            Platform.runLater(() -> publish(id, from, to, result));
+        });
+    }
+
+    private void publish(long id, int from, int to, int[] found) {
+        if (id != searchId) {
+            return;  // A later search or a reset superseded this one
+        }
+        searching = false;
+        if (found != null) {
+            if (from == 0) {
+                replaceRows(found, found.length);
+            } else {
+                int[] extended = Arrays.copyOf(matches, matches.length + found.length);
+                System.arraycopy(found, 0, extended, matches.length, found.length);
+                matches = extended;
+                beginChange();
+                nextAdd(size, extended.length);
+                size = extended.length;
+                endChange();
+            }
+            covered = to;
+        }
+        refresh();  // Rows may have been logged while the search ran
+    }
+
+    /**
+     * Replaces every row of the list in one change event.
+     *
+     * @param newMatches the ids of the rows to show, or null to show the first log rows
+     * @param newSize the number of rows to show
+     */
+    private void replaceRows(int[] newMatches, int newSize) {
+        beginChange();
+        if (size > 0) {
+            // The old rows may be gone from the store, so there is nothing to report them as
+            nextRemove(0, Collections.nCopies(size, (Disaster) null));
+        }
+        matches = newMatches;
+        size = newSize;
+        if (newSize > 0) {
+            nextAdd(0, newSize);
+        }
+        endChange();
+        if (newMatches == null) {
+            covered = newSize;
+        }
+    }
+}
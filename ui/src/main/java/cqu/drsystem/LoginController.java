@@ -0,0 +1,78 @@
+package cqu.drsystem;
+
+import cqu.drsystem.core.CredentialForm;
+import cqu.drsystem.core.ValidationError;
+import cqu.drsystem.core.Validators;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.PasswordField;
+import javafx.scene.control.TextField;
+import java.io.IOException;
+import java.util.List;
+
+public class LoginController implements ScreenLifecycle {
+
+    @FXML
+    private TextField usernameField;
+    @FXML
+    private PasswordField passwordField;
+    @FXML
+    private Button loginButton;
+
+    @FXML
+    private void login(ActionEvent event) throws Exception {
+        String username = usernameField.getText().trim();
+        String password = passwordField.getText().trim();
+
+        // Input validation
+        List<ValidationError> errors = Validators.LOGIN.validate(new CredentialForm(username, password));
+        if (!errors.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Validation Error", errors.get(0).getMessage());
+            return;
+        }
+
+        // Check credentials on the authentication workers; the result comes back on the FX thread
+        loginButton.setDisable(true);
+        App.getAuthenticationService().login(username, password.toCharArray())
+                .whenComplete((session, error) -> Platform.runLater(() -> {
+                    loginButton.setDisable(false);
+                    if (error != null) {
+                        showAlert(Alert.AlertType.ERROR, "Login Failed", "The system is busy. Please try again.");
+                    } else if (session == null) {
+                        showAlert(Alert.AlertType.ERROR, "Login Failed", "Invalid username or password.");
+                    } else {
+                        App.setSession(session);
+                        try {
+                            App.setRoot("primary");  // Load the main system page
+                        } catch (IOException e) {
+                            showAlert(Alert.AlertType.ERROR, "Login Failed", "Could not open the main page.");
+                        }
+                    }
+                }));
+    }
+
+    @FXML
+    private void goToRegister(ActionEvent event) throws Exception {
+        App.setRoot("register");  // Load the registration page
+    }
+
+    /**
+     * Clears the form each time the screen is shown, such as after a logout.
+     */
+    @Override
+    public void onShow() {
+        usernameField.clear();
+        passwordField.clear();
+    }
+
+    private void showAlert(Alert.AlertType alertType, String title, String message) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,444 @@
+package cqu.drsystem;
+
+import cqu.drsystem.core.AllocationRequest;
+import cqu.drsystem.core.AllocationResult;
+import cqu.drsystem.core.Disaster;
+import cqu.drsystem.core.DisasterImporter;
+import cqu.drsystem.core.DisasterReport;
+import cqu.drsystem.core.DispatchMetrics;
+import cqu.drsystem.core.DispatchOutcome;
+import cqu.drsystem.core.DispatchService;
+import cqu.drsystem.core.ImportProgress;
+import cqu.drsystem.core.PendingAllocation;
+import cqu.drsystem.core.Resource;
+import cqu.drsystem.core.SchedulerListener;
+import cqu.drsystem.core.ValidationError;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PrimaryController class manages the user interactions and functionality
+ * for the Disaster Response System (DRS) user interface. It collects disaster
+ * reports from the form, hands them to the headless {@link DispatchService}
+ * and shows the resulting allocation, department coordination and disaster log.
+ * The screen is cached between logins and may be built on a background thread, so anything
+ * tied to it being on screen happens in {@link #onShow()}.
+ */
+public class PrimaryController implements ScreenLifecycle {
+    @FXML private ComboBox<String> disasterTypeComboBox;  // Disaster type as ComboBox
+    @FXML private TextField locationField;
+    @FXML private ComboBox<String> severityComboBox;
+    @FXML private TextArea descriptionArea;
+    @FXML private ListView<Disaster> disasterLogView;
+    @FXML private TextField logFilterField;
+    @FXML private ListView<String> departmentListView;
+    @FXML private ListView<String> resourceListView;
+    @FXML private Button importButton;
+    @FXML private Label importStatusLabel;
+
+    // Resource selection components
+    @FXML private CheckBox fireTruckCheckBox;
+    @FXML private Spinner<Integer> fireTruckSpinner;
+    @FXML private CheckBox ambulanceCheckBox;
+    @FXML private Spinner<Integer> ambulanceSpinner;
+    @FXML private CheckBox rescueTeamCheckBox;
+    @FXML private Spinner<Integer> rescueTeamSpinner;
+
+    private final DispatchService dispatchService = App.getDispatchService();
+    private final DisasterLogList disasterLog = new DisasterLogList(dispatchService);
+    private final List<Resource> selectedResources = new ArrayList<>();
+    // Panels fed from the FX thread, the import thread and the scheduler; applied once per pulse
+    private final CoalescingListModel<String, String> departmentRows = new CoalescingListModel<>();
+    private final CoalescingListModel<String, String> resourceRows = new CoalescingListModel<>();
+    private final SchedulerListener grantListener = allocation -> {
+        Resource resource = allocation.getResource();
+        if (resource != null) {
+            resourceRows.update(resource.getId(), resource.toString());  // Only if it is on the panel
+        }
+        Platform.runLater(() -> showGrant(allocation));
+    };
+
+    /**
+     * Initializes the disaster types, severity options, departments, and resource spinners.
+     * This method is automatically called when the FXML is loaded.
+     */
+    @FXML
+    public void initialize() {
+        // Populate disaster types
+        disasterTypeComboBox.getItems().addAll("Earthquake", "Flood", "Hurricane", "Fire", "Tornado");
+        
+        // Set default value to "Select"
+        disasterTypeComboBox.setValue("Select");
+        severityComboBox.setValue("Select");
+        
+        severityComboBox.getItems().addAll("Low", "Medium", "High");
+        initializeDisasterLog();
+        departmentListView.setItems(departmentRows.getRows());
+        resourceListView.setItems(resourceRows.getRows());  // Empty until a report is allocated
+        disasterLog.refresh();  // One change event for the whole history
+
+        // Set value factory for spinners
+        fireTruckSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 10, 0));
+        ambulanceSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 10, 0));
+        rescueTeamSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 10, 0));
+    }
+
+    /**
+     * Listens for queued requests being granted and brings the panels up to date, since
+     * resources may have been released while the screen was hidden.
+     */
+    @Override
+    public void onShow() {
+        dispatchService.getScheduler().addListener(grantListener);  // Queued requests are granted later
+        updateDepartmentListView();
+        updateResourceListView();
+    }
+
+    @Override
+    public void onHide() {
+        dispatchService.getScheduler().removeListener(grantListener);
+    }
+
+    /**
+     * Binds the disaster log to its virtualized list view. Only the visible rows are
+     * rendered, and reporting a disaster adds a single row instead of rebuilding the log.
+     */
+    private void initializeDisasterLog() {
+        disasterLogView.setItems(disasterLog);
+        disasterLogView.setCellFactory(view -> new ListCell<Disaster>() {
+            @Override
+            protected void updateItem(Disaster disaster, boolean empty) {
+                super.updateItem(disaster, empty);
+                if (empty || disaster == null) {
+                    setText(null);
+                } else {
+                    // Number rows by their position in the full log, not in the filtered view
+                    setText(DispatchService.formatLogEntry(disasterLog.getLogIndex(getIndex()) + 1, disaster));
+                }
+            }
+        });
+        // Searched off the FX thread; the matches replace the rows once found
+        logFilterField.textProperty().addListener((observable, oldFilter, newFilter) -> disasterLog.setFilter(newFilter));
+    }
+
+    /**
+     * Reports a disaster by collecting user input for disaster details and handing it to the
+     * dispatch service, which logs it, allocates resources and notifies the departments.
+     *
+     * @param event the ActionEvent triggered by the report button
+     */
+    @FXML
+    public void reportDisaster(ActionEvent event) {
+        DisasterReport report = buildReport();
+
+        // Validate user input
+        if (!validateInput(report)) {
+            return;  // If validation fails, stop the process
+        }
+
+        DispatchOutcome outcome = dispatchService.report(report);
+        long renderStart = System.nanoTime();
+        disasterLog.refresh();
+
+        // Show the notified departments; the other rows are unchanged
+        for (String department : outcome.getNotifiedDepartments()) {
+            departmentRows.put(department, departmentRow(department, dispatchService.getDepartmentCount(department)));
+        }
+
+        // The new row is already in the log view; bring it into sight
+        if (!disasterLogView.getItems().isEmpty()) {
+            disasterLogView.scrollTo(disasterLogView.getItems().size() - 1);
+        }
+        // Dialogs wait for the user, so only the view updates count as rendering
+        dispatchService.getMetrics().getLatency(DispatchMetrics.Stage.RENDER).recordSince(renderStart);
+
+        // Show the allocated resources, or queue the report until units are free
+        showAllocation(outcome, report.getAllocationRequests());
+        showNotice("Department Notification",
+                   "The following departments have been notified: " + String.join(", ", outcome.getNotifiedDepartments()));
+    }
+
+    /**
+     * Imports disaster reports from a CSV or JSON Lines file chosen by the user. The import
+     * runs on its own thread; progress is shown next to the button, the department counts follow
+     * the import as it goes, and the log and resources are refreshed when it finishes.
+     *
+     * @param event the ActionEvent triggered by the import button
+     */
+    @FXML
+    public void importReports(ActionEvent event) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Disaster Reports");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Field reports", "*.csv", "*.jsonl", "*.ndjson"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(importButton.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        importButton.setDisable(true);
+        importStatusLabel.setText("Importing " + file.getName() + "...");
+        DisasterImporter importer = new DisasterImporter(dispatchService, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        Thread importThread = new Thread(() -> {
+            try {
+                ImportProgress result = importer.importFile(file.toPath(), DisasterImporter.Format.of(file.toPath()),
+                        progress -> {
+                            updateDepartmentListView();  // Coalesced, so a fast import costs one refresh per pulse
+                            Platform.runLater(() -> importStatusLabel.setText(progress.toString()));
+                        });
+                Platform.runLater(() -> finishImport(result));
+            } catch (IOException | RuntimeException | InterruptedException e) {
+                Platform.runLater(() -> {
+                    importButton.setDisable(false);
+                    importStatusLabel.setText("");
+                    showAlert(Alert.AlertType.ERROR, "Import Failed", "Could not import " + file.getName() + ": " + e.getMessage());
+                });
+            }
+        }, "drsystem-import");
+        importThread.setDaemon(true);
+        importThread.start();
+    }
+
+    private void finishImport(ImportProgress result) {
+        importButton.setDisable(false);
+        importStatusLabel.setText(result.toString());
+        disasterLog.refresh();
+        updateDepartmentListView();
+        selectedResources.clear();
+        updateResourceListView();
+        if (!result.getErrors().isEmpty()) {
+            StringBuilder details = new StringBuilder();
+            for (int i = 0; i < Math.min(10, result.getErrors().size()); i++) {
+                details.append(result.getErrors().get(i)).append('\n');
+            }
+            showAlert(Alert.AlertType.WARNING, "Import Finished",
+                      result.getRowsInvalid() + " records could not be imported, for example:\n" + details);
+        }
+    }
+
+    /**
+     * Builds a disaster report from the form. The "Select" placeholders count as no selection.
+     *
+     * @return the report
+     */
+    private DisasterReport buildReport() {
+        String type = disasterTypeComboBox.getValue();  // Get selected disaster type
+        String severity = severityComboBox.getValue();
+
+        // Collect the selected line items; they are reserved together or not at all
+        List<AllocationRequest> requests = new ArrayList<>();
+        if (fireTruckCheckBox.isSelected() && fireTruckSpinner.getValue() > 0) {
+            requests.add(new AllocationRequest("Fire Truck", fireTruckSpinner.getValue()));
+        }
+        if (ambulanceCheckBox.isSelected() && ambulanceSpinner.getValue() > 0) {
+            requests.add(new AllocationRequest("Ambulance", ambulanceSpinner.getValue()));
+        }
+        if (rescueTeamCheckBox.isSelected() && rescueTeamSpinner.getValue() > 0) {
+            requests.add(new AllocationRequest("Rescue Team", rescueTeamSpinner.getValue()));
+        }
+
+        return new DisasterReport("Select".equals(type) ? null : type, locationField.getText(),
+                "Select".equals(severity) ? null : severity, descriptionArea.getText(), requests);
+    }
+
+    /**
+     * Validates user input for disaster reporting. The report itself is checked by the
+     * dispatch service; the form adds the checks on the resource spinners.
+     *
+     * @param report the report built from the form
+     * @return true if validation passes, false otherwise
+     */
+    private boolean validateInput(DisasterReport report) {
+        List<String> errors = new ArrayList<>();
+
+        // Check if Fire Truck is selected and validate the quantity
+        if (fireTruckCheckBox.isSelected()) {
+            if (fireTruckSpinner.getValue() == 0) {
+                errors.add("Please select a valid quantity for Fire Trucks (greater than 0).");
+            } else if (fireTruckSpinner.getValue() > 10) {
+                errors.add("The quantity of Fire Trucks cannot exceed 10.");
+            }
+        }
+
+        // Check if Ambulance is selected and validate the quantity
+        if (ambulanceCheckBox.isSelected()) {
+            if (ambulanceSpinner.getValue() == 0) {
+                errors.add("Please select a valid quantity for Ambulances (greater than 0).");
+            } else if (ambulanceSpinner.getValue() > 8) {
+                errors.add("The quantity of Ambulances cannot exceed 8.");
+            }
+        }
+
+        // Check if Rescue Team is selected and validate the quantity
+        if (rescueTeamCheckBox.isSelected()) {
+            if (rescueTeamSpinner.getValue() == 0) {
+                errors.add("Please select a valid quantity for Rescue Teams (greater than 0).");
+            } else if (rescueTeamSpinner.getValue() > 15) {
+                errors.add("The quantity of Rescue Teams cannot exceed 15.");
+            }
+        }
+
+        for (ValidationError error : dispatchService.validate(report)) {
+            errors.add(error.getMessage());
+        }
+
+        // Show error message if any validation fails
+        if (!errors.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Input Validation Error", String.join("\n", errors));
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Updates the resource list view with the outcome of an allocation. If the report could not
+     * be allocated, its line items are queued with the scheduler as one unit and granted together
+     * once every one of them fits.
+     *
+     * @param outcome the outcome of the dispatch
+     * @param requests the line items of the report
+     */
+    private void showAllocation(DispatchOutcome outcome, List<AllocationRequest> requests) {
+        AllocationResult result = outcome.getAllocation();
+        selectedResources.clear();  // Clear previously selected resources
+        if (result.isSuccessful()) {
+            selectedResources.addAll(result.getAllocatedResources());
+        } else {
+            List<PendingAllocation> pending = dispatchService.queue(outcome.getDisasterId(), requests);
+            for (PendingAllocation allocation : pending) {
+                if (allocation.getResource() != null) {
+                    selectedResources.add(allocation.getResource());
+                }
+            }
+            // The units may have been freed in the meantime, in which case the request is filled
+            if (selectedResources.isEmpty()) {
+                showAlert(Alert.AlertType.WARNING, "Resource Allocation",
+                          "Not enough " + result.getFailedRequest().getResourceName() + "s available. "
+                          + "The whole request has been queued; no units are held for it until every "
+                          + "requested resource can be sent at once.");
+            }
+        }
+
+        // Update the resource management table (resource list view) only after selection and reporting
+        updateResourceListView();
+    }
+
+    /**
+     * Updates the resource list view with the currently selected resources. Rows that show the
+     * same text as before are not touched.
+     */
+    private void updateResourceListView() {
+        Map<String, String> rows = new LinkedHashMap<>();
+        for (Resource resource : selectedResources) {
+            rows.put(resource.getId(), resource.toString());
+        }
+        resourceRows.replaceAll(rows);
+    }
+
+    /**
+     * Updates the department list view to reflect the current department coordination status.
+     * Safe to call from any thread; only departments whose count changed are redrawn.
+     */
+    private void updateDepartmentListView() {
+        Map<String, String> rows = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : dispatchService.getDepartmentCounts().entrySet()) {
+            rows.put(entry.getKey(), departmentRow(entry.getKey(), entry.getValue()));
+        }
+        departmentRows.replaceAll(rows);
+    }
+
+    private static String departmentRow(String department, int count) {
+        return department + ": " + count + " disasters";
+    }
+
+    /**
+     * Resets the system by clearing all data and restoring default values in the UI components.
+     *
+     * @param event the ActionEvent triggered by the clean log button
+     */
+    @FXML
+    public void cleanLog(ActionEvent event) {
+        // Reset departments and resources; the reset is recorded in the journal
+        dispatchService.reset();
+
+        // Clear all data
+        disasterLog.refresh();
+        selectedResources.clear();
+        resourceRows.clear();
+        logFilterField.clear();
+
+        // Reset UI components to default state
+        disasterTypeComboBox.getSelectionModel().clearSelection();  // Clear disaster type selection
+        locationField.clear();
+        severityComboBox.getSelectionModel().clearSelection();
+        descriptionArea.clear();
+        fireTruckCheckBox.setSelected(false);
+        ambulanceCheckBox.setSelected(false);
+        rescueTeamCheckBox.setSelected(false);
+        fireTruckSpinner.getValueFactory().setValue(0);
+        ambulanceSpinner.getValueFactory().setValue(0);
+        rescueTeamSpinner.getValueFactory().setValue(0);
+        updateDepartmentListView();
+
+        showAlert(Alert.AlertType.INFORMATION, "System Reset", "The system has been reset to the default state.");
+    }
+
+    /**
+     * Shows an alert dialog with the specified title and content.
+     *
+     * @param alertType the type of alert (ERROR, WARNING, INFORMATION)
+     * @param title     the title of the alert dialog
+     * @param content   the content message of the alert dialog
+     */
+    private void showAlert(Alert.AlertType alertType, String title, String content) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+    
+    /**
+     * Shows an information dialog without waiting for it to be closed, so the next report
+     * can be entered straight away.
+     *
+     * @param title   the title of the dialog
+     * @param content the content message of the dialog
+     */
+    private void showNotice(String title, String content) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.initModality(Modality.NONE);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.show();
+    }
+
+    /**
+     * Tells the user that a queued request has been granted units.
+     *
+     * @param allocation the granted allocation
+     */
+    private void showGrant(PendingAllocation allocation) {
+        Disaster disaster = allocation.getDisaster();
+        showNotice("Resource Allocation", allocation.getRequest() + " allocated to the " + disaster.getType()
+                   + " at " + disaster.getLocation() + " after waiting in the queue.");
+    }
+
+    @FXML
+    private void logout(ActionEvent event) throws Exception {
+        App.logout();  // Log out the user and redirect to login page
+    }
+}
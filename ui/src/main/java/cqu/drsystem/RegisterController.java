@@ -0,0 +1,77 @@
+package cqu.drsystem;
+
+import cqu.drsystem.core.CredentialForm;
+import cqu.drsystem.core.ValidationError;
+import cqu.drsystem.core.Validators;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.PasswordField;
+import javafx.scene.control.TextField;
+import java.io.IOException;
+import java.util.List;
+
+public class RegisterController implements ScreenLifecycle {
+
+    @FXML
+    private TextField usernameField;
+    @FXML
+    private PasswordField passwordField;
+    @FXML
+    private PasswordField confirmPasswordField;
+    @FXML
+    private Button registerButton;
+
+    @FXML
+    private void register(ActionEvent event) throws Exception {
+        String username = usernameField.getText().trim();
+        String password = passwordField.getText().trim();
+        String confirmPassword = confirmPasswordField.getText().trim();
+
+        // Input validation
+        List<ValidationError> errors = Validators.REGISTRATION.validate(new CredentialForm(username, password, confirmPassword));
+        if (!errors.isEmpty()) {
+            showAlert(Alert.AlertType.ERROR, "Registration Failed", errors.get(0).getMessage());
+            return;
+        }
+
+        // Register user on the authentication workers and navigate to login page
+        registerButton.setDisable(true);
+        App.getAuthenticationService().register(username, password.toCharArray())
+                .whenComplete((registered, error) -> Platform.runLater(() -> {
+                    registerButton.setDisable(false);
+                    if (error != null) {
+                        showAlert(Alert.AlertType.ERROR, "Registration Failed", "Could not save the registration. Please try again.");
+                    } else if (!registered) {
+                        showAlert(Alert.AlertType.ERROR, "Registration Failed", "Username is already taken.");
+                    } else {
+                        showAlert(Alert.AlertType.INFORMATION, "Registration Successful", "You can now log in.");
+                        try {
+                            App.setRoot("login");  // Redirect to login page
+                        } catch (IOException e) {
+                            showAlert(Alert.AlertType.ERROR, "Registration Failed", "Could not open the login page.");
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * Clears the form each time the screen is shown.
+     */
+    @Override
+    public void onShow() {
+        usernameField.clear();
+        passwordField.clear();
+        confirmPasswordField.clear();
+    }
+
+    private void showAlert(Alert.AlertType alertType, String title, String message) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,196 @@
+package cqu.drsystem;
+
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps every screen that has been loaded, so each FXML file is parsed and its controller
+ * created once per run instead of on every navigation. Showing a screen again swaps its root
+ * back into the scene with the controller's state intact; controllers that implement
+ * {@link ScreenLifecycle} are told when they are shown, hidden and evicted.
+ * <p>
+ * A screen can be preloaded on a background thread, such as the main screen while the user is
+ * still on the login screen. Nodes may be built off the FX thread as long as they are not part
+ * of a showing scene, and showing a screen whose preload is still running waits for it rather
+ * than loading it twice.
+ * <p>
+ * With timing on, the time from each navigation request to the first layout pulse of the new
+ * screen, after which it takes input, is logged together with how the screen was obtained.
+ * <p>
+ * Used from the FX thread only, apart from the preloads themselves.
+ */
+class ScreenCache {
+
+    private static final System.Logger LOGGER = System.getLogger(ScreenCache.class.getName());
+
+    private final Map<String, CompletableFuture<Screen>> screens = new HashMap<>();
+    private final boolean timing;
+    private Screen current;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param timing whether to log the time until each shown screen is interactive
+     */
+    ScreenCache(boolean timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * Starts loading a screen in the background. Does nothing if it is cached or already loading.
+     *
+     * @param name the name of the FXML file, without extension
+     * @param executor the executor to load on
+     */
+    void preload(String name, Executor executor) {
+        screens.computeIfAbsent(name, key -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return load(key, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor));
+    }
+
+    /**
+     * Makes a screen the root of the scene, loading it first if it is not cached.
+     *
+     * @param scene the scene to show the screen in
+     * @param name the name of the FXML file, without extension
+     * @param requestedNanos when the navigation was requested, by {@link System#nanoTime()}
+     * @throws IOException if the screen could not be loaded
+     */
+    void show(Scene scene, String name, long requestedNanos) throws IOException {
+        Screen screen = get(name);
+        if (screen == current) {
+            return;
+        }
+        if (current != null) {
+            current.lifecycle().onHide();
+        }
+        scene.setRoot(screen.root);
+        current = screen;
+        screen.lifecycle().onShow();
+        if (timing) {
+            reportWhenInteractive(scene, screen, requestedNanos);
+        }
+        screen.shows++;
+    }
+
+    /**
+     * Drops a screen from the cache and disposes of its controller. The next show loads it anew.
+     *
+     * @param name the name of the FXML file, without extension
+     */
+    void evict(String name) {
+        CompletableFuture<Screen> future = screens.remove(name);
+        if (future == null) {
+            return;
+        }
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            dispose(future.join());
+        } else {
+            // A preload still running is disposed of when it finishes
+            future.thenAccept(screen -> Platform.runLater(() -> dispose(screen)));
+        }
+    }
+
+    private void dispose(Screen screen) {
+        if (screen == current) {
+            screen.lifecycle().onHide();
+            current = null;
+        }
+        screen.lifecycle().dispose();
+    }
+
+    /**
+     * Evicts every screen.
+     */
+    void clear() {
+        for (String name : new ArrayList<>(screens.keySet())) {
+            evict(name);
+        }
+    }
+
+    private Screen get(String name) throws IOException {
+        CompletableFuture<Screen> future = screens.get(name);
+        if (future != null) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Could not preload the " + name + " screen, loading it again: "
+                        + e.getCause().getMessage());
+                screens.remove(name);
+            }
+        }
+        Screen screen = load(name, false);
+        screens.put(name, CompletableFuture.completedFuture(screen));
+        return screen;
+    }
+
+    private static Screen load(String name, boolean preloaded) throws IOException {
+        long start = System.nanoTime();
+        FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource(name + ".fxml"));
+        Parent root = fxmlLoader.load();
+        return new Screen(name, root, fxmlLoader.getController(), System.nanoTime() - start, preloaded);
+    }
+
+    /**
+     * Logs the time to the first layout pulse after the screen became the root.
+     */
+    private void reportWhenInteractive(Scene scene, Screen screen, long requestedNanos) {
+        String source = screen.shows > 0 ? "cached"
+                : String.format("loaded in %.1f ms%s", screen.loadNanos / 1e6, screen.preloaded ? " in the background" : "");
+        scene.addPostLayoutPulseListener(new Runnable() {
+            private boolean reported;
+
+            @Override
+            public void run() {
+                if (reported) {
+                    return;
+                }
+                reported = true;
+                LOGGER.log(System.Logger.Level.INFO, String.format("Screen %s interactive after %.1f ms (%s)",
+                        screen.name, (System.nanoTime() - requestedNanos) / 1e6, source));
+                // Not removed from inside the pulse that is calling it
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+            }
+        });
+    }
+
+    /**
+     * A loaded screen.
+     */
+    private static final class Screen {
+        private static final ScreenLifecycle NO_LIFECYCLE = new ScreenLifecycle() { };
+
+        final String name;
+        final Parent root;
+        final Object controller;
+        final long loadNanos;
+        final boolean preloaded;
+        int shows;
+
+        Screen(String name, Parent root, Object controller, long loadNanos, boolean preloaded) {
+            this.name = name;
+            this.root = root;
+            this.controller = controller;
+            this.loadNanos = loadNanos;
+            this.preloaded = preloaded;
+        }
+
+        ScreenLifecycle lifecycle() {
+            return controller instanceof ScreenLifecycle ? (ScreenLifecycle) controller : NO_LIFECYCLE;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cqu.drsystem;
+
+/**
+ * Callbacks for a controller whose screen is kept by the {@link ScreenCache}. A cached screen is
+ * loaded once and shown and hidden many times, so work that used to happen on every load belongs
+ * in {@link #onShow()}, and anything registered there is undone in {@link #onHide()}.
+ */
+public interface ScreenLifecycle {
+
+    /**
+     * Called on the FX thread each time the screen becomes the root of the scene.
+     */
+    default void onShow() {
+    }
+
+    /**
+     * Called on the FX thread each time another screen replaces this one.
+     */
+    default void onHide() {
+    }
+
+    /**
+     * Called on the FX thread when the screen is evicted from the cache and will not be shown
+     * again.
+     */
+    default void dispose() {
+    }
+}
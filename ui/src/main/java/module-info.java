@@ -1,6 +1,7 @@
 module cqu.drsystem {
     requires javafx.controls;
     requires javafx.fxml;
+    requires cqu.drsystem.core;
 
     opens cqu.drsystem to javafx.fxml;
     exports cqu.drsystem;